@@ -24,17 +24,18 @@ import java.net.SocketException;
 import java.security.GeneralSecurityException;
 import java.security.KeyManagementException;
 import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumSet;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.Timer;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.SynchronousQueue;
-import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import javax.annotation.Nonnull;
@@ -60,10 +61,41 @@ public class CastDevice {
 	/** The application ID for the "Default Media Receiver" application */
 	public static final String DEFAULT_MEDIA_RECEIVER_APP_ID = "CC1AD845";
 
-	/** The {@link ExecutorService} that is used for asynchronous operations */
+	/** The default maximum number of threads used to notify listeners */
+	public static final int DEFAULT_EVENT_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+	/** The default maximum number of queued listener notifications */
+	public static final int DEFAULT_EVENT_QUEUE_CAPACITY = 10000;
+
+	/** The default maximum number of threads used for asynchronous operations */
+	public static final int DEFAULT_WORKER_THREADS = Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+
+	/** The default maximum number of queued asynchronous operations */
+	public static final int DEFAULT_WORKER_QUEUE_CAPACITY = 1000;
+
+	/**
+	 * The {@link ExecutorService} that is used for asynchronous operations. It
+	 * has at most {@link #DEFAULT_WORKER_THREADS} threads and
+	 * {@link #DEFAULT_WORKER_QUEUE_CAPACITY} queued tasks, and rejects tasks
+	 * beyond that with a {@link java.util.concurrent.RejectedExecutionException}
+	 * that callers must handle.
+	 */
 	@Nonnull
 	protected static final ExecutorService EXECUTOR = createExecutor();
 
+	/**
+	 * The {@link StripedExecutor} that is used to notify listeners, with one
+	 * {@link StripedExecutor.Stripe} per {@link CastDevice} so that the events
+	 * from a cast device are delivered in order
+	 */
+	@Nonnull
+	public static final StripedExecutor EVENT_EXECUTOR = new StripedExecutor(
+		"Cast API event notifier",
+		DEFAULT_EVENT_THREADS,
+		DEFAULT_EVENT_QUEUE_CAPACITY,
+		StripedExecutor.RejectionPolicy.ABORT
+	);
+
 	/** The currently registered {@link CastEventListener}s */
 	@Nonnull
 	protected final CastEventListenerList listeners;
@@ -118,6 +150,10 @@ public class CastDevice {
 	/** Whether automatic {@link Channel} reconnection "on demand" is enabled */
 	protected final boolean autoReconnect;
 
+	/** The lazily created {@link CastEventPublisher} for this device */
+	@Nullable
+	protected volatile CastEventPublisher eventPublisher;
+
 	/**
 	 * Creates a new instance by extracting the required information from the
 	 * specified {@link JmDNS} instance using the specified DNS name.
@@ -187,7 +223,7 @@ public class CastDevice {
 		}
 		this.iconPath = serviceInfo.getPropertyString("ic");
 		this.displayName = generateDisplayName();
-		this.listeners = new ThreadedCastEventListenerList(EXECUTOR, displayName);
+		this.listeners = new ThreadedCastEventListenerList(EVENT_EXECUTOR.newStripe(displayName), displayName);
 		this.channel = new Channel(socketAddress, displayName, listeners);
 	}
 
@@ -293,7 +329,7 @@ public class CastDevice {
 		this.protocolVersion = protocolVersion;
 		this.iconPath = iconPath;
 		this.displayName = generateDisplayName();
-		this.listeners = new ThreadedCastEventListenerList(EXECUTOR, displayName);
+		this.listeners = new ThreadedCastEventListenerList(EVENT_EXECUTOR.newStripe(displayName), displayName);
 		this.channel = new Channel(socketAddress, displayName, listeners);
 	}
 
@@ -400,7 +436,7 @@ public class CastDevice {
 		this.protocolVersion = protocolVersion;
 		this.iconPath = iconPath;
 		this.displayName = generateDisplayName();
-		this.listeners = new ThreadedCastEventListenerList(EXECUTOR, displayName);
+		this.listeners = new ThreadedCastEventListenerList(EVENT_EXECUTOR.newStripe(displayName), displayName);
 		this.channel = new Channel(socketAddress, displayName, listeners);
 	}
 
@@ -606,6 +642,122 @@ public class CastDevice {
 		return autoReconnect;
 	}
 
+	/**
+	 * @return The {@link SharedSelector} used for non-blocking communication
+	 *         with the cast device, or {@code null} if a blocking socket and a
+	 *         dedicated input thread is used.
+	 */
+	@Nullable
+	public SharedSelector getSharedSelector() {
+		return channel.getSharedSelector();
+	}
+
+	/**
+	 * Sets the {@link SharedSelector} to use for non-blocking communication
+	 * with the cast device. Using the same {@link SharedSelector} for many
+	 * {@link CastDevice}s lets them share a few threads instead of using a
+	 * dedicated input thread each. The change takes effect on the next
+	 * connect.
+	 *
+	 * @param sharedSelector the {@link SharedSelector} to use or {@code null}
+	 *            to use a blocking socket.
+	 */
+	public void setSharedSelector(@Nullable SharedSelector sharedSelector) {
+		channel.setSharedSelector(sharedSelector);
+	}
+
+	/**
+	 * @return The number of consecutive heartbeats that can go unanswered
+	 *         before the connection to the cast device is closed, or zero if
+	 *         it's never closed because of missing heartbeat responses.
+	 */
+	public int getMaxMissedHeartbeats() {
+		return channel.getMaxMissedHeartbeats();
+	}
+
+	/**
+	 * Sets the number of consecutive heartbeats that can go unanswered before
+	 * the connection to the cast device is considered dead and is closed,
+	 * firing a {@link CastEventType#CONNECTED} event. The default is
+	 * {@link Channel#DEFAULT_MAX_MISSED_HEARTBEATS}.
+	 *
+	 * @param maxMissedHeartbeats the number of unanswered heartbeats to allow,
+	 *            or zero to never close the connection because of missing
+	 *            heartbeat responses.
+	 * @throws IllegalArgumentException If {@code maxMissedHeartbeats} is
+	 *             negative.
+	 */
+	public void setMaxMissedHeartbeats(int maxMissedHeartbeats) {
+		channel.setMaxMissedHeartbeats(maxMissedHeartbeats);
+	}
+
+	/**
+	 * @return The interval in milliseconds between synthetic
+	 *         {@link CastEventType#PLAYBACK_POSITION} events, or zero if they
+	 *         are disabled.
+	 */
+	public long getPositionUpdateInterval() {
+		return channel.getPositionUpdateInterval();
+	}
+
+	/**
+	 * Enables or disables synthetic {@link CastEventType#PLAYBACK_POSITION}
+	 * events, fired at the specified interval for every media session that is
+	 * playing. The positions are estimated locally and resynchronized every
+	 * time a new {@link MediaStatus} arrives, so no polling is needed to keep
+	 * a progress indicator up to date.
+	 *
+	 * @param positionUpdateInterval the interval in milliseconds, or zero to
+	 *            disable synthetic position updates.
+	 * @throws IllegalArgumentException If {@code positionUpdateInterval} is
+	 *             negative.
+	 */
+	public void setPositionUpdateInterval(long positionUpdateInterval) {
+		channel.setPositionUpdateInterval(positionUpdateInterval);
+	}
+
+	/**
+	 * @return The number of milliseconds application availability is cached.
+	 */
+	public long getAvailabilityTtl() {
+		return channel.getAvailabilityTtl();
+	}
+
+	/**
+	 * Sets the number of milliseconds the availability of an application is
+	 * cached. The cache is always cleared when the connection is opened or
+	 * closed. The default is {@link Channel#DEFAULT_AVAILABILITY_TTL}.
+	 *
+	 * @param availabilityTtl the number of milliseconds to cache application
+	 *            availability, or zero to disable caching.
+	 * @throws IllegalArgumentException If {@code availabilityTtl} is
+	 *             negative.
+	 */
+	public void setAvailabilityTtl(long availabilityTtl) {
+		channel.setAvailabilityTtl(availabilityTtl);
+	}
+
+	/**
+	 * @return The number of milliseconds the response to an idempotent status
+	 *         query is reused after it has been received.
+	 */
+	public long getQueryReuseTime() {
+		return channel.getQueryReuseTime();
+	}
+
+	/**
+	 * Sets the number of milliseconds the response to an idempotent status
+	 * query, like {@link #getReceiverStatus()}, can be reused after it has been
+	 * received. Identical queries are always shared while they are in flight.
+	 *
+	 * @param queryReuseTime the number of milliseconds to reuse responses, or
+	 *            zero to only share queries that are in flight.
+	 * @throws IllegalArgumentException If {@code queryReuseTime} is negative.
+	 */
+	public void setQueryReuseTime(long queryReuseTime) {
+		channel.setQueryReuseTime(queryReuseTime);
+	}
+
 	/**
 	 * Requests a status from the cast device and returns the resulting
 	 * {@link ReceiverStatus} if one is obtained, using
@@ -640,6 +792,58 @@ public class CastDevice {
 		return channel().getReceiverStatus(responseTimeout);
 	}
 
+	/**
+	 * Returns the last {@link ReceiverStatus} received from the cast device if
+	 * it's no older than the specified maximum age, or requests a new
+	 * {@link ReceiverStatus} if it is. The cast device pushes a new
+	 * {@link ReceiverStatus} whenever something changes, so frequent polling
+	 * with a reasonable maximum age rarely results in a request.
+	 * <p>
+	 * This call only blocks if a request is needed.
+	 *
+	 * @param maxAge the maximum age of the mirrored {@link ReceiverStatus} in
+	 *            milliseconds.
+	 * @return The resulting {@link ReceiverStatus}.
+	 * @throws IOException If a request is needed and the response times out
+	 *             or an error occurs during the operation.
+	 */
+	@Nullable
+	public ReceiverStatus getRecentReceiverStatus(long maxAge) throws IOException {
+		return channel().getRecentReceiverStatus(maxAge);
+	}
+
+	/**
+	 * Returns the last {@link ReceiverStatus} received from the cast device
+	 * without sending any request.
+	 *
+	 * @return The last received {@link ReceiverStatus} or {@code null} if none
+	 *         has been received since the connection was opened.
+	 */
+	@Nullable
+	public ReceiverStatus getMirroredReceiverStatus() {
+		return channel.getMirroredReceiverStatus(-1L);
+	}
+
+	/**
+	 * Requests a status from the cast device without blocking.
+	 *
+	 * @param responseTimeout the response timeout in milliseconds. If zero or
+	 *            negative, {@link Channel#DEFAULT_RESPONSE_TIMEOUT} will be
+	 *            used.
+	 * @return The {@link CompletableFuture} that will be completed with the
+	 *         resulting {@link ReceiverStatus}. It will be completed
+	 *         exceptionally with an {@link IOException} if the
+	 *         {@link Channel} isn't open and can't be reconnected.
+	 */
+	@Nonnull
+	public CompletableFuture<ReceiverStatus> getReceiverStatusAsync(long responseTimeout) {
+		try {
+			return channel().getReceiverStatusAsync(responseTimeout);
+		} catch (IOException e) {
+			return Util.failedFuture(e);
+		}
+	}
+
 	/**
 	 * This is a convenience method that calls {@link #getReceiverStatus()} and
 	 * then {@link ReceiverStatus#getRunningApplication()}.
@@ -657,6 +861,26 @@ public class CastDevice {
 		return status == null ? null : status.getRunningApplication();
 	}
 
+	/**
+	 * This is a convenience method that calls
+	 * {@link #getRecentReceiverStatus(long)} and then
+	 * {@link ReceiverStatus#getRunningApplication()}.
+	 * <p>
+	 * This call only blocks if a request is needed.
+	 *
+	 * @param maxAge the maximum age of the mirrored {@link ReceiverStatus} in
+	 *            milliseconds.
+	 * @return The {@link Application} describing the current running
+	 *         application, if any, or {@code null}.
+	 * @throws IOException If a request is needed and the response times out
+	 *             or an error occurs during the operation.
+	 */
+	@Nullable
+	public Application getRunningApplication(long maxAge) throws IOException {
+		ReceiverStatus status = getRecentReceiverStatus(maxAge);
+		return status == null ? null : status.getRunningApplication();
+	}
+
 	/**
 	 * Queries the cast device if the application represented by the specified
 	 * application ID is available, using
@@ -672,6 +896,51 @@ public class CastDevice {
 		return channel().isApplicationAvailable(applicationId);
 	}
 
+	/**
+	 * Queries the cast device for the availability of the applications
+	 * represented by the specified application IDs in one request, using
+	 * {@link Channel#DEFAULT_RESPONSE_TIMEOUT} as the timeout value. The
+	 * results are cached if {@link #getAvailabilityTtl()} is positive.
+	 *
+	 * @param applicationIds the application IDs for which to query
+	 *            availability.
+	 * @return The {@link Map} of application IDs and their availability.
+	 * @throws IOException If the response times out or if an error occurs
+	 *             during the operation.
+	 */
+	@Nonnull
+	public Map<String, Boolean> getApplicationAvailability(@Nonnull Collection<String> applicationIds) throws IOException {
+		return channel().getApplicationAvailability(applicationIds);
+	}
+
+	/**
+	 * Queries the cast device for the availability of the applications
+	 * represented by the specified application IDs in one request without
+	 * blocking. The results are cached if {@link #getAvailabilityTtl()} is
+	 * positive.
+	 *
+	 * @param applicationIds the application IDs for which to query
+	 *            availability.
+	 * @param responseTimeout the response timeout in milliseconds. If zero or
+	 *            negative, {@link Channel#DEFAULT_RESPONSE_TIMEOUT} will be
+	 *            used.
+	 * @return The {@link CompletableFuture} that will be completed with the
+	 *         {@link Map} of application IDs and their availability. It will
+	 *         be completed exceptionally with an {@link IOException} if the
+	 *         {@link Channel} isn't open and can't be reconnected.
+	 */
+	@Nonnull
+	public CompletableFuture<Map<String, Boolean>> getApplicationAvailabilityAsync(
+		@Nonnull Collection<String> applicationIds,
+		long responseTimeout
+	) {
+		try {
+			return channel().getApplicationAvailabilityAsync(applicationIds, responseTimeout);
+		} catch (IOException e) {
+			return Util.failedFuture(e);
+		}
+	}
+
 	/**
 	 * This is a convenience method that calls {@link #getReceiverStatus()} and
 	 * then compares the specified application ID with the result of
@@ -692,6 +961,29 @@ public class CastDevice {
 		return application == null ? false : applicationId.equals(application.getAppId());
 	}
 
+	/**
+	 * This is a convenience method that calls
+	 * {@link #getRecentReceiverStatus(long)} and then compares the specified
+	 * application ID with the result of
+	 * {@link ReceiverStatus#getRunningApplication()}.
+	 * <p>
+	 * This call only blocks if a request is needed.
+	 *
+	 * @param applicationId application ID to check if is the "currently running
+	 *            application".
+	 * @param maxAge the maximum age of the mirrored {@link ReceiverStatus} in
+	 *            milliseconds.
+	 * @return {@code true} if application with specified identifier is
+	 *         "currently running", {@code false} otherwise.
+	 * @throws IOException If a request is needed and the response times out
+	 *             or an error occurs during the operation.
+	 */
+	public boolean isApplicationRunning(String applicationId, long maxAge) throws IOException {
+		ReceiverStatus status = getRecentReceiverStatus(maxAge);
+		Application application = status == null ? null : status.getRunningApplication();
+		return application == null ? false : applicationId.equals(application.getAppId());
+	}
+
 	/**
 	 * Asks the cast device to launch the application represented by the
 	 * specified application ID, using {@link Channel#DEFAULT_RESPONSE_TIMEOUT}
@@ -736,6 +1028,28 @@ public class CastDevice {
 		return channel().launch(applicationId, synchronous, responseTimeout);
 	}
 
+	/**
+	 * Asks the cast device to launch the application represented by the
+	 * specified application ID without blocking.
+	 *
+	 * @param applicationId the application ID for the application to launch.
+	 * @param responseTimeout the response timeout in milliseconds. If zero or
+	 *            negative, {@link Channel#DEFAULT_RESPONSE_TIMEOUT} will be
+	 *            used.
+	 * @return The {@link CompletableFuture} that will be completed with the
+	 *         resulting {@link ReceiverStatus}. It will be completed
+	 *         exceptionally with an {@link IOException} if the
+	 *         {@link Channel} isn't open and can't be reconnected.
+	 */
+	@Nonnull
+	public CompletableFuture<ReceiverStatus> launchAsync(String applicationId, long responseTimeout) {
+		try {
+			return channel().launchAsync(applicationId, responseTimeout);
+		} catch (IOException e) {
+			return Util.failedFuture(e);
+		}
+	}
+
 	/**
 	 * Asks the cast device to stop the specified {@link Application}, using
 	 * {@link Channel#DEFAULT_RESPONSE_TIMEOUT} as the timeout value.
@@ -784,6 +1098,33 @@ public class CastDevice {
 		return channel().stopApplication(application, synchronous, responseTimeout);
 	}
 
+	/**
+	 * Asks the cast device to stop the specified {@link Application} without
+	 * blocking.
+	 *
+	 * @param application the {@link Application} to stop.
+	 * @param responseTimeout the response timeout in milliseconds. If zero or
+	 *            negative, {@link Channel#DEFAULT_RESPONSE_TIMEOUT} will be
+	 *            used.
+	 * @return The {@link CompletableFuture} that will be completed with the
+	 *         resulting {@link ReceiverStatus}. It will be completed
+	 *         exceptionally with an {@link IOException} if the
+	 *         {@link Channel} isn't open and can't be reconnected.
+	 * @throws IllegalArgumentException If {@code application} is
+	 *             {@code null}.
+	 */
+	@Nonnull
+	public CompletableFuture<ReceiverStatus> stopApplicationAsync(
+		@Nonnull Application application,
+		long responseTimeout
+	) {
+		try {
+			return channel().stopApplicationAsync(application, responseTimeout);
+		} catch (IOException e) {
+			return Util.failedFuture(e);
+		}
+	}
+
 	/**
 	 * Establishes a {@link Session} with the specified {@link Application}
 	 * unless one already exists, in which case the existing {@link Session} is
@@ -902,6 +1243,22 @@ public class CastDevice {
 		channel().setVolume(volume);
 	}
 
+	/**
+	 * Creates a new {@link RequestBatch} that sends its {@link Request}s
+	 * back-to-back using the specified source and destination IDs. This is for
+	 * requests that aren't associated with a {@link Session}, use
+	 * {@link Session#newRequestBatch()} for {@link Session} requests.
+	 *
+	 * @param sourceId the source ID to use.
+	 * @param destinationId the destination ID to use.
+	 * @return The new {@link RequestBatch}.
+	 * @throws IOException If an error occurs while reconnecting.
+	 */
+	@Nonnull
+	public RequestBatch newRequestBatch(@Nonnull String sourceId, @Nonnull String destinationId) throws IOException {
+		return new RequestBatch(channel(), sourceId, destinationId);
+	}
+
 	/**
 	 * Sends the specified {@link Request} with the specified namespace using
 	 * the specified source and destination IDs and
@@ -988,6 +1345,27 @@ public class CastDevice {
 		return listeners.add(listener, eventTypes);
 	}
 
+	/**
+	 * Registers the specified {@link CastEventListener} for the specified
+	 * {@link CastEventType}s as a conflating listener. Bursts of
+	 * high-frequency status events are conflated so that the listener only
+	 * receives the latest undelivered event of each such type, while other
+	 * events are delivered as usual. See
+	 * {@link ThreadedCastEventListenerList#addConflating(CastEventListener, CastEventType...)}
+	 * for details.
+	 *
+	 * @param listener the {@link CastEventListener} to register.
+	 * @param eventTypes the event type(s) to listen to.
+	 * @return {@code true} if a change was made to the registration,
+	 *         {@code false} otherwise.
+	 */
+	public boolean addConflatingEventListener(@Nullable CastEventListener listener, CastEventType... eventTypes) {
+		if (listeners instanceof ThreadedCastEventListenerList) {
+			return ((ThreadedCastEventListenerList) listeners).addConflating(listener, eventTypes);
+		}
+		return listeners.add(listener, eventTypes);
+	}
+
 	/**
 	 * Unregisters the specified {@link CastEventListener}.
 	 *
@@ -999,6 +1377,29 @@ public class CastDevice {
 		return listeners.remove(listener);
 	}
 
+	/**
+	 * Returns the {@link CastEventPublisher} that publishes all events from
+	 * this device as a demand-driven stream. It is created and registered as a
+	 * listener the first time this method is called.
+	 *
+	 * @return The {@link CastEventPublisher}.
+	 */
+	@Nonnull
+	public CastEventPublisher getEventPublisher() {
+		CastEventPublisher result = eventPublisher;
+		if (result == null) {
+			synchronized (listeners) {
+				result = eventPublisher;
+				if (result == null) {
+					result = new CastEventPublisher(displayName);
+					listeners.add(result);
+					eventPublisher = result;
+				}
+			}
+		}
+		return result;
+	}
+
 	@Override
 	public int hashCode() {
 		return Objects.hash(
@@ -1054,25 +1455,23 @@ public class CastDevice {
 	}
 
 	/**
+	 * Creates the bounded {@link ExecutorService} used for asynchronous
+	 * operations. Idle threads are terminated, so that no threads are kept
+	 * when the library isn't used.
+	 *
 	 * @return The new {@link ExecutorService}.
 	 */
 	protected static ExecutorService createExecutor() {
 		ThreadPoolExecutor result = new ThreadPoolExecutor(
-			0,
-			Integer.MAX_VALUE,
-			300L,
+			DEFAULT_WORKER_THREADS,
+			DEFAULT_WORKER_THREADS,
+			60L,
 			TimeUnit.SECONDS,
-			new SynchronousQueue<Runnable>(true),
-			new ThreadFactory() {
-
-				private final AtomicInteger threadNumber = new AtomicInteger(1);
-
-				@Override
-				public Thread newThread(Runnable r) {
-					return new Thread(r, "Cast API worker #" + threadNumber.getAndIncrement());
-				}
-			}
+			new LinkedBlockingQueue<Runnable>(DEFAULT_WORKER_QUEUE_CAPACITY),
+			VirtualThreads.newThreadFactory("Cast API worker", false),
+			new ThreadPoolExecutor.AbortPolicy()
 		);
+		result.allowCoreThreadTimeOut(true);
 		return result;
 	}
 
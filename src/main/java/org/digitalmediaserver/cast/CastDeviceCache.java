@@ -0,0 +1,443 @@
+/*
+ * Copyright (C) 2021 Digital Media Server developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.digitalmediaserver.cast;
+
+import static org.digitalmediaserver.cast.Util.requireNotNull;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+
+
+/**
+ * An on-disk cache of discovered cast devices, used to recreate the
+ * {@link CastDevice}s at startup before mDNS discovery has found them again.
+ * <p>
+ * The cache is a {@code JSON} file with one entry per device, holding the
+ * information needed to connect to it and the information that is otherwise
+ * derived from the mDNS {@code TXT} record. Entries that haven't been seen for
+ * longer than the maximum age are ignored when the cache is loaded. Devices
+ * that have been loaded but not seen since can be saved with the time they
+ * were last seen, so that they still expire.
+ *
+ * @author Nadahar
+ */
+@ThreadSafe
+public class CastDeviceCache {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(CastDeviceCache.class);
+
+	/** The default maximum age of an entry in milliseconds */
+	public static final long DEFAULT_MAX_AGE = TimeUnit.DAYS.toMillis(7L);
+
+	/** The default connect probe timeout in milliseconds */
+	public static final int DEFAULT_PROBE_TIMEOUT = 2000;
+
+	/** The {@link TypeReference} for a {@link List} of {@link Entry} */
+	protected static final TypeReference<List<Entry>> ENTRY_LIST_TYPE = new TypeReference<List<Entry>>() { };
+
+	/** The cache file */
+	@Nonnull
+	protected final Path file;
+
+	/** The maximum age of an entry in milliseconds */
+	protected final long maxAge;
+
+	/** When the loaded or saved devices were last seen, by mDNS name */
+	@Nonnull
+	@GuardedBy("this")
+	protected final Map<String, Long> lastSeen = new HashMap<>();
+
+	/**
+	 * Creates a new instance using the specified file and
+	 * {@link #DEFAULT_MAX_AGE}.
+	 *
+	 * @param file the cache file.
+	 * @throws IllegalArgumentException If {@code file} is {@code null}.
+	 */
+	public CastDeviceCache(@Nonnull Path file) {
+		this(file, DEFAULT_MAX_AGE);
+	}
+
+	/**
+	 * Creates a new instance using the specified parameters.
+	 *
+	 * @param file the cache file.
+	 * @param maxAge the maximum age of an entry in milliseconds, or zero or
+	 *            negative for no limit.
+	 * @throws IllegalArgumentException If {@code file} is {@code null}.
+	 */
+	public CastDeviceCache(@Nonnull Path file, long maxAge) {
+		requireNotNull(file, "file");
+		this.file = file;
+		this.maxAge = maxAge;
+	}
+
+	/**
+	 * @return The cache file.
+	 */
+	@Nonnull
+	public Path getFile() {
+		return file;
+	}
+
+	/**
+	 * @return The maximum age of an entry in milliseconds, or zero or negative
+	 *         for no limit.
+	 */
+	public long getMaxAge() {
+		return maxAge;
+	}
+
+	/**
+	 * Reads the cache file and creates {@link CastDevice}s for the entries
+	 * that haven't expired. A missing cache file results in an empty
+	 * {@link List}.
+	 *
+	 * @param autoReconnect the {@code autoReconnect} value for the created
+	 *            {@link CastDevice}s.
+	 * @return The {@link List} of {@link CastDevice}s.
+	 * @throws IOException If the cache file can't be read or parsed.
+	 */
+	@Nonnull
+	public synchronized List<CastDevice> load(boolean autoReconnect) throws IOException {
+		if (!Files.isRegularFile(file)) {
+			return Collections.emptyList();
+		}
+		List<Entry> entries = JacksonHelper.getSharedMapper().readValue(file.toFile(), ENTRY_LIST_TYPE);
+		if (entries == null || entries.isEmpty()) {
+			return Collections.emptyList();
+		}
+		long now = System.currentTimeMillis();
+		List<CastDevice> result = new ArrayList<>(entries.size());
+		for (Entry entry : entries) {
+			if (entry == null || Util.isBlank(entry.dnsName) || Util.isBlank(entry.address)) {
+				continue;
+			}
+			if (maxAge > 0L && now - entry.lastSeen > maxAge) {
+				LOGGER.debug(Channel.CAST_API_MARKER, "Ignoring expired cached cast device \"{}\"", entry.dnsName);
+				continue;
+			}
+			lastSeen.put(entry.dnsName, Long.valueOf(entry.lastSeen));
+			result.add(entry.toCastDevice(autoReconnect));
+		}
+		return result;
+	}
+
+	/**
+	 * Replaces the content of the cache file with entries for the specified
+	 * {@link CastDevice}s. The file is written to a temporary file first, so
+	 * that a failure never leaves a partially written cache.
+	 *
+	 * @param devices the {@link CastDevice}s to store.
+	 * @throws IOException If the cache file can't be written.
+	 */
+	public void save(@Nullable Collection<CastDevice> devices) throws IOException {
+		save(devices, null);
+	}
+
+	/**
+	 * Replaces the content of the cache file with entries for the specified
+	 * {@link CastDevice}s. The devices in {@code seen} are stored as seen now,
+	 * while those in {@code unseen} keep the time they were last seen when
+	 * they were loaded or saved. Devices in {@code unseen} without a known
+	 * time, or that have expired, are left out. The file is written to a
+	 * temporary file first, so that a failure never leaves a partially written
+	 * cache.
+	 *
+	 * @param seen the {@link CastDevice}s that are known to exist.
+	 * @param unseen the {@link CastDevice}s that haven't been seen since they
+	 *            were loaded.
+	 * @throws IOException If the cache file can't be written.
+	 */
+	public synchronized void save(
+		@Nullable Collection<CastDevice> seen,
+		@Nullable Collection<CastDevice> unseen
+	) throws IOException {
+		long now = System.currentTimeMillis();
+		List<Entry> entries = new ArrayList<>((seen == null ? 0 : seen.size()) + (unseen == null ? 0 : unseen.size()));
+		Map<String, Long> newLastSeen = new HashMap<>();
+		if (seen != null) {
+			for (CastDevice device : seen) {
+				entries.add(new Entry(device, now));
+				newLastSeen.put(device.getDNSName(), Long.valueOf(now));
+			}
+		}
+		if (unseen != null) {
+			for (CastDevice device : unseen) {
+				Long time = lastSeen.get(device.getDNSName());
+				if (
+					time == null ||
+					newLastSeen.containsKey(device.getDNSName()) ||
+					maxAge > 0L && now - time.longValue() > maxAge
+				) {
+					continue;
+				}
+				entries.add(new Entry(device, time.longValue()));
+				newLastSeen.put(device.getDNSName(), time);
+			}
+		}
+		byte[] bytes;
+		try {
+			bytes = JacksonHelper.getSharedMapper().writerFor(ENTRY_LIST_TYPE).withDefaultPrettyPrinter().writeValueAsBytes(entries);
+		} catch (JsonProcessingException e) {
+			throw new IOException("Failed to serialize the cast device cache: " + e.getMessage(), e);
+		}
+		Path parent = file.toAbsolutePath().getParent();
+		if (parent != null) {
+			Files.createDirectories(parent);
+		}
+		Path tempFile = parent == null ?
+			Files.createTempFile(file.getFileName().toString(), ".tmp") :
+			Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+		try {
+			Files.write(tempFile, bytes);
+			try {
+				Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(tempFile);
+		}
+		lastSeen.clear();
+		lastSeen.putAll(newLastSeen);
+	}
+
+	/**
+	 * Checks whether the specified {@link CastDevice} accepts connections by
+	 * opening and closing a plain TCP connection to it.
+	 *
+	 * @param device the {@link CastDevice} to probe.
+	 * @param timeout the connect timeout in milliseconds.
+	 * @return {@code true} if the connection succeeded, {@code false}
+	 *         otherwise.
+	 */
+	public static boolean probe(@Nonnull CastDevice device, int timeout) {
+		InetSocketAddress address = device.getSocketAddress();
+		if (address.isUnresolved()) {
+			return false;
+		}
+		try (Socket socket = new Socket()) {
+			socket.connect(address, timeout);
+			return true;
+		} catch (IOException e) {
+			LOGGER.debug(
+				Channel.CAST_API_MARKER,
+				"Connect probe to cast device \"{}\" failed: {}",
+				device.getDisplayName(),
+				e.getMessage()
+			);
+			return false;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + " [file=" + file + ", maxAge=" + maxAge + "]";
+	}
+
+	/**
+	 * A cached cast device.
+	 *
+	 * @author Nadahar
+	 */
+	@Immutable
+	protected static class Entry {
+
+		/** The mDNS name */
+		@JsonProperty
+		protected final String dnsName;
+
+		/** The IP address or hostname */
+		@JsonProperty
+		protected final String address;
+
+		/** The port number */
+		@JsonProperty
+		protected final int port;
+
+		/** The "base URL" */
+		@JsonProperty
+		protected final String deviceURL;
+
+		/** The {@code DNS-SD} service name */
+		@JsonProperty
+		protected final String serviceName;
+
+		/** The unique ID */
+		@JsonProperty
+		protected final String uniqueId;
+
+		/** The {@link CastDeviceCapability}s */
+		@JsonProperty
+		protected final Set<CastDeviceCapability> capabilities;
+
+		/** The "friendly name" */
+		@JsonProperty
+		protected final String friendlyName;
+
+		/** The model name */
+		@JsonProperty
+		protected final String modelName;
+
+		/** The protocol version */
+		@JsonProperty
+		protected final int protocolVersion;
+
+		/** The relative path to the icon */
+		@JsonProperty
+		protected final String iconPath;
+
+		/** When the device was last known to exist in milliseconds since epoch */
+		@JsonProperty
+		protected final long lastSeen;
+
+		/**
+		 * Creates a new instance using the specified parameters.
+		 *
+		 * @param dnsName the mDNS name.
+		 * @param address the IP address or hostname.
+		 * @param port the port number.
+		 * @param deviceURL the "base URL".
+		 * @param serviceName the {@code DNS-SD} service name.
+		 * @param uniqueId the unique ID.
+		 * @param capabilities the {@link CastDeviceCapability}s.
+		 * @param friendlyName the "friendly name".
+		 * @param modelName the model name.
+		 * @param protocolVersion the protocol version.
+		 * @param iconPath the relative path to the icon.
+		 * @param lastSeen when the device was last known to exist.
+		 */
+		@JsonCreator
+		public Entry(
+			@JsonProperty("dnsName") String dnsName,
+			@JsonProperty("address") String address,
+			@JsonProperty("port") int port,
+			@JsonProperty("deviceURL") String deviceURL,
+			@JsonProperty("serviceName") String serviceName,
+			@JsonProperty("uniqueId") String uniqueId,
+			@JsonProperty("capabilities") Set<CastDeviceCapability> capabilities,
+			@JsonProperty("friendlyName") String friendlyName,
+			@JsonProperty("modelName") String modelName,
+			@JsonProperty("protocolVersion") int protocolVersion,
+			@JsonProperty("iconPath") String iconPath,
+			@JsonProperty("lastSeen") long lastSeen
+		) {
+			this.dnsName = dnsName;
+			this.address = address;
+			this.port = port;
+			this.deviceURL = deviceURL;
+			this.serviceName = serviceName;
+			this.uniqueId = uniqueId;
+			this.capabilities = capabilities == null || capabilities.isEmpty() ?
+				Collections.<CastDeviceCapability>emptySet() :
+				Collections.unmodifiableSet(EnumSet.copyOf(capabilities));
+			this.friendlyName = friendlyName;
+			this.modelName = modelName;
+			this.protocolVersion = protocolVersion;
+			this.iconPath = iconPath;
+			this.lastSeen = lastSeen;
+		}
+
+		/**
+		 * Creates a new instance from the specified {@link CastDevice}.
+		 *
+		 * @param device the {@link CastDevice}.
+		 * @param lastSeen when the device was last known to exist.
+		 */
+		public Entry(@Nonnull CastDevice device, long lastSeen) {
+			this(
+				device.getDNSName(),
+				toAddressString(device),
+				device.getPort(),
+				device.getDeviceURL(),
+				device.getServiceName(),
+				device.getUniqueId(),
+				device.getCapabilities(),
+				device.getFriendlyName(),
+				device.getModelName(),
+				device.getProtocolVersion(),
+				device.getIconPath(),
+				lastSeen
+			);
+		}
+
+		/**
+		 * Creates a new {@link CastDevice} from this entry.
+		 *
+		 * @param autoReconnect the {@code autoReconnect} value.
+		 * @return The new {@link CastDevice}.
+		 */
+		@JsonIgnore
+		@Nonnull
+		public CastDevice toCastDevice(boolean autoReconnect) {
+			return new CastDevice(
+				dnsName,
+				address,
+				port,
+				deviceURL,
+				serviceName,
+				uniqueId,
+				capabilities,
+				friendlyName,
+				modelName,
+				protocolVersion,
+				iconPath,
+				autoReconnect
+			);
+		}
+
+		/**
+		 * Returns the IP address of the specified {@link CastDevice} as a
+		 * literal, so that no name lookup is needed when the entry is loaded,
+		 * or its hostname if the address isn't resolved.
+		 *
+		 * @param device the {@link CastDevice}.
+		 * @return The address {@link String}.
+		 */
+		@Nonnull
+		protected static String toAddressString(@Nonnull CastDevice device) {
+			InetAddress inetAddress = device.getAddress();
+			return inetAddress == null ? device.getHostname() : inetAddress.getHostAddress();
+		}
+	}
+}
@@ -18,6 +18,7 @@ package org.digitalmediaserver.cast;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.Immutable;
 import javax.jmdns.JmDNS;
 import javax.jmdns.ServiceEvent;
 import javax.jmdns.ServiceInfo;
@@ -26,9 +27,33 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.net.InetAddress;
+import java.net.Inet4Address;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.digitalmediaserver.cast.CastEvent.CastEventListener;
+import org.digitalmediaserver.cast.CastEvent.DeviceCastEvent;
 
 
 /**
@@ -37,34 +62,94 @@ import java.util.Set;
  * discovered or disappearing devices.
  * <p>
  * After creating a {@link CastDeviceMonitor}, it must be started using
- * {@link #startDiscovery(InetAddress, String)}.
+ * {@link #startDiscovery(InetAddress, String)}. Discovery can run on several
+ * network interfaces at once, see
+ * {@link #startDiscoveryOnInterfaces(Collection, String)} and
+ * {@link #startDiscoveryOnAllInterfaces(String)}. A device that is found
+ * through more than one interface or address is only registered once, and
+ * the alternative {@link DeviceRoute}s are kept in case the preferred one is
+ * lost.
+ * <p>
+ * A {@link CastDevice} is bound to one address. When the route it uses is
+ * lost, or the device announces a new address on the same interface, it's
+ * replaced by a new {@link CastDevice} instance. The event listeners,
+ * sessions and connection of the old instance aren't carried over. Registered
+ * {@link DeviceDiscoveryListener}s are notified that the old instance was
+ * removed and that the new instance was discovered, so they can move their
+ * state to the new instance.
  */
 public final class CastDeviceMonitor {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(CastDeviceMonitor.class);
 
-	/** The {@link ServiceListener} that listens to mDNS changes */
-	@Nonnull
-	protected final MulticastDNSServiceListener listener = new MulticastDNSServiceListener();
+	/**
+	 * The delay in milliseconds from a change until the
+	 * {@link CastDeviceCache} is written, so that bursts of changes result in
+	 * one write
+	 */
+	protected static final long CACHE_SAVE_DELAY = 1000L;
 
 	/** The synchronization object */
 	@Nonnull
 	protected final Object lock = new Object();
 
-	/** The mDNS instance */
-	@Nullable
+	/**
+	 * The {@link MulticastDNSServiceListener}s, one per mDNS instance, by the
+	 * address of the interface the instance is bound to, where {@code null}
+	 * means the default interface
+	 */
+	@Nonnull
+	@GuardedBy("lock")
+	protected final Map<InetAddress, MulticastDNSServiceListener> discoveries = new LinkedHashMap<>();
+
+	/** The {@link DeviceRoute}s by unique ID, with the preferred route first */
+	@Nonnull
 	@GuardedBy("lock")
-	protected JmDNS mDNS;
+	protected final Map<String, List<DeviceRoute>> routes = new HashMap<>();
 
 	/** The {@link Set} of {@link DeviceDiscoveryListener} to notify of changes */
 	@Nonnull
 	@GuardedBy("lock")
 	protected final Set<DeviceDiscoveryListener> listeners = new LinkedHashSet<>();
 
-	/** The currently "registered" cast devices */
+	/**
+	 * The registry of currently known cast devices, which is read without
+	 * locking but only modified while holding {@link #lock}
+	 */
+	@Nonnull
+	protected final CastDeviceRegistry registry = new CastDeviceRegistry();
+
+	/** The lazily created fleet-wide {@link CastEventPublisher} */
+	@Nullable
+	@GuardedBy("lock")
+	protected CastEventPublisher eventPublisher;
+
+	/** The {@link CastEventListener}s that forward events to {@link #eventPublisher} */
+	@Nonnull
+	@GuardedBy("lock")
+	protected final Map<CastDevice, CastEventListener> eventForwarders = new HashMap<>();
+
+	/** The {@link CastDeviceCache} or {@code null} if caching is disabled */
+	@Nullable
+	@GuardedBy("lock")
+	protected CastDeviceCache deviceCache;
+
+	/** Whether to connect to cached devices at startup */
+	@GuardedBy("lock")
+	protected boolean preConnect;
+
+	/**
+	 * The devices loaded from {@link #deviceCache} that haven't yet been
+	 * confirmed by mDNS. A successful connect probe doesn't confirm a device,
+	 * since another device might have taken over its address.
+	 */
 	@Nonnull
 	@GuardedBy("lock")
-	protected final Set<CastDevice> castDevices = new LinkedHashSet<>();
+	protected final Set<CastDevice> unconfirmed = new HashSet<>();
+
+	/** Whether a write of {@link #deviceCache} is scheduled */
+	@GuardedBy("lock")
+	protected boolean cacheSaveScheduled;
 
 	/**
 	 * Creates a new instance. Use {@link #startDiscovery()} to start
@@ -74,12 +159,337 @@ public final class CastDeviceMonitor {
 	}
 
 	/**
-	 * @return A {@link Set} with a snapshot of the currently known cast
-	 *         devices.
+	 * @return An unmodifiable {@link Set} with a snapshot of the currently
+	 *         known cast devices.
 	 */
+	@Nonnull
 	public Set<CastDevice> getCastDevices() {
+		return registry.getCastDevices();
+	}
+
+	/**
+	 * @return The current immutable {@link CastDeviceRegistry.Snapshot} of
+	 *         the known cast devices.
+	 */
+	@Nonnull
+	public CastDeviceRegistry.Snapshot getCastDeviceSnapshot() {
+		return registry.getSnapshot();
+	}
+
+	/**
+	 * Returns a currently known cast device with the specified unique ID.
+	 *
+	 * @param uniqueId the unique ID.
+	 * @return The {@link CastDevice} or {@code null}.
+	 */
+	@Nullable
+	public CastDevice getByUniqueId(@Nullable String uniqueId) {
+		return registry.getByUniqueId(uniqueId);
+	}
+
+	/**
+	 * Returns the currently known cast device with the specified socket
+	 * address.
+	 *
+	 * @param socketAddress the {@link InetSocketAddress}.
+	 * @return The {@link CastDevice} or {@code null}.
+	 */
+	@Nullable
+	public CastDevice getByAddress(@Nullable InetSocketAddress socketAddress) {
+		return registry.getByAddress(socketAddress);
+	}
+
+	/**
+	 * Returns the {@link CastEventPublisher} that publishes the events from
+	 * all currently known cast devices as one demand-driven stream. Each event
+	 * is a {@link DeviceCastEvent} that identifies the device it originated
+	 * from. Devices are attached as they are discovered and detached when they
+	 * are removed. The publisher is created the first time this method is
+	 * called.
+	 *
+	 * @return The fleet-wide {@link CastEventPublisher}.
+	 */
+	@Nonnull
+	public CastEventPublisher getEventPublisher() {
+		synchronized (lock) {
+			if (eventPublisher == null) {
+				eventPublisher = new CastEventPublisher("Cast device monitor");
+				for (CastDevice device : registry.getCastDevices()) {
+					attachEventForwarder(device);
+				}
+			}
+			return eventPublisher;
+		}
+	}
+
+	/**
+	 * Starts forwarding the events from the specified {@link CastDevice} to
+	 * {@link #eventPublisher} if it exists. Must be called while holding
+	 * {@link #lock}.
+	 *
+	 * @param device the {@link CastDevice}.
+	 */
+	@GuardedBy("lock")
+	protected void attachEventForwarder(@Nonnull final CastDevice device) {
+		final CastEventPublisher publisher = eventPublisher;
+		if (publisher == null || eventForwarders.containsKey(device)) {
+			return;
+		}
+		CastEventListener forwarder = new CastEventListener() {
+
+			@Override
+			public void onEvent(@Nonnull CastEvent<?> event) {
+				publisher.onEvent(new DeviceCastEvent<>(device, event));
+			}
+		};
+		eventForwarders.put(device, forwarder);
+		device.addEventListener(forwarder);
+	}
+
+	/**
+	 * Stops forwarding the events from the specified {@link CastDevice}. Must
+	 * be called while holding {@link #lock}.
+	 *
+	 * @param device the {@link CastDevice}.
+	 */
+	@GuardedBy("lock")
+	protected void detachEventForwarder(@Nonnull CastDevice device) {
+		CastEventListener forwarder = eventForwarders.remove(device);
+		if (forwarder != null) {
+			device.removeEventListener(forwarder);
+		}
+	}
+
+	/**
+	 * @return The {@link CastDeviceCache} or {@code null} if caching is
+	 *         disabled.
+	 */
+	@Nullable
+	public CastDeviceCache getDeviceCache() {
+		synchronized (lock) {
+			return deviceCache;
+		}
+	}
+
+	/**
+	 * Sets the {@link CastDeviceCache} to use. When discovery is started, the
+	 * cached devices are registered and reported to listeners right away,
+	 * instead of waiting for mDNS. Each cached device is then validated in the
+	 * background by a connect probe, or by connecting to it if
+	 * {@code preConnect} is {@code true}, and is removed again if that fails.
+	 * A cached device is only confirmed when mDNS finds a device with the same
+	 * unique ID, until then it keeps the time it was last seen in the cache.
+	 * Devices that are found by mDNS replace any unconfirmed cached entries,
+	 * and the cache is updated in the background as devices are confirmed,
+	 * found or removed.
+	 * <p>
+	 * This must be called before {@link #startDiscovery(InetAddress, String)}
+	 * to have an effect on startup.
+	 *
+	 * @param deviceCache the {@link CastDeviceCache} or {@code null} to
+	 *            disable caching.
+	 * @param preConnect {@code true} to connect to the cached devices at
+	 *            startup, {@code false} to only probe them.
+	 */
+	public void setDeviceCache(@Nullable CastDeviceCache deviceCache, boolean preConnect) {
+		synchronized (lock) {
+			this.deviceCache = deviceCache;
+			this.preConnect = preConnect;
+		}
+	}
+
+	/**
+	 * Loads the cached devices and registers those that aren't already known.
+	 * Must be called while holding {@link #lock}.
+	 *
+	 * @return The {@link List} of registered cached devices.
+	 */
+	@GuardedBy("lock")
+	@Nonnull
+	protected List<CastDevice> loadCachedDevices() {
+		List<CastDevice> result = new ArrayList<>();
+		if (deviceCache == null) {
+			return result;
+		}
+		List<CastDevice> cached;
+		try {
+			cached = deviceCache.load(true);
+		} catch (IOException e) {
+			LOGGER.warn(
+				Channel.CAST_API_MARKER,
+				"Failed to load the cast device cache \"{}\": {}",
+				deviceCache.getFile(),
+				e.getMessage()
+			);
+			LOGGER.trace(Channel.CAST_API_MARKER, "", e);
+			return result;
+		}
+		for (CastDevice device : cached) {
+			if (
+				(device.getUniqueId() == null || registry.getByUniqueId(device.getUniqueId()) == null) &&
+				registry.add(device)
+			) {
+				unconfirmed.add(device);
+				attachEventForwarder(device);
+				result.add(device);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Validates a cached device by probing or connecting to it, and removes
+	 * it if that fails. A device that responds is kept, but remains
+	 * unconfirmed until mDNS finds it, since neither a probe nor a connection
+	 * verifies its identity.
+	 *
+	 * @param device the cached {@link CastDevice}.
+	 */
+	protected void validateCachedDevice(@Nonnull CastDevice device) {
+		boolean connect;
+		synchronized (lock) {
+			if (!unconfirmed.contains(device)) {
+				return;
+			}
+			connect = preConnect;
+		}
+		boolean alive;
+		if (connect) {
+			try {
+				device.connect();
+				alive = true;
+			} catch (IOException | GeneralSecurityException e) {
+				LOGGER.debug(
+					Channel.CAST_API_MARKER,
+					"Failed to connect to cached cast device \"{}\": {}",
+					device.getDisplayName(),
+					e.getMessage()
+				);
+				alive = false;
+			}
+		} else {
+			alive = CastDeviceCache.probe(device, CastDeviceCache.DEFAULT_PROBE_TIMEOUT);
+		}
+
+		boolean removed = false;
+		Set<DeviceDiscoveryListener> tmpListeners = null;
+		synchronized (lock) {
+			if (!unconfirmed.contains(device)) {
+				// Already reconciled with mDNS or discovery was stopped
+				removed = connect && !registry.getCastDevices().contains(device);
+			} else if (!alive) {
+				unconfirmed.remove(device);
+				registry.remove(device);
+				detachEventForwarder(device);
+				tmpListeners = new LinkedHashSet<>(listeners);
+				removed = true;
+			}
+		}
+		if (removed) {
+			if (tmpListeners != null) {
+				LOGGER.debug(Channel.CAST_API_MARKER, "Removing stale cached cast device \"{}\"", device.getDisplayName());
+				for (DeviceDiscoveryListener discoveryListener : tmpListeners) {
+					discoveryListener.deviceRemoved(device);
+				}
+			}
+			disconnect(device);
+			saveCache();
+		}
+	}
+
+	/**
+	 * Schedules a write of the {@link CastDeviceCache}, if any, unless one is
+	 * already scheduled. The write is done by {@link #writeCache()} after
+	 * {@link #CACHE_SAVE_DELAY}, so that the caller, typically an mDNS thread,
+	 * isn't blocked by file I/O.
+	 */
+	protected void saveCache() {
+		synchronized (lock) {
+			if (deviceCache == null || cacheSaveScheduled) {
+				return;
+			}
+			cacheSaveScheduled = true;
+		}
+		try {
+			Channel.TIMEOUT_TIMER.newTimeout(new Runnable() {
+
+				@Override
+				public void run() {
+					try {
+						CastDevice.EXECUTOR.execute(new Runnable() {
+
+							@Override
+							public void run() {
+								writeCache();
+							}
+						});
+					} catch (RejectedExecutionException e) {
+						// Try again later
+						LOGGER.debug(Channel.CAST_API_MARKER, "Postponing the cast device cache write: {}", e.getMessage());
+						synchronized (lock) {
+							cacheSaveScheduled = false;
+						}
+						saveCache();
+					}
+				}
+			}, CACHE_SAVE_DELAY, TimeUnit.MILLISECONDS);
+		} catch (RejectedExecutionException e) {
+			synchronized (lock) {
+				cacheSaveScheduled = false;
+			}
+			LOGGER.warn(Channel.CAST_API_MARKER, "Unable to schedule a write of the cast device cache: {}", e.getMessage());
+		}
+	}
+
+	/**
+	 * Writes the known devices to the {@link CastDeviceCache}, if any. The
+	 * confirmed devices are stored as seen now, the unconfirmed devices keep
+	 * the time they were last seen. Nothing is written if discovery isn't
+	 * running, since the devices have been cleared then.
+	 */
+	protected void writeCache() {
+		CastDeviceCache cache;
+		Set<CastDevice> seen;
+		Set<CastDevice> unseen;
 		synchronized (lock) {
-			return new LinkedHashSet<>(castDevices);
+			cacheSaveScheduled = false;
+			cache = deviceCache;
+			if (cache == null || discoveries.isEmpty()) {
+				return;
+			}
+			seen = new LinkedHashSet<>(registry.getCastDevices());
+			unseen = new LinkedHashSet<>(unconfirmed);
+			seen.removeAll(unseen);
+		}
+		try {
+			cache.save(seen, unseen);
+		} catch (IOException e) {
+			LOGGER.warn(
+				Channel.CAST_API_MARKER,
+				"Failed to save the cast device cache \"{}\": {}",
+				cache.getFile(),
+				e.getMessage()
+			);
+			LOGGER.trace(Channel.CAST_API_MARKER, "", e);
+		}
+	}
+
+	/**
+	 * Disconnects from the specified {@link CastDevice}, logging any error.
+	 *
+	 * @param device the {@link CastDevice}.
+	 */
+	protected static void disconnect(@Nonnull CastDevice device) {
+		try {
+			device.disconnect();
+		} catch (IOException e) {
+			LOGGER.warn(
+				Channel.CAST_API_MARKER,
+				"An error occurred while disconnecting from cast device {}: {}",
+				device.getDisplayName(),
+				e.getMessage()
+			);
+			LOGGER.trace(Channel.CAST_API_MARKER, "", e);
 		}
 	}
 
@@ -100,7 +510,9 @@ public final class CastDeviceMonitor {
 	}
 
 	/**
-	 * Starts discovery of cast devices.
+	 * Starts discovery of cast devices on the interface with the specified
+	 * address. If discovery is already running on other interfaces, this
+	 * interface is added to them.
 	 *
 	 * @param addr the IP address to bind to.
 	 * @param name the name of the multicast DNS "device" that will be created
@@ -109,9 +521,546 @@ public final class CastDeviceMonitor {
 	 */
 	public void startDiscovery(@Nullable InetAddress addr, @Nullable String name) throws IOException {
 		synchronized (lock) {
-			if (mDNS == null) {
-				mDNS = JmDNS.create(addr, name);
-				mDNS.addServiceListener(CastDevice.SERVICE_TYPE, listener);
+			if (discoveries.containsKey(addr)) {
+				return;
+			}
+		}
+		Map<InetAddress, JmDNS> instances = new LinkedHashMap<>();
+		instances.put(addr, JmDNS.create(addr, name));
+		registerInstances(instances);
+	}
+
+	/**
+	 * Starts discovery of cast devices on the interfaces with the specified
+	 * addresses in parallel. Interfaces where discovery is already running are
+	 * skipped. The results from all interfaces are merged, so that each device
+	 * is only registered once.
+	 *
+	 * @param addresses the IP addresses to bind to.
+	 * @param name the name of the multicast DNS "device" that will be created
+	 *            on each interface to participate in the "multicast DNS
+	 *            network".
+	 * @throws IOException If discovery couldn't be started on any of the
+	 *             interfaces.
+	 */
+	public void startDiscoveryOnInterfaces(
+		@Nullable Collection<InetAddress> addresses,
+		@Nullable final String name
+	) throws IOException {
+		if (addresses == null || addresses.isEmpty()) {
+			return;
+		}
+		Map<InetAddress, Future<JmDNS>> futures = new LinkedHashMap<>();
+		synchronized (lock) {
+			for (InetAddress address : addresses) {
+				if (!discoveries.containsKey(address) && !futures.containsKey(address)) {
+					futures.put(address, null);
+				}
+			}
+		}
+		for (Entry<InetAddress, Future<JmDNS>> entry : futures.entrySet()) {
+			final InetAddress address = entry.getKey();
+			FutureTask<JmDNS> task = new FutureTask<>(new Callable<JmDNS>() {
+
+				@Override
+				public JmDNS call() throws IOException {
+					return JmDNS.create(address, name);
+				}
+			});
+			try {
+				CastDevice.EXECUTOR.execute(task);
+			} catch (RejectedExecutionException e) {
+				// Create it on this thread instead
+				task.run();
+			}
+			entry.setValue(task);
+		}
+
+		Map<InetAddress, JmDNS> instances = new LinkedHashMap<>();
+		IOException failure = null;
+		for (Entry<InetAddress, Future<JmDNS>> entry : futures.entrySet()) {
+			try {
+				instances.put(entry.getKey(), entry.getValue().get());
+			} catch (ExecutionException e) {
+				LOGGER.warn(
+					Channel.CAST_API_MARKER,
+					"Failed to start cast device discovery on {}: {}",
+					entry.getKey(),
+					e.getCause() == null ? e.getMessage() : e.getCause().getMessage()
+				);
+				LOGGER.trace(Channel.CAST_API_MARKER, "", e);
+				if (failure == null) {
+					failure = e.getCause() instanceof IOException ?
+						(IOException) e.getCause() :
+						new IOException("Failed to start discovery on " + entry.getKey() + ": " + e.getMessage(), e);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				for (Future<JmDNS> future : futures.values()) {
+					future.cancel(true);
+				}
+				closeInstances(instances.values());
+				throw new IOException("Interrupted while starting discovery", e);
+			}
+		}
+		registerInstances(instances);
+		if (instances.isEmpty() && failure != null) {
+			throw failure;
+		}
+	}
+
+	/**
+	 * Starts discovery of cast devices on all suitable network interfaces in
+	 * parallel, or on the default interface if no suitable interface is found.
+	 *
+	 * @param name the name of the multicast DNS "device" that will be created
+	 *            on each interface to participate in the "multicast DNS
+	 *            network".
+	 * @throws IOException If discovery couldn't be started on any of the
+	 *             interfaces.
+	 * @see #getSuitableInterfaceAddresses()
+	 */
+	public void startDiscoveryOnAllInterfaces(@Nullable String name) throws IOException {
+		List<InetAddress> addresses = getSuitableInterfaceAddresses();
+		if (addresses.isEmpty()) {
+			startDiscovery(null, name);
+		} else {
+			startDiscoveryOnInterfaces(addresses, name);
+		}
+	}
+
+	/**
+	 * Stops discovery of cast devices on the interface with the specified
+	 * address. Routes through the interface are dropped, and devices that
+	 * aren't reachable through other interfaces are removed.
+	 *
+	 * @param addr the IP address the discovery is bound to, or {@code null}
+	 *            for the default interface.
+	 * @return {@code true} if discovery was stopped, {@code false} if it
+	 *         wasn't running on the interface.
+	 */
+	public boolean stopDiscoveryOnInterface(@Nullable InetAddress addr) {
+		MulticastDNSServiceListener discovery;
+		List<CastDevice> removedDevices = new ArrayList<>();
+		List<CastDevice> addedDevices = new ArrayList<>();
+		Set<DeviceDiscoveryListener> tmpListeners;
+		synchronized (lock) {
+			discovery = discoveries.remove(addr);
+			if (discovery == null) {
+				return false;
+			}
+			discovery.mDNS.removeServiceListener(CastDevice.SERVICE_TYPE, discovery);
+			for (String uniqueId : new ArrayList<>(routes.keySet())) {
+				dropRoutes(uniqueId, addr, null, removedDevices, addedDevices);
+			}
+			tmpListeners = new LinkedHashSet<>(listeners);
+		}
+		closeInstances(Collections.singletonList(discovery.mDNS));
+		notifyChanges(removedDevices, addedDevices, tmpListeners);
+		if (!removedDevices.isEmpty() || !addedDevices.isEmpty()) {
+			saveCache();
+		}
+		return true;
+	}
+
+	/**
+	 * @return The {@link Set} of addresses of the interfaces discovery is
+	 *         running on, where {@code null} means the default interface.
+	 */
+	@Nonnull
+	public Set<InetAddress> getInterfaceAddresses() {
+		synchronized (lock) {
+			return new LinkedHashSet<>(discoveries.keySet());
+		}
+	}
+
+	/**
+	 * Returns the known {@link DeviceRoute}s to the specified
+	 * {@link CastDevice}. The first is the preferred route, which is the one
+	 * the {@link CastDevice} uses.
+	 *
+	 * @param device the {@link CastDevice}.
+	 * @return The {@link List} of {@link DeviceRoute}s, which is empty if no
+	 *         routes are known.
+	 */
+	@Nonnull
+	public List<DeviceRoute> getRoutes(@Nullable CastDevice device) {
+		if (device == null || device.getUniqueId() == null) {
+			return Collections.emptyList();
+		}
+		synchronized (lock) {
+			List<DeviceRoute> deviceRoutes = routes.get(device.getUniqueId());
+			return deviceRoutes == null ? Collections.<DeviceRoute>emptyList() : new ArrayList<>(deviceRoutes);
+		}
+	}
+
+	/**
+	 * Returns the preferred {@link DeviceRoute} to the specified
+	 * {@link CastDevice}.
+	 *
+	 * @param device the {@link CastDevice}.
+	 * @return The preferred {@link DeviceRoute} or {@code null} if no routes
+	 *         are known.
+	 */
+	@Nullable
+	public DeviceRoute getPreferredRoute(@Nullable CastDevice device) {
+		List<DeviceRoute> deviceRoutes = getRoutes(device);
+		return deviceRoutes.isEmpty() ? null : deviceRoutes.get(0);
+	}
+
+	/**
+	 * Finds the addresses of the network interfaces that are suitable for
+	 * discovery, which are those that are up, support multicast and aren't
+	 * loopback or point-to-point interfaces. IPv4 addresses are used if the
+	 * interface has any, otherwise non link-local IPv6 addresses are used.
+	 *
+	 * @return The {@link List} of addresses.
+	 * @throws IOException If the network interfaces can't be enumerated.
+	 */
+	@Nonnull
+	public static List<InetAddress> getSuitableInterfaceAddresses() throws IOException {
+		List<InetAddress> result = new ArrayList<>();
+		Enumeration<NetworkInterface> interfaces = NetworkInterface.getNetworkInterfaces();
+		if (interfaces == null) {
+			return result;
+		}
+		while (interfaces.hasMoreElements()) {
+			NetworkInterface networkInterface = interfaces.nextElement();
+			if (
+				!networkInterface.isUp() ||
+				networkInterface.isLoopback() ||
+				networkInterface.isPointToPoint() ||
+				!networkInterface.supportsMulticast()
+			) {
+				continue;
+			}
+			List<InetAddress> ipv4 = new ArrayList<>();
+			List<InetAddress> ipv6 = new ArrayList<>();
+			for (Enumeration<InetAddress> addresses = networkInterface.getInetAddresses(); addresses.hasMoreElements();) {
+				InetAddress address = addresses.nextElement();
+				if (address.isLoopbackAddress() || address.isAnyLocalAddress()) {
+					continue;
+				}
+				if (address instanceof Inet4Address) {
+					ipv4.add(address);
+				} else if (!address.isLinkLocalAddress()) {
+					ipv6.add(address);
+				}
+			}
+			result.addAll(ipv4.isEmpty() ? ipv6 : ipv4);
+		}
+		return result;
+	}
+
+	/**
+	 * Registers the specified new mDNS instances and starts listening to them.
+	 * Instances for interfaces that are already registered are closed. If
+	 * these are the first instances, the cached devices are loaded first.
+	 *
+	 * @param instances the new mDNS instances by interface address.
+	 */
+	protected void registerInstances(@Nonnull Map<InetAddress, JmDNS> instances) {
+		List<JmDNS> duplicates = new ArrayList<>();
+		List<CastDevice> cachedDevices = null;
+		Set<DeviceDiscoveryListener> tmpListeners = null;
+		synchronized (lock) {
+			if (discoveries.isEmpty() && !instances.isEmpty()) {
+				cachedDevices = loadCachedDevices();
+				if (!cachedDevices.isEmpty()) {
+					tmpListeners = new LinkedHashSet<>(listeners);
+				}
+			}
+			for (Entry<InetAddress, JmDNS> entry : instances.entrySet()) {
+				if (discoveries.containsKey(entry.getKey())) {
+					duplicates.add(entry.getValue());
+					continue;
+				}
+				MulticastDNSServiceListener discovery = new MulticastDNSServiceListener(entry.getKey(), entry.getValue());
+				discoveries.put(entry.getKey(), discovery);
+				entry.getValue().addServiceListener(CastDevice.SERVICE_TYPE, discovery);
+			}
+		}
+		closeInstances(duplicates);
+		if (cachedDevices != null && !cachedDevices.isEmpty()) {
+			if (tmpListeners != null) {
+				for (CastDevice device : cachedDevices) {
+					for (DeviceDiscoveryListener discoveryListener : tmpListeners) {
+						discoveryListener.deviceDiscovered(device);
+					}
+				}
+			}
+			for (final CastDevice device : cachedDevices) {
+				try {
+					CastDevice.EXECUTOR.execute(new Runnable() {
+
+						@Override
+						public void run() {
+							validateCachedDevice(device);
+						}
+					});
+				} catch (RejectedExecutionException e) {
+					// The device remains unconfirmed until mDNS finds it
+					LOGGER.debug(
+						Channel.CAST_API_MARKER,
+						"Unable to validate cached cast device \"{}\": {}",
+						device.getDisplayName(),
+						e.getMessage()
+					);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Closes the specified mDNS instances, logging any errors.
+	 *
+	 * @param instances the mDNS instances to close.
+	 */
+	protected static void closeInstances(@Nonnull Collection<JmDNS> instances) {
+		for (JmDNS instance : instances) {
+			try {
+				instance.close();
+			} catch (IOException e) {
+				LOGGER.warn(Channel.CAST_API_MARKER, "An error occurred while closing mDNS instance: {}", e.getMessage());
+				LOGGER.trace(Channel.CAST_API_MARKER, "", e);
+			}
+		}
+	}
+
+	/**
+	 * Adds the specified {@link DeviceRoute} for the specified unique ID
+	 * unless it's already known. Must be called while holding {@link #lock}.
+	 *
+	 * @param uniqueId the unique ID.
+	 * @param route the {@link DeviceRoute}.
+	 */
+	@GuardedBy("lock")
+	protected void addRoute(@Nonnull String uniqueId, @Nonnull DeviceRoute route) {
+		List<DeviceRoute> deviceRoutes = routes.get(uniqueId);
+		if (deviceRoutes == null) {
+			deviceRoutes = new ArrayList<>(2);
+			routes.put(uniqueId, deviceRoutes);
+		}
+		if (!deviceRoutes.contains(route)) {
+			deviceRoutes.add(route);
+		}
+	}
+
+	/**
+	 * Adds the specified {@link DeviceRoute} for the specified unique ID, in
+	 * place of any route through the same interface with the same DNS name but
+	 * another address. This happens when a device announces a new address.
+	 * Must be called while holding {@link #lock}.
+	 *
+	 * @param uniqueId the unique ID.
+	 * @param route the {@link DeviceRoute}.
+	 * @return {@code true} if one or more routes were replaced, in which case
+	 *         {@link #reconcileRoutes} must be called, {@code false}
+	 *         otherwise.
+	 */
+	@GuardedBy("lock")
+	protected boolean replaceRoute(@Nonnull String uniqueId, @Nonnull DeviceRoute route) {
+		List<DeviceRoute> deviceRoutes = routes.get(uniqueId);
+		if (deviceRoutes == null) {
+			addRoute(uniqueId, route);
+			return false;
+		}
+		int index = -1;
+		for (ListIterator<DeviceRoute> iterator = deviceRoutes.listIterator(); iterator.hasNext();) {
+			DeviceRoute candidate = iterator.next();
+			if (
+				Objects.equals(route.interfaceAddress, candidate.interfaceAddress) &&
+				Objects.equals(route.dnsName, candidate.dnsName) &&
+				!route.socketAddress.equals(candidate.socketAddress)
+			) {
+				if (index < 0) {
+					index = iterator.previousIndex();
+				}
+				iterator.remove();
+			}
+		}
+		if (index < 0) {
+			addRoute(uniqueId, route);
+			return false;
+		}
+		if (!deviceRoutes.contains(route)) {
+			deviceRoutes.add(index, route);
+		}
+		return true;
+	}
+
+	/**
+	 * Drops the {@link DeviceRoute}s through the specified interface for the
+	 * specified unique ID. If no routes remain, the device is removed. If the
+	 * route the device uses is dropped, it's replaced by a new
+	 * {@link CastDevice} that uses the next route, see
+	 * {@link #reconcileRoutes}. Must be called while holding {@link #lock}.
+	 *
+	 * @param uniqueId the unique ID.
+	 * @param interfaceAddress the interface address.
+	 * @param dnsName the DNS name the routes must have, or {@code null} to
+	 *            drop routes regardless of DNS name.
+	 * @param removedDevices the {@link List} to add removed devices to.
+	 * @param addedDevices the {@link List} to add replacement devices to.
+	 */
+	@GuardedBy("lock")
+	protected void dropRoutes(
+		@Nonnull String uniqueId,
+		@Nullable InetAddress interfaceAddress,
+		@Nullable String dnsName,
+		@Nonnull List<CastDevice> removedDevices,
+		@Nonnull List<CastDevice> addedDevices
+	) {
+		List<DeviceRoute> deviceRoutes = routes.get(uniqueId);
+		if (deviceRoutes == null) {
+			return;
+		}
+		boolean dropped = false;
+		for (Iterator<DeviceRoute> iterator = deviceRoutes.iterator(); iterator.hasNext();) {
+			DeviceRoute route = iterator.next();
+			if (
+				Objects.equals(interfaceAddress, route.interfaceAddress) &&
+				(dnsName == null || dnsName.equals(route.dnsName))
+			) {
+				iterator.remove();
+				dropped = true;
+			}
+		}
+		if (dropped) {
+			reconcileRoutes(uniqueId, removedDevices, addedDevices);
+		}
+	}
+
+	/**
+	 * Drops the {@link DeviceRoute}s to the specified socket address for the
+	 * specified unique ID, regardless of interface, and updates the device
+	 * like {@link #dropRoutes} does. Must be called while holding
+	 * {@link #lock}.
+	 *
+	 * @param uniqueId the unique ID.
+	 * @param socketAddress the address and port that is no longer used by the
+	 *            device.
+	 * @param removedDevices the {@link List} to add removed devices to.
+	 * @param addedDevices the {@link List} to add replacement devices to.
+	 */
+	@GuardedBy("lock")
+	protected void dropRoutesTo(
+		@Nonnull String uniqueId,
+		@Nonnull InetSocketAddress socketAddress,
+		@Nonnull List<CastDevice> removedDevices,
+		@Nonnull List<CastDevice> addedDevices
+	) {
+		List<DeviceRoute> deviceRoutes = routes.get(uniqueId);
+		if (deviceRoutes == null) {
+			// No other routes are known, so the device is gone
+			deviceRoutes = new ArrayList<>(0);
+			routes.put(uniqueId, deviceRoutes);
+		}
+		for (Iterator<DeviceRoute> iterator = deviceRoutes.iterator(); iterator.hasNext();) {
+			if (socketAddress.equals(iterator.next().socketAddress)) {
+				iterator.remove();
+			}
+		}
+		reconcileRoutes(uniqueId, removedDevices, addedDevices);
+	}
+
+	/**
+	 * Makes the confirmed device with the specified unique ID match its
+	 * remaining {@link DeviceRoute}s. If no routes remain, the device is
+	 * removed. If the route the device uses is gone, it's replaced by a new
+	 * {@link CastDevice} that uses the preferred route. The replacement is a
+	 * new instance without the listeners, sessions or connection of the old
+	 * one, so both are added to the {@link List}s, for the
+	 * {@link DeviceDiscoveryListener}s to be notified of the removal and the
+	 * addition. Must be called while holding {@link #lock}.
+	 *
+	 * @param uniqueId the unique ID.
+	 * @param removedDevices the {@link List} to add removed devices to.
+	 * @param addedDevices the {@link List} to add replacement devices to.
+	 */
+	@GuardedBy("lock")
+	protected void reconcileRoutes(
+		@Nonnull String uniqueId,
+		@Nonnull List<CastDevice> removedDevices,
+		@Nonnull List<CastDevice> addedDevices
+	) {
+		List<DeviceRoute> deviceRoutes = routes.get(uniqueId);
+		if (deviceRoutes == null) {
+			return;
+		}
+		CastDevice device = null;
+		for (CastDevice candidate : registry.getSnapshot().getAllByUniqueId(uniqueId)) {
+			if (!unconfirmed.contains(candidate)) {
+				device = candidate;
+				break;
+			}
+		}
+		if (deviceRoutes.isEmpty()) {
+			routes.remove(uniqueId);
+			if (device != null) {
+				registry.remove(device);
+				detachEventForwarder(device);
+				removedDevices.add(device);
+			}
+			return;
+		}
+		if (device == null) {
+			return;
+		}
+		for (DeviceRoute route : deviceRoutes) {
+			if (route.socketAddress.equals(device.getSocketAddress())) {
+				return;
+			}
+		}
+
+		// The route in use is gone, move the device to the next route
+		registry.remove(device);
+		detachEventForwarder(device);
+		removedDevices.add(device);
+		InetSocketAddress next = deviceRoutes.get(0).socketAddress;
+		CastDevice replacement = new CastDevice(
+			device.getDNSName(),
+			next.getAddress() == null ? next.getHostString() : next.getAddress().getHostAddress(),
+			next.getPort(),
+			device.getDeviceURL(),
+			device.getServiceName(),
+			device.getUniqueId(),
+			device.getCapabilities(),
+			device.getFriendlyName(),
+			device.getModelName(),
+			device.getProtocolVersion(),
+			device.getIconPath(),
+			device.isAutoReconnect()
+		);
+		if (registry.add(replacement)) {
+			attachEventForwarder(replacement);
+			addedDevices.add(replacement);
+		}
+	}
+
+	/**
+	 * Notifies the specified {@link DeviceDiscoveryListener}s of removed and
+	 * added devices, and disconnects from the removed devices.
+	 *
+	 * @param removedDevices the removed devices.
+	 * @param addedDevices the added devices.
+	 * @param discoveryListeners the {@link DeviceDiscoveryListener}s to
+	 *            notify.
+	 */
+	protected static void notifyChanges(
+		@Nonnull List<CastDevice> removedDevices,
+		@Nonnull List<CastDevice> addedDevices,
+		@Nonnull Set<DeviceDiscoveryListener> discoveryListeners
+	) {
+		for (CastDevice device : removedDevices) {
+			for (DeviceDiscoveryListener discoveryListener : discoveryListeners) {
+				discoveryListener.deviceRemoved(device);
+			}
+			disconnect(device);
+		}
+		for (CastDevice device : addedDevices) {
+			for (DeviceDiscoveryListener discoveryListener : discoveryListeners) {
+				discoveryListener.deviceDiscovered(device);
 			}
 		}
 	}
@@ -126,7 +1075,8 @@ public final class CastDeviceMonitor {
 	}
 
 	/**
-	 * Stops discovery of cast devices and removes all discovered devices.
+	 * Stops discovery of cast devices on all interfaces and removes all
+	 * discovered devices.
 	 *
 	 * @param notifyListeners if {@code true}, also notifies listeners that the
 	 *            devices are removed, to trigger potential cleanup.
@@ -135,17 +1085,28 @@ public final class CastDeviceMonitor {
 	public void stopDiscovery(boolean notifyListeners) throws IOException {
 		Set<CastDevice> tmpDevices = null;
 		Set<DeviceDiscoveryListener> tmpListeners = null;
+		List<JmDNS> instances = new ArrayList<>();
 		synchronized (lock) {
-			if (mDNS != null) {
-				mDNS.close();
-				mDNS = null;
+			for (MulticastDNSServiceListener discovery : discoveries.values()) {
+				discovery.mDNS.removeServiceListener(CastDevice.SERVICE_TYPE, discovery);
+				instances.add(discovery.mDNS);
 			}
+			discoveries.clear();
+			routes.clear();
 			if (notifyListeners) {
-				tmpDevices = new LinkedHashSet<>(castDevices);
 				tmpListeners = new LinkedHashSet<>(listeners);
 			}
-			castDevices.clear();
+			for (Entry<CastDevice, CastEventListener> entry : eventForwarders.entrySet()) {
+				entry.getKey().removeEventListener(entry.getValue());
+			}
+			eventForwarders.clear();
+			unconfirmed.clear();
+			Set<CastDevice> removed = registry.clear();
+			if (notifyListeners) {
+				tmpDevices = removed;
+			}
 		}
+		closeInstances(instances);
 
 		if (tmpDevices != null && !tmpDevices.isEmpty() && tmpListeners != null && !tmpListeners.isEmpty()) {
 			for (CastDevice device : tmpDevices) {
@@ -180,7 +1141,7 @@ public final class CastDeviceMonitor {
 		synchronized (lock) {
 			result = listeners.add(listener);
 			if (result) {
-				tmpDevices = new LinkedHashSet<>(castDevices);
+				tmpDevices = registry.getCastDevices();
 			}
 		}
 		if (tmpDevices != null && !tmpDevices.isEmpty()) {
@@ -209,10 +1170,122 @@ public final class CastDeviceMonitor {
 	}
 
 	/**
-	 * Service listener to receive mDNS service updates.
+	 * A route to a cast device, consisting of the local interface it was
+	 * discovered through and the address the device announced there.
+	 *
+	 * @author Nadahar
+	 */
+	@Immutable
+	public static class DeviceRoute {
+
+		/** The address of the local interface, {@code null} for the default */
+		@Nullable
+		protected final InetAddress interfaceAddress;
+
+		/** The address and port of the cast device */
+		@Nonnull
+		protected final InetSocketAddress socketAddress;
+
+		/** The DNS name the cast device announced */
+		@Nullable
+		protected final String dnsName;
+
+		/**
+		 * Creates a new instance using the specified parameters.
+		 *
+		 * @param interfaceAddress the address of the local interface or
+		 *            {@code null} for the default interface.
+		 * @param socketAddress the address and port of the cast device.
+		 * @param dnsName the DNS name the cast device announced.
+		 */
+		public DeviceRoute(
+			@Nullable InetAddress interfaceAddress,
+			@Nonnull InetSocketAddress socketAddress,
+			@Nullable String dnsName
+		) {
+			this.interfaceAddress = interfaceAddress;
+			this.socketAddress = socketAddress;
+			this.dnsName = dnsName;
+		}
+
+		/**
+		 * @return The address of the local interface, or {@code null} for the
+		 *         default interface.
+		 */
+		@Nullable
+		public InetAddress getInterfaceAddress() {
+			return interfaceAddress;
+		}
+
+		/**
+		 * @return The address and port of the cast device.
+		 */
+		@Nonnull
+		public InetSocketAddress getSocketAddress() {
+			return socketAddress;
+		}
+
+		/**
+		 * @return The DNS name the cast device announced.
+		 */
+		@Nullable
+		public String getDNSName() {
+			return dnsName;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(dnsName, interfaceAddress, socketAddress);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof DeviceRoute)) {
+				return false;
+			}
+			DeviceRoute other = (DeviceRoute) obj;
+			return
+				Objects.equals(dnsName, other.dnsName) &&
+				Objects.equals(interfaceAddress, other.interfaceAddress) &&
+				socketAddress.equals(other.socketAddress);
+		}
+
+		@Override
+		public String toString() {
+			return getClass().getSimpleName() + " [interface=" + interfaceAddress + ", address=" + socketAddress + "]";
+		}
+	}
+
+	/**
+	 * Service listener to receive mDNS service updates from one mDNS
+	 * instance.
 	 */
 	public class MulticastDNSServiceListener implements ServiceListener {
 
+		/** The address of the interface, {@code null} for the default */
+		@Nullable
+		protected final InetAddress interfaceAddress;
+
+		/** The mDNS instance */
+		@Nonnull
+		protected final JmDNS mDNS;
+
+		/**
+		 * Creates a new instance using the specified parameters.
+		 *
+		 * @param interfaceAddress the address of the interface the mDNS
+		 *            instance is bound to, or {@code null} for the default
+		 *            interface.
+		 * @param mDNS the mDNS instance.
+		 */
+		public MulticastDNSServiceListener(@Nullable InetAddress interfaceAddress, @Nonnull JmDNS mDNS) {
+			this.interfaceAddress = interfaceAddress;
+			this.mDNS = mDNS;
+		}
+
 		@Override
 		public void serviceAdded(ServiceEvent se) {
 			if (se.getDNS() != null && se.getInfo() != null) {
@@ -229,32 +1302,77 @@ public final class CastDeviceMonitor {
 				} else {
 					return;
 				}
-				CastDevice newDevice = null;
-				Set<DeviceDiscoveryListener> tmpListeners = null;
+				InetSocketAddress socketAddress = new InetSocketAddress(address, info.getPort());
+				List<CastDevice> removedDevices = new ArrayList<>();
+				List<CastDevice> addedDevices = new ArrayList<>();
+				boolean confirmed = false;
+				Set<DeviceDiscoveryListener> tmpListeners;
 				synchronized (lock) {
-					boolean found = false;
-					for (CastDevice device : castDevices) {
-						if (
-							id.equals(device.getUniqueId()) &&
-							Objects.equals(address, device.getAddress()) &&
-							info.getPort() == device.getPort()
-						) {
-							found = true;
-							break;
+					if (discoveries.get(interfaceAddress) != this) {
+						// Discovery on this interface has been stopped
+						return;
+					}
+					CastDevice existing = registry.getByAddress(socketAddress);
+					if (existing != null && !id.equals(existing.getUniqueId()) && !unconfirmed.contains(existing)) {
+						// Another device now uses the address
+						LOGGER.debug(
+							Channel.CAST_API_MARKER,
+							"Cast device \"{}\" at {} has been replaced by a device with ID {}",
+							existing.getDisplayName(),
+							socketAddress,
+							id
+						);
+						if (existing.getUniqueId() == null) {
+							registry.remove(existing);
+							detachEventForwarder(existing);
+							removedDevices.add(existing);
+						} else {
+							dropRoutesTo(existing.getUniqueId(), socketAddress, removedDevices, addedDevices);
 						}
+						existing = registry.getByAddress(socketAddress);
 					}
-					if (!found) {
-						newDevice = new CastDevice(info, true);
-						castDevices.add(newDevice);
-						if (!listeners.isEmpty()) {
-							tmpListeners = new LinkedHashSet<>(listeners);
+					if (replaceRoute(id, new DeviceRoute(interfaceAddress, socketAddress, info.getName()))) {
+						// The device has announced a new address on this interface
+						reconcileRoutes(id, removedDevices, addedDevices);
+						existing = registry.getByAddress(socketAddress);
+					}
+					if (existing != null && id.equals(existing.getUniqueId())) {
+						confirmed = unconfirmed.remove(existing);
+					} else {
+						// Unconfirmed cached entries are replaced by live results
+						CastDevice known = null;
+						for (CastDevice device : registry.getSnapshot().getAllByUniqueId(id)) {
+							if (unconfirmed.contains(device)) {
+								removedDevices.add(device);
+							} else if (known == null) {
+								known = device;
+							}
+						}
+						if (existing != null && unconfirmed.contains(existing) && !removedDevices.contains(existing)) {
+							removedDevices.add(existing);
+						}
+						for (CastDevice device : removedDevices) {
+							if (unconfirmed.remove(device)) {
+								registry.remove(device);
+								detachEventForwarder(device);
+							}
+						}
+						if (known == null) {
+							// Not registered through another route
+							CastDevice newDevice = new CastDevice(info, true);
+							if (registry.add(newDevice)) {
+								attachEventForwarder(newDevice);
+								addedDevices.add(newDevice);
+							}
 						}
 					}
+					tmpListeners = new LinkedHashSet<>(listeners);
 				}
-				if (newDevice != null && tmpListeners != null) {
-					for (DeviceDiscoveryListener discoveryListener : tmpListeners) {
-						discoveryListener.deviceDiscovered(newDevice);
-					}
+				if (!removedDevices.isEmpty() || !addedDevices.isEmpty()) {
+					notifyChanges(removedDevices, addedDevices, tmpListeners);
+				}
+				if (!removedDevices.isEmpty() || !addedDevices.isEmpty() || confirmed) {
+					saveCache();
 				}
 			}
 		}
@@ -267,39 +1385,31 @@ public final class CastDeviceMonitor {
 				return;
 			}
 
-			CastDevice removed = null;
-			Set<DeviceDiscoveryListener> tmpListeners = null;
+			List<CastDevice> removedDevices = new ArrayList<>();
+			List<CastDevice> addedDevices = new ArrayList<>();
+			Set<DeviceDiscoveryListener> tmpListeners;
 			synchronized (lock) {
-				for (CastDevice device : castDevices) {
-					if (id.equals(device.getUniqueId()) && name.equals(device.getDNSName())) {
-						removed = device;
-						break;
-					}
+				if (discoveries.get(interfaceAddress) != this) {
+					return;
 				}
-				if (removed != null) {
-					castDevices.remove(removed);
-					if (!listeners.isEmpty()) {
-						tmpListeners = new LinkedHashSet<>(listeners);
+				if (routes.containsKey(id)) {
+					dropRoutes(id, interfaceAddress, name, removedDevices, addedDevices);
+				} else {
+					for (CastDevice device : registry.getSnapshot().getAllByUniqueId(id)) {
+						if (name.equals(device.getDNSName())) {
+							unconfirmed.remove(device);
+							registry.remove(device);
+							detachEventForwarder(device);
+							removedDevices.add(device);
+							break;
+						}
 					}
 				}
+				tmpListeners = new LinkedHashSet<>(listeners);
 			}
-			if (removed != null) {
-				if (tmpListeners != null) {
-					for (DeviceDiscoveryListener discoveryListener : tmpListeners) {
-						discoveryListener.deviceRemoved(removed);
-					}
-				}
-				try {
-					removed.disconnect();
-				} catch (IOException e) {
-					LOGGER.warn(
-						Channel.CAST_API_MARKER,
-						"An error occurred while disconnecting from cast device {}: {}",
-						removed.getDisplayName(),
-						e.getMessage()
-					);
-					LOGGER.trace(Channel.CAST_API_MARKER, "", e);
-				}
+			if (!removedDevices.isEmpty() || !addedDevices.isEmpty()) {
+				notifyChanges(removedDevices, addedDevices, tmpListeners);
+				saveCache();
 			}
 		}
 
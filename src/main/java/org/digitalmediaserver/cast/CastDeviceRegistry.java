@@ -0,0 +1,303 @@
+/*
+ * Copyright (C) 2021 Digital Media Server developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.digitalmediaserver.cast;
+
+import static org.digitalmediaserver.cast.Util.requireNotNull;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+
+
+/**
+ * A registry of {@link CastDevice}s indexed by unique ID and socket address.
+ * <p>
+ * Every modification publishes a new immutable {@link Snapshot}, so reads
+ * never block and always see a consistent view. Modifications are serialized
+ * and copy the indexes, which is cheap compared to how rarely devices appear
+ * or disappear.
+ *
+ * @author Nadahar
+ */
+@ThreadSafe
+public class CastDeviceRegistry {
+
+	/** The synchronization object for modifications */
+	@Nonnull
+	protected final Object writeLock = new Object();
+
+	/** The current {@link Snapshot} */
+	@Nonnull
+	protected volatile Snapshot snapshot = Snapshot.EMPTY;
+
+	/**
+	 * @return The current {@link Snapshot}.
+	 */
+	@Nonnull
+	public Snapshot getSnapshot() {
+		return snapshot;
+	}
+
+	/**
+	 * @return The unmodifiable {@link Set} of registered {@link CastDevice}s
+	 *         in registration order.
+	 */
+	@Nonnull
+	public Set<CastDevice> getCastDevices() {
+		return snapshot.getCastDevices();
+	}
+
+	/**
+	 * Returns the first registered {@link CastDevice} with the specified
+	 * unique ID.
+	 *
+	 * @param uniqueId the unique ID.
+	 * @return The {@link CastDevice} or {@code null}.
+	 */
+	@Nullable
+	public CastDevice getByUniqueId(@Nullable String uniqueId) {
+		return snapshot.getByUniqueId(uniqueId);
+	}
+
+	/**
+	 * Returns the registered {@link CastDevice} with the specified socket
+	 * address.
+	 *
+	 * @param socketAddress the {@link InetSocketAddress}.
+	 * @return The {@link CastDevice} or {@code null}.
+	 */
+	@Nullable
+	public CastDevice getByAddress(@Nullable InetSocketAddress socketAddress) {
+		return snapshot.getByAddress(socketAddress);
+	}
+
+	/**
+	 * Registers the specified {@link CastDevice}. A device with the same socket
+	 * address as an already registered device isn't registered.
+	 *
+	 * @param device the {@link CastDevice} to register.
+	 * @return {@code true} if the device was registered, {@code false}
+	 *         otherwise.
+	 * @throws IllegalArgumentException If {@code device} is {@code null}.
+	 */
+	public boolean add(@Nonnull CastDevice device) {
+		requireNotNull(device, "device");
+		synchronized (writeLock) {
+			Snapshot current = snapshot;
+			if (current.byAddress.containsKey(device.getSocketAddress()) || current.castDevices.contains(device)) {
+				return false;
+			}
+			Set<CastDevice> devices = new LinkedHashSet<>(current.castDevices);
+			devices.add(device);
+			snapshot = new Snapshot(current.version + 1L, devices);
+			return true;
+		}
+	}
+
+	/**
+	 * Unregisters the specified {@link CastDevice}.
+	 *
+	 * @param device the {@link CastDevice} to unregister.
+	 * @return {@code true} if the device was unregistered, {@code false} if it
+	 *         wasn't registered.
+	 */
+	public boolean remove(@Nullable CastDevice device) {
+		if (device == null) {
+			return false;
+		}
+		synchronized (writeLock) {
+			Snapshot current = snapshot;
+			if (!current.castDevices.contains(device)) {
+				return false;
+			}
+			Set<CastDevice> devices = new LinkedHashSet<>(current.castDevices);
+			devices.remove(device);
+			snapshot = new Snapshot(current.version + 1L, devices);
+			return true;
+		}
+	}
+
+	/**
+	 * Unregisters all {@link CastDevice}s.
+	 *
+	 * @return The unmodifiable {@link Set} of unregistered {@link CastDevice}s.
+	 */
+	@Nonnull
+	public Set<CastDevice> clear() {
+		synchronized (writeLock) {
+			Snapshot current = snapshot;
+			if (!current.castDevices.isEmpty()) {
+				snapshot = new Snapshot(current.version + 1L, Collections.<CastDevice>emptySet());
+			}
+			return current.castDevices;
+		}
+	}
+
+	@Override
+	public String toString() {
+		Snapshot current = snapshot;
+		return getClass().getSimpleName() + " [version=" + current.version + ", devices=" + current.castDevices.size() + "]";
+	}
+
+	/**
+	 * An immutable, versioned view of the registered {@link CastDevice}s.
+	 *
+	 * @author Nadahar
+	 */
+	@Immutable
+	public static class Snapshot {
+
+		/** The empty initial {@link Snapshot} */
+		@Nonnull
+		protected static final Snapshot EMPTY = new Snapshot(0L, Collections.<CastDevice>emptySet());
+
+		/** The version, which is incremented by every modification */
+		protected final long version;
+
+		/** The unmodifiable {@link Set} of {@link CastDevice}s */
+		@Nonnull
+		protected final Set<CastDevice> castDevices;
+
+		/** The unmodifiable lists of {@link CastDevice}s by unique ID */
+		@Nonnull
+		protected final Map<String, List<CastDevice>> byUniqueId;
+
+		/** The {@link CastDevice}s by socket address */
+		@Nonnull
+		protected final Map<InetSocketAddress, CastDevice> byAddress;
+
+		/**
+		 * Creates a new instance and builds the indexes.
+		 *
+		 * @param version the version.
+		 * @param castDevices the {@link CastDevice}s, which must not be
+		 *            modified afterwards.
+		 */
+		protected Snapshot(long version, @Nonnull Set<CastDevice> castDevices) {
+			this.version = version;
+			this.castDevices = Collections.unmodifiableSet(castDevices);
+			Map<String, List<CastDevice>> uniqueIds = new HashMap<>();
+			Map<InetSocketAddress, CastDevice> addresses = new HashMap<>();
+			for (CastDevice device : castDevices) {
+				String uniqueId = device.getUniqueId();
+				if (uniqueId != null) {
+					List<CastDevice> list = uniqueIds.get(uniqueId);
+					if (list == null) {
+						list = new ArrayList<>(1);
+						uniqueIds.put(uniqueId, list);
+					}
+					list.add(device);
+				}
+				addresses.put(device.getSocketAddress(), device);
+			}
+			for (Map.Entry<String, List<CastDevice>> entry : uniqueIds.entrySet()) {
+				entry.setValue(Collections.unmodifiableList(entry.getValue()));
+			}
+			this.byUniqueId = uniqueIds;
+			this.byAddress = addresses;
+		}
+
+		/**
+		 * @return The version of this {@link Snapshot}, which is incremented
+		 *         by every modification of the registry.
+		 */
+		public long getVersion() {
+			return version;
+		}
+
+		/**
+		 * @return The unmodifiable {@link Set} of {@link CastDevice}s in
+		 *         registration order.
+		 */
+		@Nonnull
+		public Set<CastDevice> getCastDevices() {
+			return castDevices;
+		}
+
+		/**
+		 * @return The number of {@link CastDevice}s.
+		 */
+		public int size() {
+			return castDevices.size();
+		}
+
+		/**
+		 * @return {@code true} if there are no {@link CastDevice}s,
+		 *         {@code false} otherwise.
+		 */
+		public boolean isEmpty() {
+			return castDevices.isEmpty();
+		}
+
+		/**
+		 * Returns the first {@link CastDevice} with the specified unique ID.
+		 *
+		 * @param uniqueId the unique ID.
+		 * @return The {@link CastDevice} or {@code null}.
+		 */
+		@Nullable
+		public CastDevice getByUniqueId(@Nullable String uniqueId) {
+			List<CastDevice> list = uniqueId == null ? null : byUniqueId.get(uniqueId);
+			return list == null ? null : list.get(0);
+		}
+
+		/**
+		 * Returns all {@link CastDevice}s with the specified unique ID, which
+		 * can be more than one if a device is reachable at several addresses.
+		 *
+		 * @param uniqueId the unique ID.
+		 * @return The unmodifiable {@link List} of {@link CastDevice}s.
+		 */
+		@Nonnull
+		public List<CastDevice> getAllByUniqueId(@Nullable String uniqueId) {
+			List<CastDevice> list = uniqueId == null ? null : byUniqueId.get(uniqueId);
+			return list == null ? Collections.<CastDevice>emptyList() : list;
+		}
+
+		/**
+		 * Returns the {@link CastDevice} with the specified socket address.
+		 *
+		 * @param socketAddress the {@link InetSocketAddress}.
+		 * @return The {@link CastDevice} or {@code null}.
+		 */
+		@Nullable
+		public CastDevice getByAddress(@Nullable InetSocketAddress socketAddress) {
+			return socketAddress == null ? null : byAddress.get(socketAddress);
+		}
+
+		/**
+		 * @return The unmodifiable {@link Collection} of unique IDs.
+		 */
+		@Nonnull
+		public Collection<String> getUniqueIds() {
+			return Collections.unmodifiableSet(byUniqueId.keySet());
+		}
+
+		@Override
+		public String toString() {
+			return getClass().getSimpleName() + " [version=" + version + ", devices=" + castDevices + "]";
+		}
+	}
+}
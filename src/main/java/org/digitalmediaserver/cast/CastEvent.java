@@ -17,8 +17,12 @@ package org.digitalmediaserver.cast;
 
 import static org.digitalmediaserver.cast.Util.requireNotBlank;
 import static org.digitalmediaserver.cast.Util.requireNotNull;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.EnumSet;
 import java.util.EventListener;
 import java.util.HashMap;
@@ -26,6 +30,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executor;
 import java.util.concurrent.RejectedExecutionException;
@@ -66,6 +71,10 @@ public interface CastEvent<T> {
 	CastEventType getEventType();
 
 	/**
+	 * Returns the event data. For {@link CastEventType#UNKNOWN} events this
+	 * is a new deep copy of the {@code JSON} tree on every call, see
+	 * {@link UnknownCastEvent#getData()}.
+	 *
 	 * @return The event data, if any.
 	 */
 	@Nullable
@@ -148,6 +157,202 @@ public interface CastEvent<T> {
 		}
 	}
 
+	/**
+	 * The {@link CastEvent} used for {@link CastEventType#UNKNOWN} events. The
+	 * {@code JSON} tree is held as an {@link ImmutableJson}, so the same
+	 * instance can be delivered to every listener. {@link #getData()} returns
+	 * a new mutable {@link JsonNode} copy on every call, like the per-listener
+	 * copies that used to be made when firing, while
+	 * {@code getData(ImmutableJson.class)} returns the shared read-only view
+	 * without copying anything.
+	 *
+	 * @author Nadahar
+	 */
+	@Immutable
+	public static class UnknownCastEvent implements CastEvent<JsonNode> {
+
+		/** The read-only {@code JSON} tree */
+		@Nonnull
+		protected final ImmutableJson json;
+
+		/**
+		 * Creates a new instance using the specified {@link ImmutableJson}.
+		 *
+		 * @param json the read-only {@code JSON} tree.
+		 * @throws IllegalArgumentException If {@code json} is {@code null}.
+		 */
+		public UnknownCastEvent(@Nonnull ImmutableJson json) {
+			requireNotNull(json, "json");
+			this.json = json;
+		}
+
+		/**
+		 * Returns an {@link UnknownCastEvent} that can be shared by all
+		 * listeners if the specified {@link CastEvent} is an
+		 * {@link CastEventType#UNKNOWN} event with a mutable {@link JsonNode},
+		 * or the specified {@link CastEvent} otherwise.
+		 *
+		 * @param event the {@link CastEvent}.
+		 * @return The {@link CastEvent} to deliver.
+		 */
+		@Nonnull
+		public static CastEvent<?> shareable(@Nonnull CastEvent<?> event) {
+			if (
+				event.getEventType() == CastEventType.UNKNOWN &&
+				!(event instanceof UnknownCastEvent) &&
+				event.getData() instanceof JsonNode
+			) {
+				// Copy once, since the sender might still modify the tree
+				return new UnknownCastEvent(ImmutableJson.copyOf((JsonNode) event.getData()));
+			}
+			return event;
+		}
+
+		@Override
+		@Nonnull
+		public CastEventType getEventType() {
+			return CastEventType.UNKNOWN;
+		}
+
+		/**
+		 * @return The shared, read-only {@code JSON} tree.
+		 */
+		@Nonnull
+		public ImmutableJson getJson() {
+			return json;
+		}
+
+		/**
+		 * Returns a new mutable deep copy of the {@code JSON} tree. The copy
+		 * isn't cached, since the same event is delivered to every listener
+		 * and a shared mutable tree would let one listener's changes leak to
+		 * the others. Every call costs time and memory proportional to the
+		 * size of the tree, so listeners that only read the data should use
+		 * {@link #getJson()} or {@code getData(ImmutableJson.class)} instead,
+		 * and listeners that need a {@link JsonNode} should call this once and
+		 * keep the result.
+		 *
+		 * @return A new mutable copy of the {@code JSON} tree.
+		 */
+		@Override
+		@Nonnull
+		public JsonNode getData() {
+			return json.toJsonNode();
+		}
+
+		/**
+		 * Returns the shared {@link ImmutableJson} without copying if
+		 * {@code cls} is {@link ImmutableJson}, or a new mutable deep copy of
+		 * the {@code JSON} tree, with the same cost as {@link #getData()},
+		 * otherwise.
+		 *
+		 * @param <U> the event data type.
+		 * @param cls the {@link Class} of the event data type.
+		 * @return The event data cast to the specified type.
+		 * @throws IllegalArgumentException If {@code cls} is neither
+		 *             {@link ImmutableJson} nor assignable from
+		 *             {@link JsonNode}.
+		 */
+		@Override
+		@Nullable
+		public <U> U getData(Class<U> cls) {
+			if (cls == ImmutableJson.class) {
+				return cls.cast(json);
+			}
+			if (!cls.isAssignableFrom(JsonNode.class)) {
+				throw new IllegalArgumentException(
+					"Requested type " + cls + " does not match type for event " + JsonNode.class
+				);
+			}
+			return cls.cast(json.toJsonNode());
+		}
+
+		@Override
+		public String toString() {
+			return new StringBuilder(50).append(getClass().getSimpleName())
+				.append(" [Type: ").append(CastEventType.UNKNOWN)
+				.append(", Data: ").append(json).append(']')
+				.toString();
+		}
+	}
+
+	/**
+	 * A {@link CastEvent} that also carries the {@link CastDevice} it
+	 * originated from, used where events from several devices are combined.
+	 *
+	 * @param <T> the type data in the event.
+	 *
+	 * @author Nadahar
+	 */
+	@Immutable
+	public static class DeviceCastEvent<T> implements CastEvent<T> {
+
+		/** The {@link CastDevice} the event originated from */
+		@Nonnull
+		protected final CastDevice castDevice;
+
+		/** The wrapped {@link CastEvent} */
+		@Nonnull
+		protected final CastEvent<T> event;
+
+		/**
+		 * Creates a new instance using the specified parameters.
+		 *
+		 * @param castDevice the {@link CastDevice} the event originated from.
+		 * @param event the {@link CastEvent} to wrap.
+		 * @throws IllegalArgumentException If {@code castDevice} or
+		 *             {@code event} is {@code null}.
+		 */
+		public DeviceCastEvent(@Nonnull CastDevice castDevice, @Nonnull CastEvent<T> event) {
+			requireNotNull(castDevice, "castDevice");
+			requireNotNull(event, "event");
+			this.castDevice = castDevice;
+			this.event = event;
+		}
+
+		/**
+		 * @return The {@link CastDevice} the event originated from.
+		 */
+		@Nonnull
+		public CastDevice getCastDevice() {
+			return castDevice;
+		}
+
+		/**
+		 * @return The wrapped {@link CastEvent}.
+		 */
+		@Nonnull
+		public CastEvent<T> getEvent() {
+			return event;
+		}
+
+		@Override
+		@Nonnull
+		public CastEventType getEventType() {
+			return event.getEventType();
+		}
+
+		@Override
+		@Nullable
+		public T getData() {
+			return event.getData();
+		}
+
+		@Override
+		@Nullable
+		public <U> U getData(Class<U> cls) {
+			return event.getData(cls);
+		}
+
+		@Override
+		public String toString() {
+			return new StringBuilder(80).append(getClass().getSimpleName())
+				.append(" [Device: ").append(castDevice.getDisplayName())
+				.append(", Event: ").append(event).append(']')
+				.toString();
+		}
+	}
+
 	/**
 	 * An {@link EventListener} that listens for {@link CastEvent}s.
 	 *
@@ -277,6 +482,9 @@ public interface CastEvent<T> {
 	 */
 	public abstract static class AbstractCastEventListenerList implements CastEventListenerList {
 
+		/** The empty listener array */
+		protected static final CastEventListener[] NO_LISTENERS = new CastEventListener[0];
+
 		/** The identifier for the cast device used in logging */
 		@Nonnull
 		protected final String remoteName;
@@ -296,6 +504,14 @@ public interface CastEvent<T> {
 		@GuardedBy("filtersLock")
 		protected final Map<CastEventListener, Set<CastEventType>> filters = new HashMap<>();
 
+		/**
+		 * The copy-on-write index of the {@link CastEventListener}s interested
+		 * in each {@link CastEventType}. It's rebuilt whenever the listeners or
+		 * filters change and never modified after being published
+		 */
+		@Nonnull
+		protected volatile EnumMap<CastEventType, CastEventListener[]> index = new EnumMap<>(CastEventType.class);
+
 		/**
 		 * Abstract constructor that sets the "remote name" final field.
 		 *
@@ -314,24 +530,32 @@ public interface CastEvent<T> {
 				return false;
 			}
 			synchronized (filtersLock) {
+				boolean result;
 				if (listeners.contains(listener)) {
 					if (eventTypes == null || eventTypes.length == 0) {
-						return filters.remove(listener) != null;
+						result = filters.remove(listener) != null;
+					} else {
+						EnumSet<CastEventType> newTypes = EnumSet.copyOf(Arrays.asList(eventTypes));
+						Set<CastEventType> types = filters.get(listener);
+						if (types == null) {
+							// The listener was already subscribed to everything
+							filters.put(listener, newTypes);
+							result = true;
+						} else {
+							result = types.addAll(newTypes);
+						}
 					}
-					EnumSet<CastEventType> newTypes = EnumSet.copyOf(Arrays.asList(eventTypes));
-					Set<CastEventType> types = filters.get(listener);
-					if (types == null) {
-						filters.put(listener, newTypes);
-						return true;
+				} else {
+					listeners.add(listener);
+					if (eventTypes != null && eventTypes.length > 0) {
+						filters.put(listener, EnumSet.copyOf(Arrays.asList(eventTypes)));
 					}
-					return types.addAll(newTypes);
+					result = true;
 				}
-
-				listeners.add(listener);
-				if (eventTypes != null && eventTypes.length > 0) {
-					filters.put(listener, EnumSet.copyOf(Arrays.asList(eventTypes)));
+				if (result) {
+					rebuildIndex();
 				}
-				return true;
+				return result;
 			}
 		}
 
@@ -356,11 +580,12 @@ public interface CastEvent<T> {
 			if (listener == null) {
 				return false;
 			}
-			if (listeners.remove(listener)) {
-				synchronized (filtersLock) {
+			synchronized (filtersLock) {
+				if (listeners.remove(listener)) {
 					filters.remove(listener);
+					rebuildIndex();
+					return true;
 				}
-				return true;
 			}
 			return false;
 		}
@@ -386,9 +611,10 @@ public interface CastEvent<T> {
 
 		@Override
 		public void clear() {
-			listeners.clear();
 			synchronized (filtersLock) {
+				listeners.clear();
 				filters.clear();
+				rebuildIndex();
 			}
 		}
 
@@ -417,6 +643,44 @@ public interface CastEvent<T> {
 		public Iterator<CastEventListener> iterator() {
 			return listeners.iterator();
 		}
+
+		/**
+		 * Returns the {@link CastEventListener}s that are interested in the
+		 * specified {@link CastEventType}, in registration order. This
+		 * doesn't allocate anything.
+		 *
+		 * @param eventType the {@link CastEventType}.
+		 * @return The shared array of {@link CastEventListener}s, which must
+		 *         not be modified.
+		 */
+		@Nonnull
+		protected CastEventListener[] getListeners(@Nullable CastEventType eventType) {
+			CastEventListener[] result = eventType == null ? null : index.get(eventType);
+			return result == null ? NO_LISTENERS : result;
+		}
+
+		/**
+		 * Rebuilds and publishes {@link #index} from the current listeners and
+		 * filters.
+		 */
+		@GuardedBy("filtersLock")
+		protected void rebuildIndex() {
+			EnumMap<CastEventType, CastEventListener[]> newIndex = new EnumMap<>(CastEventType.class);
+			List<CastEventListener> interested = new ArrayList<>();
+			for (CastEventType eventType : CastEventType.values()) {
+				interested.clear();
+				for (CastEventListener listener : listeners) {
+					Set<CastEventType> types = filters.get(listener);
+					if (types == null || types.contains(eventType)) {
+						interested.add(listener);
+					}
+				}
+				if (!interested.isEmpty()) {
+					newIndex.put(eventType, interested.toArray(new CastEventListener[interested.size()]));
+				}
+			}
+			index = newIndex;
+		}
 	}
 
 	/**
@@ -448,7 +712,9 @@ public interface CastEvent<T> {
 				return;
 			}
 
-			if (listeners.isEmpty()) {
+			event = UnknownCastEvent.shareable(event);
+			CastEventListener[] targets = getListeners(event.getEventType());
+			if (targets.length == 0) {
 				if (LOGGER.isDebugEnabled(Channel.CAST_API_MARKER)) {
 					LOGGER.debug(
 						Channel.CAST_API_MARKER,
@@ -468,23 +734,8 @@ public interface CastEvent<T> {
 				);
 			}
 
-			Map<CastEventListener, Set<CastEventType>> filtersSnapshot;
-			synchronized (filtersLock) {
-				filtersSnapshot = new HashMap<>(filters);
-			}
-			CastEventListener listener;
-			Set<CastEventType> targetTypes;
-			for (Iterator<CastEventListener> iterator = listeners.iterator(); iterator.hasNext();) {
-				listener = iterator.next();
-				targetTypes = filtersSnapshot.get(listener);
-				if (targetTypes == null || targetTypes.contains(event.getEventType())) {
-					if (event.getEventType() == CastEventType.UNKNOWN && event.getData() instanceof JsonNode) {
-						// Data might be mutable, so make a copy for each listener
-						listener.onEvent(new DefaultCastEvent<>(CastEventType.UNKNOWN, ((JsonNode) event.getData()).deepCopy()));
-					} else {
-						listener.onEvent(event);
-					}
-				}
+			for (CastEventListener listener : targets) {
+				listener.onEvent(event);
 			}
 		}
 	}
@@ -501,10 +752,24 @@ public interface CastEvent<T> {
 
 		private static final Logger LOGGER = LoggerFactory.getLogger(ThreadedCastEventListenerList.class);
 
+		/**
+		 * The high-frequency {@link CastEventType}s where only the latest
+		 * undelivered event is delivered to conflating listeners
+		 */
+		public static final Set<CastEventType> CONFLATED_EVENT_TYPES = Collections.unmodifiableSet(EnumSet.of(
+			CastEventType.MEDIA_STATUS,
+			CastEventType.MULTIZONE_STATUS,
+			CastEventType.RECEIVER_STATUS
+		));
+
 		/** The {@link Executor} that is used to invoke listeners */
 		@Nonnull
 		protected final Executor notifier;
 
+		/** The {@link ConflatingInvoker}s of the conflating listeners */
+		@Nonnull
+		protected final ConcurrentHashMap<CastEventListener, ConflatingInvoker> conflatingInvokers = new ConcurrentHashMap<>();
+
 		/**
 		 * Creates a new instance with the specified notifier and remote name.
 		 *
@@ -527,13 +792,84 @@ public interface CastEvent<T> {
 			return notifier;
 		}
 
+		/**
+		 * Registers the specified {@link CastEventListener} for the specified
+		 * {@link CastEventType}s as a conflating listener. A conflating
+		 * listener is invoked for one event at a time, in order, and if
+		 * several events of one of the {@link #CONFLATED_EVENT_TYPES} are
+		 * fired before the listener is free to receive them, only the latest
+		 * is delivered. Events of other types are always delivered, and
+		 * events are never conflated across them, so the order of conflated
+		 * and other events is preserved. This keeps slow listeners from
+		 * falling behind on stale states during bursts of status updates.
+		 * <p>
+		 * If the listener is already registered, it's made conflating and the
+		 * {@link CastEventType}s are handled like
+		 * {@link #add(CastEventListener, CastEventType...)} does.
+		 *
+		 * @param listener the {@link CastEventListener} to register.
+		 * @param eventTypes the event type(s) to listen to or none to listen
+		 *            to all events.
+		 * @return {@code true} if a change was made to the listener list,
+		 *         {@code false} if this registration didn't lead to any
+		 *         change.
+		 */
+		public boolean addConflating(@Nullable CastEventListener listener, CastEventType... eventTypes) {
+			if (listener == null) {
+				return false;
+			}
+			synchronized (filtersLock) {
+				boolean result = add(listener, eventTypes);
+				if (!conflatingInvokers.containsKey(listener)) {
+					conflatingInvokers.put(listener, new ConflatingInvoker(listener, notifier));
+					result = true;
+				}
+				return result;
+			}
+		}
+
+		/**
+		 * Checks if the specified {@link CastEventListener} is registered as
+		 * a conflating listener.
+		 *
+		 * @param listener the {@link CastEventListener} to check.
+		 * @return {@code true} if {@code listener} is registered as a
+		 *         conflating listener, {@code false} otherwise.
+		 */
+		public boolean isConflating(@Nullable CastEventListener listener) {
+			return listener != null && conflatingInvokers.containsKey(listener);
+		}
+
+		@Override
+		public boolean remove(@Nullable CastEventListener listener) {
+			if (super.remove(listener)) {
+				ConflatingInvoker invoker = conflatingInvokers.remove(listener);
+				if (invoker != null) {
+					invoker.clear();
+				}
+				return true;
+			}
+			return false;
+		}
+
+		@Override
+		public void clear() {
+			super.clear();
+			for (Iterator<ConflatingInvoker> iterator = conflatingInvokers.values().iterator(); iterator.hasNext();) {
+				iterator.next().clear();
+				iterator.remove();
+			}
+		}
+
 		@Override
 		public void fire(@Nullable CastEvent<?> event) {
 			if (event == null) {
 				return;
 			}
 
-			if (listeners.isEmpty()) {
+			event = UnknownCastEvent.shareable(event);
+			CastEventListener[] targets = getListeners(event.getEventType());
+			if (targets.length == 0) {
 				if (LOGGER.isDebugEnabled(Channel.CAST_API_MARKER)) {
 					LOGGER.debug(
 						Channel.CAST_API_MARKER,
@@ -553,29 +889,14 @@ public interface CastEvent<T> {
 				);
 			}
 
-			Map<CastEventListener, Set<CastEventType>> filtersSnapshot;
-			synchronized (filtersLock) {
-				filtersSnapshot = new HashMap<>(filters);
-			}
-
 			try {
-				CastEventListener listener;
-				Set<CastEventType> targetTypes;
-				Invoker invoker;
-				for (Iterator<CastEventListener> iterator = listeners.iterator(); iterator.hasNext();) {
-					listener = iterator.next();
-					targetTypes = filtersSnapshot.get(listener);
-					if (targetTypes == null || targetTypes.contains(event.getEventType())) {
-						if (event.getEventType() == CastEventType.UNKNOWN && event.getData() instanceof JsonNode) {
-							// Data might be mutable, so make a copy for each listener
-							invoker = new Invoker(
-								listener,
-								new DefaultCastEvent<>(CastEventType.UNKNOWN, ((JsonNode) event.getData()).deepCopy())
-							);
-						} else {
-							invoker = new Invoker(listener, event);
-						}
-						notifier.execute(invoker);
+				ConflatingInvoker conflatingInvoker;
+				for (CastEventListener listener : targets) {
+					conflatingInvoker = conflatingInvokers.isEmpty() ? null : conflatingInvokers.get(listener);
+					if (conflatingInvoker == null) {
+						notifier.execute(new Invoker(listener, event));
+					} else {
+						conflatingInvoker.offer(event);
 					}
 				}
 			} catch (RejectedExecutionException e) {
@@ -616,6 +937,194 @@ public interface CastEvent<T> {
 				listener.onEvent(event);
 			}
 		}
+
+		/**
+		 * A {@link Runnable} implementation that invokes a conflating listener
+		 * with the queued events, one at a time. Only the latest undelivered
+		 * event of each of the {@link #CONFLATED_EVENT_TYPES} is kept. At most
+		 * {@value #MAX_BATCH} events are delivered per run, after which this
+		 * {@link Runnable} resubmits itself so that other tasks sharing the
+		 * {@link Executor} aren't starved by a busy listener.
+		 *
+		 * @author Nadahar
+		 */
+		@ThreadSafe
+		protected static class ConflatingInvoker implements Runnable {
+
+			/** The maximum number of events delivered per run */
+			protected static final int MAX_BATCH = 32;
+
+			/** The {@link CastEventListener} to invoke */
+			@Nonnull
+			protected final CastEventListener listener;
+
+			/** The {@link Executor} that runs this {@link Runnable} */
+			@Nonnull
+			protected final Executor executor;
+
+			/** The synchronization object */
+			@Nonnull
+			protected final Object lock = new Object();
+
+			/**
+			 * The delivery order, holding either a {@link CastEvent} to
+			 * deliver as it is or a {@link ConflatedSlot} holding the latest
+			 * event of a conflated type
+			 */
+			@Nonnull
+			@GuardedBy("lock")
+			protected final ArrayDeque<Object> queue = new ArrayDeque<>();
+
+			/**
+			 * The {@link ConflatedSlot}s that can still be updated, which are
+			 * those queued after the last non-conflated event
+			 */
+			@Nonnull
+			@GuardedBy("lock")
+			protected final EnumMap<CastEventType, ConflatedSlot> conflated = new EnumMap<>(CastEventType.class);
+
+			/** Whether this {@link Runnable} has been submitted for execution */
+			@GuardedBy("lock")
+			protected boolean scheduled;
+
+			/**
+			 * Creates a new instance for the specified listener.
+			 *
+			 * @param listener the {@link CastEventListener} to invoke.
+			 * @param executor the {@link Executor} that will run this
+			 *            {@link Runnable}.
+			 */
+			public ConflatingInvoker(@Nonnull CastEventListener listener, @Nonnull Executor executor) {
+				this.listener = listener;
+				this.executor = executor;
+			}
+
+			/**
+			 * Queues the specified {@link CastEvent} for delivery, replacing
+			 * an undelivered event of the same type if the type is conflated,
+			 * and submits this {@link Runnable} to {@link #executor} unless it
+			 * is already submitted. An event is never conflated with one that
+			 * was queued before a non-conflated event, so the relative order
+			 * of conflated and non-conflated events is preserved.
+			 *
+			 * @param event the {@link CastEvent} to deliver.
+			 * @throws RejectedExecutionException If {@link #executor} rejects
+			 *             this {@link Runnable}.
+			 */
+			public void offer(@Nonnull CastEvent<?> event) {
+				CastEventType eventType = event.getEventType();
+				synchronized (lock) {
+					if (CONFLATED_EVENT_TYPES.contains(eventType)) {
+						ConflatedSlot slot = conflated.get(eventType);
+						if (slot == null) {
+							slot = new ConflatedSlot(event);
+							conflated.put(eventType, slot);
+							queue.add(slot);
+						} else {
+							slot.event = event;
+						}
+					} else {
+						// Pending conflated events must be delivered before this one
+						conflated.clear();
+						queue.add(event);
+					}
+					if (scheduled) {
+						return;
+					}
+					scheduled = true;
+				}
+				try {
+					executor.execute(this);
+				} catch (RejectedExecutionException e) {
+					synchronized (lock) {
+						scheduled = false;
+					}
+					throw e;
+				}
+			}
+
+			/**
+			 * Discards all undelivered events.
+			 */
+			public void clear() {
+				synchronized (lock) {
+					queue.clear();
+					conflated.clear();
+				}
+			}
+
+			@Override
+			public void run() {
+				CastEvent<?> event;
+				for (int i = 0; i < MAX_BATCH; i++) {
+					synchronized (lock) {
+						Object next = queue.poll();
+						if (next == null) {
+							scheduled = false;
+							return;
+						}
+						if (next instanceof ConflatedSlot) {
+							ConflatedSlot slot = (ConflatedSlot) next;
+							event = slot.event;
+							conflated.remove(event.getEventType(), slot);
+						} else {
+							event = (CastEvent<?>) next;
+						}
+					}
+					try {
+						listener.onEvent(event);
+					} catch (RuntimeException e) {
+						LOGGER.error(
+							Channel.CAST_API_MARKER,
+							"Cast event listener {} failed to handle event {}: {}",
+							listener,
+							event,
+							e.getMessage()
+						);
+						LOGGER.trace(Channel.CAST_API_MARKER, "", e);
+					}
+				}
+
+				// Yield the thread, the remaining events are delivered by the next run
+				try {
+					executor.execute(this);
+				} catch (RejectedExecutionException e) {
+					synchronized (lock) {
+						scheduled = false;
+					}
+					LOGGER.warn(
+						Channel.CAST_API_MARKER,
+						"Unable to resubmit the delivery to listener {}, the remaining events will be delivered with the next event: {}",
+						listener,
+						e.getMessage()
+					);
+					LOGGER.trace(Channel.CAST_API_MARKER, "", e);
+				}
+			}
+		}
+
+		/**
+		 * A queued position holding the latest undelivered event of a
+		 * conflated type.
+		 *
+		 * @author Nadahar
+		 */
+		protected static class ConflatedSlot {
+
+			/** The latest undelivered event */
+			@Nonnull
+			@GuardedBy("ConflatingInvoker.lock")
+			protected CastEvent<?> event;
+
+			/**
+			 * Creates a new instance holding the specified event.
+			 *
+			 * @param event the {@link CastEvent}.
+			 */
+			protected ConflatedSlot(@Nonnull CastEvent<?> event) {
+				this.event = event;
+			}
+		}
 	}
 
 	/**
@@ -687,6 +1196,13 @@ public interface CastEvent<T> {
 		 */
 		MULTIZONE_STATUS(MultizoneStatusResponse.class),
 
+		/**
+		 * Event is fired periodically for each playing media session when
+		 * synthetic position updates are enabled, see
+		 * {@link Channel#setPositionUpdateInterval(long)}
+		 */
+		PLAYBACK_POSITION(PlaybackPosition.class),
+
 		/**
 		 * Event is fired when an unclaimed {@link ReceiverStatusResponse} is
 		 * received
@@ -695,7 +1211,12 @@ public interface CastEvent<T> {
 
 		/**
 		 * Event is fired when a response that can't be deserialized is
-		 * received, the data will be {@link JsonNode}
+		 * received, the data will be {@link JsonNode}. The event is an
+		 * {@link UnknownCastEvent}, where every call to
+		 * {@link CastEvent#getData()} makes a new deep copy of the tree, while
+		 * {@code getData(ImmutableJson.class)} returns a shared read-only
+		 * view without copying, which is what listeners that only read the
+		 * data should use
 		 */
 		UNKNOWN(JsonNode.class);
 
@@ -0,0 +1,514 @@
+/*
+ * Copyright (C) 2021 Digital Media Server developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.digitalmediaserver.cast;
+
+import static org.digitalmediaserver.cast.Util.requireNotBlank;
+import static org.digitalmediaserver.cast.Util.requireNotNull;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import org.digitalmediaserver.cast.CastEvent.CastEventListener;
+import org.digitalmediaserver.cast.CastEvent.CastEventType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * A {@link Flow.Publisher} of {@link CastEvent}s with demand-driven delivery.
+ * It receives events as a {@link CastEventListener} and buffers them for each
+ * {@link Flow.Subscriber} until they are requested. Each
+ * {@link Flow.Subscription} has a bounded buffer and an
+ * {@link OverflowStrategy} that decides what happens when a subscriber
+ * doesn't keep up.
+ * <p>
+ * Signals to a subscriber are delivered in order, one at a time, using its
+ * own {@link StripedExecutor.Stripe}, so a slow subscriber never holds up
+ * event delivery to others or creates more threads.
+ *
+ * @author Nadahar
+ */
+@ThreadSafe
+public class CastEventPublisher implements Flow.Publisher<CastEvent<?>>, CastEventListener {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(CastEventPublisher.class);
+
+	/** The default number of events buffered per subscriber */
+	public static final int DEFAULT_BUFFER_SIZE = 256;
+
+	/**
+	 * The maximum number of signals delivered to a subscriber before its
+	 * thread is yielded
+	 */
+	protected static final int MAX_BATCH = 32;
+
+	/**
+	 * The delay in milliseconds before delivery is retried when the
+	 * {@link StripedExecutor} is full
+	 */
+	protected static final long RETRY_DELAY = 100L;
+
+	/** The name used in logging */
+	@Nonnull
+	protected final String name;
+
+	/** The default buffer size for new subscriptions */
+	protected final int defaultBufferSize;
+
+	/** The default {@link OverflowStrategy} for new subscriptions */
+	@Nonnull
+	protected final OverflowStrategy defaultOverflowStrategy;
+
+	/** The {@link StripedExecutor} used to deliver signals */
+	@Nonnull
+	protected final StripedExecutor executor;
+
+	/** The active subscriptions */
+	@Nonnull
+	protected final CopyOnWriteArrayList<EventSubscription> subscriptions = new CopyOnWriteArrayList<>();
+
+	/** Whether this publisher has been closed */
+	protected volatile boolean closed;
+
+	/**
+	 * Creates a new instance using {@value #DEFAULT_BUFFER_SIZE} as the
+	 * default buffer size, {@link OverflowStrategy#DROP_OLDEST} as the
+	 * default {@link OverflowStrategy} and
+	 * {@link CastDevice#EVENT_EXECUTOR} to deliver signals.
+	 *
+	 * @param name the name used in logging.
+	 * @throws IllegalArgumentException If {@code name} is blank.
+	 */
+	public CastEventPublisher(@Nonnull String name) {
+		this(name, DEFAULT_BUFFER_SIZE, OverflowStrategy.DROP_OLDEST, CastDevice.EVENT_EXECUTOR);
+	}
+
+	/**
+	 * Creates a new instance using the specified parameters.
+	 *
+	 * @param name the name used in logging.
+	 * @param defaultBufferSize the default buffer size for new subscriptions.
+	 * @param defaultOverflowStrategy the default {@link OverflowStrategy} for
+	 *            new subscriptions.
+	 * @param executor the {@link StripedExecutor} used to deliver signals.
+	 * @throws IllegalArgumentException If {@code name} is blank,
+	 *             {@code defaultBufferSize} is less than one or
+	 *             {@code defaultOverflowStrategy} or {@code executor} is
+	 *             {@code null}.
+	 */
+	public CastEventPublisher(
+		@Nonnull String name,
+		int defaultBufferSize,
+		@Nonnull OverflowStrategy defaultOverflowStrategy,
+		@Nonnull StripedExecutor executor
+	) {
+		requireNotBlank(name, "name");
+		requireNotNull(defaultOverflowStrategy, "defaultOverflowStrategy");
+		requireNotNull(executor, "executor");
+		if (defaultBufferSize < 1) {
+			throw new IllegalArgumentException("defaultBufferSize must be positive");
+		}
+		this.name = name;
+		this.defaultBufferSize = defaultBufferSize;
+		this.defaultOverflowStrategy = defaultOverflowStrategy;
+		this.executor = executor;
+	}
+
+	@Override
+	public void subscribe(Flow.Subscriber<? super CastEvent<?>> subscriber) {
+		subscribe(subscriber, defaultBufferSize, defaultOverflowStrategy);
+	}
+
+	/**
+	 * Adds the specified {@link Flow.Subscriber} with the specified buffer
+	 * size and {@link OverflowStrategy}.
+	 *
+	 * @param subscriber the {@link Flow.Subscriber}.
+	 * @param bufferSize the maximum number of undelivered events to buffer.
+	 * @param overflowStrategy the {@link OverflowStrategy} to use when the
+	 *            buffer is full.
+	 * @throws NullPointerException If {@code subscriber} is {@code null}.
+	 * @throws IllegalArgumentException If {@code bufferSize} is less than one
+	 *             or {@code overflowStrategy} is {@code null}.
+	 */
+	public void subscribe(
+		Flow.Subscriber<? super CastEvent<?>> subscriber,
+		int bufferSize,
+		@Nonnull OverflowStrategy overflowStrategy
+	) {
+		if (subscriber == null) {
+			throw new NullPointerException("subscriber cannot be null");
+		}
+		requireNotNull(overflowStrategy, "overflowStrategy");
+		if (bufferSize < 1) {
+			throw new IllegalArgumentException("bufferSize must be positive");
+		}
+		EventSubscription subscription = new EventSubscription(subscriber, bufferSize, overflowStrategy);
+		subscriptions.add(subscription);
+		subscriber.onSubscribe(subscription);
+		if (closed) {
+			subscription.complete();
+		}
+	}
+
+	/**
+	 * @return The number of active subscriptions.
+	 */
+	public int getSubscriberCount() {
+		return subscriptions.size();
+	}
+
+	/**
+	 * @return {@code true} if this publisher has active subscriptions,
+	 *         {@code false} otherwise.
+	 */
+	public boolean hasSubscribers() {
+		return !subscriptions.isEmpty();
+	}
+
+	@Override
+	public void onEvent(@Nonnull CastEvent<?> event) {
+		if (closed) {
+			return;
+		}
+		for (EventSubscription subscription : subscriptions) {
+			subscription.offer(event);
+		}
+	}
+
+	/**
+	 * Closes this publisher. All subscribers receive
+	 * {@link Flow.Subscriber#onComplete()} once the events already buffered
+	 * for them have been delivered, and new subscribers are completed
+	 * immediately.
+	 */
+	public void close() {
+		closed = true;
+		for (EventSubscription subscription : subscriptions) {
+			subscription.complete();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + " [name=" + name + ", subscribers=" + subscriptions.size() + "]";
+	}
+
+	/**
+	 * The strategies for handling new events when a subscriber's buffer is
+	 * full.
+	 */
+	public enum OverflowStrategy {
+
+		/** Discard the oldest buffered event */
+		DROP_OLDEST,
+
+		/**
+		 * Discard the oldest buffered event of the same {@link CastEventType},
+		 * or the oldest buffered event if there is none of the same type, so
+		 * that the latest state of each type is kept
+		 */
+		CONFLATE,
+
+		/**
+		 * Fail the {@link Flow.Subscription} with a {@link CastException}
+		 * through {@link Flow.Subscriber#onError(Throwable)}
+		 */
+		ERROR
+	}
+
+	/**
+	 * A {@link Flow.Subscription} with its own buffer and
+	 * {@link StripedExecutor.Stripe}.
+	 *
+	 * @author Nadahar
+	 */
+	@ThreadSafe
+	protected class EventSubscription implements Flow.Subscription {
+
+		/** The {@link Flow.Subscriber} */
+		@Nonnull
+		protected final Flow.Subscriber<? super CastEvent<?>> subscriber;
+
+		/** The maximum number of buffered events */
+		protected final int bufferSize;
+
+		/** The {@link OverflowStrategy} */
+		@Nonnull
+		protected final OverflowStrategy overflowStrategy;
+
+		/** The {@link StripedExecutor.Stripe} that delivers signals */
+		@Nonnull
+		protected final StripedExecutor.Stripe stripe;
+
+		/** The synchronization object */
+		@Nonnull
+		protected final Object lock = new Object();
+
+		/** The undelivered events */
+		@Nonnull
+		@GuardedBy("lock")
+		protected final ArrayDeque<CastEvent<?>> buffer = new ArrayDeque<>();
+
+		/** The unfulfilled demand */
+		@GuardedBy("lock")
+		protected long demand;
+
+		/** The failure to deliver, if any */
+		@Nullable
+		@GuardedBy("lock")
+		protected Throwable failure;
+
+		/** Whether {@code onComplete} should be delivered after the buffer */
+		@GuardedBy("lock")
+		protected boolean completing;
+
+		/** Whether no more signals should be delivered */
+		@GuardedBy("lock")
+		protected boolean terminated;
+
+		/** Whether {@link #drainer} has been submitted for execution */
+		@GuardedBy("lock")
+		protected boolean scheduled;
+
+		/** The {@link Runnable} that delivers signals */
+		@Nonnull
+		protected final Runnable drainer = new Runnable() {
+
+			@Override
+			public void run() {
+				drain();
+			}
+		};
+
+		/** The {@link Runnable} that retries a rejected delivery */
+		@Nonnull
+		protected final Runnable retrier = new Runnable() {
+
+			@Override
+			public void run() {
+				schedule();
+			}
+		};
+
+		/**
+		 * Creates a new instance using the specified parameters.
+		 *
+		 * @param subscriber the {@link Flow.Subscriber}.
+		 * @param bufferSize the maximum number of buffered events.
+		 * @param overflowStrategy the {@link OverflowStrategy}.
+		 */
+		protected EventSubscription(
+			@Nonnull Flow.Subscriber<? super CastEvent<?>> subscriber,
+			int bufferSize,
+			@Nonnull OverflowStrategy overflowStrategy
+		) {
+			this.subscriber = subscriber;
+			this.bufferSize = bufferSize;
+			this.overflowStrategy = overflowStrategy;
+			this.stripe = executor.newStripe(name + " subscriber");
+		}
+
+		/**
+		 * Buffers the specified event, applying the {@link OverflowStrategy}
+		 * if the buffer is full.
+		 *
+		 * @param event the {@link CastEvent}.
+		 */
+		protected void offer(@Nonnull CastEvent<?> event) {
+			synchronized (lock) {
+				if (terminated || completing || failure != null) {
+					return;
+				}
+				if (buffer.size() >= bufferSize) {
+					switch (overflowStrategy) {
+						case ERROR:
+							buffer.clear();
+							failure = new CastException(
+								"The event buffer of " + bufferSize + " events overflowed for a subscriber of " + name
+							);
+							break;
+						case CONFLATE:
+							boolean removed = false;
+							for (Iterator<CastEvent<?>> iterator = buffer.iterator(); iterator.hasNext();) {
+								if (iterator.next().getEventType() == event.getEventType()) {
+									iterator.remove();
+									removed = true;
+									break;
+								}
+							}
+							if (!removed) {
+								buffer.poll();
+							}
+							break;
+						case DROP_OLDEST:
+						default:
+							buffer.poll();
+							break;
+					}
+				}
+				if (failure == null) {
+					buffer.add(event);
+					if (demand == 0L) {
+						return;
+					}
+				}
+			}
+			schedule();
+		}
+
+		@Override
+		public void request(long n) {
+			synchronized (lock) {
+				if (terminated) {
+					return;
+				}
+				if (n <= 0L) {
+					buffer.clear();
+					failure = new IllegalArgumentException("The requested number of events must be positive: " + n);
+				} else {
+					demand += n;
+					if (demand < 0L) {
+						demand = Long.MAX_VALUE;
+					}
+				}
+			}
+			schedule();
+		}
+
+		@Override
+		public void cancel() {
+			synchronized (lock) {
+				terminated = true;
+				buffer.clear();
+			}
+			subscriptions.remove(this);
+		}
+
+		/**
+		 * Delivers {@code onComplete} after the buffered events.
+		 */
+		protected void complete() {
+			synchronized (lock) {
+				if (terminated) {
+					return;
+				}
+				completing = true;
+			}
+			schedule();
+		}
+
+		/**
+		 * Submits {@link #drainer} unless it's already submitted.
+		 */
+		protected void schedule() {
+			synchronized (lock) {
+				if (scheduled || terminated) {
+					return;
+				}
+				scheduled = true;
+			}
+			try {
+				stripe.execute(drainer);
+			} catch (RejectedExecutionException e) {
+				synchronized (lock) {
+					scheduled = false;
+				}
+				LOGGER.warn(
+					Channel.CAST_API_MARKER,
+					"Unable to deliver events to a subscriber of {}, retrying in {} ms: {}",
+					name,
+					RETRY_DELAY,
+					e.getMessage()
+				);
+				try {
+					Channel.TIMEOUT_TIMER.newTimeout(retrier, RETRY_DELAY, TimeUnit.MILLISECONDS);
+				} catch (RejectedExecutionException e2) {
+					LOGGER.warn(
+						Channel.CAST_API_MARKER,
+						"Unable to schedule a retry, the buffered events for a subscriber of {} " +
+						"will be delivered with the next event or request",
+						name
+					);
+				}
+			}
+		}
+
+		/**
+		 * Delivers pending signals to the subscriber.
+		 */
+		protected void drain() {
+			for (int i = 0; i < MAX_BATCH; i++) {
+				CastEvent<?> event = null;
+				Throwable error = null;
+				boolean complete = false;
+				synchronized (lock) {
+					if (terminated) {
+						scheduled = false;
+						return;
+					}
+					if (failure != null) {
+						error = failure;
+						terminated = true;
+					} else if (demand > 0L && !buffer.isEmpty()) {
+						event = buffer.poll();
+						if (demand != Long.MAX_VALUE) {
+							demand--;
+						}
+					} else if (completing && buffer.isEmpty()) {
+						complete = true;
+						terminated = true;
+					} else {
+						scheduled = false;
+						return;
+					}
+				}
+				try {
+					if (error != null) {
+						subscriptions.remove(this);
+						subscriber.onError(error);
+						return;
+					}
+					if (complete) {
+						subscriptions.remove(this);
+						subscriber.onComplete();
+						return;
+					}
+					subscriber.onNext(event);
+				} catch (RuntimeException e) {
+					LOGGER.error(
+						Channel.CAST_API_MARKER,
+						"A subscriber of {} threw an exception and has been cancelled: {}",
+						name,
+						e.getMessage()
+					);
+					LOGGER.trace(Channel.CAST_API_MARKER, "", e);
+					cancel();
+					return;
+				}
+			}
+			synchronized (lock) {
+				scheduled = false;
+			}
+			schedule();
+		}
+	}
+}
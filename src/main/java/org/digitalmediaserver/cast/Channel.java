@@ -19,11 +19,9 @@ import static org.digitalmediaserver.cast.Util.isBlank;
 import static org.digitalmediaserver.cast.Util.readB32Int;
 import static org.digitalmediaserver.cast.Util.requireNotBlank;
 import static org.digitalmediaserver.cast.Util.requireNotNull;
-import static org.digitalmediaserver.cast.Util.writeB32Int;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.Socket;
@@ -33,21 +31,48 @@ import java.net.SocketTimeoutException;
 import java.security.KeyManagementException;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Random;
 import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.Immutable;
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.TrustManager;
 import org.digitalmediaserver.cast.CastChannel.CastMessage;
@@ -55,12 +80,15 @@ import org.digitalmediaserver.cast.CastEvent.CastEventListener;
 import org.digitalmediaserver.cast.CastEvent.CastEventListenerList;
 import org.digitalmediaserver.cast.CastEvent.CastEventType;
 import org.digitalmediaserver.cast.CastEvent.DefaultCastEvent;
+import org.digitalmediaserver.cast.CastEvent.UnknownCastEvent;
 import org.digitalmediaserver.cast.CastException.ErrorResponseCastException;
 import org.digitalmediaserver.cast.CastException.LaunchErrorCastException;
 import org.digitalmediaserver.cast.CastException.UnprocessedCastException;
 import org.digitalmediaserver.cast.CastException.UntypedCastException;
 import org.digitalmediaserver.cast.ImmutableCastMessage.ImmutableBinaryCastMessage;
 import org.digitalmediaserver.cast.ImmutableCastMessage.ImmutableStringCastMessage;
+import org.digitalmediaserver.cast.MediaStatus.PlayerState;
+import org.digitalmediaserver.cast.OutboundQueue.Priority;
 import org.digitalmediaserver.cast.Session.SessionClosedListener;
 import org.digitalmediaserver.cast.StandardMessage.CloseConnection;
 import org.digitalmediaserver.cast.StandardMessage.Connect;
@@ -89,7 +117,13 @@ import org.slf4j.LoggerFactory;
 import org.slf4j.Marker;
 import org.slf4j.MarkerFactory;
 import com.fasterxml.jackson.annotation.JsonSubTypes;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.util.JsonParserDelegate;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -117,9 +151,53 @@ public class Channel implements Closeable {
 	/** The delay between {@code PING} requests in milliseconds */
 	protected static final long PING_PERIOD = 10L * 1000L;
 
+	/**
+	 * The default number of consecutive {@code PING} requests that can go
+	 * unanswered before the connection is considered dead
+	 */
+	public static final int DEFAULT_MAX_MISSED_HEARTBEATS = 3;
+
+	/**
+	 * The default number of milliseconds application availability is cached,
+	 * zero meaning that it isn't cached unless enabled with
+	 * {@link #setAvailabilityTtl(long)}
+	 */
+	public static final long DEFAULT_AVAILABILITY_TTL = 0L;
+
+	/**
+	 * The maximum number of threads used to write the outbound queues of all
+	 * channels that don't use a {@link SharedSelector}
+	 */
+	public static final int DEFAULT_WRITER_THREADS = Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+
+	/**
+	 * The maximum number of threads used to process the messages received
+	 * through a {@link SharedSelector}
+	 */
+	public static final int DEFAULT_DISPATCH_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+	/**
+	 * The maximum number of received messages that can be queued for
+	 * processing for all channels combined
+	 */
+	public static final int DEFAULT_DISPATCH_QUEUE_CAPACITY = 10000;
+
+	/**
+	 * The number of milliseconds reading from a {@link SharedSelector}
+	 * connection is suspended when {@link #DISPATCH_EXECUTOR} is saturated,
+	 * before handing its messages over is retried
+	 */
+	protected static final long DISPATCH_RETRY_DELAY = 100L;
+
 	/** The default response timeout in milliseconds */
 	public static final long DEFAULT_RESPONSE_TIMEOUT = 30 * 1000;
 
+	/**
+	 * The number of milliseconds a write to a blocking {@link Socket} may
+	 * take before the connection is considered stalled and is closed
+	 */
+	public static final long DEFAULT_WRITE_TIMEOUT = 10 * 1000;
+
 	/** Google's fixed receiver ID to use for the cast device itself */
 	public static final String PLATFORM_RECEIVER_ID = "receiver-0";
 
@@ -136,13 +214,73 @@ public class Channel implements Closeable {
 	protected static final JsonSubTypes.Type[] STANDARD_RESPONSE_TYPES =
 		StandardResponse.class.getAnnotation(JsonSubTypes.class).value();
 
+	/** The "standard response" types by their type names */
+	@Nonnull
+	protected static final Map<String, Class<?>> STANDARD_RESPONSE_CLASSES = createStandardResponseClasses();
+
+	/** The shared timer used to time out requests waiting for a response */
+	@Nonnull
+	protected static final HashedWheelTimer TIMEOUT_TIMER = new HashedWheelTimer("Cast API timeout timer");
+
+	/**
+	 * The shared scheduler used for periodic tasks like sending {@code PING}
+	 * requests for all channels
+	 */
+	@Nonnull
+	protected static final ScheduledThreadPoolExecutor HEARTBEAT_SCHEDULER = createHeartbeatScheduler();
+
+	/** The shared executor that runs the {@link OutboundQueue} writer tasks */
+	@Nonnull
+	protected static final ExecutorService WRITER_EXECUTOR = createWriterExecutor();
+
+	/**
+	 * The {@link StripedExecutor} that processes the messages received through
+	 * a {@link SharedSelector}, with one {@link StripedExecutor.Stripe} per
+	 * {@link Channel} so that the messages are processed in order, off the
+	 * selector thread. It also completes the {@link CompletableFuture}s
+	 * returned by the asynchronous methods.
+	 */
+	@Nonnull
+	protected static final StripedExecutor DISPATCH_EXECUTOR = new StripedExecutor(
+		"Cast API message dispatcher",
+		DEFAULT_DISPATCH_THREADS,
+		DEFAULT_DISPATCH_QUEUE_CAPACITY,
+		StripedExecutor.RejectionPolicy.ABORT
+	);
+
+	/**
+	 * The {@link Function} that extracts the first {@link MediaStatus} from a
+	 * {@link MediaStatusResponse}
+	 */
+	@Nonnull
+	protected static final Function<MediaStatusResponse, MediaStatus> MEDIA_STATUS_EXTRACTOR =
+		new Function<MediaStatusResponse, MediaStatus>() {
+
+			@Override
+			public MediaStatus apply(MediaStatusResponse response) {
+				return response == null || response.getStatuses().isEmpty() ? null : response.getStatuses().get(0);
+			}
+		};
+
+	/**
+	 * The {@link StripedExecutor.Stripe} that processes the messages received
+	 * through a {@link SharedSelector}, handles the loss of the connection and
+	 * completes the {@link CompletableFuture}s returned to callers
+	 */
+	@Nonnull
+	protected final StripedExecutor.Stripe dispatcher;
+
 	/** The registered {@link CastEventListener}s */
 	@Nonnull
 	protected final CastEventListenerList listeners;
 
-	/** The socket synchronization object */
+	/**
+	 * The socket lock, a {@link ReentrantLock} rather than a monitor since it's
+	 * held while connecting and closing, which would otherwise pin a virtual
+	 * thread to its carrier
+	 */
 	@Nonnull
-	protected final Object socketLock = new Object();
+	protected final ReentrantLock socketLock = new ReentrantLock();
 
 	/**
 	 * The {@link Socket} instance use to communicate with the remote device.
@@ -151,6 +289,22 @@ public class Channel implements Closeable {
 	@GuardedBy("socketLock")
 	protected Socket socket;
 
+	/**
+	 * The {@link SharedSelector} to use for non-blocking communication, or
+	 * {@code null} to use a blocking {@link Socket} and a dedicated
+	 * {@link InputHandler} thread.
+	 */
+	@Nullable
+	@GuardedBy("socketLock")
+	protected SharedSelector sharedSelector;
+
+	/**
+	 * The non-blocking {@link SharedSelector.Connection} used to communicate
+	 * with the remote device. Only written while holding {@code socketLock}.
+	 */
+	@Nullable
+	protected volatile SharedSelector.Connection connection;
+
 	/** The IP address and port of the cast device */
 	@Nonnull
 	protected final InetSocketAddress address;
@@ -159,9 +313,23 @@ public class Channel implements Closeable {
 	@Nonnull
 	protected final String remoteName;
 
-	/** {@link Timer} for PING requests */
+	/** The scheduled {@link PingTask} */
+	@Nullable
 	@GuardedBy("socketLock")
-	protected Timer pingTimer;
+	protected ScheduledFuture<?> pingTask;
+
+	/** The number of {@code PING} requests sent since the last {@code PONG} */
+	@Nonnull
+	protected final AtomicInteger unansweredPings = new AtomicInteger();
+
+	/** The time the last {@code PONG} was received in milliseconds since the epoch */
+	protected volatile long lastPongTime;
+
+	/**
+	 * The number of consecutive {@code PING} requests that can go unanswered
+	 * before this {@link Channel} is closed, or zero to never close
+	 */
+	protected volatile int maxMissedHeartbeats = DEFAULT_MAX_MISSED_HEARTBEATS;
 
 	/**
 	 * The {@link Thread} that delegates incoming requests to processing
@@ -170,6 +338,16 @@ public class Channel implements Closeable {
 	@GuardedBy("socketLock")
 	protected InputHandler inputHandler;
 
+	/** The {@link FrameEncoder} that writes to the blocking socket */
+	@Nullable
+	@GuardedBy("socketLock")
+	protected FrameEncoder encoder;
+
+	/** The {@link OutboundQueue} that feeds {@link #encoder} */
+	@Nullable
+	@GuardedBy("socketLock")
+	protected OutboundQueue outboundQueue;
+
 	/**
 	 * Counter for producing request numbers
 	 */
@@ -180,18 +358,67 @@ public class Channel implements Closeable {
 	 * Processors of requests by their identifiers
 	 */
 	@Nonnull
-	@GuardedBy("requests")
-	protected final Map<Long, ResultProcessor<? extends Response>> requests = new HashMap<>();
+	protected final ConcurrentLongMap<ResultProcessor<? extends Response>> requests = new ConcurrentLongMap<>();
+
+	/**
+	 * The idempotent queries that are in flight or may be reused, cleared on
+	 * every connect and close so that responses never cross connections
+	 */
+	@Nonnull
+	protected final ConcurrentHashMap<QueryKey, SharedQuery<? extends Response>> sharedQueries =
+		new ConcurrentHashMap<>();
+
+	/**
+	 * The number of milliseconds the response to an idempotent query can be
+	 * reused after it has been received
+	 */
+	protected volatile long queryReuseTime;
+
+	/**
+	 * Processors of requests that belong to a {@link Session} by the
+	 * destination ID of the {@link Session}
+	 */
+	@Nonnull
+	protected final ConcurrentHashMap<String, Set<ResultProcessor<? extends Response>>> sessionRequests =
+		new ConcurrentHashMap<>();
 
 	/**
-	 * Single mapper object for marshalling JSON
+	 * The shared mapper object for marshalling JSON. It's private because it's
+	 * shared by all {@link Channel}s and must never be reconfigured.
 	 */
 	@Nonnull
-	protected final ObjectMapper jsonMapper = JacksonHelper.createJSONMapper();
+	private final ObjectMapper jsonMapper = JacksonHelper.getSharedMapper();
 
-	/** The sessions synchronization object */
+	/**
+	 * The {@link Function} that extracts the {@link ReceiverStatus} from a
+	 * {@link ReceiverStatusResponse} and caches the volume
+	 */
+	@Nonnull
+	protected final Function<ReceiverStatusResponse, ReceiverStatus> receiverStatusExtractor =
+		new Function<ReceiverStatusResponse, ReceiverStatus>() {
+
+			@Override
+			public ReceiverStatus apply(ReceiverStatusResponse response) {
+				ReceiverStatus result;
+				if (response == null || (result = response.getStatus()) == null) {
+					return null;
+				}
+				updateReceiverStatus(result);
+				return result;
+			}
+		};
+
+	/** The cached {@link Pong} message */
+	@Nonnull
+	protected final CastMessage pongMessage = createHeartbeatMessage(new Pong(), jsonMapper);
+
+	/**
+	 * The sessions lock, a {@link ReentrantLock} rather than a monitor since
+	 * it's held while writing the {@code CONNECT} message of a new
+	 * {@link Session} and while closing
+	 */
 	@Nonnull
-	protected final Object sessionsLock = new Object();
+	protected final ReentrantLock sessionsLock = new ReentrantLock();
 
 	/**
 	 * The currently known {@link Session}s belonging to this {@link Channel}
@@ -209,6 +436,75 @@ public class Channel implements Closeable {
 	@GuardedBy("cachedVolumeLock")
 	protected Volume cachedVolume;
 
+	/**
+	 * The mirror of the last received {@link ReceiverStatus}, updated from
+	 * both responses and events and cleared when the connection is opened or
+	 * closed
+	 */
+	@Nullable
+	protected volatile Timestamped<ReceiverStatus> receiverStatusMirror;
+
+	/**
+	 * The cached application availability by application ID, cleared when the
+	 * connection is opened or closed
+	 */
+	@Nonnull
+	protected final ConcurrentHashMap<String, Timestamped<Boolean>> availabilityCache = new ConcurrentHashMap<>();
+
+	/**
+	 * The generation of {@link #availabilityCache}, incremented every time it
+	 * is cleared so that responses to queries sent before that are discarded
+	 */
+	@Nonnull
+	protected final AtomicLong availabilityGeneration = new AtomicLong();
+
+	/** The number of milliseconds application availability is cached */
+	protected volatile long availabilityTtl = DEFAULT_AVAILABILITY_TTL;
+
+	/**
+	 * The {@link PlaybackPosition}s of the media sessions by media session
+	 * ID, removed when the media session ends and cleared when the connection
+	 * is opened or closed
+	 */
+	@Nonnull
+	protected final ConcurrentHashMap<Integer, PlaybackPosition> playbackPositions = new ConcurrentHashMap<>();
+
+	/**
+	 * The last {@link MediaStatusUpdate}s of the media sessions by media
+	 * session ID, removed when the media session ends and cleared when the
+	 * connection is opened or closed
+	 */
+	@Nonnull
+	protected final ConcurrentHashMap<Integer, MediaStatusUpdate> mediaStatusUpdates = new ConcurrentHashMap<>();
+
+	/**
+	 * The source IDs, which are the transport IDs of the applications, that
+	 * sent the media sessions by media session ID
+	 */
+	@Nonnull
+	@GuardedBy("mediaStatusUpdates")
+	protected final Map<Integer, String> mediaSessionSources = new HashMap<>();
+
+	/** The synchronization object for the position update task */
+	@Nonnull
+	protected final Object positionUpdateLock = new Object();
+
+	/** The interval in milliseconds between synthetic position updates */
+	@GuardedBy("positionUpdateLock")
+	protected long positionUpdateInterval;
+
+	/**
+	 * Whether synthetic position updates should run, which is while the
+	 * connection is open
+	 */
+	@GuardedBy("positionUpdateLock")
+	protected boolean positionUpdatesActive;
+
+	/** The task that fires synthetic position updates */
+	@Nullable
+	@GuardedBy("positionUpdateLock")
+	protected ScheduledFuture<?> positionUpdateTask;
+
 	/** The gradual volume synchronization object */
 	@Nonnull
 	protected final Object gradualVolumeLock = new Object();
@@ -265,6 +561,7 @@ public class Channel implements Closeable {
 		this.address = new InetSocketAddress(host, port);
 		this.remoteName = remoteName;
 		this.listeners = listeners;
+		this.dispatcher = DISPATCH_EXECUTOR.newStripe(remoteName);
 	}
 
 	/**
@@ -330,6 +627,7 @@ public class Channel implements Closeable {
 		this.address = socketAddress;
 		this.remoteName = remoteName;
 		this.listeners = listeners;
+		this.dispatcher = DISPATCH_EXECUTOR.newStripe(remoteName);
 	}
 
 	/**
@@ -347,21 +645,28 @@ public class Channel implements Closeable {
 	 * @throws IOException If an error occurs during the operation.
 	 */
 	public boolean connect() throws IOException, NoSuchAlgorithmException, KeyManagementException {
-		synchronized (socketLock) {
-			if (socket != null && socket.isConnected() && !socket.isClosed()) {
+		socketLock.lock();
+		try {
+			if (!isClosed()) {
 				// Already connected, nothing to do
 				return false;
 			}
 
+			if (connection != null) {
+				connection.close();
+				connection = null;
+			}
 			if (socket != null) {
 				socket.close();
 				socket = null;
+				encoder = null;
+			}
+			if (outboundQueue != null) {
+				outboundQueue.clear(new SocketException("Socket closed"));
+				outboundQueue = null;
 			}
 			SSLContext sc = SSLContext.getInstance("SSL");
 			sc.init(null, new TrustManager[] {new X509TrustAllManager()}, new SecureRandom());
-			socket = sc.getSocketFactory().createSocket();
-			socket.setSoTimeout(0);
-			socket.connect(address);
 
 			// Authenticate
 			CastChannel.DeviceAuthMessage authMessage = CastChannel.DeviceAuthMessage.newBuilder()
@@ -377,16 +682,51 @@ public class Channel implements Closeable {
 				.setPayloadBinary(authMessage.toByteString())
 				.build();
 
-			write(msg);
-			ImmutableBinaryCastMessage response = (ImmutableBinaryCastMessage) readMessage(socket.getInputStream());
-			CastChannel.DeviceAuthMessage authResponse = CastChannel.DeviceAuthMessage.parseFrom(response.getPayload());
+			ImmutableCastMessage response;
+			FrameDecoder decoder = null;
+			if (sharedSelector != null) {
+				SelectorHandler handler = new SelectorHandler();
+				connection = sharedSelector.connect(address, sc, handler, remoteName, DEFAULT_RESPONSE_TIMEOUT);
+				handler.connection = connection;
+				try {
+					write(msg);
+					response = handler.awaitAuthResponse(DEFAULT_RESPONSE_TIMEOUT);
+				} catch (IOException e) {
+					connection.close();
+					connection = null;
+					throw e;
+				}
+			} else {
+				// The TLS socket is layered on a plain socket that can be closed without blocking if a write stalls
+				Socket plainSocket = new Socket();
+				plainSocket.connect(address);
+				socket = sc.getSocketFactory().createSocket(plainSocket, address.getHostString(), address.getPort(), true);
+				socket.setSoTimeout(0);
+				encoder = new FrameEncoder(socket.getOutputStream());
+				outboundQueue = new OutboundQueue(
+					remoteName,
+					WRITER_EXECUTOR,
+					new DeadlineSink(encoder, plainSocket, remoteName, DEFAULT_WRITE_TIMEOUT)
+				);
+				write(msg);
+				decoder = new FrameDecoder(socket.getInputStream());
+				response = decoder.readMessage();
+			}
+			if (!(response instanceof ImmutableBinaryCastMessage)) {
+				throw new CastException("Authentication failed: Unexpected response from " + remoteName);
+			}
+			CastChannel.DeviceAuthMessage authResponse = CastChannel.DeviceAuthMessage.parseFrom(
+				((ImmutableBinaryCastMessage) response).getPayload()
+			);
 			if (authResponse.hasError()) {
 				throw new CastException("Authentication failed: " + authResponse.getError().getErrorType().toString());
 			}
 
-			// Start input handler
-			inputHandler = new InputHandler(socket.getInputStream());
-			inputHandler.start();
+			if (decoder != null) {
+				// Start input handler
+				inputHandler = new InputHandler(decoder);
+				inputHandler.start();
+			}
 
 			// Send 'CONNECT' message to start session
 			write(
@@ -396,16 +736,28 @@ public class Channel implements Closeable {
 				PLATFORM_RECEIVER_ID
 			);
 
-			// Start regular pinging
-			PingTask pingTask = new PingTask();
-			pingTimer = new Timer(remoteName + " PING timer");
-			pingTimer.schedule(pingTask, 1000, PING_PERIOD);
+			// Start regular pinging, with a random offset so that the channels don't ping in bursts
+			unansweredPings.set(0);
+			lastPongTime = System.currentTimeMillis();
+			pingTask = HEARTBEAT_SCHEDULER.scheduleAtFixedRate(
+				new PingTask(),
+				1000L + ThreadLocalRandom.current().nextLong(PING_PERIOD),
+				PING_PERIOD,
+				TimeUnit.MILLISECONDS
+			);
+		} finally {
+			socketLock.unlock();
 		}
 
-		// Reset the cached volume on every connect
+		// Reset the cached volume and status on every connect
 		synchronized (cachedVolumeLock) {
 			cachedVolume = null;
 		}
+		receiverStatusMirror = null;
+		sharedQueries.clear();
+		clearAvailabilityCache();
+		clearMediaSessions();
+		startPositionUpdates();
 
 		// Send connect event
 		listeners.fire(new DefaultCastEvent<>(CastEventType.CONNECTED, Boolean.TRUE));
@@ -421,9 +773,11 @@ public class Channel implements Closeable {
 	@Override
 	public void close() throws IOException {
 		Set<Session> closedSessions = null;
-		synchronized (sessionsLock) {
-			synchronized (socketLock) {
-				if (socket == null || socket.isClosed() || !socket.isConnected()) {
+		sessionsLock.lock();
+		try {
+			socketLock.lock();
+			try {
+				if (connection == null && (socket == null || socket.isClosed() || !socket.isConnected())) {
 					// Already closed
 					return;
 				}
@@ -433,9 +787,9 @@ public class Channel implements Closeable {
 					sessions.clear();
 				}
 
-				if (pingTimer != null) {
-					pingTimer.cancel();
-					pingTimer = null;
+				if (pingTask != null) {
+					pingTask.cancel(false);
+					pingTask = null;
 				}
 
 				if (inputHandler != null) {
@@ -443,11 +797,31 @@ public class Channel implements Closeable {
 					inputHandler = null;
 				}
 
-				socket.close();
-				socket = null;
+				if (connection != null) {
+					connection.close();
+					connection = null;
+				}
+				if (socket != null) {
+					socket.close();
+					socket = null;
+					encoder = null;
+				}
+				if (outboundQueue != null) {
+					outboundQueue.clear(new SocketException("Socket closed"));
+					outboundQueue = null;
+				}
+			} finally {
+				socketLock.unlock();
 			}
+		} finally {
+			sessionsLock.unlock();
 		}
 
+		receiverStatusMirror = null;
+		sharedQueries.clear();
+		clearAvailabilityCache();
+		clearMediaSessions();
+		stopPositionUpdates();
 		cancelPendingDisconnected();
 		if (closedSessions != null) {
 			SessionClosedListener closedListener;
@@ -468,2030 +842,4466 @@ public class Channel implements Closeable {
 	 *         if it's open.
 	 */
 	public boolean isClosed() {
-		synchronized (socketLock) {
+		SharedSelector.Connection tmpConnection = connection;
+		if (tmpConnection != null) {
+			return !tmpConnection.isOpen();
+		}
+		socketLock.lock();
+		try {
 			return socket == null || socket.isClosed() || !socket.isConnected();
+		} finally {
+			socketLock.unlock();
 		}
 	}
 
 	/**
-	 * Sends the specified {@link Request} to the specified destination using
-	 * the specified parameters.
-	 *
-	 * @param <T> the class of the {@link Response} object.
-	 * @param session if {@code responseClass} is non-{@code null} and the
-	 *            destination is an application, this must be the
-	 *            {@link Session} that has been established with said
-	 *            application. This makes sure that the waiting for the response
-	 *            will be terminated if the {@link Session} is terminated. If
-	 *            {@code responseClass} is {@code null} or the request is
-	 *            destined to the cast device itself, this should be
-	 *            {@code null}.
-	 * @param namespace the namespace to use.
-	 * @param message the {@link Request} to send.
-	 * @param sourceId the source ID to use.
-	 * @param destinationId the destination ID to use.
-	 * @param responseClass the class of the expected response for synchronous
-	 *            (blocking) behavior, or {@code null} for asynchronous behavior
-	 *            that returns {@code null} immediately.
-	 * @param responseTimeout the response timeout in milliseconds if
-	 *            {@code responseClass} is non-{@code null}. If zero or
-	 *            negative, {@value #DEFAULT_RESPONSE_TIMEOUT} will be used.
-	 * @return The {@link Response} object of the specified type if
-	 *         {@code responseClass} is non-{@code null}, {@code null} if
-	 *         {@code responseClass} is {@code null}.
-	 * @throws IllegalArgumentException If {@code namespace} is {@code null} or
-	 *             invalid (see {@link #validateNamespace(String)} for
-	 *             constraints).
-	 * @throws IOException If {@code responseClass} is non-{@code null} and the
-	 *             response from the cast device is a different type than what
-	 *             was expected, or if an error occurs during the operation.
+	 * @return The {@link SharedSelector} used for non-blocking communication,
+	 *         or {@code null} if a blocking socket and a dedicated input thread
+	 *         is used.
 	 */
-	public <T extends Response> T send(
-		@Nullable Session session,
-		String namespace,
-		Request message,
-		String sourceId,
-		String destinationId,
-		Class<T> responseClass,
-		long responseTimeout
-	) throws IOException {
-		validateNamespace(namespace);
-		long requestId = requestCounter.getAndIncrement();
-		message.setRequestId(requestId);
-
-		if (responseClass == null) {
-			write(namespace, message, sourceId, destinationId);
-			return null;
-		}
-
-		ResultProcessor<T> rp = new ResultProcessor<>(session, responseClass, responseTimeout);
-		synchronized (requests) {
-			requests.put(Long.valueOf(requestId), rp);
+	@Nullable
+	public SharedSelector getSharedSelector() {
+		socketLock.lock();
+		try {
+			return sharedSelector;
+		} finally {
+			socketLock.unlock();
 		}
+	}
 
-		write(namespace, message, sourceId, destinationId);
+	/**
+	 * Sets the {@link SharedSelector} to use for non-blocking communication.
+	 * When set, all reads and writes are multiplexed on the selector threads
+	 * of the {@link SharedSelector} instead of using a blocking socket and a
+	 * dedicated input thread for this {@link Channel}. The change takes effect
+	 * the next time this {@link Channel} connects.
+	 *
+	 * @param sharedSelector the {@link SharedSelector} to use or {@code null}
+	 *            to use a blocking socket.
+	 */
+	public void setSharedSelector(@Nullable SharedSelector sharedSelector) {
+		socketLock.lock();
 		try {
-			ResultProcessorResult<T> response = rp.get();
-			if (response.typedResult != null) {
-				return response.typedResult;
-			}
-			if (response.untypedResult instanceof ErrorResponse) {
-				throw new ErrorResponseCastException(
-					"Cast device returned an error: " + response.untypedResult,
-					(ErrorResponse) response.untypedResult
-				);
-			}
-			if (response.untypedResult instanceof LaunchErrorResponse) {
-				throw new LaunchErrorCastException(
-					"Application launch error: " + ((LaunchErrorResponse) response.untypedResult).getReason()
-				);
-			}
-			if (response.untypedResult != null) {
-				throw new UntypedCastException(
-					"Cast device returned " + response.untypedResult.getClass().getSimpleName() +
-					" instead of the expected " + responseClass.getSimpleName(),
-					response.untypedResult
-				);
-			}
-			throw new UnprocessedCastException(
-				"Failed to deserialize response to " + responseClass.getSimpleName(),
-				response.unprocessedResult
-			);
-		} catch (InterruptedException e) {
-			throw new CastException("Interrupted while waiting for response", e);
-		} catch (TimeoutException e) {
-			throw new CastException("Waiting for response timed out", e);
+			this.sharedSelector = sharedSelector;
 		} finally {
-			synchronized (requests) {
-				requests.remove(requestId);
-			}
+			socketLock.unlock();
 		}
 	}
 
 	/**
-	 * Request a {@link ReceiverStatus} from the cast device, using
-	 * {@value #DEFAULT_RESPONSE_TIMEOUT} as the timeout value.
-	 *
-	 * @return The resulting {@link ReceiverStatus}.
-	 * @throws IOException If the response times out or an error occurs during
-	 *             the operation.
+	 * @return The number of consecutive {@code PING} requests that can go
+	 *         unanswered before this {@link Channel} is closed, or zero if
+	 *         it's never closed because of missing {@code PONG}s.
 	 */
-	@Nullable
-	public ReceiverStatus getReceiverStatus() throws IOException {
-		return getReceiverStatus(DEFAULT_RESPONSE_TIMEOUT);
+	public int getMaxMissedHeartbeats() {
+		return maxMissedHeartbeats;
 	}
 
 	/**
-	 * Request a {@link ReceiverStatus} from the cast device.
+	 * Sets the number of consecutive {@code PING} requests that can go
+	 * unanswered before this {@link Channel} is considered dead and is closed.
+	 * This detects half-open connections where the cast device has gone away
+	 * without the connection being closed.
 	 *
-	 * @param responseTimeout the response timeout in milliseconds. If zero or
-	 *            negative, {@value #DEFAULT_RESPONSE_TIMEOUT} will be used.
-	 * @return The resulting {@link ReceiverStatus}.
-	 * @throws IOException If the response times out or an error occurs during
-	 *             the operation.
+	 * @param maxMissedHeartbeats the number of unanswered {@code PING}s to
+	 *            allow, or zero to never close this {@link Channel} because
+	 *            of missing {@code PONG}s.
+	 * @throws IllegalArgumentException If {@code maxMissedHeartbeats} is
+	 *             negative.
 	 */
-	@Nullable
-	public ReceiverStatus getReceiverStatus(long responseTimeout) throws IOException {
-		ReceiverStatusResponse status = send(
-			null,
-			"urn:x-cast:com.google.cast.receiver",
-			new GetStatus(),
-			PLATFORM_SENDER_ID,
-			PLATFORM_RECEIVER_ID,
-			ReceiverStatusResponse.class,
-			responseTimeout
-		);
-		ReceiverStatus result;
-		if (status == null || (result = status.getStatus()) == null) {
-			return null;
+	public void setMaxMissedHeartbeats(int maxMissedHeartbeats) {
+		if (maxMissedHeartbeats < 0) {
+			throw new IllegalArgumentException("maxMissedHeartbeats can't be negative");
 		}
-		cacheVolume(result);
-		return result;
+		this.maxMissedHeartbeats = maxMissedHeartbeats;
 	}
 
 	/**
-	 * Queries the cast device if the application represented by the specified
-	 * application ID is available, using {@value #DEFAULT_RESPONSE_TIMEOUT} as
-	 * the timeout value.
-	 *
-	 * @param applicationId the application ID for which to query availability.
-	 * @return {@code true} if the application is available, {@code false} if
-	 *         it's not.
-	 * @throws IOException If the response times out or if an error occurs
-	 *             during the operation.
+	 * @return The number of milliseconds the response to an idempotent status
+	 *         query is reused after it has been received.
 	 */
-	public boolean isApplicationAvailable(String applicationId) throws IOException {
-		return isApplicationAvailable(applicationId, DEFAULT_RESPONSE_TIMEOUT);
+	public long getQueryReuseTime() {
+		return queryReuseTime;
 	}
 
 	/**
-	 * Queries the cast device if the application represented by the specified
-	 * application ID is available.
+	 * Sets the number of milliseconds the response to an idempotent status
+	 * query, like {@link #getReceiverStatus()}, can be reused after it has been
+	 * received. Identical queries are always shared while they are in flight,
+	 * this additionally lets queries made shortly after a response has been
+	 * received be answered without sending a new request.
 	 *
-	 * @param applicationId the application ID for which to query availability.
-	 * @param responseTimeout the response timeout in milliseconds if. If zero
-	 *            or negative, {@value #DEFAULT_RESPONSE_TIMEOUT} will be used.
-	 * @return {@code true} if the application is available, {@code false} if
-	 *         it's not.
-	 * @throws IOException If the response times out or if an error occurs
-	 *             during the operation.
+	 * @param queryReuseTime the number of milliseconds to reuse responses, or
+	 *            zero to only share queries that are in flight.
+	 * @throws IllegalArgumentException If {@code queryReuseTime} is negative.
 	 */
-	public boolean isApplicationAvailable(String applicationId, long responseTimeout) throws IOException {
-		AppAvailabilityResponse availability = send(
-			null,
-			"urn:x-cast:com.google.cast.receiver",
-			new GetAppAvailability(applicationId),
-			PLATFORM_SENDER_ID,
-			PLATFORM_RECEIVER_ID,
-			AppAvailabilityResponse.class,
-			responseTimeout
-		);
-		return availability != null && "APP_AVAILABLE".equals(availability.getAvailability().get(applicationId));
+	public void setQueryReuseTime(long queryReuseTime) {
+		if (queryReuseTime < 0L) {
+			throw new IllegalArgumentException("queryReuseTime can't be negative");
+		}
+		this.queryReuseTime = queryReuseTime;
 	}
 
 	/**
-	 * Asks the cast device to launch the application represented by the
-	 * specified application ID, using {@value #DEFAULT_RESPONSE_TIMEOUT} as the
-	 * timeout value.
-	 *
-	 * @param applicationId the application ID for the application to launch.
-	 * @param synchronous {@code true} to make this call block until a response
-	 *            is received or times out, {@code false} to make it return
-	 *            immediately always returning {@code null}.
-	 * @return The resulting {@link ReceiverStatus} or {@code null} if
-	 *         {@code synchronous} is {@code false}.
-	 * @throws IOException If the response times out or an error occurs during
-	 *             the operation.
+	 * @return The number of milliseconds application availability is cached.
 	 */
-	@Nullable
-	public ReceiverStatus launch(String applicationId, boolean synchronous) throws IOException {
-		return launch(applicationId, synchronous, DEFAULT_RESPONSE_TIMEOUT);
+	public long getAvailabilityTtl() {
+		return availabilityTtl;
 	}
 
 	/**
-	 * Asks the cast device to launch the application represented by the
-	 * specified application ID.
+	 * Sets the number of milliseconds the availability of an application is
+	 * cached. The cache is always cleared when the connection is opened or
+	 * closed. The default is {@value #DEFAULT_AVAILABILITY_TTL}.
 	 *
-	 * @param applicationId the application ID for the application to launch.
-	 * @param synchronous {@code true} to make this call block until a response
-	 *            is received or times out, {@code false} to make it return
-	 *            immediately always returning {@code null}.
-	 * @param responseTimeout the response timeout in milliseconds if
-	 *            {@code synchronous} is {@code true}. If zero or negative,
-	 *            {@value #DEFAULT_RESPONSE_TIMEOUT} will be used.
-	 * @return The resulting {@link ReceiverStatus} or {@code null} if
-	 *         {@code synchronous} is {@code false}.
-	 * @throws IOException If the response times out or an error occurs during
-	 *             the operation.
+	 * @param availabilityTtl the number of milliseconds to cache application
+	 *            availability, or zero to disable caching.
+	 * @throws IllegalArgumentException If {@code availabilityTtl} is
+	 *             negative.
 	 */
-	@Nullable
-	public ReceiverStatus launch(String applicationId, boolean synchronous, long responseTimeout) throws IOException {
-		ReceiverStatusResponse status = send(
-			null,
-			"urn:x-cast:com.google.cast.receiver",
-			new Launch(applicationId),
-			PLATFORM_SENDER_ID,
-			PLATFORM_RECEIVER_ID,
-			synchronous ? ReceiverStatusResponse.class : null,
-			responseTimeout
-		);
-		ReceiverStatus result;
-		if (status == null || (result = status.getStatus()) == null) {
-			return null;
+	public void setAvailabilityTtl(long availabilityTtl) {
+		if (availabilityTtl < 0L) {
+			throw new IllegalArgumentException("availabilityTtl can't be negative");
+		}
+		this.availabilityTtl = availabilityTtl;
+		if (availabilityTtl == 0L) {
+			clearAvailabilityCache();
 		}
-		cacheVolume(result);
-		return result;
 	}
 
 	/**
-	 * Asks the cast device to stop the specified {@link Application}, using
-	 * {@value #DEFAULT_RESPONSE_TIMEOUT} as the timeout value.
-	 *
-	 * @param application the {@link Application} to stop.
-	 * @param synchronous {@code true} to make this call block until a response
-	 *            is received or times out, {@code false} to make it return
-	 *            immediately always returning {@code null}.
-	 * @return The resulting {@link ReceiverStatus} or {@code null} if
-	 *         {@code synchronous} is {@code false}.
-	 * @throws IOException If the response times out or an error occurs during
-	 *             the operation.
+	 * Clears the cached application availability and makes sure that the
+	 * responses to queries that are already in flight aren't cached.
 	 */
-	public ReceiverStatus stopApplication(@Nonnull Application application, boolean synchronous) throws IOException {
-		return stopApplication(application, synchronous, DEFAULT_RESPONSE_TIMEOUT);
+	protected void clearAvailabilityCache() {
+		availabilityGeneration.incrementAndGet();
+		availabilityCache.clear();
 	}
 
 	/**
-	 * Asks the cast device to stop the specified {@link Application}.
-	 *
-	 * @param application the {@link Application} to stop.
-	 * @param synchronous {@code true} to make this call block until a response
-	 *            is received or times out, {@code false} to make it return
-	 *            immediately always returning {@code null}.
-	 * @param responseTimeout the response timeout in milliseconds if
-	 *            {@code synchronous} is {@code true}. If zero or negative,
-	 *            {@value #DEFAULT_RESPONSE_TIMEOUT} will be used.
-	 * @return The resulting {@link ReceiverStatus} or {@code null} if
-	 *         {@code synchronous} is {@code false}.
-	 * @throws NullPointerException If {@code application} is {@code null}.
-	 * @throws IOException If the response times out or an error occurs during
-	 *             the operation.
+	 * @return The interval in milliseconds between synthetic
+	 *         {@link CastEventType#PLAYBACK_POSITION} events, or zero if they
+	 *         are disabled.
 	 */
-	public ReceiverStatus stopApplication(
-		@Nonnull Application application,
-		boolean synchronous,
-		long responseTimeout
-	) throws IOException {
-		ReceiverStatusResponse status = send(
-			null,
-			"urn:x-cast:com.google.cast.receiver",
-			new Stop(application.getSessionId()),
-			PLATFORM_SENDER_ID,
-			PLATFORM_RECEIVER_ID,
-			synchronous ? ReceiverStatusResponse.class : null,
-			responseTimeout
-		);
-		ReceiverStatus result;
-		if (status == null || (result = status.getStatus()) == null) {
-			return null;
+	public long getPositionUpdateInterval() {
+		synchronized (positionUpdateLock) {
+			return positionUpdateInterval;
 		}
-		cacheVolume(result);
-		return result;
 	}
 
 	/**
-	 * Establishes a {@link Session} with the specified {@link Application}
-	 * unless one already exists, in which case the existing {@link Session} is
-	 * returned.
+	 * Enables or disables synthetic {@link CastEventType#PLAYBACK_POSITION}
+	 * events. When enabled, an event is fired at the specified interval for
+	 * every media session that is playing, with the {@link PlaybackPosition}
+	 * as the data. The positions are estimated locally from the last received
+	 * {@link MediaStatus}, and are resynchronized every time a new
+	 * {@link MediaStatus} arrives, so no requests are sent to the cast
+	 * device. The events are only fired while the connection is open, and
+	 * are delivered through the {@link CastEventListenerList} of this
+	 * {@link Channel} like any other event.
 	 *
-	 * @param sourceId the source ID to use.
-	 * @param application the {@link Application} to connect to.
-	 * @param userAgent the user-agent String or {@code null}. It's not entirely
-	 *            clear what this is used for other than reporting to Google, so
-	 *            it might be that it's better left {@code null}.
-	 * @param connectionType The {@link VirtualConnectionType} to use. Please
-	 *            note that only {@link VirtualConnectionType#STRONG} and
-	 *            {@link VirtualConnectionType#INVISIBLE} are allowed.
-	 * @return The existing or new {@link Session}.
-	 * @throws IOException If an error occurs during the operation.
+	 * @param positionUpdateInterval the interval in milliseconds, or zero to
+	 *            disable synthetic position updates.
+	 * @throws IllegalArgumentException If {@code positionUpdateInterval} is
+	 *             negative.
 	 */
-	@Nonnull
-	public Session startSession(
-		@Nonnull String sourceId,
-		@Nonnull Application application,
-		@Nullable String userAgent,
-		@Nonnull VirtualConnectionType connectionType
-	) throws IOException {
-		requireNotBlank(sourceId, "sourceId");
-		requireNotNull(application, "application");
-		String sessionId = application.getSessionId();
-		requireNotBlank(sessionId, "application.getSessionId()");
-		String destinationId = application.getTransportId();
-		requireNotBlank(destinationId, "application.getTransportId()");
-		Session result = null;
-		synchronized (sessionsLock) {
-			for (Session session : sessions) {
-				if (
-					sessionId.equals(session.getId()) &&
-					destinationId.equals(session.getDestinationId()) &&
-					sourceId.equals(session.getSourceId())
-				) {
-					return session;
-				}
+	public void setPositionUpdateInterval(long positionUpdateInterval) {
+		if (positionUpdateInterval < 0L) {
+			throw new IllegalArgumentException("positionUpdateInterval can't be negative");
+		}
+		synchronized (positionUpdateLock) {
+			if (positionUpdateInterval == this.positionUpdateInterval) {
+				return;
 			}
-			write(
-				"urn:x-cast:com.google.cast.tp.connection",
-				new Connect(userAgent, connectionType),
-				sourceId,
-				destinationId
-			);
-			result = new Session(sourceId, sessionId, destinationId, this);
-			sessions.add(result);
+			this.positionUpdateInterval = positionUpdateInterval;
+			schedulePositionUpdateTask();
 		}
-		return result;
 	}
 
 	/**
-	 * Closes the specified {@link Session} unless it's already closed, in which
-	 * case nothing is done.
-	 *
-	 * @param session the {@link Session} to close.
-	 * @return {@code true} if the {@link Session} was closed, {@code false} if
-	 *         it was closed already.
-	 * @throws IOException If an error occurs during the operation.
+	 * Starts firing synthetic position updates if they are enabled. Called
+	 * when the connection has been opened.
 	 */
-	public boolean closeSession(@Nullable Session session) throws IOException {
-		if (session == null) {
-			return false;
-		}
-		synchronized (sessionsLock) {
-			if (!sessions.remove(session)) {
-				return false;
-			}
+	protected void startPositionUpdates() {
+		synchronized (positionUpdateLock) {
+			positionUpdatesActive = true;
+			schedulePositionUpdateTask();
 		}
-		cancelPendingClosed(session.getDestinationId());
-		SessionClosedListener listener = session.getSessionClosedListener();
-		if (listener != null) {
-			listener.closed(session);
+	}
+
+	/**
+	 * Stops firing synthetic position updates. Called when the connection has
+	 * been closed.
+	 */
+	protected void stopPositionUpdates() {
+		synchronized (positionUpdateLock) {
+			positionUpdatesActive = false;
+			schedulePositionUpdateTask();
 		}
-		write(
-			"urn:x-cast:com.google.cast.tp.connection",
-			new CloseConnection(),
-			session.getSourceId(),
-			session.getDestinationId()
-		);
-		return true;
 	}
 
 	/**
-	 * Checks whether or not the specified {@link Session} is closed.
-	 *
-	 * @param session the Session to check.
-	 * @return {@code true} if the specified {@link Session} is closed,
-	 *         {@code false} if it's connected.
+	 * Cancels the current position update task, if any, and schedules a new
+	 * one if synthetic position updates are both enabled and active.
 	 */
-	public boolean isSessionClosed(@Nullable Session session) {
-		if (session == null) {
-			return true;
+	@GuardedBy("positionUpdateLock")
+	protected void schedulePositionUpdateTask() {
+		if (positionUpdateTask != null) {
+			positionUpdateTask.cancel(false);
+			positionUpdateTask = null;
 		}
-		synchronized (sessionsLock) {
-			return !sessions.contains(session);
+		if (positionUpdatesActive && positionUpdateInterval > 0L) {
+			positionUpdateTask = HEARTBEAT_SCHEDULER.scheduleAtFixedRate(
+				new PositionUpdateTask(),
+				positionUpdateInterval,
+				positionUpdateInterval,
+				TimeUnit.MILLISECONDS
+			);
 		}
 	}
 
 	/**
-	 * Request a {@link MediaStatus} from the application with the specified
-	 * {@link Session}, using {@value #DEFAULT_RESPONSE_TIMEOUT} as the timeout
-	 * value.
+	 * Returns the {@link PlaybackPosition} for the specified media session,
+	 * built from the last {@link MediaStatus} received for it. No request is
+	 * sent to the cast device.
 	 *
-	 * @param session the {@link Session} to use.
-	 * @return The resulting {@link MediaStatus}.
-	 * @throws IOException If the response times out or an error occurs during
-	 *             the operation.
+	 * @param mediaSessionId the media session ID.
+	 * @return The {@link PlaybackPosition} or {@code null} if no
+	 *         {@link MediaStatus} has been received for the media session.
 	 */
 	@Nullable
-	public MediaStatus getMediaStatus(@Nonnull Session session) throws IOException {
-		return getMediaStatus(session, DEFAULT_RESPONSE_TIMEOUT);
+	public PlaybackPosition getPlaybackPosition(int mediaSessionId) {
+		return playbackPositions.get(Integer.valueOf(mediaSessionId));
 	}
 
 	/**
-	 * Request a {@link MediaStatus} from the application with the specified
-	 * {@link Session}.
+	 * Returns the merged {@link MediaStatus} for the specified media session.
+	 * Partial status updates from the cast device are merged into the
+	 * previously received {@link MediaStatus}, so that {@link Media},
+	 * {@link QueueData} and {@link QueueItem}s are retained when they are
+	 * left out of an update. No request is sent to the cast device.
 	 *
-	 * @param session the {@link Session} to use.
-	 * @param responseTimeout the response timeout in milliseconds. If zero or
-	 *            negative, {@value #DEFAULT_RESPONSE_TIMEOUT} will be used.
-	 * @return The resulting {@link MediaStatus}.
-	 * @throws IllegalArgumentException If {@code session} is {@code null}.
-	 * @throws IOException If the response times out or an error occurs during
-	 *             the operation.
+	 * @param mediaSessionId the media session ID.
+	 * @return The merged {@link MediaStatus} or {@code null} if no
+	 *         {@link MediaStatus} has been received for the media session or
+	 *         it has ended.
 	 */
 	@Nullable
-	public MediaStatus getMediaStatus(@Nonnull Session session, long responseTimeout) throws IOException {
-		requireNotNull(session, "session");
-		MediaStatusResponse status = send(
-			session,
-			"urn:x-cast:com.google.cast.media",
-			new GetStatus(),
-			session.sourceId,
-			session.destinationId,
-			MediaStatusResponse.class,
-			responseTimeout
-		);
-		return status == null || status.getStatuses().isEmpty() ? null : status.getStatuses().get(0);
+	public MediaStatus getMergedMediaStatus(int mediaSessionId) {
+		MediaStatusUpdate update = mediaStatusUpdates.get(Integer.valueOf(mediaSessionId));
+		return update == null ? null : update.getMediaStatus();
 	}
 
 	/**
-	 * Asks the targeted remote application to execute the specified
-	 * {@link Load} request.
-	 * <p>
-	 * This can only succeed if the remote application supports the
-	 * "{@code urn:x-cast:com.google.cast.media}" namespace.
+	 * Returns the {@link MediaStatusUpdate} created when the last
+	 * {@link MediaStatus} for the specified media session was merged, which
+	 * holds both the merged {@link MediaStatus} and the fields that changed.
+	 * No request is sent to the cast device.
 	 *
-	 * @param session the {@link Session} to use.
-	 * @param loadRequest the {@link Load} request to send.
-	 * @param synchronous {@code true} to make this call block until a response
-	 *            is received or times out, {@code false} to make it return
-	 *            immediately always returning {@code null}.
-	 * @param responseTimeout the response timeout in milliseconds if
-	 *            {@code synchronous} is {@code true}. If zero or negative,
-	 *            {@value #DEFAULT_RESPONSE_TIMEOUT} will be used.
-	 * @return The resulting {@link MediaStatus} if {@code synchronous} is
-	 *         {@code true} and a reply is received in time, {@code null} if
-	 *         {@code synchronous} is {@code false}.
-	 * @throws IllegalArgumentException If {@code session} or
-	 *             {@code loadRequest} is {@code null}.
-	 * @throws IOException If the response times out or an error occurs during
-	 *             the operation.
+	 * @param mediaSessionId the media session ID.
+	 * @return The {@link MediaStatusUpdate} or {@code null} if no
+	 *         {@link MediaStatus} has been received for the media session or
+	 *         it has ended.
 	 */
 	@Nullable
-	public MediaStatus load(
-		@Nonnull Session session,
-		@Nonnull Load loadRequest,
-		boolean synchronous,
-		long responseTimeout
-	) throws IOException {
-		requireNotNull(session, "session");
-		requireNotNull(loadRequest, "loadRequest");
-		MediaStatusResponse status = send(
-			session,
-			"urn:x-cast:com.google.cast.media",
-			loadRequest,
-			session.sourceId,
-			session.destinationId,
-			synchronous ? MediaStatusResponse.class : null,
-			responseTimeout
-		);
-		return status == null || status.getStatuses().isEmpty() ? null : status.getStatuses().get(0);
+	public MediaStatusUpdate getMediaStatusUpdate(int mediaSessionId) {
+		return mediaStatusUpdates.get(Integer.valueOf(mediaSessionId));
 	}
 
 	/**
-	 * Asks the targeted remote application to load the specified {@link Media}
-	 * using the specified parameters.
+	 * Merges the {@link MediaStatus}es from the specified
+	 * {@link MediaStatusResponse} into the previously received ones and
+	 * updates the {@link PlaybackPosition}s.
 	 * <p>
-	 * This can only succeed if the remote application supports the
-	 * "{@code urn:x-cast:com.google.cast.media}" namespace.
+	 * A {@link MediaStatusResponse} holds the status of all the media sessions
+	 * of the application that sent it, so the media sessions of
+	 * {@code sourceId} that are missing from it have ended, for example
+	 * because they were replaced by a new media session. Media sessions that
+	 * are {@link PlayerState#IDLE} have also ended. The state of the ended
+	 * media sessions is removed, see {@link #removeMediaSession(Integer)}.
 	 *
-	 * @param session the {@link Session} to use.
-	 * @param media the {@link Media} to load.
-	 * @param autoplay {@code true} to ask the remote application to start
-	 *            playback as soon as the {@link Media} has been loaded,
-	 *            {@code false} to ask it to transition to a paused state after
-	 *            loading.
-	 * @param currentTime the position in seconds where playback are to be
-	 *            started in the loaded {@link Media}.
-	 * @param synchronous {@code true} to make this call block until a response
-	 *            is received or times out, {@code false} to make it return
-	 *            immediately always returning {@code null}.
-	 * @param responseTimeout the response timeout in milliseconds if
-	 *            {@code synchronous} is {@code true}. If zero or negative,
-	 *            {@value #DEFAULT_RESPONSE_TIMEOUT} will be used.
-	 * @return The resulting {@link MediaStatus} if {@code synchronous} is
-	 *         {@code true} and a reply is received in time, {@code null} if
-	 *         {@code synchronous} is {@code false}.
-	 * @throws IllegalArgumentException If {@code session} or {@code media} is
-	 *             {@code null}.
-	 * @throws IOException If the response times out or an error occurs during
-	 *             the operation.
+	 * @param response the received {@link MediaStatusResponse}.
+	 * @param sourceId the source ID of the message, if known.
 	 */
-	@Nullable
-	public MediaStatus load(
-		@Nonnull Session session,
-		@Nullable Boolean autoplay,
-		@Nullable Double currentTime,
-		@Nonnull Media media,
-		boolean synchronous,
-		long responseTimeout
-	) throws IOException {
-		requireNotNull(session, "session");
-		requireNotNull(media, "media");
-		MediaStatusResponse status = send(
-			session,
-			"urn:x-cast:com.google.cast.media",
-			new Load(null, autoplay, null, null, currentTime, null, null, media, null, null),
-			session.sourceId,
-			session.destinationId,
-			synchronous ? MediaStatusResponse.class : null,
-			responseTimeout
-		);
-		return status == null || status.getStatuses().isEmpty() ? null : status.getStatuses().get(0);
+	protected void updateMediaStatuses(@Nullable MediaStatusResponse response, @Nullable String sourceId) {
+		if (response == null) {
+			return;
+		}
+		synchronized (mediaStatusUpdates) {
+			Set<Integer> received = new HashSet<>();
+			for (MediaStatus mediaStatus : response.getStatuses()) {
+				if (mediaStatus == null) {
+					continue;
+				}
+				Integer key = Integer.valueOf(mediaStatus.getMediaSessionId());
+				received.add(key);
+				MediaStatusUpdate previous = mediaStatusUpdates.get(key);
+				MediaStatusUpdate update = MediaStatusUpdate.merge(
+					previous == null ? null : previous.getMediaStatus(),
+					mediaStatus
+				);
+				if (mediaStatus.getPlayerState() == PlayerState.IDLE) {
+					removeMediaSession(key);
+					continue;
+				}
+				mediaStatusUpdates.put(key, update);
+				playbackPositions.put(key, PlaybackPosition.create(update.getMediaStatus(), playbackPositions.get(key)));
+				if (sourceId != null) {
+					mediaSessionSources.put(key, sourceId);
+				}
+			}
+			if (sourceId != null) {
+				for (Integer key : new ArrayList<>(mediaSessionSources.keySet())) {
+					if (!received.contains(key) && sourceId.equals(mediaSessionSources.get(key))) {
+						removeMediaSession(key);
+					}
+				}
+			}
+		}
 	}
 
 	/**
-	 * Asks the targeted remote application to load the specified {@link Media}
-	 * or {@link QueueData}s using the specified parameters. Either
-	 * {@code media} or {@code queueData} must be non-{@code null}.
-	 * <p>
-	 * This can only succeed if the remote application supports the
-	 * "{@code urn:x-cast:com.google.cast.media}" namespace.
+	 * Removes the state of the media sessions whose application is no longer
+	 * running according to the specified {@link ReceiverStatus}.
 	 *
-	 * @param session the {@link Session} to use.
-	 * @param activeTrackIds the {@link List} of track IDs that are active. If
-	 *            the list is not provided, the default tracks will be active.
-	 * @param autoplay {@code true} to ask the remote application to start
-	 *            playback as soon as the {@link Media} has been loaded,
-	 *            {@code false} to ask it to transition to a paused state after
-	 *            loading.
-	 * @param credentials the user credentials, if any.
-	 * @param credentialsType the credentials type, if any. The type
-	 *            '{@code cloud}' is a reserved type used by load requests that
-	 *            were originated by voice assistant commands.
-	 * @param currentTime the position in seconds from the start for where
-	 *            playback is to start in the loaded {@link Media}. If the
-	 *            content is live content, and {@code currentTime} is not
-	 *            specified, the stream will start at the live position.
-	 * @param customData the custom application data to send to the remote
-	 *            application with the load command.
-	 * @param loadOptions the additional load options, if any.
-	 * @param media the {@link Media} to load.
-	 * @param playbackRate the media playback rate.
-	 * @param queueData the queue data.
-	 * @param synchronous {@code true} to make this call block until a response
-	 *            is received or times out, {@code false} to make it return
-	 *            immediately always returning {@code null}.
-	 * @param responseTimeout the response timeout in milliseconds if
-	 *            {@code synchronous} is {@code true}. If zero or negative,
-	 *            {@value #DEFAULT_RESPONSE_TIMEOUT} will be used.
-	 * @return The resulting {@link MediaStatus} if {@code synchronous} is
-	 *         {@code true} and a reply is received in time, {@code null} if
-	 *         {@code synchronous} is {@code false}.
-	 * @throws IllegalArgumentException If {@code session} is {@code null}.
-	 * @throws IOException If the response times out or an error occurs during
-	 *             the operation.
+	 * @param receiverStatus the received {@link ReceiverStatus}.
 	 */
-	@Nullable
-	public MediaStatus load(
-		@Nonnull Session session,
-		@Nullable List<Integer> activeTrackIds,
-		@Nullable Boolean autoplay,
-		@Nullable String credentials,
-		@Nullable String credentialsType,
-		@Nullable Double currentTime,
-		@Nullable Map<String, Object> customData,
-		@Nullable LoadOptions loadOptions,
-		@Nullable Media media,
-		@Nullable Double playbackRate,
-		@Nullable QueueData queueData,
-		boolean synchronous,
-		long responseTimeout
-	) throws IOException {
-		requireNotNull(session, "session");
-		MediaStatusResponse status = send(
-			session,
-			"urn:x-cast:com.google.cast.media",
-			new Load(
-				activeTrackIds,
-				autoplay,
-				credentials,
-				credentialsType,
-				currentTime,
-				customData,
-				loadOptions,
-				media,
-				playbackRate,
-				queueData
-			),
-			session.sourceId,
-			session.destinationId,
-			synchronous ? MediaStatusResponse.class : null,
-			responseTimeout
-		);
-		return status == null || status.getStatuses().isEmpty() ? null : status.getStatuses().get(0);
+	protected void removeEndedMediaSessions(@Nonnull ReceiverStatus receiverStatus) {
+		Set<String> transportIds = new HashSet<>();
+		for (Application application : receiverStatus.getApplications()) {
+			if (application != null && application.getTransportId() != null) {
+				transportIds.add(application.getTransportId());
+			}
+		}
+		synchronized (mediaStatusUpdates) {
+			for (Integer key : new ArrayList<>(mediaSessionSources.keySet())) {
+				if (!transportIds.contains(mediaSessionSources.get(key))) {
+					removeMediaSession(key);
+				}
+			}
+		}
 	}
 
 	/**
-	 * Asks the remote application to start playing the media referenced by the
-	 * specified media session ID, using {@value #DEFAULT_RESPONSE_TIMEOUT} as
-	 * the timeout value.
-	 * <p>
-	 * This can only succeed if the remote application supports the
-	 * "{@code urn:x-cast:com.google.cast.media}" namespace.
+	 * Removes the state kept for the specified media session that has ended,
+	 * so that {@link CastEventType#PLAYBACK_POSITION} events are no longer
+	 * fired for it and its merged {@link MediaStatus} is released.
 	 *
-	 * @param session the {@link Session} to use.
-	 * @param mediaSessionId the media session ID for which the play request
-	 *            applies.
-	 * @param synchronous {@code true} to make this call block until a response
-	 *            is received or times out, {@code false} to make it return
-	 *            immediately always returning {@code null}.
-	 * @return The resulting {@link MediaStatus} if {@code synchronous} is
-	 *         {@code true} and a reply is received in time, {@code null} if
-	 *         {@code synchronous} is {@code false}.
-	 * @throws IllegalArgumentException If {@code session} is {@code null}.
-	 * @throws IOException If the response times out or an error occurs during
-	 *             the operation.
+	 * @param mediaSessionId the media session ID.
 	 */
-	@Nullable
-	public MediaStatus play(
-		@Nonnull Session session,
-		int mediaSessionId,
-		boolean synchronous
-	) throws IOException {
-		return play(session, mediaSessionId, synchronous, DEFAULT_RESPONSE_TIMEOUT);
+	@GuardedBy("mediaStatusUpdates")
+	protected void removeMediaSession(@Nonnull Integer mediaSessionId) {
+		playbackPositions.remove(mediaSessionId);
+		mediaStatusUpdates.remove(mediaSessionId);
+		mediaSessionSources.remove(mediaSessionId);
 	}
 
 	/**
-	 * Asks the remote application to start playing the media referenced by the
-	 * specified media session ID.
-	 * <p>
-	 * This can only succeed if the remote application supports the
-	 * "{@code urn:x-cast:com.google.cast.media}" namespace.
+	 * Removes the state kept for all media sessions.
+	 */
+	protected void clearMediaSessions() {
+		synchronized (mediaStatusUpdates) {
+			playbackPositions.clear();
+			mediaStatusUpdates.clear();
+			mediaSessionSources.clear();
+		}
+	}
+
+	/**
+	 * @return The time the last {@code PONG} was received from the cast device
+	 *         in milliseconds since the epoch, or the time of connection if
+	 *         no {@code PONG} has been received since then.
+	 */
+	public long getLastPongTime() {
+		return lastPongTime;
+	}
+
+	/**
+	 * Sends the specified {@link Request} to the specified destination using
+	 * the specified parameters.
 	 *
-	 * @param session the {@link Session} to use.
-	 * @param mediaSessionId the media session ID for which the play request
-	 *            applies.
-	 * @param synchronous {@code true} to make this call block until a response
-	 *            is received or times out, {@code false} to make it return
-	 *            immediately always returning {@code null}.
+	 * @param <T> the class of the {@link Response} object.
+	 * @param session if {@code responseClass} is non-{@code null} and the
+	 *            destination is an application, this must be the
+	 *            {@link Session} that has been established with said
+	 *            application. This makes sure that the waiting for the response
+	 *            will be terminated if the {@link Session} is terminated. If
+	 *            {@code responseClass} is {@code null} or the request is
+	 *            destined to the cast device itself, this should be
+	 *            {@code null}.
+	 * @param namespace the namespace to use.
+	 * @param message the {@link Request} to send.
+	 * @param sourceId the source ID to use.
+	 * @param destinationId the destination ID to use.
+	 * @param responseClass the class of the expected response for synchronous
+	 *            (blocking) behavior, or {@code null} for asynchronous behavior
+	 *            that returns {@code null} immediately.
 	 * @param responseTimeout the response timeout in milliseconds if
-	 *            {@code synchronous} is {@code true}. If zero or negative,
-	 *            {@value #DEFAULT_RESPONSE_TIMEOUT} will be used.
-	 * @return The resulting {@link MediaStatus} if {@code synchronous} is
-	 *         {@code true} and a reply is received in time, {@code null} if
-	 *         {@code synchronous} is {@code false}.
-	 * @throws IllegalArgumentException If {@code session} is {@code null}.
-	 * @throws IOException If the response times out or an error occurs during
-	 *             the operation.
+	 *            {@code responseClass} is non-{@code null}. If zero or
+	 *            negative, {@value #DEFAULT_RESPONSE_TIMEOUT} will be used.
+	 * @return The {@link Response} object of the specified type if
+	 *         {@code responseClass} is non-{@code null}, {@code null} if
+	 *         {@code responseClass} is {@code null}.
+	 * @throws IllegalArgumentException If {@code namespace} is {@code null} or
+	 *             invalid (see {@link #validateNamespace(String)} for
+	 *             constraints).
+	 * @throws IOException If {@code responseClass} is non-{@code null} and the
+	 *             response from the cast device is a different type than what
+	 *             was expected, or if an error occurs during the operation.
 	 */
-	@Nullable
-	public MediaStatus play(
-		@Nonnull Session session,
-		int mediaSessionId,
-		boolean synchronous,
+	public <T extends Response> T send(
+		@Nullable Session session,
+		String namespace,
+		Request message,
+		String sourceId,
+		String destinationId,
+		Class<T> responseClass,
 		long responseTimeout
 	) throws IOException {
-		requireNotNull(session, "session");
-		MediaStatusResponse status = send(
+		CompletableFuture<T> future = sendAsync(
 			session,
-			"urn:x-cast:com.google.cast.media",
-			new Play(mediaSessionId, session.id),
-			session.sourceId,
-			session.destinationId,
-			synchronous ? MediaStatusResponse.class : null,
+			namespace,
+			message,
+			sourceId,
+			destinationId,
+			responseClass,
 			responseTimeout
 		);
-		return status == null || status.getStatuses().isEmpty() ? null : status.getStatuses().get(0);
+		return waitFor(future);
 	}
 
 	/**
-	 * Asks the remote application to pause playback of the media referenced by
-	 * the specified media session ID, using {@value #DEFAULT_RESPONSE_TIMEOUT}
-	 * as the timeout value.
+	 * Sends the specified {@link Request} to the specified destination using
+	 * the specified parameters without blocking.
 	 * <p>
-	 * This can only succeed if the remote application supports the
-	 * "{@code urn:x-cast:com.google.cast.media}" namespace.
+	 * The returned {@link CompletableFuture} is completed from the thread that
+	 * processes incoming messages for this {@link Channel}, see
+	 * {@link #completeAsync(CompletableFuture)}. Dependent stages that might
+	 * block or take time should therefore use one of the {@code *Async}
+	 * methods of {@link CompletableFuture}.
+	 * <p>
+	 * The {@link CompletableFuture} is completed exceptionally with:
+	 * <ul>
+	 * <li>an {@link ErrorResponseCastException},
+	 * {@link LaunchErrorCastException}, {@link UntypedCastException} or
+	 * {@link UnprocessedCastException} if the response isn't of the expected
+	 * type.</li>
+	 * <li>a {@link CastException} with a {@link TimeoutException} cause if the
+	 * response times out.</li>
+	 * <li>a {@link CastException} if the {@link Session} is closed while
+	 * waiting for the response.</li>
+	 * <li>an {@link IOException} if the {@link Request} couldn't be
+	 * sent.</li>
+	 * </ul>
 	 *
-	 * @param session the {@link Session} to use.
-	 * @param mediaSessionId the media session ID for which the pause request
-	 *            applies.
-	 * @param synchronous {@code true} to make this call block until a response
-	 *            is received or times out, {@code false} to make it return
-	 *            immediately always returning {@code null}.
-	 * @return The resulting {@link MediaStatus} if {@code synchronous} is
-	 *         {@code true} and a reply is received in time, {@code null} if
-	 *         {@code synchronous} is {@code false}.
-	 * @throws IllegalArgumentException If {@code session} is {@code null}.
-	 * @throws IOException If the response times out or an error occurs during
-	 *             the operation.
+	 * @param <T> the class of the {@link Response} object.
+	 * @param session if {@code responseClass} is non-{@code null} and the
+	 *            destination is an application, this must be the
+	 *            {@link Session} that has been established with said
+	 *            application. This makes sure that the waiting for the response
+	 *            will be terminated if the {@link Session} is terminated. If
+	 *            {@code responseClass} is {@code null} or the request is
+	 *            destined to the cast device itself, this should be
+	 *            {@code null}.
+	 * @param namespace the namespace to use.
+	 * @param message the {@link Request} to send.
+	 * @param sourceId the source ID to use.
+	 * @param destinationId the destination ID to use.
+	 * @param responseClass the class of the expected response, or {@code null}
+	 *            if no response is expected, in which case the
+	 *            {@link CompletableFuture} is completed with {@code null} as
+	 *            soon as the {@link Request} has been sent.
+	 * @param responseTimeout the response timeout in milliseconds if
+	 *            {@code responseClass} is non-{@code null}. If zero or
+	 *            negative, {@value #DEFAULT_RESPONSE_TIMEOUT} will be used.
+	 * @return The {@link CompletableFuture} that will be completed with the
+	 *         {@link Response}. It's completed by this {@link Channel}'s
+	 *         dispatch stripe, which also processes incoming messages, so
+	 *         dependent stages must not block. Use one of the {@code *Async}
+	 *         methods of {@link CompletableFuture} with an executor of your
+	 *         own for stages that might block or take time.
+	 * @throws IllegalArgumentException If {@code namespace} is {@code null} or
+	 *             invalid (see {@link #validateNamespace(String)} for
+	 *             constraints).
 	 */
-	@Nullable
-	public MediaStatus pause(
-		@Nonnull Session session,
-		int mediaSessionId,
-		boolean synchronous
-	) throws IOException {
-		return pause(session, mediaSessionId, synchronous, DEFAULT_RESPONSE_TIMEOUT);
+	@Nonnull
+	public <T extends Response> CompletableFuture<T> sendAsync(
+		@Nullable Session session,
+		String namespace,
+		Request message,
+		String sourceId,
+		String destinationId,
+		@Nullable Class<T> responseClass,
+		long responseTimeout
+	) {
+		validateNamespace(namespace);
+		final long requestId = requestCounter.getAndIncrement();
+		message.setRequestId(requestId);
+
+		if (responseClass == null) {
+			return completeAsync(enqueue(namespace, message, sourceId, destinationId).thenApply(new Function<Void, T>() {
+
+				@Override
+				public T apply(Void result) {
+					return null;
+				}
+			}));
+		}
+
+		ResultProcessor<T> rp = startResultProcessor(requestId, session, responseClass, responseTimeout);
+		enqueue(namespace, message, sourceId, destinationId).whenComplete(new FailureForwarder(rp.future));
+		return completeAsync(rp.future);
 	}
 
 	/**
-	 * Asks the remote application to pause playback of the media referenced by
-	 * the specified media session ID.
-	 * <p>
-	 * This can only succeed if the remote application supports the
-	 * "{@code urn:x-cast:com.google.cast.media}" namespace.
+	 * Creates a {@link CompletableFuture} that is completed like the specified
+	 * {@link CompletableFuture}, but by {@link #dispatcher}. Internal futures
+	 * are completed by the threads that read and write the connection, or by
+	 * the timeout timer, where running dependent stages would delay every
+	 * other connection served by the same thread.
 	 *
-	 * @param session the {@link Session} to use.
-	 * @param mediaSessionId the media session ID for which the pause request
-	 *            applies.
-	 * @param synchronous {@code true} to make this call block until a response
-	 *            is received or times out, {@code false} to make it return
-	 *            immediately always returning {@code null}.
-	 * @param responseTimeout the response timeout in milliseconds if
-	 *            {@code synchronous} is {@code true}. If zero or negative,
-	 *            {@value #DEFAULT_RESPONSE_TIMEOUT} will be used.
-	 * @return The resulting {@link MediaStatus} if {@code synchronous} is
-	 *         {@code true} and a reply is received in time, {@code null} if
-	 *         {@code synchronous} is {@code false}.
-	 * @throws IllegalArgumentException If {@code session} is {@code null}.
-	 * @throws IOException If the response times out or an error occurs during
-	 *             the operation.
+	 * @param <T> the result type.
+	 * @param source the {@link CompletableFuture} completed by an internal
+	 *            thread.
+	 * @return The new {@link CompletableFuture}.
+	 * @see #completeAsync(CompletableFuture, Executor)
 	 */
-	@Nullable
-	public MediaStatus pause(
-		@Nonnull Session session,
-		int mediaSessionId,
-		boolean synchronous,
-		long responseTimeout
-	) throws IOException {
-		requireNotNull(session, "session");
-		MediaStatusResponse status = send(
-			session,
-			"urn:x-cast:com.google.cast.media",
-			new Pause(mediaSessionId, session.id),
-			session.sourceId,
-			session.destinationId,
-			synchronous ? MediaStatusResponse.class : null,
-			responseTimeout
-		);
-		return status == null || status.getStatuses().isEmpty() ? null : status.getStatuses().get(0);
+	@Nonnull
+	protected <T> CompletableFuture<T> completeAsync(@Nonnull CompletableFuture<T> source) {
+		return completeAsync(source, dispatcher);
 	}
 
 	/**
-	 * Asks the remote application to move the playback position of the media
-	 * referenced by the specified media session ID to the specified position,
-	 * using {@value #DEFAULT_RESPONSE_TIMEOUT} as the timeout value.
-	 * <p>
-	 * This can only succeed if the remote application supports the
-	 * "{@code urn:x-cast:com.google.cast.media}" namespace.
+	 * Creates a {@link CompletableFuture} that is completed like the specified
+	 * {@link CompletableFuture}, but by the specified {@link Executor}. If
+	 * {@code executor} rejects the completion, it's done by the thread that
+	 * completed {@code source} instead. Cancelling the returned
+	 * {@link CompletableFuture} also cancels {@code source}, and
+	 * {@link #waitFor(CompletableFuture)} waits for {@code source} directly, so
+	 * that synchronous callers don't wait for the hand-off.
 	 *
-	 * @param session the {@link Session} to use.
-	 * @param mediaSessionId the media session ID for which the pause request
-	 *            applies.
-	 * @param currentTime the new playback position in seconds.
-	 * @param resumeState the desired media player state after the seek is
-	 *            complete. If {@code null}, it will retain the state it had
-	 *            before seeking.
-	 * @param synchronous {@code true} to make this call block until a response
-	 *            is received or times out, {@code false} to make it return
-	 *            immediately always returning {@code null}.
-	 * @return The resulting {@link MediaStatus} if {@code synchronous} is
-	 *         {@code true} and a reply is received in time, {@code null} if
-	 *         {@code synchronous} is {@code false}.
-	 * @throws IllegalArgumentException If {@code session} is {@code null}.
-	 * @throws IOException If the response times out or an error occurs during
-	 *             the operation.
+	 * @param <T> the result type.
+	 * @param source the {@link CompletableFuture} completed by an internal
+	 *            thread.
+	 * @param executor the {@link Executor} to complete the result with.
+	 * @return The new {@link CompletableFuture}.
 	 */
-	@Nullable
-	public MediaStatus seek(
-		@Nonnull Session session,
-		int mediaSessionId,
-		double currentTime,
-		@Nullable ResumeState resumeState,
-		boolean synchronous
-	) throws IOException {
-		return seek(
-			session,
-			mediaSessionId,
-			currentTime,
-			resumeState,
-			synchronous,
-			DEFAULT_RESPONSE_TIMEOUT
-		);
+	@Nonnull
+	protected static <T> CompletableFuture<T> completeAsync(
+		@Nonnull final CompletableFuture<T> source,
+		@Nonnull final Executor executor
+	) {
+		final HandOffFuture<T> result = new HandOffFuture<>(source);
+		source.whenComplete(new BiConsumer<T, Throwable>() {
+
+			@Override
+			public void accept(final T value, final Throwable throwable) {
+				if (result.isDone()) {
+					return;
+				}
+				Runnable completer = new Runnable() {
+
+					@Override
+					public void run() {
+						if (throwable == null) {
+							result.complete(value);
+						} else {
+							result.completeExceptionally(
+								throwable instanceof CompletionException && throwable.getCause() != null ?
+									throwable.getCause() :
+									throwable
+							);
+						}
+					}
+				};
+				try {
+					executor.execute(completer);
+				} catch (RejectedExecutionException e) {
+					completer.run();
+				}
+			}
+		});
+		result.whenComplete(new BiConsumer<T, Throwable>() {
+
+			@Override
+			public void accept(T value, Throwable throwable) {
+				if (result.isCancelled()) {
+					source.cancel(false);
+				}
+			}
+		});
+		return result;
 	}
 
 	/**
-	 * Asks the remote application to move the playback position of the media
-	 * referenced by the specified media session ID to the specified position.
+	 * Sends the specified idempotent {@link Request} without blocking, sharing
+	 * the wire request with any identical query that is already in flight.
 	 * <p>
-	 * This can only succeed if the remote application supports the
-	 * "{@code urn:x-cast:com.google.cast.media}" namespace.
+	 * Queries are identical if they have the same destination ID, namespace,
+	 * {@link Request} class and parameters. All callers are completed from
+	 * the same {@link Response}, and the response timeout of the query that
+	 * was actually sent applies. If {@link #getQueryReuseTime()} is positive,
+	 * a successful {@link Response} is also reused for that many
+	 * milliseconds. Each caller gets its own dependent
+	 * {@link CompletableFuture}, so cancelling one doesn't affect the others.
 	 *
-	 * @param session the {@link Session} to use.
-	 * @param mediaSessionId the media session ID for which the pause request
-	 *            applies.
-	 * @param currentTime the new playback position in seconds.
-	 * @param resumeState the desired media player state after the seek is
-	 *            complete. If {@code null}, it will retain the state it had
-	 *            before seeking.
-	 * @param synchronous {@code true} to make this call block until a response
-	 *            is received or times out, {@code false} to make it return
-	 *            immediately always returning {@code null}.
-	 * @param responseTimeout the response timeout in milliseconds if
-	 *            {@code synchronous} is {@code true}. If zero or negative,
-	 *            {@value #DEFAULT_RESPONSE_TIMEOUT} will be used.
-	 * @return The resulting {@link MediaStatus} if {@code synchronous} is
-	 *         {@code true} and a reply is received in time, {@code null} if
-	 *         {@code synchronous} is {@code false}.
-	 * @throws IllegalArgumentException If {@code session} is {@code null}.
-	 * @throws IOException If the response times out or an error occurs during
-	 *             the operation.
+	 * @param <T> the class of the {@link Response} object.
+	 * @param session the {@link Session} to use, if any.
+	 * @param namespace the namespace to use.
+	 * @param request the {@link Request} to send if there's no matching
+	 *            query.
+	 * @param parameters the parameters that distinguish {@code request} from
+	 *            other {@link Request}s of the same class, if any.
+	 * @param sourceId the source ID to use.
+	 * @param destinationId the destination ID to use.
+	 * @param responseClass the response class to expect.
+	 * @param responseTimeout the response timeout in milliseconds. If zero or
+	 *            negative, {@value #DEFAULT_RESPONSE_TIMEOUT} will be used.
+	 * @return The {@link CompletableFuture} that will be completed with the
+	 *         {@link Response}.
 	 */
-	@Nullable
-	public MediaStatus seek(
-		@Nonnull Session session,
-		int mediaSessionId,
-		double currentTime,
-		@Nullable ResumeState resumeState,
-		boolean synchronous,
+	@SuppressWarnings("unchecked")
+	@Nonnull
+	protected <T extends Response> CompletableFuture<T> sendSharedAsync(
+		@Nullable Session session,
+		String namespace,
+		Request request,
+		@Nullable String parameters,
+		String sourceId,
+		String destinationId,
+		@Nonnull Class<T> responseClass,
 		long responseTimeout
-	) throws IOException {
-		requireNotNull(session, "session");
-		MediaStatusResponse status = send(
-			session,
-			"urn:x-cast:com.google.cast.media",
-			new Seek(mediaSessionId, session.id, currentTime, resumeState),
-			session.sourceId,
-			session.destinationId,
-			synchronous ? MediaStatusResponse.class : null,
-			responseTimeout
-		);
-		return status == null || status.getStatuses().isEmpty() ? null : status.getStatuses().get(0);
+	) {
+		final QueryKey key = new QueryKey(destinationId, namespace, request.getClass(), parameters);
+		final SharedQuery<T> query = new SharedQuery<>();
+		while (true) {
+			SharedQuery<T> existing = (SharedQuery<T>) sharedQueries.putIfAbsent(key, query);
+			if (existing == null) {
+				break;
+			}
+			if (existing.isUsable(queryReuseTime)) {
+				return existing.future.thenApply(Function.<T>identity());
+			}
+			sharedQueries.remove(key, existing);
+		}
+
+		sendAsync(session, namespace, request, sourceId, destinationId, responseClass, responseTimeout)
+			.whenComplete(new BiConsumer<T, Throwable>() {
+
+				@Override
+				public void accept(T response, Throwable throwable) {
+					long reuseTime = queryReuseTime;
+					query.completedTime = System.nanoTime();
+					if (throwable != null || reuseTime <= 0L) {
+						sharedQueries.remove(key, query);
+					} else {
+						try {
+							TIMEOUT_TIMER.newTimeout(new Runnable() {
+
+								@Override
+								public void run() {
+									sharedQueries.remove(key, query);
+								}
+							}, reuseTime, TimeUnit.MILLISECONDS);
+						} catch (RejectedExecutionException e) {
+							sharedQueries.remove(key, query);
+						}
+					}
+					if (throwable != null) {
+						query.future.completeExceptionally(throwable);
+					} else {
+						query.future.complete(response);
+					}
+				}
+			});
+		return query.future.thenApply(Function.<T>identity());
 	}
 
 	/**
-	 * Asks the remote application to stop playback and unload the media
-	 * referenced by the specified media session ID, using
-	 * {@value #DEFAULT_RESPONSE_TIMEOUT} as the timeout value.
+	 * Sends the specified {@link RequestBatch.Entry}s back-to-back without
+	 * waiting for any responses in between, using the specified source and
+	 * destination IDs. This method never blocks.
 	 * <p>
-	 * This can only succeed if the remote application supports the
-	 * "{@code urn:x-cast:com.google.cast.media}" namespace.
+	 * Each {@link Request} is given its own request ID, and the responses are
+	 * matched individually, but all the messages are queued for writing as
+	 * one unit.
 	 *
-	 * @param session the {@link Session} to use.
-	 * @param mediaSessionId the media session ID for which the
-	 *            {@link MediaVolume} request applies.
-	 * @param synchronous {@code true} to make this call block until a response
-	 *            is received or times out, {@code false} to make it return
-	 *            immediately always returning {@code null}.
-	 * @return The resulting {@link MediaStatus} if {@code synchronous} is
-	 *         {@code true} and a reply is received in time, {@code null} if
-	 *         {@code synchronous} is {@code false}.
-	 * @throws IllegalArgumentException If {@code session} is {@code null}.
-	 * @throws IOException If the response times out or an error occurs during
-	 *             the operation.
+	 * @param session the {@link Session} to use, if any.
+	 * @param sourceId the source ID to use.
+	 * @param destinationId the destination ID to use.
+	 * @param entries the {@link RequestBatch.Entry}s to send.
+	 * @return The {@link CompletableFuture} that will be completed with a
+	 *         {@link List} of {@link Response}s in the same order as
+	 *         {@code entries}, where entries without a response class have
+	 *         {@code null} responses, or completed exceptionally with the
+	 *         first failure as soon as it occurs, without waiting for the
+	 *         remaining responses.
 	 */
-	@Nullable
-	public MediaStatus stopMedia(@Nonnull Session session, int mediaSessionId, boolean synchronous) throws IOException {
-		return stopMedia(session, mediaSessionId, synchronous, DEFAULT_RESPONSE_TIMEOUT);
-	}
+	@Nonnull
+	protected CompletableFuture<List<Response>> sendBatchAsync(
+		@Nullable Session session,
+		String sourceId,
+		String destinationId,
+		@Nonnull List<RequestBatch.Entry> entries
+	) {
+		// Serialize everything before registering anything, so that a failure doesn't leave stray processors
+		List<CastMessage> messages = new ArrayList<>(entries.size());
+		long[] requestIds = new long[entries.size()];
+		int i = 0;
+		for (RequestBatch.Entry entry : entries) {
+			requestIds[i] = requestCounter.getAndIncrement();
+			entry.request.setRequestId(requestIds[i++]);
+			try {
+				messages.add(createStringMessage(
+					entry.namespace,
+					JacksonHelper.writerFor(entry.request.getClass()).writeValueAsString(entry.request),
+					sourceId,
+					destinationId
+				));
+			} catch (JsonProcessingException e) {
+				return Util.failedFuture(e);
+			}
+		}
 
-	/**
-	 * Asks the remote application to stop playback and unload the media
-	 * referenced by the specified media session ID.
-	 * <p>
-	 * This can only succeed if the remote application supports the
-	 * "{@code urn:x-cast:com.google.cast.media}" namespace.
+		final List<CompletableFuture<? extends Response>> futures = new ArrayList<>(entries.size());
+		List<CompletableFuture<?>> processorFutures = new ArrayList<>(entries.size() + 1);
+		i = 0;
+		for (RequestBatch.Entry entry : entries) {
+			if (entry.responseClass == null) {
+				futures.add(null);
+			} else {
+				CompletableFuture<? extends Response> future = startResultProcessor(
+					requestIds[i],
+					session,
+					entry.responseClass,
+					entry.responseTimeout
+				).future;
+				futures.add(future);
+				processorFutures.add(future);
+			}
+			i++;
+		}
+		CompletableFuture<Void> written = enqueueAll(messages);
+		for (CompletableFuture<?> future : processorFutures) {
+			written.whenComplete(new FailureForwarder(future));
+		}
+		processorFutures.add(written);
+
+		// Fail the batch as soon as any member fails, instead of waiting for the remaining responses
+		final CompletableFuture<List<Response>> result = new CompletableFuture<>();
+		FailureForwarder failureForwarder = new FailureForwarder(result);
+		for (CompletableFuture<?> future : processorFutures) {
+			future.whenComplete(failureForwarder);
+		}
+		CompletableFuture.allOf(processorFutures.toArray(new CompletableFuture<?>[processorFutures.size()]))
+			.thenRun(new Runnable() {
+
+				@Override
+				public void run() {
+					List<Response> responses = new ArrayList<>(futures.size());
+					for (CompletableFuture<? extends Response> future : futures) {
+						responses.add(future == null ? null : future.join());
+					}
+					result.complete(Collections.unmodifiableList(responses));
+				}
+			});
+		return completeAsync(result);
+	}
+
+	/**
+	 * Creates and registers a new {@link ResultProcessor} and schedules its
+	 * timeout.
 	 *
-	 * @param session the {@link Session} to use.
-	 * @param mediaSessionId the media session ID for which the
-	 *            {@link MediaVolume} request applies.
-	 * @param synchronous {@code true} to make this call block until a response
-	 *            is received or times out, {@code false} to make it return
-	 *            immediately always returning {@code null}.
-	 * @param responseTimeout the response timeout in milliseconds if
-	 *            {@code synchronous} is {@code true}. If zero or negative,
-	 *            {@value #DEFAULT_RESPONSE_TIMEOUT} will be used.
-	 * @return The resulting {@link MediaStatus} if {@code synchronous} is
-	 *         {@code true} and a reply is received in time, {@code null} if
-	 *         {@code synchronous} is {@code false}.
-	 * @throws IllegalArgumentException If {@code session} is {@code null}.
-	 * @throws IOException If the response times out or an error occurs during
-	 *             the operation.
+	 * @param <T> the class of the {@link Response} object.
+	 * @param requestId the request ID.
+	 * @param session the {@link Session} if one applies to the request.
+	 * @param responseClass the expected response class.
+	 * @param responseTimeout the response timeout in milliseconds.
+	 * @return The new {@link ResultProcessor}.
 	 */
-	@Nullable
-	public MediaStatus stopMedia(
-		@Nonnull Session session,
-		int mediaSessionId,
-		boolean synchronous,
+	@Nonnull
+	protected <T extends Response> ResultProcessor<T> startResultProcessor(
+		long requestId,
+		@Nullable Session session,
+		@Nonnull Class<T> responseClass,
 		long responseTimeout
-	) throws IOException {
-		requireNotNull(session, "session");
-		MediaStatusResponse status = send(
-			session,
-			"urn:x-cast:com.google.cast.media",
-			new StopMedia(mediaSessionId, null),
-			session.sourceId,
-			session.destinationId,
-			synchronous ? MediaStatusResponse.class : null,
-			responseTimeout
-		);
-		return status == null || status.getStatuses().isEmpty() ? null : status.getStatuses().get(0);
+	) {
+		final ResultProcessor<T> rp = new ResultProcessor<>(requestId, session, responseClass, responseTimeout);
+		registerResultProcessor(rp);
+		final HashedWheelTimer.Timeout timeout = TIMEOUT_TIMER.newTimeout(new Runnable() {
+
+			@Override
+			public void run() {
+				unregisterResultProcessor(rp);
+				rp.timedOut();
+			}
+		}, rp.requestTimeout, TimeUnit.MILLISECONDS);
+		rp.future.whenComplete(new BiConsumer<T, Throwable>() {
+
+			@Override
+			public void accept(T response, Throwable throwable) {
+				timeout.cancel();
+				unregisterResultProcessor(rp);
+			}
+		});
+		return rp;
 	}
 
 	/**
-	 * Asks the remote application to change the volume level or mute state of
-	 * the stream of the specified media session. Please note that this is
-	 * different from the device volume level or mute state, and that this will
-	 * give the user no visual indication, using
-	 * {@value #DEFAULT_RESPONSE_TIMEOUT} as the timeout value.
-	 * <p>
-	 * This can only succeed if the remote application supports the
-	 * "{@code urn:x-cast:com.google.cast.media}" namespace.
+	 * Blocks until the specified {@link CompletableFuture} completes and
+	 * returns the result, translating failures to the exceptions thrown by the
+	 * synchronous methods.
 	 *
-	 * @param session the {@link Session} to use.
-	 * @param mediaSessionId the media session ID for which the
-	 *            {@link MediaVolume} request applies.
-	 * @param volume the {@link MediaVolume} to set.
-	 * @param synchronous {@code true} to make this call block until a response
-	 *            is received or times out, {@code false} to make it return
-	 *            immediately always returning {@code null}.
-	 * @return The resulting {@link MediaStatus} if {@code synchronous} is
-	 *         {@code true} and a reply is received in time, {@code null} if
-	 *         {@code synchronous} is {@code false}.
-	 * @throws IllegalArgumentException If {@code session} or {@code volume} is
-	 *             {@code null}.
-	 * @throws IOException If the response times out or an error occurs during
-	 *             the operation.
+	 * @param <T> the result type.
+	 * @param future the {@link CompletableFuture} to wait for.
+	 * @return The result.
+	 * @throws CastException If the thread is interrupted while waiting or
+	 *             {@code future} is cancelled.
+	 * @throws IOException If {@code future} completes exceptionally.
 	 */
 	@Nullable
-	public MediaStatus setMediaVolume(
-		@Nonnull Session session,
-		int mediaSessionId,
-		@Nonnull MediaVolume volume,
-		boolean synchronous
-	) throws IOException {
-		return setMediaVolume(
-			session,
-			mediaSessionId,
-			volume,
-			synchronous,
-			DEFAULT_RESPONSE_TIMEOUT
-		);
+	protected static <T> T waitFor(@Nonnull CompletableFuture<T> future) throws IOException {
+		if (future instanceof HandOffFuture) {
+			// Skip the hand-off, nothing depends on it here
+			future = ((HandOffFuture<T>) future).source;
+		}
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			future.cancel(false);
+			throw new CastException("Interrupted while waiting for response", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new CastException(cause == null ? e.getMessage() : cause.getMessage(), cause);
+		} catch (CancellationException e) {
+			throw new CastException("The request was cancelled", e);
+		}
 	}
 
 	/**
-	 * Asks the remote application to change the volume level or mute state of
-	 * the stream of the specified media session. Please note that this is
-	 * different from the device volume level or mute state, and that this will
-	 * give the user no visual indication.
-	 * <p>
-	 * This can only succeed if the remote application supports the
-	 * "{@code urn:x-cast:com.google.cast.media}" namespace.
+	 * Request a {@link ReceiverStatus} from the cast device, using
+	 * {@value #DEFAULT_RESPONSE_TIMEOUT} as the timeout value.
 	 *
-	 * @param session the {@link Session} to use.
-	 * @param mediaSessionId the media session ID for which the
-	 *            {@link MediaVolume} request applies.
-	 * @param volume the {@link MediaVolume} to set.
-	 * @param synchronous {@code true} to make this call block until a response
-	 *            is received or times out, {@code false} to make it return
-	 *            immediately always returning {@code null}.
-	 * @param responseTimeout the response timeout in milliseconds if
-	 *            {@code synchronous} is {@code true}. If zero or negative,
-	 *            {@value #DEFAULT_RESPONSE_TIMEOUT} will be used.
-	 * @return The resulting {@link MediaStatus} if {@code synchronous} is
-	 *         {@code true} and a reply is received in time, {@code null} if
-	 *         {@code synchronous} is {@code false}.
-	 * @throws IllegalArgumentException If {@code sessionId} or {@code volume}
-	 *             is {@code null}.
-	 * @throws IllegalArgumentException If {@code session} is {@code null}.
+	 * @return The resulting {@link ReceiverStatus}.
 	 * @throws IOException If the response times out or an error occurs during
 	 *             the operation.
 	 */
 	@Nullable
-	public MediaStatus setMediaVolume(
-		@Nonnull Session session,
-		int mediaSessionId,
-		@Nonnull MediaVolume volume,
-		boolean synchronous,
-		long responseTimeout
-	) throws IOException {
-		requireNotNull(session, "session");
-		MediaStatusResponse status = send(
-			session,
-			"urn:x-cast:com.google.cast.media",
-			new VolumeRequest(session.id, mediaSessionId, volume, null),
-			session.sourceId,
-			session.destinationId,
-			synchronous ? MediaStatusResponse.class : null,
-			responseTimeout
-		);
-		return status == null || status.getStatuses().isEmpty() ? null : status.getStatuses().get(0);
+	public ReceiverStatus getReceiverStatus() throws IOException {
+		return getReceiverStatus(DEFAULT_RESPONSE_TIMEOUT);
 	}
 
 	/**
-	 * Sets the device {@link Volume} to the values of the specified instance. A
-	 * {@link Volume} instance contains both the volume level and the mute
-	 * state.
-	 * <p>
-	 * If the device has {@link VolumeControlType#MASTER} and the this call
-	 * changes the volume level more than the device specified "step", this
-	 * method will start a {@link Timer} based gradual change towards the
-	 * specified volume level.
+	 * Request a {@link ReceiverStatus} from the cast device.
 	 *
-	 * @param volume the {@link Volume} instance whose values to set.
-	 * @throws CastException If the cast device has
-	 *             {@link VolumeControlType#FIXED}.
-	 * @throws IOException If an error occurs during the operation.
+	 * @param responseTimeout the response timeout in milliseconds. If zero or
+	 *            negative, {@value #DEFAULT_RESPONSE_TIMEOUT} will be used.
+	 * @return The resulting {@link ReceiverStatus}.
+	 * @throws IOException If the response times out or an error occurs during
+	 *             the operation.
 	 */
 	@Nullable
-	public void setVolume(Volume volume) throws IOException {
-		if (volume == null) {
-			return;
-		}
-		Volume lastVolume;
-		synchronized (cachedVolumeLock) {
-			lastVolume = cachedVolume;
-		}
-		if (lastVolume != null) {
-			if (lastVolume.getControlType() == VolumeControlType.FIXED) {
-				throw new CastException("Cannot set volume level or mute since the device has a fixed volume");
-			}
-			Double currentLevelObj, targetLevelObj, stepIntervalObj;
-			if (
-				(currentLevelObj = lastVolume.getLevel()) != null &&
-				(targetLevelObj = volume.getLevel()) != null &&
-				lastVolume.getControlType() == VolumeControlType.MASTER &&
-				(stepIntervalObj = lastVolume.getStepInterval()) != null
-			) {
-				GradualVolumeTask task = null;
-				double currentLevel, targetLevel, stepInterval, diff;
-				if (
-					(currentLevel = currentLevelObj.doubleValue()) != (targetLevel = targetLevelObj.doubleValue()) &&
-					(diff = Math.abs(targetLevel - currentLevel)) > (stepInterval = stepIntervalObj.doubleValue())
-				) {
-					int steps = (int) Math.ceil(diff / stepInterval);
-					if (steps > 1) {
-						if (targetLevel < currentLevel) {
-							stepInterval = -stepInterval;
-						}
-						task = new GradualVolumeTask(stepInterval, targetLevel);
-						volume = volume.modify().level(Double.valueOf(currentLevel + stepInterval)).build();
-					}
-				}
-
-				synchronized (gradualVolumeLock) {
-					if (gradualVolumeTask != null) {
-						gradualVolumeTask.cancel();
-					}
-					if (task != null) {
-						if (gradualVolumeTimer == null) {
-							gradualVolumeTimer = new Timer(remoteName + " gradual volume timer");
-						}
-						gradualVolumeTask = task;
-						gradualVolumeTimer.schedule(task, 150, 150);
-					} else if (gradualVolumeTimer != null) {
-						gradualVolumeTimer.cancel();
-						gradualVolumeTimer = null;
-					}
-				}
-			}
-		}
-		doSetVolume(volume, false, DEFAULT_RESPONSE_TIMEOUT);
+	public ReceiverStatus getReceiverStatus(long responseTimeout) throws IOException {
+		return waitFor(getReceiverStatusAsync(responseTimeout));
 	}
 
 	/**
-	 * Sets the device volume level using the specified parameters, without any
-	 * checks or evaluations.
+	 * Request a {@link ReceiverStatus} from the cast device without blocking.
 	 *
-	 * @param volume the {@link Volume} instance to send to the cast device.
-	 * @param synchronous {@code true} to make this call block until a response
-	 *            is received or times out, {@code false} to make it return
-	 *            immediately always returning {@code null}.
-	 * @param responseTimeout the response timeout in milliseconds if
-	 *            {@code synchronous} is {@code true}. If zero or negative,
-	 *            {@value #DEFAULT_RESPONSE_TIMEOUT} will be used.
-	 * @return The resulting {@link ReceiverStatus} if {@code synchronous} is
-	 *         {@code true} and a reply is received in time, {@code null} if
-	 *         {@code synchronous} is {@code false}.
-	 * @throws IOException If the response times out or an error occurs during
-	 *             the operation.
+	 * @param responseTimeout the response timeout in milliseconds. If zero or
+	 *            negative, {@value #DEFAULT_RESPONSE_TIMEOUT} will be used.
+	 * @return The {@link CompletableFuture} that will be completed with the
+	 *         resulting {@link ReceiverStatus}.
 	 */
-	@Nullable
-	protected ReceiverStatus doSetVolume(Volume volume, boolean synchronous, long responseTimeout) throws IOException {
-		ReceiverStatusResponse status = send(
+	@Nonnull
+	public CompletableFuture<ReceiverStatus> getReceiverStatusAsync(long responseTimeout) {
+		return sendSharedAsync(
 			null,
 			"urn:x-cast:com.google.cast.receiver",
-			new SetVolume(volume),
+			new GetStatus(),
+			null,
 			PLATFORM_SENDER_ID,
 			PLATFORM_RECEIVER_ID,
-			synchronous ? ReceiverStatusResponse.class : null,
+			ReceiverStatusResponse.class,
 			responseTimeout
-		);
-		ReceiverStatus result;
-		if (status == null || (result = status.getStatus()) == null) {
-			return null;
-		}
-		cacheVolume(result);
-		return result;
+		).thenApply(receiverStatusExtractor);
 	}
 
 	/**
-	 * Sends the specified {@link Request} with the specified namespace using
-	 * the specified {@link Session} and {@value #DEFAULT_RESPONSE_TIMEOUT} as
+	 * Queries the cast device if the application represented by the specified
+	 * application ID is available, using {@value #DEFAULT_RESPONSE_TIMEOUT} as
 	 * the timeout value.
 	 *
-	 * @param <T> the class of the {@link Response} object.
-	 * @param session the {@link Session} to use.
-	 * @param namespace the namespace to use.
-	 * @param request the {@link Request} to send.
-	 * @param responseClass the response class to to block and wait for a
-	 *            response or {@code null} to return immediately.
-	 * @return The {@link Response} if the response is received in time, or
-	 *         {@code null} if the {@code responseClass} is {@code null} or a
-	 *         timeout occurs.
-	 * @throws IllegalArgumentException If {@link Session} is {@code null} or if
-	 *             {@code namespace} is {@code null} or invalid (see
-	 *             {@link #validateNamespace(String)} for constraints).
-	 * @throws IOException If an error occurs during the operation.
+	 * @param applicationId the application ID for which to query availability.
+	 * @return {@code true} if the application is available, {@code false} if
+	 *         it's not.
+	 * @throws IOException If the response times out or if an error occurs
+	 *             during the operation.
 	 */
-	public <T extends Response> T sendGenericRequest(
-		@Nonnull Session session,
-		@Nonnull String namespace,
-		Request request,
-		Class<T> responseClass
-	) throws IOException {
-		requireNotNull(session, "session");
-		return send(
-			session,
-			namespace,
-			request,
-			session.sourceId,
-			session.destinationId,
-			responseClass,
-			DEFAULT_RESPONSE_TIMEOUT
-		);
+	public boolean isApplicationAvailable(String applicationId) throws IOException {
+		return isApplicationAvailable(applicationId, DEFAULT_RESPONSE_TIMEOUT);
 	}
 
 	/**
-	 * Sends the specified {@link Request} with the specified namespace using
-	 * the specified {@link Session}.
+	 * Queries the cast device if the application represented by the specified
+	 * application ID is available.
 	 *
-	 * @param <T> the class of the {@link Response} object.
-	 * @param session the {@link Session} to use.
-	 * @param namespace the namespace to use.
-	 * @param request the {@link Request} to send.
-	 * @param responseClass the response class to to block and wait for a
-	 *            response or {@code null} to return immediately.
-	 * @param responseTimeout the response timeout in milliseconds if
-	 *            {@code responseClass} is non-{@code null}. If zero or
+	 * @param applicationId the application ID for which to query availability.
+	 * @param responseTimeout the response timeout in milliseconds if. If zero
+	 *            or negative, {@value #DEFAULT_RESPONSE_TIMEOUT} will be used.
+	 * @return {@code true} if the application is available, {@code false} if
+	 *         it's not.
+	 * @throws IOException If the response times out or if an error occurs
+	 *             during the operation.
+	 */
+	public boolean isApplicationAvailable(String applicationId, long responseTimeout) throws IOException {
+		AppAvailabilityResponse availability = waitFor(sendSharedAsync(
+			null,
+			"urn:x-cast:com.google.cast.receiver",
+			new GetAppAvailability(applicationId),
+			applicationId,
+			PLATFORM_SENDER_ID,
+			PLATFORM_RECEIVER_ID,
+			AppAvailabilityResponse.class,
+			responseTimeout
+		));
+		return availability != null && "APP_AVAILABLE".equals(availability.getAvailability().get(applicationId));
+	}
+
+	/**
+	 * Queries the cast device for the availability of the applications
+	 * represented by the specified application IDs, using
+	 * {@value #DEFAULT_RESPONSE_TIMEOUT} as the timeout value.
+	 *
+	 * @param applicationIds the application IDs for which to query
+	 *            availability.
+	 * @return The {@link Map} of application IDs and their availability.
+	 * @throws IOException If the response times out or if an error occurs
+	 *             during the operation.
+	 * @see #getApplicationAvailabilityAsync(Collection, long)
+	 */
+	@Nonnull
+	public Map<String, Boolean> getApplicationAvailability(@Nonnull Collection<String> applicationIds) throws IOException {
+		Map<String, Boolean> result = waitFor(getApplicationAvailabilityAsync(applicationIds, DEFAULT_RESPONSE_TIMEOUT));
+		return result == null ? Collections.<String, Boolean>emptyMap() : result;
+	}
+
+	/**
+	 * Queries the cast device for the availability of the applications
+	 * represented by the specified application IDs without blocking.
+	 * <p>
+	 * If {@link #getAvailabilityTtl()} is positive, the results are cached for
+	 * that many milliseconds, and only the application IDs that aren't cached
+	 * are queried, all in one request. Caching is disabled by default.
+	 *
+	 * @param applicationIds the application IDs for which to query
+	 *            availability.
+	 * @param responseTimeout the response timeout in milliseconds. If zero or
 	 *            negative, {@value #DEFAULT_RESPONSE_TIMEOUT} will be used.
-	 * @return The {@link Response} if the response is received in time, or
-	 *         {@code null} if the {@code responseClass} is {@code null} or a
-	 *         timeout occurs.
-	 * @throws IllegalArgumentException If {@link Session} is {@code null} or if
-	 *             {@code namespace} is {@code null} or invalid (see
-	 *             {@link #validateNamespace(String)} for constraints).
-	 * @throws IOException If an error occurs during the operation.
+	 * @return The {@link CompletableFuture} that will be completed with an
+	 *         unmodifiable {@link Map} of application IDs and their
+	 *         availability, in the iteration order of {@code applicationIds}.
+	 * @throws IllegalArgumentException If {@code applicationIds} is
+	 *             {@code null} or contains blank elements.
 	 */
-	public <T extends Response> T sendGenericRequest(
-		@Nonnull Session session,
-		@Nonnull String namespace,
-		Request request,
-		Class<T> responseClass,
+	@Nonnull
+	public CompletableFuture<Map<String, Boolean>> getApplicationAvailabilityAsync(
+		@Nonnull Collection<String> applicationIds,
 		long responseTimeout
-	) throws IOException {
-		requireNotNull(session, "session");
-		return send(
-			session,
-			namespace,
-			request,
-			session.sourceId,
-			session.destinationId,
-			responseClass,
+	) {
+		requireNotNull(applicationIds, "applicationIds");
+		final Map<String, Boolean> result = new LinkedHashMap<>();
+		final long ttl = availabilityTtl;
+		final long generation = availabilityGeneration.get();
+		final List<String> missing = new ArrayList<>();
+		for (String applicationId : applicationIds) {
+			requireNotBlank(applicationId, "applicationId");
+			Timestamped<Boolean> cached = ttl > 0L ? availabilityCache.get(applicationId) : null;
+			if (cached != null && cached.getAge() <= ttl) {
+				result.put(applicationId, cached.value);
+			} else {
+				result.put(applicationId, null);
+				if (!missing.contains(applicationId)) {
+					missing.add(applicationId);
+				}
+			}
+		}
+		if (missing.isEmpty()) {
+			return CompletableFuture.completedFuture(Collections.unmodifiableMap(result));
+		}
+
+		StringBuilder parameters = new StringBuilder();
+		for (String applicationId : missing) {
+			if (parameters.length() > 0) {
+				parameters.append(',');
+			}
+			parameters.append(applicationId);
+		}
+		return sendSharedAsync(
+			null,
+			"urn:x-cast:com.google.cast.receiver",
+			new GetAppAvailability(missing.toArray(new String[missing.size()])),
+			parameters.toString(),
+			PLATFORM_SENDER_ID,
+			PLATFORM_RECEIVER_ID,
+			AppAvailabilityResponse.class,
+			responseTimeout
+		).thenApply(new Function<AppAvailabilityResponse, Map<String, Boolean>>() {
+
+			@Override
+			public Map<String, Boolean> apply(AppAvailabilityResponse response) {
+				Map<String, String> availability = response == null ?
+					Collections.<String, String>emptyMap() :
+					response.getAvailability();
+				for (String applicationId : missing) {
+					Boolean available = Boolean.valueOf("APP_AVAILABLE".equals(availability.get(applicationId)));
+					if (ttl > 0L && availabilityGeneration.get() == generation) {
+						availabilityCache.put(applicationId, new Timestamped<>(available));
+						if (availabilityGeneration.get() != generation) {
+							// Cleared concurrently
+							availabilityCache.remove(applicationId);
+						}
+					}
+					result.put(applicationId, available);
+				}
+				return Collections.unmodifiableMap(result);
+			}
+		});
+	}
+
+	/**
+	 * Asks the cast device to launch the application represented by the
+	 * specified application ID, using {@value #DEFAULT_RESPONSE_TIMEOUT} as the
+	 * timeout value.
+	 *
+	 * @param applicationId the application ID for the application to launch.
+	 * @param synchronous {@code true} to make this call block until a response
+	 *            is received or times out, {@code false} to make it return
+	 *            immediately always returning {@code null}.
+	 * @return The resulting {@link ReceiverStatus} or {@code null} if
+	 *         {@code synchronous} is {@code false}.
+	 * @throws IOException If the response times out or an error occurs during
+	 *             the operation.
+	 */
+	@Nullable
+	public ReceiverStatus launch(String applicationId, boolean synchronous) throws IOException {
+		return launch(applicationId, synchronous, DEFAULT_RESPONSE_TIMEOUT);
+	}
+
+	/**
+	 * Asks the cast device to launch the application represented by the
+	 * specified application ID.
+	 *
+	 * @param applicationId the application ID for the application to launch.
+	 * @param synchronous {@code true} to make this call block until a response
+	 *            is received or times out, {@code false} to make it return
+	 *            immediately always returning {@code null}.
+	 * @param responseTimeout the response timeout in milliseconds if
+	 *            {@code synchronous} is {@code true}. If zero or negative,
+	 *            {@value #DEFAULT_RESPONSE_TIMEOUT} will be used.
+	 * @return The resulting {@link ReceiverStatus} or {@code null} if
+	 *         {@code synchronous} is {@code false}.
+	 * @throws IOException If the response times out or an error occurs during
+	 *             the operation.
+	 */
+	@Nullable
+	public ReceiverStatus launch(String applicationId, boolean synchronous, long responseTimeout) throws IOException {
+		ReceiverStatusResponse status = send(
+			null,
+			"urn:x-cast:com.google.cast.receiver",
+			new Launch(applicationId),
+			PLATFORM_SENDER_ID,
+			PLATFORM_RECEIVER_ID,
+			synchronous ? ReceiverStatusResponse.class : null,
 			responseTimeout
 		);
+		ReceiverStatus result;
+		if (status == null || (result = status.getStatus()) == null) {
+			return null;
+		}
+		updateReceiverStatus(result);
+		return result;
 	}
 
 	/**
-	 * Sends the specified {@link Request} with the specified namespace using
-	 * the specified source and destination IDs and
-	 * {@value #DEFAULT_RESPONSE_TIMEOUT} as the timeout value. This is for
-	 * requests that aren't associated with a {@link Session}.
+	 * Asks the cast device to launch the application represented by the
+	 * specified application ID without blocking.
 	 *
-	 * @param <T> the class of the {@link Response} object.
-	 * @param sourceId the source ID to use.
-	 * @param destinationId the destination ID to use.
-	 * @param namespace the namespace to use.
-	 * @param request the {@link Request} to send.
-	 * @param responseClass the response class to to block and wait for a
-	 *            response or {@code null} to return immediately.
-	 * @return The {@link Response} if the response is received in time, or
-	 *         {@code null} if the {@code responseClass} is {@code null} or a
-	 *         timeout occurs.
-	 * @throws IllegalArgumentException If {@code namespace} is {@code null} or
-	 *             invalid (see {@link #validateNamespace(String)} for
-	 *             constraints).
-	 * @throws IOException If an error occurs during the operation.
+	 * @param applicationId the application ID for the application to launch.
+	 * @param responseTimeout the response timeout in milliseconds. If zero or
+	 *            negative, {@value #DEFAULT_RESPONSE_TIMEOUT} will be used.
+	 * @return The {@link CompletableFuture} that will be completed with the
+	 *         resulting {@link ReceiverStatus}.
 	 */
-	public <T extends Response> T sendGenericRequest(
-		@Nonnull String sourceId,
-		@Nonnull String destinationId,
-		@Nonnull String namespace,
-		Request request,
-		Class<T> responseClass
+	@Nonnull
+	public CompletableFuture<ReceiverStatus> launchAsync(String applicationId, long responseTimeout) {
+		return sendAsync(
+			null,
+			"urn:x-cast:com.google.cast.receiver",
+			new Launch(applicationId),
+			PLATFORM_SENDER_ID,
+			PLATFORM_RECEIVER_ID,
+			ReceiverStatusResponse.class,
+			responseTimeout
+		).thenApply(receiverStatusExtractor);
+	}
+
+	/**
+	 * Asks the cast device to stop the specified {@link Application}, using
+	 * {@value #DEFAULT_RESPONSE_TIMEOUT} as the timeout value.
+	 *
+	 * @param application the {@link Application} to stop.
+	 * @param synchronous {@code true} to make this call block until a response
+	 *            is received or times out, {@code false} to make it return
+	 *            immediately always returning {@code null}.
+	 * @return The resulting {@link ReceiverStatus} or {@code null} if
+	 *         {@code synchronous} is {@code false}.
+	 * @throws IOException If the response times out or an error occurs during
+	 *             the operation.
+	 */
+	public ReceiverStatus stopApplication(@Nonnull Application application, boolean synchronous) throws IOException {
+		return stopApplication(application, synchronous, DEFAULT_RESPONSE_TIMEOUT);
+	}
+
+	/**
+	 * Asks the cast device to stop the specified {@link Application}.
+	 *
+	 * @param application the {@link Application} to stop.
+	 * @param synchronous {@code true} to make this call block until a response
+	 *            is received or times out, {@code false} to make it return
+	 *            immediately always returning {@code null}.
+	 * @param responseTimeout the response timeout in milliseconds if
+	 *            {@code synchronous} is {@code true}. If zero or negative,
+	 *            {@value #DEFAULT_RESPONSE_TIMEOUT} will be used.
+	 * @return The resulting {@link ReceiverStatus} or {@code null} if
+	 *         {@code synchronous} is {@code false}.
+	 * @throws NullPointerException If {@code application} is {@code null}.
+	 * @throws IOException If the response times out or an error occurs during
+	 *             the operation.
+	 */
+	public ReceiverStatus stopApplication(
+		@Nonnull Application application,
+		boolean synchronous,
+		long responseTimeout
 	) throws IOException {
-		return send(null, namespace, request, sourceId, destinationId, responseClass, DEFAULT_RESPONSE_TIMEOUT);
+		ReceiverStatusResponse status = send(
+			null,
+			"urn:x-cast:com.google.cast.receiver",
+			new Stop(application.getSessionId()),
+			PLATFORM_SENDER_ID,
+			PLATFORM_RECEIVER_ID,
+			synchronous ? ReceiverStatusResponse.class : null,
+			responseTimeout
+		);
+		ReceiverStatus result;
+		if (status == null || (result = status.getStatus()) == null) {
+			return null;
+		}
+		updateReceiverStatus(result);
+		return result;
 	}
 
-	/**
-	 * Sends the specified {@link Request} with the specified namespace using
-	 * the specified source and destination IDs. This is for requests that
-	 * aren't associated with a {@link Session}.
-	 *
-	 * @param <T> the class of the {@link Response} object.
-	 * @param sourceId the source ID to use.
-	 * @param destinationId the destination ID to use.
-	 * @param namespace the namespace to use.
-	 * @param request the {@link Request} to send.
-	 * @param responseClass the response class to to block and wait for a
-	 *            response or {@code null} to return immediately.
-	 * @param responseTimeout the response timeout in milliseconds if
-	 *            {@code responseClass} is non-{@code null}. If zero or
-	 *            negative, {@value #DEFAULT_RESPONSE_TIMEOUT} will be used.
-	 * @return The {@link Response} if the response is received in time, or
-	 *         {@code null} if the {@code responseClass} is {@code null} or a
-	 *         timeout occurs.
-	 * @throws IllegalArgumentException If {@code namespace} is {@code null} or
-	 *             invalid (see {@link #validateNamespace(String)} for
-	 *             constraints).
-	 * @throws IOException If an error occurs during the operation.
-	 */
-	public <T extends Response> T sendGenericRequest(
-		@Nonnull String sourceId,
-		@Nonnull String destinationId,
-		@Nonnull String namespace,
-		Request request,
-		Class<T> responseClass,
-		long responseTimeout
-	) throws IOException {
-		return send(null, namespace, request, sourceId, destinationId, responseClass, responseTimeout);
-	}
+	/**
+	 * Asks the cast device to stop the specified {@link Application} without
+	 * blocking.
+	 *
+	 * @param application the {@link Application} to stop.
+	 * @param responseTimeout the response timeout in milliseconds. If zero or
+	 *            negative, {@value #DEFAULT_RESPONSE_TIMEOUT} will be used.
+	 * @return The {@link CompletableFuture} that will be completed with the
+	 *         resulting {@link ReceiverStatus}.
+	 * @throws IllegalArgumentException If {@code application} is
+	 *             {@code null}.
+	 */
+	@Nonnull
+	public CompletableFuture<ReceiverStatus> stopApplicationAsync(
+		@Nonnull Application application,
+		long responseTimeout
+	) {
+		requireNotNull(application, "application");
+		return sendAsync(
+			null,
+			"urn:x-cast:com.google.cast.receiver",
+			new Stop(application.getSessionId()),
+			PLATFORM_SENDER_ID,
+			PLATFORM_RECEIVER_ID,
+			ReceiverStatusResponse.class,
+			responseTimeout
+		).thenApply(receiverStatusExtractor);
+	}
+
+	/**
+	 * Establishes a {@link Session} with the specified {@link Application}
+	 * unless one already exists, in which case the existing {@link Session} is
+	 * returned.
+	 *
+	 * @param sourceId the source ID to use.
+	 * @param application the {@link Application} to connect to.
+	 * @param userAgent the user-agent String or {@code null}. It's not entirely
+	 *            clear what this is used for other than reporting to Google, so
+	 *            it might be that it's better left {@code null}.
+	 * @param connectionType The {@link VirtualConnectionType} to use. Please
+	 *            note that only {@link VirtualConnectionType#STRONG} and
+	 *            {@link VirtualConnectionType#INVISIBLE} are allowed.
+	 * @return The existing or new {@link Session}.
+	 * @throws IOException If an error occurs during the operation.
+	 */
+	@Nonnull
+	public Session startSession(
+		@Nonnull String sourceId,
+		@Nonnull Application application,
+		@Nullable String userAgent,
+		@Nonnull VirtualConnectionType connectionType
+	) throws IOException {
+		requireNotBlank(sourceId, "sourceId");
+		requireNotNull(application, "application");
+		String sessionId = application.getSessionId();
+		requireNotBlank(sessionId, "application.getSessionId()");
+		String destinationId = application.getTransportId();
+		requireNotBlank(destinationId, "application.getTransportId()");
+		Session result = null;
+		sessionsLock.lock();
+		try {
+			for (Session session : sessions) {
+				if (
+					sessionId.equals(session.getId()) &&
+					destinationId.equals(session.getDestinationId()) &&
+					sourceId.equals(session.getSourceId())
+				) {
+					return session;
+				}
+			}
+			write(
+				"urn:x-cast:com.google.cast.tp.connection",
+				new Connect(userAgent, connectionType),
+				sourceId,
+				destinationId
+			);
+			result = new Session(sourceId, sessionId, destinationId, this);
+			sessions.add(result);
+		} finally {
+			sessionsLock.unlock();
+		}
+		return result;
+	}
+
+	/**
+	 * Closes the specified {@link Session} unless it's already closed, in which
+	 * case nothing is done.
+	 *
+	 * @param session the {@link Session} to close.
+	 * @return {@code true} if the {@link Session} was closed, {@code false} if
+	 *         it was closed already.
+	 * @throws IOException If an error occurs during the operation.
+	 */
+	public boolean closeSession(@Nullable Session session) throws IOException {
+		if (session == null) {
+			return false;
+		}
+		sessionsLock.lock();
+		try {
+			if (!sessions.remove(session)) {
+				return false;
+			}
+		} finally {
+			sessionsLock.unlock();
+		}
+		cancelPendingClosed(session.getDestinationId());
+		SessionClosedListener listener = session.getSessionClosedListener();
+		if (listener != null) {
+			listener.closed(session);
+		}
+		write(
+			"urn:x-cast:com.google.cast.tp.connection",
+			new CloseConnection(),
+			session.getSourceId(),
+			session.getDestinationId()
+		);
+		return true;
+	}
+
+	/**
+	 * Checks whether or not the specified {@link Session} is closed.
+	 *
+	 * @param session the Session to check.
+	 * @return {@code true} if the specified {@link Session} is closed,
+	 *         {@code false} if it's connected.
+	 */
+	public boolean isSessionClosed(@Nullable Session session) {
+		if (session == null) {
+			return true;
+		}
+		sessionsLock.lock();
+		try {
+			return !sessions.contains(session);
+		} finally {
+			sessionsLock.unlock();
+		}
+	}
+
+	/**
+	 * Request a {@link MediaStatus} from the application with the specified
+	 * {@link Session}, using {@value #DEFAULT_RESPONSE_TIMEOUT} as the timeout
+	 * value.
+	 *
+	 * @param session the {@link Session} to use.
+	 * @return The resulting {@link MediaStatus}.
+	 * @throws IOException If the response times out or an error occurs during
+	 *             the operation.
+	 */
+	@Nullable
+	public MediaStatus getMediaStatus(@Nonnull Session session) throws IOException {
+		return getMediaStatus(session, DEFAULT_RESPONSE_TIMEOUT);
+	}
+
+	/**
+	 * Request a {@link MediaStatus} from the application with the specified
+	 * {@link Session}.
+	 *
+	 * @param session the {@link Session} to use.
+	 * @param responseTimeout the response timeout in milliseconds. If zero or
+	 *            negative, {@value #DEFAULT_RESPONSE_TIMEOUT} will be used.
+	 * @return The resulting {@link MediaStatus}.
+	 * @throws IllegalArgumentException If {@code session} is {@code null}.
+	 * @throws IOException If the response times out or an error occurs during
+	 *             the operation.
+	 */
+	@Nullable
+	public MediaStatus getMediaStatus(@Nonnull Session session, long responseTimeout) throws IOException {
+		return waitFor(getMediaStatusAsync(session, responseTimeout));
+	}
+
+	/**
+	 * Request a {@link MediaStatus} from the application with the specified
+	 * {@link Session} without blocking.
+	 *
+	 * @param session the {@link Session} to use.
+	 * @param responseTimeout the response timeout in milliseconds. If zero or
+	 *            negative, {@value #DEFAULT_RESPONSE_TIMEOUT} will be used.
+	 * @return The {@link CompletableFuture} that will be completed with the
+	 *         resulting {@link MediaStatus}.
+	 * @throws IllegalArgumentException If {@code session} is {@code null}.
+	 */
+	@Nonnull
+	public CompletableFuture<MediaStatus> getMediaStatusAsync(@Nonnull Session session, long responseTimeout) {
+		requireNotNull(session, "session");
+		return sendSharedAsync(
+			session,
+			"urn:x-cast:com.google.cast.media",
+			new GetStatus(),
+			null,
+			session.sourceId,
+			session.destinationId,
+			MediaStatusResponse.class,
+			responseTimeout
+		).thenApply(MEDIA_STATUS_EXTRACTOR);
+	}
+
+	/**
+	 * Asks the targeted remote application to execute the specified
+	 * {@link Load} request.
+	 * <p>
+	 * This can only succeed if the remote application supports the
+	 * "{@code urn:x-cast:com.google.cast.media}" namespace.
+	 *
+	 * @param session the {@link Session} to use.
+	 * @param loadRequest the {@link Load} request to send.
+	 * @param synchronous {@code true} to make this call block until a response
+	 *            is received or times out, {@code false} to make it return
+	 *            immediately always returning {@code null}.
+	 * @param responseTimeout the response timeout in milliseconds if
+	 *            {@code synchronous} is {@code true}. If zero or negative,
+	 *            {@value #DEFAULT_RESPONSE_TIMEOUT} will be used.
+	 * @return The resulting {@link MediaStatus} if {@code synchronous} is
+	 *         {@code true} and a reply is received in time, {@code null} if
+	 *         {@code synchronous} is {@code false}.
+	 * @throws IllegalArgumentException If {@code session} or
+	 *             {@code loadRequest} is {@code null}.
+	 * @throws IOException If the response times out or an error occurs during
+	 *             the operation.
+	 */
+	@Nullable
+	public MediaStatus load(
+		@Nonnull Session session,
+		@Nonnull Load loadRequest,
+		boolean synchronous,
+		long responseTimeout
+	) throws IOException {
+		requireNotNull(session, "session");
+		requireNotNull(loadRequest, "loadRequest");
+		MediaStatusResponse status = send(
+			session,
+			"urn:x-cast:com.google.cast.media",
+			loadRequest,
+			session.sourceId,
+			session.destinationId,
+			synchronous ? MediaStatusResponse.class : null,
+			responseTimeout
+		);
+		return status == null || status.getStatuses().isEmpty() ? null : status.getStatuses().get(0);
+	}
+
+	/**
+	 * Asks the targeted remote application to execute the specified
+	 * {@link Load} request without blocking.
+	 * <p>
+	 * This can only succeed if the remote application supports the
+	 * "{@code urn:x-cast:com.google.cast.media}" namespace.
+	 *
+	 * @param session the {@link Session} to use.
+	 * @param loadRequest the {@link Load} request to send.
+	 * @param responseTimeout the response timeout in milliseconds. If zero or
+	 *            negative, {@value #DEFAULT_RESPONSE_TIMEOUT} will be used.
+	 * @return The {@link CompletableFuture} that will be completed with the
+	 *         resulting {@link MediaStatus}.
+	 * @throws IllegalArgumentException If {@code session} or
+	 *             {@code loadRequest} is {@code null}.
+	 */
+	@Nonnull
+	public CompletableFuture<MediaStatus> loadAsync(
+		@Nonnull Session session,
+		@Nonnull Load loadRequest,
+		long responseTimeout
+	) {
+		requireNotNull(session, "session");
+		requireNotNull(loadRequest, "loadRequest");
+		return sendMediaRequestAsync(session, loadRequest, responseTimeout);
+	}
+
+	/**
+	 * Asks the targeted remote application to load the specified {@link Media}
+	 * using the specified parameters.
+	 * <p>
+	 * This can only succeed if the remote application supports the
+	 * "{@code urn:x-cast:com.google.cast.media}" namespace.
+	 *
+	 * @param session the {@link Session} to use.
+	 * @param media the {@link Media} to load.
+	 * @param autoplay {@code true} to ask the remote application to start
+	 *            playback as soon as the {@link Media} has been loaded,
+	 *            {@code false} to ask it to transition to a paused state after
+	 *            loading.
+	 * @param currentTime the position in seconds where playback are to be
+	 *            started in the loaded {@link Media}.
+	 * @param synchronous {@code true} to make this call block until a response
+	 *            is received or times out, {@code false} to make it return
+	 *            immediately always returning {@code null}.
+	 * @param responseTimeout the response timeout in milliseconds if
+	 *            {@code synchronous} is {@code true}. If zero or negative,
+	 *            {@value #DEFAULT_RESPONSE_TIMEOUT} will be used.
+	 * @return The resulting {@link MediaStatus} if {@code synchronous} is
+	 *         {@code true} and a reply is received in time, {@code null} if
+	 *         {@code synchronous} is {@code false}.
+	 * @throws IllegalArgumentException If {@code session} or {@code media} is
+	 *             {@code null}.
+	 * @throws IOException If the response times out or an error occurs during
+	 *             the operation.
+	 */
+	@Nullable
+	public MediaStatus load(
+		@Nonnull Session session,
+		@Nullable Boolean autoplay,
+		@Nullable Double currentTime,
+		@Nonnull Media media,
+		boolean synchronous,
+		long responseTimeout
+	) throws IOException {
+		requireNotNull(session, "session");
+		requireNotNull(media, "media");
+		MediaStatusResponse status = send(
+			session,
+			"urn:x-cast:com.google.cast.media",
+			new Load(null, autoplay, null, null, currentTime, null, null, media, null, null),
+			session.sourceId,
+			session.destinationId,
+			synchronous ? MediaStatusResponse.class : null,
+			responseTimeout
+		);
+		return status == null || status.getStatuses().isEmpty() ? null : status.getStatuses().get(0);
+	}
+
+	/**
+	 * Asks the targeted remote application to load the specified {@link Media}
+	 * or {@link QueueData}s using the specified parameters. Either
+	 * {@code media} or {@code queueData} must be non-{@code null}.
+	 * <p>
+	 * This can only succeed if the remote application supports the
+	 * "{@code urn:x-cast:com.google.cast.media}" namespace.
+	 *
+	 * @param session the {@link Session} to use.
+	 * @param activeTrackIds the {@link List} of track IDs that are active. If
+	 *            the list is not provided, the default tracks will be active.
+	 * @param autoplay {@code true} to ask the remote application to start
+	 *            playback as soon as the {@link Media} has been loaded,
+	 *            {@code false} to ask it to transition to a paused state after
+	 *            loading.
+	 * @param credentials the user credentials, if any.
+	 * @param credentialsType the credentials type, if any. The type
+	 *            '{@code cloud}' is a reserved type used by load requests that
+	 *            were originated by voice assistant commands.
+	 * @param currentTime the position in seconds from the start for where
+	 *            playback is to start in the loaded {@link Media}. If the
+	 *            content is live content, and {@code currentTime} is not
+	 *            specified, the stream will start at the live position.
+	 * @param customData the custom application data to send to the remote
+	 *            application with the load command.
+	 * @param loadOptions the additional load options, if any.
+	 * @param media the {@link Media} to load.
+	 * @param playbackRate the media playback rate.
+	 * @param queueData the queue data.
+	 * @param synchronous {@code true} to make this call block until a response
+	 *            is received or times out, {@code false} to make it return
+	 *            immediately always returning {@code null}.
+	 * @param responseTimeout the response timeout in milliseconds if
+	 *            {@code synchronous} is {@code true}. If zero or negative,
+	 *            {@value #DEFAULT_RESPONSE_TIMEOUT} will be used.
+	 * @return The resulting {@link MediaStatus} if {@code synchronous} is
+	 *         {@code true} and a reply is received in time, {@code null} if
+	 *         {@code synchronous} is {@code false}.
+	 * @throws IllegalArgumentException If {@code session} is {@code null}.
+	 * @throws IOException If the response times out or an error occurs during
+	 *             the operation.
+	 */
+	@Nullable
+	public MediaStatus load(
+		@Nonnull Session session,
+		@Nullable List<Integer> activeTrackIds,
+		@Nullable Boolean autoplay,
+		@Nullable String credentials,
+		@Nullable String credentialsType,
+		@Nullable Double currentTime,
+		@Nullable Map<String, Object> customData,
+		@Nullable LoadOptions loadOptions,
+		@Nullable Media media,
+		@Nullable Double playbackRate,
+		@Nullable QueueData queueData,
+		boolean synchronous,
+		long responseTimeout
+	) throws IOException {
+		requireNotNull(session, "session");
+		MediaStatusResponse status = send(
+			session,
+			"urn:x-cast:com.google.cast.media",
+			new Load(
+				activeTrackIds,
+				autoplay,
+				credentials,
+				credentialsType,
+				currentTime,
+				customData,
+				loadOptions,
+				media,
+				playbackRate,
+				queueData
+			),
+			session.sourceId,
+			session.destinationId,
+			synchronous ? MediaStatusResponse.class : null,
+			responseTimeout
+		);
+		return status == null || status.getStatuses().isEmpty() ? null : status.getStatuses().get(0);
+	}
+
+	/**
+	 * Asks the remote application to start playing the media referenced by the
+	 * specified media session ID, using {@value #DEFAULT_RESPONSE_TIMEOUT} as
+	 * the timeout value.
+	 * <p>
+	 * This can only succeed if the remote application supports the
+	 * "{@code urn:x-cast:com.google.cast.media}" namespace.
+	 *
+	 * @param session the {@link Session} to use.
+	 * @param mediaSessionId the media session ID for which the play request
+	 *            applies.
+	 * @param synchronous {@code true} to make this call block until a response
+	 *            is received or times out, {@code false} to make it return
+	 *            immediately always returning {@code null}.
+	 * @return The resulting {@link MediaStatus} if {@code synchronous} is
+	 *         {@code true} and a reply is received in time, {@code null} if
+	 *         {@code synchronous} is {@code false}.
+	 * @throws IllegalArgumentException If {@code session} is {@code null}.
+	 * @throws IOException If the response times out or an error occurs during
+	 *             the operation.
+	 */
+	@Nullable
+	public MediaStatus play(
+		@Nonnull Session session,
+		int mediaSessionId,
+		boolean synchronous
+	) throws IOException {
+		return play(session, mediaSessionId, synchronous, DEFAULT_RESPONSE_TIMEOUT);
+	}
+
+	/**
+	 * Asks the remote application to start playing the media referenced by the
+	 * specified media session ID.
+	 * <p>
+	 * This can only succeed if the remote application supports the
+	 * "{@code urn:x-cast:com.google.cast.media}" namespace.
+	 *
+	 * @param session the {@link Session} to use.
+	 * @param mediaSessionId the media session ID for which the play request
+	 *            applies.
+	 * @param synchronous {@code true} to make this call block until a response
+	 *            is received or times out, {@code false} to make it return
+	 *            immediately always returning {@code null}.
+	 * @param responseTimeout the response timeout in milliseconds if
+	 *            {@code synchronous} is {@code true}. If zero or negative,
+	 *            {@value #DEFAULT_RESPONSE_TIMEOUT} will be used.
+	 * @return The resulting {@link MediaStatus} if {@code synchronous} is
+	 *         {@code true} and a reply is received in time, {@code null} if
+	 *         {@code synchronous} is {@code false}.
+	 * @throws IllegalArgumentException If {@code session} is {@code null}.
+	 * @throws IOException If the response times out or an error occurs during
+	 *             the operation.
+	 */
+	@Nullable
+	public MediaStatus play(
+		@Nonnull Session session,
+		int mediaSessionId,
+		boolean synchronous,
+		long responseTimeout
+	) throws IOException {
+		requireNotNull(session, "session");
+		MediaStatusResponse status = send(
+			session,
+			"urn:x-cast:com.google.cast.media",
+			new Play(mediaSessionId, session.id),
+			session.sourceId,
+			session.destinationId,
+			synchronous ? MediaStatusResponse.class : null,
+			responseTimeout
+		);
+		return status == null || status.getStatuses().isEmpty() ? null : status.getStatuses().get(0);
+	}
+
+	/**
+	 * Asks the remote application to start playing the media referenced by the
+	 * specified media session ID without blocking.
+	 * <p>
+	 * This can only succeed if the remote application supports the
+	 * "{@code urn:x-cast:com.google.cast.media}" namespace.
+	 *
+	 * @param session the {@link Session} to use.
+	 * @param mediaSessionId the media session ID for which the play request
+	 *            applies.
+	 * @param responseTimeout the response timeout in milliseconds. If zero or
+	 *            negative, {@value #DEFAULT_RESPONSE_TIMEOUT} will be used.
+	 * @return The {@link CompletableFuture} that will be completed with the
+	 *         resulting {@link MediaStatus}.
+	 * @throws IllegalArgumentException If {@code session} is {@code null}.
+	 */
+	@Nonnull
+	public CompletableFuture<MediaStatus> playAsync(@Nonnull Session session, int mediaSessionId, long responseTimeout) {
+		requireNotNull(session, "session");
+		return sendMediaRequestAsync(session, new Play(mediaSessionId, session.id), responseTimeout);
+	}
+
+	/**
+	 * Asks the remote application to pause playback of the media referenced by
+	 * the specified media session ID, using {@value #DEFAULT_RESPONSE_TIMEOUT}
+	 * as the timeout value.
+	 * <p>
+	 * This can only succeed if the remote application supports the
+	 * "{@code urn:x-cast:com.google.cast.media}" namespace.
+	 *
+	 * @param session the {@link Session} to use.
+	 * @param mediaSessionId the media session ID for which the pause request
+	 *            applies.
+	 * @param synchronous {@code true} to make this call block until a response
+	 *            is received or times out, {@code false} to make it return
+	 *            immediately always returning {@code null}.
+	 * @return The resulting {@link MediaStatus} if {@code synchronous} is
+	 *         {@code true} and a reply is received in time, {@code null} if
+	 *         {@code synchronous} is {@code false}.
+	 * @throws IllegalArgumentException If {@code session} is {@code null}.
+	 * @throws IOException If the response times out or an error occurs during
+	 *             the operation.
+	 */
+	@Nullable
+	public MediaStatus pause(
+		@Nonnull Session session,
+		int mediaSessionId,
+		boolean synchronous
+	) throws IOException {
+		return pause(session, mediaSessionId, synchronous, DEFAULT_RESPONSE_TIMEOUT);
+	}
+
+	/**
+	 * Asks the remote application to pause playback of the media referenced by
+	 * the specified media session ID.
+	 * <p>
+	 * This can only succeed if the remote application supports the
+	 * "{@code urn:x-cast:com.google.cast.media}" namespace.
+	 *
+	 * @param session the {@link Session} to use.
+	 * @param mediaSessionId the media session ID for which the pause request
+	 *            applies.
+	 * @param synchronous {@code true} to make this call block until a response
+	 *            is received or times out, {@code false} to make it return
+	 *            immediately always returning {@code null}.
+	 * @param responseTimeout the response timeout in milliseconds if
+	 *            {@code synchronous} is {@code true}. If zero or negative,
+	 *            {@value #DEFAULT_RESPONSE_TIMEOUT} will be used.
+	 * @return The resulting {@link MediaStatus} if {@code synchronous} is
+	 *         {@code true} and a reply is received in time, {@code null} if
+	 *         {@code synchronous} is {@code false}.
+	 * @throws IllegalArgumentException If {@code session} is {@code null}.
+	 * @throws IOException If the response times out or an error occurs during
+	 *             the operation.
+	 */
+	@Nullable
+	public MediaStatus pause(
+		@Nonnull Session session,
+		int mediaSessionId,
+		boolean synchronous,
+		long responseTimeout
+	) throws IOException {
+		requireNotNull(session, "session");
+		MediaStatusResponse status = send(
+			session,
+			"urn:x-cast:com.google.cast.media",
+			new Pause(mediaSessionId, session.id),
+			session.sourceId,
+			session.destinationId,
+			synchronous ? MediaStatusResponse.class : null,
+			responseTimeout
+		);
+		return status == null || status.getStatuses().isEmpty() ? null : status.getStatuses().get(0);
+	}
+
+	/**
+	 * Asks the remote application to pause playback of the media referenced by
+	 * the specified media session ID without blocking.
+	 * <p>
+	 * This can only succeed if the remote application supports the
+	 * "{@code urn:x-cast:com.google.cast.media}" namespace.
+	 *
+	 * @param session the {@link Session} to use.
+	 * @param mediaSessionId the media session ID for which the pause request
+	 *            applies.
+	 * @param responseTimeout the response timeout in milliseconds. If zero or
+	 *            negative, {@value #DEFAULT_RESPONSE_TIMEOUT} will be used.
+	 * @return The {@link CompletableFuture} that will be completed with the
+	 *         resulting {@link MediaStatus}.
+	 * @throws IllegalArgumentException If {@code session} is {@code null}.
+	 */
+	@Nonnull
+	public CompletableFuture<MediaStatus> pauseAsync(@Nonnull Session session, int mediaSessionId, long responseTimeout) {
+		requireNotNull(session, "session");
+		return sendMediaRequestAsync(session, new Pause(mediaSessionId, session.id), responseTimeout);
+	}
+
+	/**
+	 * Asks the remote application to move the playback position of the media
+	 * referenced by the specified media session ID to the specified position,
+	 * using {@value #DEFAULT_RESPONSE_TIMEOUT} as the timeout value.
+	 * <p>
+	 * This can only succeed if the remote application supports the
+	 * "{@code urn:x-cast:com.google.cast.media}" namespace.
+	 *
+	 * @param session the {@link Session} to use.
+	 * @param mediaSessionId the media session ID for which the pause request
+	 *            applies.
+	 * @param currentTime the new playback position in seconds.
+	 * @param resumeState the desired media player state after the seek is
+	 *            complete. If {@code null}, it will retain the state it had
+	 *            before seeking.
+	 * @param synchronous {@code true} to make this call block until a response
+	 *            is received or times out, {@code false} to make it return
+	 *            immediately always returning {@code null}.
+	 * @return The resulting {@link MediaStatus} if {@code synchronous} is
+	 *         {@code true} and a reply is received in time, {@code null} if
+	 *         {@code synchronous} is {@code false}.
+	 * @throws IllegalArgumentException If {@code session} is {@code null}.
+	 * @throws IOException If the response times out or an error occurs during
+	 *             the operation.
+	 */
+	@Nullable
+	public MediaStatus seek(
+		@Nonnull Session session,
+		int mediaSessionId,
+		double currentTime,
+		@Nullable ResumeState resumeState,
+		boolean synchronous
+	) throws IOException {
+		return seek(
+			session,
+			mediaSessionId,
+			currentTime,
+			resumeState,
+			synchronous,
+			DEFAULT_RESPONSE_TIMEOUT
+		);
+	}
+
+	/**
+	 * Asks the remote application to move the playback position of the media
+	 * referenced by the specified media session ID to the specified position.
+	 * <p>
+	 * This can only succeed if the remote application supports the
+	 * "{@code urn:x-cast:com.google.cast.media}" namespace.
+	 *
+	 * @param session the {@link Session} to use.
+	 * @param mediaSessionId the media session ID for which the pause request
+	 *            applies.
+	 * @param currentTime the new playback position in seconds.
+	 * @param resumeState the desired media player state after the seek is
+	 *            complete. If {@code null}, it will retain the state it had
+	 *            before seeking.
+	 * @param synchronous {@code true} to make this call block until a response
+	 *            is received or times out, {@code false} to make it return
+	 *            immediately always returning {@code null}.
+	 * @param responseTimeout the response timeout in milliseconds if
+	 *            {@code synchronous} is {@code true}. If zero or negative,
+	 *            {@value #DEFAULT_RESPONSE_TIMEOUT} will be used.
+	 * @return The resulting {@link MediaStatus} if {@code synchronous} is
+	 *         {@code true} and a reply is received in time, {@code null} if
+	 *         {@code synchronous} is {@code false}.
+	 * @throws IllegalArgumentException If {@code session} is {@code null}.
+	 * @throws IOException If the response times out or an error occurs during
+	 *             the operation.
+	 */
+	@Nullable
+	public MediaStatus seek(
+		@Nonnull Session session,
+		int mediaSessionId,
+		double currentTime,
+		@Nullable ResumeState resumeState,
+		boolean synchronous,
+		long responseTimeout
+	) throws IOException {
+		requireNotNull(session, "session");
+		MediaStatusResponse status = send(
+			session,
+			"urn:x-cast:com.google.cast.media",
+			new Seek(mediaSessionId, session.id, currentTime, resumeState),
+			session.sourceId,
+			session.destinationId,
+			synchronous ? MediaStatusResponse.class : null,
+			responseTimeout
+		);
+		return status == null || status.getStatuses().isEmpty() ? null : status.getStatuses().get(0);
+	}
+
+	/**
+	 * Asks the remote application to move the playback position of the media
+	 * referenced by the specified media session ID to the specified position
+	 * without blocking.
+	 * <p>
+	 * This can only succeed if the remote application supports the
+	 * "{@code urn:x-cast:com.google.cast.media}" namespace.
+	 *
+	 * @param session the {@link Session} to use.
+	 * @param mediaSessionId the media session ID for which the seek request
+	 *            applies.
+	 * @param currentTime the new playback position in seconds.
+	 * @param resumeState the desired media player state after the seek is
+	 *            complete. If {@code null}, it will retain the state it had
+	 *            before seeking.
+	 * @param responseTimeout the response timeout in milliseconds. If zero or
+	 *            negative, {@value #DEFAULT_RESPONSE_TIMEOUT} will be used.
+	 * @return The {@link CompletableFuture} that will be completed with the
+	 *         resulting {@link MediaStatus}.
+	 * @throws IllegalArgumentException If {@code session} is {@code null}.
+	 */
+	@Nonnull
+	public CompletableFuture<MediaStatus> seekAsync(
+		@Nonnull Session session,
+		int mediaSessionId,
+		double currentTime,
+		@Nullable ResumeState resumeState,
+		long responseTimeout
+	) {
+		requireNotNull(session, "session");
+		return sendMediaRequestAsync(
+			session,
+			new Seek(mediaSessionId, session.id, currentTime, resumeState),
+			responseTimeout
+		);
+	}
+
+	/**
+	 * Asks the remote application to stop playback and unload the media
+	 * referenced by the specified media session ID, using
+	 * {@value #DEFAULT_RESPONSE_TIMEOUT} as the timeout value.
+	 * <p>
+	 * This can only succeed if the remote application supports the
+	 * "{@code urn:x-cast:com.google.cast.media}" namespace.
+	 *
+	 * @param session the {@link Session} to use.
+	 * @param mediaSessionId the media session ID for which the
+	 *            {@link MediaVolume} request applies.
+	 * @param synchronous {@code true} to make this call block until a response
+	 *            is received or times out, {@code false} to make it return
+	 *            immediately always returning {@code null}.
+	 * @return The resulting {@link MediaStatus} if {@code synchronous} is
+	 *         {@code true} and a reply is received in time, {@code null} if
+	 *         {@code synchronous} is {@code false}.
+	 * @throws IllegalArgumentException If {@code session} is {@code null}.
+	 * @throws IOException If the response times out or an error occurs during
+	 *             the operation.
+	 */
+	@Nullable
+	public MediaStatus stopMedia(@Nonnull Session session, int mediaSessionId, boolean synchronous) throws IOException {
+		return stopMedia(session, mediaSessionId, synchronous, DEFAULT_RESPONSE_TIMEOUT);
+	}
+
+	/**
+	 * Asks the remote application to stop playback and unload the media
+	 * referenced by the specified media session ID.
+	 * <p>
+	 * This can only succeed if the remote application supports the
+	 * "{@code urn:x-cast:com.google.cast.media}" namespace.
+	 *
+	 * @param session the {@link Session} to use.
+	 * @param mediaSessionId the media session ID for which the
+	 *            {@link MediaVolume} request applies.
+	 * @param synchronous {@code true} to make this call block until a response
+	 *            is received or times out, {@code false} to make it return
+	 *            immediately always returning {@code null}.
+	 * @param responseTimeout the response timeout in milliseconds if
+	 *            {@code synchronous} is {@code true}. If zero or negative,
+	 *            {@value #DEFAULT_RESPONSE_TIMEOUT} will be used.
+	 * @return The resulting {@link MediaStatus} if {@code synchronous} is
+	 *         {@code true} and a reply is received in time, {@code null} if
+	 *         {@code synchronous} is {@code false}.
+	 * @throws IllegalArgumentException If {@code session} is {@code null}.
+	 * @throws IOException If the response times out or an error occurs during
+	 *             the operation.
+	 */
+	@Nullable
+	public MediaStatus stopMedia(
+		@Nonnull Session session,
+		int mediaSessionId,
+		boolean synchronous,
+		long responseTimeout
+	) throws IOException {
+		requireNotNull(session, "session");
+		MediaStatusResponse status = send(
+			session,
+			"urn:x-cast:com.google.cast.media",
+			new StopMedia(mediaSessionId, null),
+			session.sourceId,
+			session.destinationId,
+			synchronous ? MediaStatusResponse.class : null,
+			responseTimeout
+		);
+		return status == null || status.getStatuses().isEmpty() ? null : status.getStatuses().get(0);
+	}
+
+	/**
+	 * Asks the remote application to stop playback and unload the media
+	 * referenced by the specified media session ID without blocking.
+	 * <p>
+	 * This can only succeed if the remote application supports the
+	 * "{@code urn:x-cast:com.google.cast.media}" namespace.
+	 *
+	 * @param session the {@link Session} to use.
+	 * @param mediaSessionId the media session ID for which the stop request
+	 *            applies.
+	 * @param responseTimeout the response timeout in milliseconds. If zero or
+	 *            negative, {@value #DEFAULT_RESPONSE_TIMEOUT} will be used.
+	 * @return The {@link CompletableFuture} that will be completed with the
+	 *         resulting {@link MediaStatus}.
+	 * @throws IllegalArgumentException If {@code session} is {@code null}.
+	 */
+	@Nonnull
+	public CompletableFuture<MediaStatus> stopMediaAsync(
+		@Nonnull Session session,
+		int mediaSessionId,
+		long responseTimeout
+	) {
+		requireNotNull(session, "session");
+		return sendMediaRequestAsync(session, new StopMedia(mediaSessionId, null), responseTimeout);
+	}
+
+	/**
+	 * Asks the remote application to change the volume level or mute state of
+	 * the stream of the specified media session. Please note that this is
+	 * different from the device volume level or mute state, and that this will
+	 * give the user no visual indication, using
+	 * {@value #DEFAULT_RESPONSE_TIMEOUT} as the timeout value.
+	 * <p>
+	 * This can only succeed if the remote application supports the
+	 * "{@code urn:x-cast:com.google.cast.media}" namespace.
+	 *
+	 * @param session the {@link Session} to use.
+	 * @param mediaSessionId the media session ID for which the
+	 *            {@link MediaVolume} request applies.
+	 * @param volume the {@link MediaVolume} to set.
+	 * @param synchronous {@code true} to make this call block until a response
+	 *            is received or times out, {@code false} to make it return
+	 *            immediately always returning {@code null}.
+	 * @return The resulting {@link MediaStatus} if {@code synchronous} is
+	 *         {@code true} and a reply is received in time, {@code null} if
+	 *         {@code synchronous} is {@code false}.
+	 * @throws IllegalArgumentException If {@code session} or {@code volume} is
+	 *             {@code null}.
+	 * @throws IOException If the response times out or an error occurs during
+	 *             the operation.
+	 */
+	@Nullable
+	public MediaStatus setMediaVolume(
+		@Nonnull Session session,
+		int mediaSessionId,
+		@Nonnull MediaVolume volume,
+		boolean synchronous
+	) throws IOException {
+		return setMediaVolume(
+			session,
+			mediaSessionId,
+			volume,
+			synchronous,
+			DEFAULT_RESPONSE_TIMEOUT
+		);
+	}
+
+	/**
+	 * Asks the remote application to change the volume level or mute state of
+	 * the stream of the specified media session. Please note that this is
+	 * different from the device volume level or mute state, and that this will
+	 * give the user no visual indication.
+	 * <p>
+	 * This can only succeed if the remote application supports the
+	 * "{@code urn:x-cast:com.google.cast.media}" namespace.
+	 *
+	 * @param session the {@link Session} to use.
+	 * @param mediaSessionId the media session ID for which the
+	 *            {@link MediaVolume} request applies.
+	 * @param volume the {@link MediaVolume} to set.
+	 * @param synchronous {@code true} to make this call block until a response
+	 *            is received or times out, {@code false} to make it return
+	 *            immediately always returning {@code null}.
+	 * @param responseTimeout the response timeout in milliseconds if
+	 *            {@code synchronous} is {@code true}. If zero or negative,
+	 *            {@value #DEFAULT_RESPONSE_TIMEOUT} will be used.
+	 * @return The resulting {@link MediaStatus} if {@code synchronous} is
+	 *         {@code true} and a reply is received in time, {@code null} if
+	 *         {@code synchronous} is {@code false}.
+	 * @throws IllegalArgumentException If {@code sessionId} or {@code volume}
+	 *             is {@code null}.
+	 * @throws IllegalArgumentException If {@code session} is {@code null}.
+	 * @throws IOException If the response times out or an error occurs during
+	 *             the operation.
+	 */
+	@Nullable
+	public MediaStatus setMediaVolume(
+		@Nonnull Session session,
+		int mediaSessionId,
+		@Nonnull MediaVolume volume,
+		boolean synchronous,
+		long responseTimeout
+	) throws IOException {
+		requireNotNull(session, "session");
+		MediaStatusResponse status = send(
+			session,
+			"urn:x-cast:com.google.cast.media",
+			new VolumeRequest(session.id, mediaSessionId, volume, null),
+			session.sourceId,
+			session.destinationId,
+			synchronous ? MediaStatusResponse.class : null,
+			responseTimeout
+		);
+		return status == null || status.getStatuses().isEmpty() ? null : status.getStatuses().get(0);
+	}
+
+	/**
+	 * Asks the remote application to change the volume level or mute state of
+	 * the stream of the specified media session without blocking.
+	 * <p>
+	 * This can only succeed if the remote application supports the
+	 * "{@code urn:x-cast:com.google.cast.media}" namespace.
+	 *
+	 * @param session the {@link Session} to use.
+	 * @param mediaSessionId the media session ID for which the
+	 *            {@link MediaVolume} request applies.
+	 * @param volume the {@link MediaVolume} to set.
+	 * @param responseTimeout the response timeout in milliseconds. If zero or
+	 *            negative, {@value #DEFAULT_RESPONSE_TIMEOUT} will be used.
+	 * @return The {@link CompletableFuture} that will be completed with the
+	 *         resulting {@link MediaStatus}.
+	 * @throws IllegalArgumentException If {@code session} or {@code volume} is
+	 *             {@code null}.
+	 */
+	@Nonnull
+	public CompletableFuture<MediaStatus> setMediaVolumeAsync(
+		@Nonnull Session session,
+		int mediaSessionId,
+		@Nonnull MediaVolume volume,
+		long responseTimeout
+	) {
+		requireNotNull(session, "session");
+		requireNotNull(volume, "volume");
+		return sendMediaRequestAsync(
+			session,
+			new VolumeRequest(session.id, mediaSessionId, volume, null),
+			responseTimeout
+		);
+	}
+
+	/**
+	 * Sends the specified {@link Request} to the application with the
+	 * specified {@link Session} using the
+	 * "{@code urn:x-cast:com.google.cast.media}" namespace without blocking.
+	 *
+	 * @param session the {@link Session} to use.
+	 * @param request the {@link Request} to send.
+	 * @param responseTimeout the response timeout in milliseconds. If zero or
+	 *            negative, {@value #DEFAULT_RESPONSE_TIMEOUT} will be used.
+	 * @return The {@link CompletableFuture} that will be completed with the
+	 *         resulting {@link MediaStatus}.
+	 */
+	@Nonnull
+	protected CompletableFuture<MediaStatus> sendMediaRequestAsync(
+		@Nonnull Session session,
+		@Nonnull Request request,
+		long responseTimeout
+	) {
+		return sendAsync(
+			session,
+			"urn:x-cast:com.google.cast.media",
+			request,
+			session.sourceId,
+			session.destinationId,
+			MediaStatusResponse.class,
+			responseTimeout
+		).thenApply(MEDIA_STATUS_EXTRACTOR);
+	}
+
+	/**
+	 * Sets the device {@link Volume} to the values of the specified instance. A
+	 * {@link Volume} instance contains both the volume level and the mute
+	 * state.
+	 * <p>
+	 * If the device has {@link VolumeControlType#MASTER} and the this call
+	 * changes the volume level more than the device specified "step", this
+	 * method will start a {@link Timer} based gradual change towards the
+	 * specified volume level.
+	 *
+	 * @param volume the {@link Volume} instance whose values to set.
+	 * @throws CastException If the cast device has
+	 *             {@link VolumeControlType#FIXED}.
+	 * @throws IOException If an error occurs during the operation.
+	 */
+	@Nullable
+	public void setVolume(Volume volume) throws IOException {
+		if (volume == null) {
+			return;
+		}
+		Volume lastVolume;
+		synchronized (cachedVolumeLock) {
+			lastVolume = cachedVolume;
+		}
+		if (lastVolume != null) {
+			if (lastVolume.getControlType() == VolumeControlType.FIXED) {
+				throw new CastException("Cannot set volume level or mute since the device has a fixed volume");
+			}
+			Double currentLevelObj, targetLevelObj, stepIntervalObj;
+			if (
+				(currentLevelObj = lastVolume.getLevel()) != null &&
+				(targetLevelObj = volume.getLevel()) != null &&
+				lastVolume.getControlType() == VolumeControlType.MASTER &&
+				(stepIntervalObj = lastVolume.getStepInterval()) != null
+			) {
+				GradualVolumeTask task = null;
+				double currentLevel, targetLevel, stepInterval, diff;
+				if (
+					(currentLevel = currentLevelObj.doubleValue()) != (targetLevel = targetLevelObj.doubleValue()) &&
+					(diff = Math.abs(targetLevel - currentLevel)) > (stepInterval = stepIntervalObj.doubleValue())
+				) {
+					int steps = (int) Math.ceil(diff / stepInterval);
+					if (steps > 1) {
+						if (targetLevel < currentLevel) {
+							stepInterval = -stepInterval;
+						}
+						task = new GradualVolumeTask(stepInterval, targetLevel);
+						volume = volume.modify().level(Double.valueOf(currentLevel + stepInterval)).build();
+					}
+				}
+
+				synchronized (gradualVolumeLock) {
+					if (gradualVolumeTask != null) {
+						gradualVolumeTask.cancel();
+					}
+					if (task != null) {
+						if (gradualVolumeTimer == null) {
+							gradualVolumeTimer = new Timer(remoteName + " gradual volume timer");
+						}
+						gradualVolumeTask = task;
+						gradualVolumeTimer.schedule(task, 150, 150);
+					} else if (gradualVolumeTimer != null) {
+						gradualVolumeTimer.cancel();
+						gradualVolumeTimer = null;
+					}
+				}
+			}
+		}
+		doSetVolume(volume, false, DEFAULT_RESPONSE_TIMEOUT);
+	}
+
+	/**
+	 * Sets the device volume level using the specified parameters, without any
+	 * checks or evaluations.
+	 *
+	 * @param volume the {@link Volume} instance to send to the cast device.
+	 * @param synchronous {@code true} to make this call block until a response
+	 *            is received or times out, {@code false} to make it return
+	 *            immediately always returning {@code null}.
+	 * @param responseTimeout the response timeout in milliseconds if
+	 *            {@code synchronous} is {@code true}. If zero or negative,
+	 *            {@value #DEFAULT_RESPONSE_TIMEOUT} will be used.
+	 * @return The resulting {@link ReceiverStatus} if {@code synchronous} is
+	 *         {@code true} and a reply is received in time, {@code null} if
+	 *         {@code synchronous} is {@code false}.
+	 * @throws IOException If the response times out or an error occurs during
+	 *             the operation.
+	 */
+	@Nullable
+	protected ReceiverStatus doSetVolume(Volume volume, boolean synchronous, long responseTimeout) throws IOException {
+		ReceiverStatusResponse status = send(
+			null,
+			"urn:x-cast:com.google.cast.receiver",
+			new SetVolume(volume),
+			PLATFORM_SENDER_ID,
+			PLATFORM_RECEIVER_ID,
+			synchronous ? ReceiverStatusResponse.class : null,
+			responseTimeout
+		);
+		ReceiverStatus result;
+		if (status == null || (result = status.getStatus()) == null) {
+			return null;
+		}
+		updateReceiverStatus(result);
+		return result;
+	}
+
+	/**
+	 * Sends the specified {@link Request} with the specified namespace using
+	 * the specified {@link Session} and {@value #DEFAULT_RESPONSE_TIMEOUT} as
+	 * the timeout value.
+	 *
+	 * @param <T> the class of the {@link Response} object.
+	 * @param session the {@link Session} to use.
+	 * @param namespace the namespace to use.
+	 * @param request the {@link Request} to send.
+	 * @param responseClass the response class to to block and wait for a
+	 *            response or {@code null} to return immediately.
+	 * @return The {@link Response} if the response is received in time, or
+	 *         {@code null} if the {@code responseClass} is {@code null} or a
+	 *         timeout occurs.
+	 * @throws IllegalArgumentException If {@link Session} is {@code null} or if
+	 *             {@code namespace} is {@code null} or invalid (see
+	 *             {@link #validateNamespace(String)} for constraints).
+	 * @throws IOException If an error occurs during the operation.
+	 */
+	public <T extends Response> T sendGenericRequest(
+		@Nonnull Session session,
+		@Nonnull String namespace,
+		Request request,
+		Class<T> responseClass
+	) throws IOException {
+		requireNotNull(session, "session");
+		return send(
+			session,
+			namespace,
+			request,
+			session.sourceId,
+			session.destinationId,
+			responseClass,
+			DEFAULT_RESPONSE_TIMEOUT
+		);
+	}
+
+	/**
+	 * Sends the specified {@link Request} with the specified namespace using
+	 * the specified {@link Session}.
+	 *
+	 * @param <T> the class of the {@link Response} object.
+	 * @param session the {@link Session} to use.
+	 * @param namespace the namespace to use.
+	 * @param request the {@link Request} to send.
+	 * @param responseClass the response class to to block and wait for a
+	 *            response or {@code null} to return immediately.
+	 * @param responseTimeout the response timeout in milliseconds if
+	 *            {@code responseClass} is non-{@code null}. If zero or
+	 *            negative, {@value #DEFAULT_RESPONSE_TIMEOUT} will be used.
+	 * @return The {@link Response} if the response is received in time, or
+	 *         {@code null} if the {@code responseClass} is {@code null} or a
+	 *         timeout occurs.
+	 * @throws IllegalArgumentException If {@link Session} is {@code null} or if
+	 *             {@code namespace} is {@code null} or invalid (see
+	 *             {@link #validateNamespace(String)} for constraints).
+	 * @throws IOException If an error occurs during the operation.
+	 */
+	public <T extends Response> T sendGenericRequest(
+		@Nonnull Session session,
+		@Nonnull String namespace,
+		Request request,
+		Class<T> responseClass,
+		long responseTimeout
+	) throws IOException {
+		requireNotNull(session, "session");
+		return send(
+			session,
+			namespace,
+			request,
+			session.sourceId,
+			session.destinationId,
+			responseClass,
+			responseTimeout
+		);
+	}
+
+	/**
+	 * Sends the specified {@link Request} with the specified namespace using
+	 * the specified source and destination IDs and
+	 * {@value #DEFAULT_RESPONSE_TIMEOUT} as the timeout value. This is for
+	 * requests that aren't associated with a {@link Session}.
+	 *
+	 * @param <T> the class of the {@link Response} object.
+	 * @param sourceId the source ID to use.
+	 * @param destinationId the destination ID to use.
+	 * @param namespace the namespace to use.
+	 * @param request the {@link Request} to send.
+	 * @param responseClass the response class to to block and wait for a
+	 *            response or {@code null} to return immediately.
+	 * @return The {@link Response} if the response is received in time, or
+	 *         {@code null} if the {@code responseClass} is {@code null} or a
+	 *         timeout occurs.
+	 * @throws IllegalArgumentException If {@code namespace} is {@code null} or
+	 *             invalid (see {@link #validateNamespace(String)} for
+	 *             constraints).
+	 * @throws IOException If an error occurs during the operation.
+	 */
+	public <T extends Response> T sendGenericRequest(
+		@Nonnull String sourceId,
+		@Nonnull String destinationId,
+		@Nonnull String namespace,
+		Request request,
+		Class<T> responseClass
+	) throws IOException {
+		return send(null, namespace, request, sourceId, destinationId, responseClass, DEFAULT_RESPONSE_TIMEOUT);
+	}
+
+	/**
+	 * Sends the specified {@link Request} with the specified namespace using
+	 * the specified source and destination IDs. This is for requests that
+	 * aren't associated with a {@link Session}.
+	 *
+	 * @param <T> the class of the {@link Response} object.
+	 * @param sourceId the source ID to use.
+	 * @param destinationId the destination ID to use.
+	 * @param namespace the namespace to use.
+	 * @param request the {@link Request} to send.
+	 * @param responseClass the response class to to block and wait for a
+	 *            response or {@code null} to return immediately.
+	 * @param responseTimeout the response timeout in milliseconds if
+	 *            {@code responseClass} is non-{@code null}. If zero or
+	 *            negative, {@value #DEFAULT_RESPONSE_TIMEOUT} will be used.
+	 * @return The {@link Response} if the response is received in time, or
+	 *         {@code null} if the {@code responseClass} is {@code null} or a
+	 *         timeout occurs.
+	 * @throws IllegalArgumentException If {@code namespace} is {@code null} or
+	 *             invalid (see {@link #validateNamespace(String)} for
+	 *             constraints).
+	 * @throws IOException If an error occurs during the operation.
+	 */
+	public <T extends Response> T sendGenericRequest(
+		@Nonnull String sourceId,
+		@Nonnull String destinationId,
+		@Nonnull String namespace,
+		Request request,
+		Class<T> responseClass,
+		long responseTimeout
+	) throws IOException {
+		return send(null, namespace, request, sourceId, destinationId, responseClass, responseTimeout);
+	}
+
+	/**
+	 * Sends the specified {@link Request} with the specified namespace using
+	 * the specified {@link Session} without blocking.
+	 *
+	 * @param <T> the class of the {@link Response} object.
+	 * @param session the {@link Session} to use.
+	 * @param namespace the namespace to use.
+	 * @param request the {@link Request} to send.
+	 * @param responseClass the response class to expect, or {@code null} to
+	 *            complete as soon as the {@link Request} has been sent.
+	 * @param responseTimeout the response timeout in milliseconds. If zero or
+	 *            negative, {@value #DEFAULT_RESPONSE_TIMEOUT} will be used.
+	 * @return The {@link CompletableFuture} that will be completed with the
+	 *         {@link Response}.
+	 * @throws IllegalArgumentException If {@code session} is {@code null} or
+	 *             {@code namespace} is {@code null} or invalid.
+	 */
+	@Nonnull
+	public <T extends Response> CompletableFuture<T> sendGenericRequestAsync(
+		@Nonnull Session session,
+		@Nonnull String namespace,
+		Request request,
+		@Nullable Class<T> responseClass,
+		long responseTimeout
+	) {
+		requireNotNull(session, "session");
+		return sendAsync(
+			session,
+			namespace,
+			request,
+			session.sourceId,
+			session.destinationId,
+			responseClass,
+			responseTimeout
+		);
+	}
+
+	/**
+	 * Stores the specified {@link ReceiverStatus} in the mirror, caches its
+	 * {@link Volume} and removes the media sessions of applications that are
+	 * no longer running, unless {@code receiverStatus} is {@code null}.
+	 *
+	 * @param receiverStatus the received {@link ReceiverStatus}.
+	 */
+	protected void updateReceiverStatus(@Nullable ReceiverStatus receiverStatus) {
+		if (receiverStatus == null) {
+			return;
+		}
+		receiverStatusMirror = new Timestamped<>(receiverStatus);
+		cacheVolume(receiverStatus);
+		removeEndedMediaSessions(receiverStatus);
+	}
+
+	/**
+	 * Returns the last {@link ReceiverStatus} received from the cast device,
+	 * either as a response or as an event, without sending any request.
+	 *
+	 * @param maxAge the maximum age of the {@link ReceiverStatus} in
+	 *            milliseconds, or a negative value for no limit.
+	 * @return The mirrored {@link ReceiverStatus} or {@code null} if none has
+	 *         been received since the connection was opened or if it's older
+	 *         than {@code maxAge}.
+	 */
+	@Nullable
+	public ReceiverStatus getMirroredReceiverStatus(long maxAge) {
+		Timestamped<ReceiverStatus> mirror = receiverStatusMirror;
+		if (mirror == null || (maxAge >= 0L && mirror.getAge() > maxAge)) {
+			return null;
+		}
+		return mirror.value;
+	}
+
+	/**
+	 * Returns the mirrored {@link ReceiverStatus} if it's no older than the
+	 * specified maximum age, or requests a new {@link ReceiverStatus} from the
+	 * cast device if it is. Since the cast device pushes status updates when
+	 * something changes, this avoids a round trip in most cases.
+	 *
+	 * @param maxAge the maximum age of the mirrored {@link ReceiverStatus} in
+	 *            milliseconds.
+	 * @param responseTimeout the response timeout in milliseconds if a
+	 *            request is needed. If zero or negative,
+	 *            {@value #DEFAULT_RESPONSE_TIMEOUT} will be used.
+	 * @return The {@link CompletableFuture} that will be completed with the
+	 *         resulting {@link ReceiverStatus}.
+	 */
+	@Nonnull
+	public CompletableFuture<ReceiverStatus> getRecentReceiverStatusAsync(long maxAge, long responseTimeout) {
+		ReceiverStatus status = getMirroredReceiverStatus(Math.max(maxAge, 0L));
+		if (status != null) {
+			return CompletableFuture.completedFuture(status);
+		}
+		return getReceiverStatusAsync(responseTimeout);
+	}
+
+	/**
+	 * Returns the mirrored {@link ReceiverStatus} if it's no older than the
+	 * specified maximum age, or requests a new {@link ReceiverStatus} from the
+	 * cast device if it is, using {@value #DEFAULT_RESPONSE_TIMEOUT} as the
+	 * timeout value.
+	 *
+	 * @param maxAge the maximum age of the mirrored {@link ReceiverStatus} in
+	 *            milliseconds.
+	 * @return The resulting {@link ReceiverStatus}.
+	 * @throws IOException If a request is needed and the response times out
+	 *             or an error occurs during the operation.
+	 */
+	@Nullable
+	public ReceiverStatus getRecentReceiverStatus(long maxAge) throws IOException {
+		ReceiverStatus status = getMirroredReceiverStatus(Math.max(maxAge, 0L));
+		return status != null ? status : getReceiverStatus(DEFAULT_RESPONSE_TIMEOUT);
+	}
+
+	/**
+	 * Caches the {@link Volume} instance from the specified
+	 * {@link ReceiverStatus} as as long as neither are {@code null}.
+	 *
+	 * @param receiverStatus the {@link ReceiverStatus} from which to get the
+	 *            {@link Volume} to store.
+	 */
+	protected void cacheVolume(@Nullable ReceiverStatus receiverStatus) {
+		Volume volume;
+		if (receiverStatus != null && (volume = receiverStatus.getVolume()) != null) {
+			cacheVolume(volume);
+		}
+	}
+
+	/**
+	 * Caches the specified {@link Volume} instance as long as it's not
+	 * {@code null}.
+	 *
+	 * @param volume the {@link Volume} instance to store.
+	 */
+	protected void cacheVolume(@Nullable Volume volume) {
+		if (volume == null) {
+			return;
+		}
+		boolean setVolume;
+		synchronized (cachedVolumeLock) {
+			setVolume = cachedVolume == null;
+			cachedVolume = volume;
+		}
+
+		if (
+			setVolume &&
+			volume.getControlType() != VolumeControlType.FIXED &&
+			volume.getLevel() != null &&
+			volume.getLevel().doubleValue() < 1.0
+		) {
+			// There's a long-standing bug in the ChromeCast software that resets
+			// the device volume to 100% when the device is restarted. It correctly
+			// reports the volume level it's supposed to have, but audio is played
+			// back with 100% volume regardless. This little trick is to mitigate
+			// the bug by setting the volume to what the device reports the first
+			// time we receive one. Hopefully this won't negatively impact devices
+			// without the bug.
+			final double targetLevel = volume.getLevel().doubleValue();
+			final double interrimLevel;
+			if (targetLevel > 0.1) {
+				interrimLevel = targetLevel - 0.05;
+			} else {
+				interrimLevel = targetLevel + 0.05;
+			}
+
+			try {
+				CastDevice.EXECUTOR.execute(new Runnable() {
+
+					@Override
+					public void run() {
+						try {
+							send(
+								null,
+								"urn:x-cast:com.google.cast.receiver",
+								new SetVolume(new Volume(null, Double.valueOf(interrimLevel), null, null)),
+								PLATFORM_SENDER_ID,
+								PLATFORM_RECEIVER_ID,
+								null,
+								0L
+							);
+						} catch (IOException e) {
+							LOGGER.warn(
+								CAST_API_MARKER,
+								"Failed to set the initial interrim volume on {}: {}",
+								remoteName,
+								e.getMessage()
+							);
+							LOGGER.trace(CAST_API_MARKER, "", e);
+						}
+					}
+				});
+				CastDevice.EXECUTOR.execute(new Runnable() {
+
+					@Override
+					public void run() {
+						try {
+							Thread.sleep(150L);
+							send(
+								null,
+								"urn:x-cast:com.google.cast.receiver",
+								new SetVolume(new Volume(null, Double.valueOf(targetLevel), null, null)),
+								PLATFORM_SENDER_ID,
+								PLATFORM_RECEIVER_ID,
+								null,
+								0L
+							);
+						} catch (IOException | InterruptedException e) {
+							LOGGER.warn(
+								CAST_API_MARKER,
+								"Failed to set the initial volume on {}: {}",
+								remoteName,
+								e.getMessage()
+							);
+							LOGGER.trace(CAST_API_MARKER, "", e);
+						}
+					}
+				});
+			} catch (RejectedExecutionException e) {
+				LOGGER.warn(
+					CAST_API_MARKER,
+					"Failed to refresh the initial volume on {} because the executor rejected executing the task: {}",
+					remoteName,
+					e.getMessage()
+				);
+			}
+		}
+	}
+
+	/**
+	 * Claims (retrieves and removes from {@code requests}) the
+	 * {@link ResultProcessorResult} for the specified request ID if one exists.
+	 *
+	 * @param requestId the request ID to look up.
+	 * @return The one and only {@link ResultProcessor} instance for the
+	 *         specified request ID if it exists and hasn't already been
+	 *         claimed, or {@code null}.
+	 */
+	@Nullable
+	protected ResultProcessor<? extends Response> acquireResultProcessor(long requestId) {
+		if (requestId < 1L) {
+			return null;
+		}
+		ResultProcessor<? extends Response> result = requests.remove(requestId);
+		if (result != null) {
+			removeFromSessionIndex(result);
+		}
+		return result;
+	}
+
+	/**
+	 * Registers the specified {@link ResultProcessor} so that it will receive
+	 * the response to its request.
+	 *
+	 * @param processor the {@link ResultProcessor} to register.
+	 */
+	protected void registerResultProcessor(@Nonnull ResultProcessor<? extends Response> processor) {
+		requests.putIfAbsent(processor.requestId, processor);
+		Session session = processor.session;
+		String destinationId;
+		if (session != null && (destinationId = session.getDestinationId()) != null) {
+			Set<ResultProcessor<? extends Response>> processors = sessionRequests.get(destinationId);
+			while (true) {
+				if (processors == null) {
+					processors = ConcurrentHashMap.newKeySet();
+					processors.add(processor);
+					Set<ResultProcessor<? extends Response>> existing = sessionRequests.putIfAbsent(
+						destinationId,
+						processors
+					);
+					if (existing == null) {
+						return;
+					}
+					processors = existing;
+				} else {
+					processors.add(processor);
+					if (sessionRequests.get(destinationId) == processors) {
+						return;
+					}
+					// The set was discarded concurrently, try again
+					processors.remove(processor);
+					processors = sessionRequests.get(destinationId);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Unregisters the specified {@link ResultProcessor} if it's registered.
+	 *
+	 * @param processor the {@link ResultProcessor} to unregister.
+	 * @return {@code true} if {@code processor} was registered, {@code false}
+	 *         otherwise.
+	 */
+	protected boolean unregisterResultProcessor(@Nonnull ResultProcessor<? extends Response> processor) {
+		if (requests.remove(processor.requestId, processor) == null) {
+			return false;
+		}
+		removeFromSessionIndex(processor);
+		return true;
+	}
+
+	/**
+	 * Removes the specified {@link ResultProcessor} from the {@link Session}
+	 * index, discarding the {@link Session}'s {@link Set} if it becomes empty.
+	 *
+	 * @param processor the {@link ResultProcessor} to remove.
+	 */
+	protected void removeFromSessionIndex(@Nonnull ResultProcessor<? extends Response> processor) {
+		Session session = processor.session;
+		String destinationId;
+		if (session == null || (destinationId = session.getDestinationId()) == null) {
+			return;
+		}
+		Set<ResultProcessor<? extends Response>> processors = sessionRequests.get(destinationId);
+		if (processors != null && processors.remove(processor) && processors.isEmpty()) {
+			sessionRequests.remove(destinationId, processors);
+		}
+	}
+
+	/**
+	 * Writes the specified {@link Message} to the socket using the specified
+	 * parameters. This method blocks until the message has been written.
+	 *
+	 * @param namespace the namespace to use.
+	 * @param message the {@link Message} to write.
+	 * @param sourceId the source ID to use.
+	 * @param destinationId the destination ID to use.
+	 * @throws IOException If an error occurs during the operation.
+	 */
+	protected void write(String namespace, Message message, String sourceId, String destinationId) throws IOException {
+		waitFor(enqueue(namespace, message, sourceId, destinationId));
+	}
+
+	/**
+	 * Writes the specified ({@code JSON} formatted) {@link String} to the
+	 * socket using the specified parameters. This method blocks until the
+	 * message has been written.
+	 *
+	 * @param namespace the namespace to use.
+	 * @param message the message content to write.
+	 * @param sourceId the source ID to use.
+	 * @param destinationId the destination ID to use.
+	 * @throws IOException If an error occurs during the operation.
+	 */
+	protected void write(String namespace, String message, String sourceId, String destinationId) throws IOException {
+		waitFor(enqueue(namespace, message, sourceId, destinationId));
+	}
+
+	/**
+	 * Writes the specified {@link CastMessage} to the socket. This method
+	 * blocks until the message has been written.
+	 *
+	 * @param message the {@link CastMessage} to write.
+	 * @throws IOException If an error occurs during the operation.
+	 */
+	protected void write(CastMessage message) throws IOException {
+		waitFor(enqueue(message));
+	}
+
+	/**
+	 * Queues the specified {@link Message} for writing to the socket using
+	 * the specified parameters. This method never blocks.
+	 *
+	 * @param namespace the namespace to use.
+	 * @param message the {@link Message} to write.
+	 * @param sourceId the source ID to use.
+	 * @param destinationId the destination ID to use.
+	 * @return The {@link CompletableFuture} that completes when the message
+	 *         has been written.
+	 */
+	@Nonnull
+	protected CompletableFuture<Void> enqueue(String namespace, Message message, String sourceId, String destinationId) {
+		String json;
+		try {
+			json = JacksonHelper.writerFor(message.getClass()).writeValueAsString(message);
+		} catch (JsonProcessingException e) {
+			return Util.failedFuture(e);
+		}
+		return enqueue(namespace, json, sourceId, destinationId);
+	}
+
+	/**
+	 * Queues the specified ({@code JSON} formatted) {@link String} for
+	 * writing to the socket using the specified parameters. This method never
+	 * blocks.
+	 *
+	 * @param namespace the namespace to use.
+	 * @param message the message content to write.
+	 * @param sourceId the source ID to use.
+	 * @param destinationId the destination ID to use.
+	 * @return The {@link CompletableFuture} that completes when the message
+	 *         has been written.
+	 */
+	@Nonnull
+	protected CompletableFuture<Void> enqueue(String namespace, String message, String sourceId, String destinationId) {
+		return enqueue(createStringMessage(namespace, message, sourceId, destinationId));
+	}
+
+	/**
+	 * Creates a {@link CastMessage} with the specified ({@code JSON}
+	 * formatted) {@link String} as its payload.
+	 *
+	 * @param namespace the namespace to use.
+	 * @param message the message content.
+	 * @param sourceId the source ID to use.
+	 * @param destinationId the destination ID to use.
+	 * @return The new {@link CastMessage}.
+	 */
+	@Nonnull
+	protected CastMessage createStringMessage(String namespace, String message, String sourceId, String destinationId) {
+		LOGGER.debug(
+			CAST_API_MARKER,
+			"Sending message to {} with namespace '{}': \"{}\"",
+			remoteName,
+			namespace,
+			message
+		);
+		return CastMessage.newBuilder()
+			.setProtocolVersion(CastMessage.ProtocolVersion.CASTV2_1_0)
+			.setSourceId(sourceId)
+			.setDestinationId(destinationId)
+			.setNamespace(namespace)
+			.setPayloadType(CastMessage.PayloadType.STRING)
+			.setPayloadUtf8(message)
+			.build();
+	}
+
+	/**
+	 * Queues the specified {@link CastMessage} for writing to the socket. This
+	 * method never blocks. Heartbeat and authentication messages are written
+	 * before any other queued messages.
+	 *
+	 * @param message the {@link CastMessage} to write.
+	 * @return The {@link CompletableFuture} that completes when the message
+	 *         has been written, or completes exceptionally if the socket is
+	 *         closed, the outbound queue is full or the write fails.
+	 */
+	@Nonnull
+	protected CompletableFuture<Void> enqueue(@Nonnull CastMessage message) {
+		SharedSelector.Connection tmpConnection = connection;
+		if (tmpConnection != null) {
+			// The shared selector has its own non-blocking outbound lanes
+			return tmpConnection.write(
+				Collections.singletonList(message),
+				getPriority(message.getNamespace()) == Priority.CONTROL
+			);
+		}
+		OutboundQueue queue;
+		socketLock.lock();
+		try {
+			if (socket == null || outboundQueue == null) {
+				return Util.failedFuture(new SocketException("Socket is null"));
+			}
+			queue = outboundQueue;
+		} finally {
+			socketLock.unlock();
+		}
+		return queue.enqueue(message, getPriority(message.getNamespace()));
+	}
+
+	/**
+	 * Queues the specified {@link CastMessage}s for writing to the socket as
+	 * one unit, so that they're written back-to-back. This method never
+	 * blocks.
+	 *
+	 * @param messages the {@link CastMessage}s to write.
+	 * @return The {@link CompletableFuture} that completes when all the
+	 *         messages have been written, or completes exceptionally if the
+	 *         socket is closed, the outbound queue is full or a write fails.
+	 */
+	@Nonnull
+	protected CompletableFuture<Void> enqueueAll(@Nonnull List<CastMessage> messages) {
+		Priority priority = Priority.CONTROL;
+		for (CastMessage message : messages) {
+			if (getPriority(message.getNamespace()) != Priority.CONTROL) {
+				priority = Priority.NORMAL;
+				break;
+			}
+		}
+		SharedSelector.Connection tmpConnection = connection;
+		if (tmpConnection != null) {
+			// Frames queued together are gathered into the same flush by the selector
+			return tmpConnection.write(messages, priority == Priority.CONTROL);
+		}
+		OutboundQueue queue;
+		socketLock.lock();
+		try {
+			if (socket == null || outboundQueue == null) {
+				return Util.failedFuture(new SocketException("Socket is null"));
+			}
+			queue = outboundQueue;
+		} finally {
+			socketLock.unlock();
+		}
+		return queue.enqueueAll(messages, priority);
+	}
+
+	/**
+	 * Returns the number of messages waiting in the outbound queue.
+	 *
+	 * @return The number of queued messages, always zero when using a
+	 *         {@link SharedSelector} or when this {@link Channel} is closed.
+	 */
+	public int getOutboundQueueSize() {
+		OutboundQueue queue;
+		socketLock.lock();
+		try {
+			queue = outboundQueue;
+		} finally {
+			socketLock.unlock();
+		}
+		return queue == null ? 0 : queue.size();
+	}
+
+	/**
+	 * Returns the {@link Priority} to use for outgoing messages with the
+	 * specified namespace.
+	 *
+	 * @param namespace the namespace.
+	 * @return {@link Priority#CONTROL} for heartbeat and authentication
+	 *         messages, {@link Priority#NORMAL} otherwise. Virtual connection
+	 *         messages are {@link Priority#NORMAL}, since a {@code CLOSE}
+	 *         mustn't overtake the messages queued before it.
+	 */
+	@Nonnull
+	protected static Priority getPriority(@Nullable String namespace) {
+		if (namespace == null) {
+			return Priority.NORMAL;
+		}
+		switch (namespace) {
+			case "urn:x-cast:com.google.cast.tp.heartbeat":
+			case "urn:x-cast:com.google.cast.tp.deviceauth":
+				return Priority.CONTROL;
+			default:
+				return Priority.NORMAL;
+		}
+	}
+
+	/**
+	 * Loops through any requests waiting for a response and cancels any that
+	 * waits for a reply from the specified peer/destination ID. This is to be
+	 * used when the {@link Session} with the specified peer/destination ID has
+	 * been closed, since there's no point in waiting for a response that will
+	 * never arrive.
+	 *
+	 * @param peerId the peer/destination ID that whose {@link Session} has been
+	 *            closed.
+	 * @return {@code true} if a waiting request was cancelled, {@code false}
+	 *         otherwise.
+	 */
+	protected boolean cancelPendingClosed(@Nullable String peerId) {
+		if (isBlank(peerId)) {
+			return false;
+		}
+		Set<ResultProcessor<? extends Response>> processors = sessionRequests.remove(peerId);
+		if (processors == null) {
+			return false;
+		}
+		boolean result = false;
+		for (ResultProcessor<? extends Response> processor : processors) {
+			if (requests.remove(processor.requestId, processor) != null) {
+				processor.sessionClosed();
+				result = true;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Cancels all requests waiting for a response that belong to a
+	 * {@link Session}. This is to be used when the connection disconnects,
+	 * since there's no point in waiting for a response that will never arrive.
+	 */
+	protected void cancelPendingDisconnected() {
+		for (String peerId : sessionRequests.keySet()) {
+			cancelPendingClosed(peerId);
+		}
+	}
+
+	/**
+	 * Reads the next {@link CastMessage} from the specified {@link InputStream}
+	 * in a blocking fashion. This method will not return until a message is
+	 * either completely read, {@code EOF} is reached or an {@link IOException}
+	 * is thrown.
+	 * <p>
+	 * This reads exactly one message without buffering, use a
+	 * {@link FrameDecoder} to read consecutive messages from the same
+	 * {@link InputStream}.
+	 *
+	 * @param inputStream the {@link InputStream} from which to read.
+	 * @return The resulting {@link ImmutableCastMessage}.
+	 * @throws IOException If {@code EOF} is reached or an error occurs-.
+	 */
+	@Nonnull
+	protected static ImmutableCastMessage readMessage(InputStream inputStream) throws IOException {
+		int size = readB32Int(inputStream);
+		if (size < 0 || size > SharedSelector.MAX_FRAME_SIZE) {
+			throw new CastException("Invalid message size " + size);
+		}
+		byte[] buf = new byte[size];
+		int read = 0;
+		while (read < size) {
+			int readNow = inputStream.read(buf, read, buf.length - read);
+			if (readNow == -1) {
+				throw new CastException("Incomplete message, ended after reading " + read + " of " + size + " bytes");
+			}
+			read += readNow;
+		}
+		return ImmutableCastMessage.create(CastMessage.parseFrom(buf));
+	}
+
+	/**
+	 * Creates the {@link Map} of "standard response" type names and classes
+	 * from {@link #STANDARD_RESPONSE_TYPES}.
+	 *
+	 * @return The new {@link Map}.
+	 */
+	@Nonnull
+	protected static Map<String, Class<?>> createStandardResponseClasses() {
+		Map<String, Class<?>> result = new HashMap<>(STANDARD_RESPONSE_TYPES.length * 2);
+		for (JsonSubTypes.Type type : STANDARD_RESPONSE_TYPES) {
+			result.put(type.name(), type.value());
+		}
+		return Collections.unmodifiableMap(result);
+	}
+
+	/**
+	 * Creates the {@link ExecutorService} that runs the {@link OutboundQueue}
+	 * writer tasks for all {@link Channel}s, using at most
+	 * {@link #DEFAULT_WRITER_THREADS} threads. A writer task only runs while
+	 * its queue has messages, so idle channels don't occupy a thread, and each
+	 * queue has at most one writer task, so the task queue is bounded by the
+	 * number of channels. A write that blocks for longer than
+	 * {@link #DEFAULT_WRITE_TIMEOUT} closes its connection, so that peers that
+	 * stop reading can't occupy the threads indefinitely.
+	 *
+	 * @return The new {@link ExecutorService}.
+	 */
+	@Nonnull
+	protected static ExecutorService createWriterExecutor() {
+		ThreadPoolExecutor result = new ThreadPoolExecutor(
+			DEFAULT_WRITER_THREADS,
+			DEFAULT_WRITER_THREADS,
+			60L,
+			TimeUnit.SECONDS,
+			new LinkedBlockingQueue<Runnable>(),
+			VirtualThreads.newThreadFactory("Cast API writer", true)
+		);
+		result.allowCoreThreadTimeOut(true);
+		return result;
+	}
+
+	/**
+	 * Creates the {@link ScheduledThreadPoolExecutor} used to send
+	 * {@code PING} requests for all {@link Channel}s.
+	 *
+	 * @return The new {@link ScheduledThreadPoolExecutor}.
+	 */
+	@Nonnull
+	protected static ScheduledThreadPoolExecutor createHeartbeatScheduler() {
+		ScheduledThreadPoolExecutor result = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "Cast API heartbeat scheduler");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		result.setRemoveOnCancelPolicy(true);
+		return result;
+	}
+
+	/**
+	 * Creates a heartbeat {@link CastMessage} from the platform sender to the
+	 * platform receiver containing the specified {@link Message}.
+	 *
+	 * @param message the {@link Message} to use as the payload.
+	 * @param mapper the {@link ObjectMapper} to use for serialization.
+	 * @return The new {@link CastMessage}.
+	 * @throws AssertionError If {@code mapper} can't serialize
+	 *             {@code message}.
+	 */
+	@Nonnull
+	protected static CastMessage createHeartbeatMessage(@Nonnull Message message, @Nonnull ObjectMapper mapper) {
+		String messageString;
+		try {
+			messageString = mapper.writeValueAsString(message);
+		} catch (JsonProcessingException e) {
+			throw new AssertionError("Couldn't generate JSON for heartbeat message: " + e.getMessage());
+		}
+		return CastMessage.newBuilder()
+			.setProtocolVersion(CastMessage.ProtocolVersion.CASTV2_1_0)
+			.setSourceId(PLATFORM_SENDER_ID)
+			.setDestinationId(PLATFORM_RECEIVER_ID)
+			.setNamespace("urn:x-cast:com.google.cast.tp.heartbeat")
+			.setPayloadType(CastMessage.PayloadType.STRING)
+			.setPayloadUtf8(messageString)
+			.build();
+	}
+
+	/**
+	 * Determines if the message referenced by the specified {@link JsonNode} is
+	 * among the "standard responses" by looking at the {@code type} field
+	 * exclusively.
+	 *
+	 * @param parsedMessage the {@link JsonNode} referencing a parsed, received
+	 *            message.
+	 * @return {@code true} if the message is deemed not to be among the
+	 *         "standard responses", {@code false} if it is.
+	 */
+	protected static boolean isCustomMessage(@Nullable JsonNode parsedMessage) {
+		if (parsedMessage == null) {
+			return true;
+		}
+		JsonNode typeNode = parsedMessage.get("responseType");
+		return typeNode == null || isCustomMessage(typeNode.asText());
+	}
+
+	/**
+	 * Determines if the specified message type is among the "standard
+	 * responses".
+	 *
+	 * @param responseType the message type.
+	 * @return {@code true} if the message type is deemed not to be among the
+	 *         "standard responses", {@code false} if it is.
+	 */
+	protected static boolean isCustomMessage(@Nullable String responseType) {
+		return responseType == null || !STANDARD_RESPONSE_CLASSES.containsKey(responseType);
+	}
+
+	/**
+	 * Creates a {@link JsonParser} for the specified {@code JSON} message
+	 * where a top-level {@code type} field is presented as
+	 * {@code responseType}, which is what the {@link StandardResponse} type
+	 * information uses.
+	 *
+	 * @param jsonMessage the {@code JSON} message.
+	 * @return The new {@link JsonParser}.
+	 * @throws IOException If the {@link JsonParser} can't be created.
+	 */
+	@Nonnull
+	protected JsonParser createResponseParser(@Nonnull String jsonMessage) throws IOException {
+		return new TypeRenamingParser(jsonMapper.getFactory().createParser(jsonMessage));
+	}
+
+	/**
+	 * Processes a single incoming message, regardless of which transport it
+	 * was received on.
+	 *
+	 * @param message the {@link ImmutableCastMessage} to process.
+	 * @throws IOException If an error occurs during the operation.
+	 */
+	protected void processMessage(@Nullable ImmutableCastMessage message) throws IOException {
+		String jsonMessage;
+		if (message instanceof ImmutableStringCastMessage) {
+			jsonMessage = ((ImmutableStringCastMessage) message).getPayload();
+			if (isBlank(jsonMessage)) {
+				LOGGER.trace(
+					CAST_API_MARKER,
+					"{}: Received an empty string message - ignoring",
+					remoteName
+				);
+				return;
+			}
+			if ("urn:x-cast:com.google.cast.tp.heartbeat".equals(message.getNamespace())) {
+				// Deal with PING/PONG directly
+				String responseType = MessageHeader.scan(jsonMapper.getFactory(), jsonMessage).getResponseType();
+				if ("PING".equals(responseType)) {
+					LOGGER.trace(
+						CAST_API_HEARTBEAT_MARKER,
+						"Received PING from {}, replying with PONG",
+						remoteName
+					);
+					// Don't wait for the write, this might be the selector thread
+					enqueue(pongMessage).whenComplete(new BiConsumer<Void, Throwable>() {
+
+						@Override
+						public void accept(Void result, Throwable throwable) {
+							if (throwable != null) {
+								LOGGER.warn(
+									CAST_API_MARKER,
+									"An error occurred while sending 'PONG' to {}: {}",
+									remoteName,
+									throwable.getMessage()
+								);
+								LOGGER.trace(CAST_API_MARKER, "", throwable);
+							}
+						}
+					});
+				} else if ("PONG".equals(responseType)) {
+					LOGGER.trace(CAST_API_HEARTBEAT_MARKER, "Received PONG from {}", remoteName);
+					lastPongTime = System.currentTimeMillis();
+					unansweredPings.set(0);
+				} else {
+					LOGGER.trace(
+						CAST_API_HEARTBEAT_MARKER,
+						"Received unexpected heartbeat message of type \"{}\" from {}",
+						responseType,
+						remoteName
+					);
+				}
+				return;
+			}
+			LOGGER.trace(
+				CAST_API_MARKER,
+				"{}: Received string message \"{}\"",
+				remoteName,
+				jsonMessage
+			);
+			processStringMessage((ImmutableStringCastMessage) message, jsonMessage);
+		} else if (message != null) {
+			LOGGER.trace(
+				CAST_API_MARKER,
+				"{}: Received message with binary payload ({} bytes)",
+				remoteName,
+				((ImmutableBinaryCastMessage) message).getPayload() == null ?
+					"unknown number of" :
+					((ImmutableBinaryCastMessage) message).getPayload().size()
+			);
+			listeners.fire(new DefaultCastEvent<>(CastEventType.CUSTOM_MESSAGE, new CustomMessageEvent(
+				message.getSourceId(),
+				message.getDestinationId(),
+				message.getNamespace(),
+				((ImmutableBinaryCastMessage) message).getPayload()
+			)));
+		} else {
+			LOGGER.warn(
+				CAST_API_MARKER,
+				"{}: Received a null message",
+				remoteName
+			);
+		}
+	}
+
+	/**
+	 * Processes a single incoming string-based message from the specified
+	 * parameters.
+	 *
+	 * @param message the {@link ImmutableStringCastMessage} to process.
+	 * @param jsonMessage the adapted string payload to use.
+	 */
+	protected void processStringMessage(@Nonnull ImmutableStringCastMessage message, @Nonnull String jsonMessage) {
+		try {
+			MessageHeader header = MessageHeader.scan(jsonMapper.getFactory(), jsonMessage);
+			String responseType = header.getResponseType();
+			long requestId = header.getRequestId();
+			ResultProcessor<? extends Response> resultProcessor;
+			if (requestId > 0L && (resultProcessor = acquireResultProcessor(requestId)) != null) {
+				resultProcessor.process(jsonMessage, message.getSourceId());
+			} else if (isCustomMessage(responseType)) {
+				listeners.fire(new DefaultCastEvent<>(
+					CastEventType.CUSTOM_MESSAGE,
+					new CustomMessageEvent(
+						message.getSourceId(),
+						message.getDestinationId(),
+						message.getNamespace(),
+						message.getPayload()
+					)
+				));
+			} else if ("CLOSE".equals(responseType)) {
+				if (PLATFORM_RECEIVER_ID.equals(message.getSourceId())) {
+					try {
+						close();
+					} catch (IOException e) {
+						LOGGER.debug(
+							CAST_API_MARKER,
+							"An error occurred while closing {} socket: {}",
+							remoteName,
+							e.getMessage()
+						);
+					}
+				} else {
+					String peerId = message.getSourceId();
+					if (!isBlank(peerId)) {
+						Session session;
+						Set<Session> closedNow = new HashSet<>();
+						sessionsLock.lock();
+						try {
+							for (Iterator<Session> iterator = sessions.iterator(); iterator.hasNext();) {
+								session = iterator.next();
+								if (peerId.equals(session.getDestinationId())) {
+									closedNow.add(session);
+									iterator.remove();
+								}
+							}
+						} finally {
+							sessionsLock.unlock();
+						}
+						if (!closedNow.isEmpty()) {
+							cancelPendingClosed(peerId);
+							SessionClosedListener closedListener;
+							for (Session tmpSession : closedNow) {
+								closedListener = tmpSession.getSessionClosedListener();
+								if (closedListener != null) {
+									closedListener.closed(tmpSession);
+								}
+							}
+						} else {
+							if (!cancelPendingClosed(peerId)) {
+								// Didn't match any "known" session, pass it on to listeners
+								listeners.fire(new DefaultCastEvent<>(
+									CastEventType.CLOSE,
+									new CloseMessageEvent(
+										message.getSourceId(),
+										message.getDestinationId(),
+										message.getNamespace()
+									)
+								));
+							}
+						}
+					}
+				}
+			} else {
+				StandardResponse response;
+				try (JsonParser parser = createResponseParser(jsonMessage)) {
+					response = JacksonHelper.readerFor(StandardResponse.class).readValue(parser);
+				} catch (JsonMappingException e) {
+					response = null;
+				}
+
+				if (response instanceof StandardResponse && response.getEventType() != null) {
+					ReceiverStatus receiverStatus;
+					if (
+						response instanceof ReceiverStatusResponse &&
+						(receiverStatus = ((ReceiverStatusResponse) response).getStatus()) != null
+					) {
+						updateReceiverStatus(receiverStatus);
+					} else if (response instanceof MediaStatusResponse) {
+						updateMediaStatuses((MediaStatusResponse) response, message.getSourceId());
+					}
+					listeners.fire(new DefaultCastEvent<>(response.getEventType(), response));
+				} else {
+					// Rename "type" like for the other responses, so that listeners see "responseType"
+					JsonNode parsedMessage;
+					try (JsonParser parser = createResponseParser(jsonMessage)) {
+						parsedMessage = jsonMapper.readTree(parser);
+					}
+					LOGGER.error(
+						CAST_API_MARKER,
+						"Received unhandled \"{}\" message from {}, this should not happen: {}",
+						responseType,
+						remoteName,
+						parsedMessage
+					);
+					listeners.fire(new UnknownCastEvent(ImmutableJson.wrap(parsedMessage)));
+				}
+			}
+		} catch (IOException e) {
+			LOGGER.warn(
+				CAST_API_MARKER,
+				"Error while processing JSON message from {}: {}",
+				remoteName,
+				e.getMessage()
+			);
+			LOGGER.trace(CAST_API_MARKER, "", e);
+		}
+	}
+
+	/**
+	 * Validates that the specified namespace conforms to some very basic
+	 * constraints.
+	 *
+	 * @param namespace the namespace to validate.
+	 * @throws IllegalArgumentException If the validation fails.
+	 */
+	public static void validateNamespace(@Nonnull String namespace) throws IllegalArgumentException {
+		requireNotBlank(namespace, "namespace");
+		if (namespace.length() > 128) {
+			throw new IllegalArgumentException("Invalid namespace length " + namespace.length());
+		} else if (!namespace.startsWith("urn:x-cast:")) {
+			throw new IllegalArgumentException("Namespace must begin with the prefix \"urn:x-cast:\"");
+		} else if (namespace.length() == 11) {
+			throw new IllegalArgumentException(
+				"Namespace must begin with the prefix \"urn:x-cast:\" and have non-empty suffix"
+			);
+		}
+	}
+
+	/**
+	 * A task that will send {@code PING} messages to the cast device upon
+	 * execution, or close the {@link Channel} if too many {@code PING}s have
+	 * gone unanswered.
+	 *
+	 * @author Nadahar
+	 */
+	protected class PingTask implements Runnable {
+
+		/** The {@link Ping} message */
+		protected final CastMessage message;
+
+		/**
+		 * Creates a new instance.
+		 *
+		 * @throws AssertionError If the {@code JSON} mapper can't serialize the
+		 *             {@code PING} message.
+		 */
+		public PingTask() {
+			message = createHeartbeatMessage(new Ping(), jsonMapper);
+		}
+
+		@Override
+		public void run() {
+			try {
+				int maxMissed = maxMissedHeartbeats;
+				if (maxMissed > 0 && unansweredPings.get() >= maxMissed) {
+					LOGGER.warn(
+						CAST_API_MARKER,
+						"{} hasn't answered the last {} PINGs, closing the connection",
+						remoteName,
+						maxMissed
+					);
+					closeAsync();
+					return;
+				}
+				if (LOGGER.isTraceEnabled(CAST_API_HEARTBEAT_MARKER)) {
+					LOGGER.trace(CAST_API_HEARTBEAT_MARKER, "Pinging {}", remoteName);
+				}
+				unansweredPings.incrementAndGet();
+
+				// Don't wait for the write, the scheduler thread is shared by all channels
+				enqueue(message).whenComplete(new BiConsumer<Void, Throwable>() {
+
+					@Override
+					public void accept(Void result, Throwable throwable) {
+						if (throwable != null) {
+							LOGGER.warn(
+								CAST_API_MARKER,
+								"An error occurred while sending 'PING' to {}: {}",
+								remoteName,
+								throwable.getMessage()
+							);
+							LOGGER.trace(CAST_API_MARKER, "", throwable);
+						}
+					}
+				});
+			} catch (RuntimeException e) {
+				// An exception would silently end the repetition
+				LOGGER.error(CAST_API_MARKER, "Unexpected error while pinging {}: {}", remoteName, e.getMessage());
+				LOGGER.trace(CAST_API_MARKER, "", e);
+			}
+		}
+
+		/**
+		 * Closes the {@link Channel} on {@link CastDevice#EXECUTOR}, or on
+		 * {@link #dispatcher} if that's saturated, since closing can block and
+		 * notifies listeners, which mustn't happen on the scheduler thread
+		 * that is shared by all channels. It's only closed on this thread if
+		 * both reject it.
+		 */
+		protected void closeAsync() {
+			Runnable closer = new Runnable() {
+
+				@Override
+				public void run() {
+					try {
+						close();
+					} catch (IOException e) {
+						LOGGER.debug(
+							CAST_API_MARKER,
+							"An error occurred while closing the connection to {}: {}",
+							remoteName,
+							e.getMessage()
+						);
+						LOGGER.trace(CAST_API_MARKER, "", e);
+					}
+				}
+			};
+			try {
+				CastDevice.EXECUTOR.execute(closer);
+			} catch (RejectedExecutionException e) {
+				try {
+					dispatcher.execute(closer);
+				} catch (RejectedExecutionException e2) {
+					closer.run();
+				}
+			}
+		}
+	}
+
+	/**
+	 * A {@link Runnable} that fires a {@link CastEventType#PLAYBACK_POSITION}
+	 * event for every media session that is playing. It runs on
+	 * {@link #HEARTBEAT_SCHEDULER}, which is shared by all channels, so it
+	 * only hands the events to the {@link CastEventListenerList} and must
+	 * never throw, as that would silently end the repetition.
+	 *
+	 * @author Nadahar
+	 */
+	protected class PositionUpdateTask implements Runnable {
+
+		@Override
+		public void run() {
+			if (listeners.isEmpty() || playbackPositions.isEmpty()) {
+				return;
+			}
+			try {
+				for (PlaybackPosition position : playbackPositions.values()) {
+					if (position.isPlaying()) {
+						listeners.fire(new DefaultCastEvent<>(CastEventType.PLAYBACK_POSITION, position));
+					}
+				}
+			} catch (RuntimeException e) {
+				LOGGER.error(CAST_API_MARKER, "Failed to fire position updates for {}: {}", remoteName, e.getMessage());
+				LOGGER.trace(CAST_API_MARKER, "", e);
+			}
+		}
+	}
+
+	/**
+	 * A {@link TimerTask} that will gradually increase or decrease the volume
+	 * level of the cast device until the target level is reached.
+	 *
+	 * @author Nadahar
+	 */
+	protected class GradualVolumeTask extends TimerTask {
+
+		/** The interval */
+		protected final double interval;
+
+		/** The target level */
+		protected final double target;
+
+		/**
+		 * Creates a new instance using the specified parameters.
+		 *
+		 * @param interval the partial volume level change to use for each step,
+		 *            positive to increase the volume level, negative to
+		 *            decrease it.
+		 * @param target the target volume level that will trigger a shutdown of
+		 *            the task when reached.
+		 */
+		public GradualVolumeTask(double interval, double target) {
+			this.interval = interval;
+			this.target = target;
+		}
+
+		@Override
+		public void run() {
+			Volume currentVolume;
+			synchronized (cachedVolumeLock) {
+				currentVolume = cachedVolume;
+			}
+			if (currentVolume == null || currentVolume.getLevel() == null) {
+				shutdownTask();
+			} else {
+				double currentLevel = currentVolume.getLevel().doubleValue();
+				double newLevel = currentLevel + interval;
+				if (interval > 0d) {
+					if (newLevel > target) {
+						newLevel = target;
+						shutdownTask();
+					}
+				} else {
+					if (newLevel < target) {
+						newLevel = target;
+						shutdownTask();
+					}
+				}
+				Volume newVolume = new Volume(null, Double.valueOf(newLevel), null, null);
+				try {
+					doSetVolume(newVolume, false, DEFAULT_RESPONSE_TIMEOUT);
+				} catch (IOException e) {
+					LOGGER.warn(
+						CAST_API_MARKER,
+						"An error occurred while gradually adjusting the volume " +
+						"level of {}, stopping gradual adjustment: {}", remoteName,
+						e.getMessage()
+					);
+					LOGGER.trace(CAST_API_MARKER, "", e);
+					shutdownTask();
+				}
+			}
+		}
+
+		/**
+		 * Shuts down this task.
+		 */
+		protected void shutdownTask() {
+			cancel();
+			synchronized (gradualVolumeLock) {
+				if (gradualVolumeTask == this) {
+					gradualVolumeTask = null;
+					if (gradualVolumeTimer != null) {
+						gradualVolumeTimer.cancel();
+						gradualVolumeTimer = null;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * A {@link Thread} implementation tailored to process incoming messages on
+	 * the socket.
+	 *
+	 * @author Nadahar
+	 */
+	protected class InputHandler implements Runnable {
+
+		/** The "running" state */
+		protected volatile boolean running;
+
+		/** The {@link Thread} running this {@link InputHandler} */
+		@Nonnull
+		protected final Thread thread;
+
+		/** The {@link FrameDecoder} to read messages from */
+		@Nonnull
+		protected final FrameDecoder decoder;
+
+		/**
+		 * Creates a new instance bound to the specified {@link InputStream}.
+		 *
+		 * @param inputStream the {@link InputStream} to process.
+		 */
+		public InputHandler(@Nonnull InputStream inputStream) {
+			this(new FrameDecoder(inputStream));
+		}
+
+		/**
+		 * Creates a new instance bound to the specified {@link FrameDecoder}.
+		 *
+		 * @param decoder the {@link FrameDecoder} to read messages from.
+		 */
+		public InputHandler(@Nonnull FrameDecoder decoder) {
+			requireNotNull(decoder, "decoder");
+			this.decoder = decoder;
+			this.running = true;
+			this.thread = VirtualThreads.newThread(remoteName + " input handler", this);
+		}
+
+		/**
+		 * Starts the {@link Thread} that runs this {@link InputHandler}, which
+		 * is a virtual thread if {@link VirtualThreads#isActive()} returns
+		 * {@code true}.
+		 */
+		public void start() {
+			thread.start();
+		}
+
+		@Override
+		public void run() {
+			ImmutableCastMessage message = null;
+			try {
+				while (running) {
+					message = null;
+					try {
+						message = decoder.readMessage();
+					} catch (SocketTimeoutException e) {
+						if (running) {
+							LOGGER.debug(
+								CAST_API_MARKER,
+								"{} InputHandler: Received an unexpected SocketTimeoutException - attempting to resume: {}",
+								remoteName,
+								e.getMessage()
+							);
+						continue;
+						} else {
+							break;
+						}
+					}
+					processMessage(message);
+				}
+			} catch (IOException e) {
+				if (running) {
+					LOGGER.error(
+						CAST_API_MARKER,
+						"{} InputHandler exception, terminating handler: {}",
+						remoteName,
+						e.getMessage()
+					);
+					if (message != null && LOGGER.isDebugEnabled(CAST_API_MARKER)) {
+						StringBuilder sb = new StringBuilder();
+						sb.append("namespace: ").append(message.getNamespace());
+						sb.append(", protocol version: ").append(message.getProtocolVersion().getNumber());
+						if (message instanceof ImmutableStringCastMessage) {
+							sb.append(", string payload: ").append(((ImmutableStringCastMessage) message).getPayload());
+						} else {
+							sb.append(", binary payload: ").append(((ImmutableBinaryCastMessage) message).getPayload());
+						}
+						LOGGER.debug(CAST_API_MARKER, "Triggering (potentially partial) message: {}", sb.toString());
+					}
+					LOGGER.trace(CAST_API_MARKER, "", e);
+					running = false;
+				} else {
+					socketLock.lock();
+					try {
+						if (socket == null) {
+							// The socket has already been closed, and a "socket closed"
+							// exception has terminated the loop while waiting for new input
+							return;
+						}
+					} finally {
+						socketLock.unlock();
+					}
+					LOGGER.trace(
+						CAST_API_MARKER,
+						"Exception while shutting down {} InputHandler: {}",
+						remoteName,
+						e.getMessage()
+					);
+				}
+				try {
+					close();
+				} catch (IOException ioe) {
+					LOGGER.debug(
+						CAST_API_MARKER,
+						"An error occurred while closing {} socket: {}",
+						remoteName,
+						e.getMessage()
+					);
+				}
+			}
+		}
+
+		/**
+		 * Processes a single incoming string-based message from the specified
+		 * parameters.
+		 *
+		 * @param message the {@link ImmutableStringCastMessage} to process.
+		 * @param jsonMessage the adapted string payload to use.
+		 */
+		protected void processStringMessage(@Nonnull ImmutableStringCastMessage message, @Nonnull String jsonMessage) {
+			Channel.this.processStringMessage(message, jsonMessage);
+		}
 
-	/**
-	 * Caches the {@link Volume} instance from the specified
-	 * {@link ReceiverStatus} as as long as neither are {@code null}.
-	 *
-	 * @param receiverStatus the {@link ReceiverStatus} from which to get the
-	 *            {@link Volume} to store.
-	 */
-	protected void cacheVolume(@Nullable ReceiverStatus receiverStatus) {
-		Volume volume;
-		if (receiverStatus != null && (volume = receiverStatus.getVolume()) != null) {
-			cacheVolume(volume);
+		/**
+		 * Tells this {@link InputHandler} to stop processing and shut down.
+		 */
+		public void stopProcessing() {
+			running = false;
 		}
 	}
 
 	/**
-	 * Caches the specified {@link Volume} instance as long as it's not
-	 * {@code null}.
+	 * An {@link OutboundQueue.MessageSink} that closes the underlying plain
+	 * {@link Socket} if a write doesn't complete within the deadline. The
+	 * writer threads are shared by all blocking-mode channels, so a peer that
+	 * stops reading mustn't be allowed to hold one indefinitely. Closing the
+	 * plain {@link Socket} fails the blocked write and makes the
+	 * {@link InputHandler} close the {@link Channel}.
 	 *
-	 * @param volume the {@link Volume} instance to store.
+	 * @author Nadahar
 	 */
-	protected void cacheVolume(@Nullable Volume volume) {
-		if (volume == null) {
-			return;
-		}
-		boolean setVolume;
-		synchronized (cachedVolumeLock) {
-			setVolume = cachedVolume == null;
-			cachedVolume = volume;
-		}
+	protected static class DeadlineSink implements OutboundQueue.MessageSink {
 
-		if (
-			setVolume &&
-			volume.getControlType() != VolumeControlType.FIXED &&
-			volume.getLevel() != null &&
-			volume.getLevel().doubleValue() < 1.0
+		/** The {@link OutboundQueue.MessageSink} that does the actual writing */
+		@Nonnull
+		protected final OutboundQueue.MessageSink sink;
+
+		/** The plain {@link Socket} to close if the deadline is exceeded */
+		@Nonnull
+		protected final Socket plainSocket;
+
+		/** The name used for the remote party in logging */
+		@Nonnull
+		protected final String remoteName;
+
+		/** The write deadline in milliseconds */
+		protected final long timeout;
+
+		/**
+		 * Creates a new instance using the specified parameters.
+		 *
+		 * @param sink the {@link OutboundQueue.MessageSink} that does the
+		 *            actual writing.
+		 * @param plainSocket the plain {@link Socket} to close if a write
+		 *            exceeds the deadline.
+		 * @param remoteName the name to use for the remote party in logging.
+		 * @param timeout the write deadline in milliseconds.
+		 */
+		public DeadlineSink(
+			@Nonnull OutboundQueue.MessageSink sink,
+			@Nonnull Socket plainSocket,
+			@Nonnull String remoteName,
+			long timeout
 		) {
-			// There's a long-standing bug in the ChromeCast software that resets
-			// the device volume to 100% when the device is restarted. It correctly
-			// reports the volume level it's supposed to have, but audio is played
-			// back with 100% volume regardless. This little trick is to mitigate
-			// the bug by setting the volume to what the device reports the first
-			// time we receive one. Hopefully this won't negatively impact devices
-			// without the bug.
-			final double targetLevel = volume.getLevel().doubleValue();
-			final double interrimLevel;
-			if (targetLevel > 0.1) {
-				interrimLevel = targetLevel - 0.05;
-			} else {
-				interrimLevel = targetLevel + 0.05;
-			}
+			this.sink = sink;
+			this.plainSocket = plainSocket;
+			this.remoteName = remoteName;
+			this.timeout = timeout;
+		}
 
+		@Override
+		public void write(@Nonnull List<CastMessage> messages) throws IOException {
+			HashedWheelTimer.Timeout deadline;
 			try {
-				CastDevice.EXECUTOR.execute(new Runnable() {
+				deadline = TIMEOUT_TIMER.newTimeout(new Runnable() {
 
 					@Override
 					public void run() {
+						LOGGER.warn(
+							CAST_API_MARKER,
+							"Writing to {} didn't complete within {} ms, closing the connection",
+							remoteName,
+							timeout
+						);
 						try {
-							send(
-								null,
-								"urn:x-cast:com.google.cast.receiver",
-								new SetVolume(new Volume(null, Double.valueOf(interrimLevel), null, null)),
-								PLATFORM_SENDER_ID,
-								PLATFORM_RECEIVER_ID,
-								null,
-								0L
-							);
+							plainSocket.close();
 						} catch (IOException e) {
-							LOGGER.warn(
-								CAST_API_MARKER,
-								"Failed to set the initial interrim volume on {}: {}",
-								remoteName,
-								e.getMessage()
-							);
-							LOGGER.trace(CAST_API_MARKER, "", e);
-						}
-					}
-				});
-				CastDevice.EXECUTOR.execute(new Runnable() {
-
-					@Override
-					public void run() {
-						try {
-							Thread.sleep(150L);
-							send(
-								null,
-								"urn:x-cast:com.google.cast.receiver",
-								new SetVolume(new Volume(null, Double.valueOf(targetLevel), null, null)),
-								PLATFORM_SENDER_ID,
-								PLATFORM_RECEIVER_ID,
-								null,
-								0L
-							);
-						} catch (IOException | InterruptedException e) {
-							LOGGER.warn(
+							LOGGER.debug(
 								CAST_API_MARKER,
-								"Failed to set the initial volume on {}: {}",
+								"An error occurred while closing the stalled connection to {}: {}",
 								remoteName,
 								e.getMessage()
 							);
 							LOGGER.trace(CAST_API_MARKER, "", e);
 						}
 					}
-				});
+				}, timeout, TimeUnit.MILLISECONDS);
 			} catch (RejectedExecutionException e) {
-				LOGGER.warn(
-					CAST_API_MARKER,
-					"Failed to refresh the initial volume on {} because the executor rejected executing the task: {}",
-					remoteName,
-					e.getMessage()
-				);
+				deadline = null;
+			}
+			try {
+				sink.write(messages);
+			} finally {
+				if (deadline != null) {
+					deadline.cancel();
+				}
 			}
 		}
 	}
 
 	/**
-	 * Claims (retrieves and removes from {@code requests}) the
-	 * {@link ResultProcessorResult} for the specified request ID if one exists.
+	 * The routing information of an incoming {@code JSON} message, extracted
+	 * by streaming through the top level of the message without building a
+	 * tree or deserializing anything.
 	 *
-	 * @param requestId the request ID to look up.
-	 * @return The one and only {@link ResultProcessor} instance for the
-	 *         specified request ID if it exists and hasn't already been
-	 *         claimed, or {@code null}.
+	 * @author Nadahar
 	 */
-	@Nullable
-	protected ResultProcessor<? extends Response> acquireResultProcessor(long requestId) {
-		if (requestId < 1L) {
-			return null;
-		}
-		synchronized (requests) {
-			return requests.remove(Long.valueOf(requestId));
-		}
-	}
+	@Immutable
+	protected static class MessageHeader {
 
-	/**
-	 * Writes the specified {@link Message} to the socket using the specified
-	 * parameters.
-	 *
-	 * @param namespace the namespace to use.
-	 * @param message the {@link Message} to write.
-	 * @param sourceId the source ID to use.
-	 * @param destinationId the destination ID to use.
-	 * @throws IOException If an error occurs during the operation.
-	 */
-	protected void write(String namespace, Message message, String sourceId, String destinationId) throws IOException {
-		write(namespace, jsonMapper.writeValueAsString(message), sourceId, destinationId);
-	}
+		/** The message type or an empty {@link String} */
+		@Nonnull
+		protected final String responseType;
 
-	/**
-	 * Writes the specified ({@code JSON} formatted) {@link String} to the
-	 * socket using the specified parameters.
-	 *
-	 * @param namespace the namespace to use.
-	 * @param message the message content to write.
-	 * @param sourceId the source ID to use.
-	 * @param destinationId the destination ID to use.
-	 * @throws IOException If an error occurs during the operation.
-	 */
-	protected void write(String namespace, String message, String sourceId, String destinationId) throws IOException {
-		LOGGER.debug(
-			CAST_API_MARKER,
-			"Sending message to {} with namespace '{}': \"{}\"",
-			remoteName,
-			namespace,
-			message
-		);
-		CastMessage msg = CastMessage.newBuilder()
-			.setProtocolVersion(CastMessage.ProtocolVersion.CASTV2_1_0)
-			.setSourceId(sourceId)
-			.setDestinationId(destinationId)
-			.setNamespace(namespace)
-			.setPayloadType(CastMessage.PayloadType.STRING)
-			.setPayloadUtf8(message)
-			.build();
-		write(msg);
-	}
+		/** The request ID or {@code -1} */
+		protected final long requestId;
 
-	/**
-	 * Writes the specified {@link CastMessage} to the socket.
-	 *
-	 * @param message the {@link CastMessage} to write.
-	 * @throws IOException If an error occurs during the operation.
-	 */
-	protected void write(CastMessage message) throws IOException {
-		OutputStream os;
-		synchronized (socketLock) {
-			if (socket == null) {
-				throw new SocketException("Socket is null");
-			}
-			os = socket.getOutputStream();
-			// Include in synchronized section to force serialization of outgoing messages
-			writeB32Int(message.getSerializedSize(), os);
-			message.writeTo(os);
+		/**
+		 * Creates a new instance using the specified parameters.
+		 *
+		 * @param responseType the message type.
+		 * @param requestId the request ID.
+		 */
+		protected MessageHeader(@Nullable String responseType, long requestId) {
+			this.responseType = responseType == null ? "" : responseType;
+			this.requestId = requestId;
 		}
-	}
 
-	/**
-	 * Loops through any requests waiting for a response and cancels any that
-	 * waits for a reply from the specified peer/destination ID. This is to be
-	 * used when the {@link Session} with the specified peer/destination ID has
-	 * been closed, since there's no point in waiting for a response that will
-	 * never arrive.
-	 *
-	 * @param peerId the peer/destination ID that whose {@link Session} has been
-	 *            closed.
-	 * @return {@code true} if a waiting request was cancelled, {@code false}
-	 *         otherwise.
-	 */
-	protected boolean cancelPendingClosed(@Nullable String peerId) {
-		if (isBlank(peerId)) {
-			return false;
+		/**
+		 * @return The message type or an empty {@link String} if the message
+		 *         has no type.
+		 */
+		@Nonnull
+		public String getResponseType() {
+			return responseType;
 		}
-		boolean result = false;
-		ResultProcessor<?> processor;
-		Session session;
-		synchronized (requests) {
-			for (Iterator<ResultProcessor<?>> iterator = requests.values().iterator(); iterator.hasNext();) {
-				processor = iterator.next();
-				session = processor.session;
-				if (session != null && peerId.equals(session.getDestinationId())) {
-					processor.sessionClosed();
-					iterator.remove();
-					result = true;
+
+		/**
+		 * @return The request ID or {@code -1} if the message has no request
+		 *         ID.
+		 */
+		public long getRequestId() {
+			return requestId;
+		}
+
+		/**
+		 * Scans the top level of the specified {@code JSON} message for the
+		 * {@code type} (or {@code responseType}) and {@code requestId} fields.
+		 * Nested structures are skipped, and scanning stops as soon as both
+		 * fields have been found.
+		 *
+		 * @param factory the {@link JsonFactory} to use.
+		 * @param jsonMessage the {@code JSON} message to scan.
+		 * @return The resulting {@link MessageHeader}.
+		 * @throws IOException If {@code jsonMessage} isn't valid {@code JSON}.
+		 */
+		@Nonnull
+		public static MessageHeader scan(@Nonnull JsonFactory factory, @Nonnull String jsonMessage) throws IOException {
+			String responseType = null;
+			long requestId = -1L;
+			boolean hasRequestId = false;
+			try (JsonParser parser = factory.createParser(jsonMessage)) {
+				if (parser.nextToken() != JsonToken.START_OBJECT) {
+					return new MessageHeader(null, -1L);
+				}
+				String fieldName;
+				while ((fieldName = parser.nextFieldName()) != null) {
+					JsonToken token = parser.nextToken();
+					if (
+						responseType == null &&
+						("type".equals(fieldName) || "responseType".equals(fieldName))
+					) {
+						responseType = token.isScalarValue() ? parser.getValueAsString("") : "";
+					} else if (!hasRequestId && "requestId".equals(fieldName)) {
+						requestId = token.isScalarValue() ? parser.getValueAsLong(-1L) : -1L;
+						hasRequestId = true;
+					}
+					if (responseType != null && hasRequestId) {
+						break;
+					}
+					parser.skipChildren();
 				}
 			}
+			return new MessageHeader(responseType, requestId);
 		}
-		return result;
-	}
 
-	/**
-	 * Loops through all requests waiting for a response and cancels them. This
-	 * is to be used when the connection disconnects, since there's no point in
-	 * waiting for a response that will never arrive.
-	 */
-	protected void cancelPendingDisconnected() {
-		ResultProcessor<?> processor;
-		Session session;
-		synchronized (requests) {
-			for (Iterator<ResultProcessor<?>> iterator = requests.values().iterator(); iterator.hasNext();) {
-				processor = iterator.next();
-				session = processor.session;
-				if (session != null) {
-					processor.sessionClosed();
-					iterator.remove();
-				}
-			}
+		@Override
+		public String toString() {
+			return getClass().getSimpleName() + " [responseType=" + responseType + ", requestId=" + requestId + "]";
 		}
 	}
 
 	/**
-	 * Reads the next {@link CastMessage} from the specified {@link InputStream}
-	 * in a blocking fashion. This method will not return until a message is
-	 * either completely read, {@code EOF} is reached or an {@link IOException}
-	 * is thrown.
+	 * A {@link JsonParser} that presents a top-level {@code type} field as
+	 * {@code responseType}, which is the field name used for the
+	 * {@link StandardResponse} type information. Nested {@code type} fields
+	 * are left alone.
 	 *
-	 * @param inputStream the {@link InputStream} from which to read.
-	 * @return The resulting {@link ImmutableCastMessage}.
-	 * @throws IOException If {@code EOF} is reached or an error occurs-.
+	 * @author Nadahar
 	 */
-	@Nonnull
-	protected static ImmutableCastMessage readMessage(InputStream inputStream) throws IOException {
-		int size = readB32Int(inputStream);
-		byte[] buf = new byte[size];
-		int read = 0;
-		while (read < size) {
-			int readNow = inputStream.read(buf, read, buf.length - read);
-			if (readNow == -1) {
-				throw new CastException("Incomplete message, ended after reading " + read + " of " + size + " bytes");
+	protected static class TypeRenamingParser extends JsonParserDelegate {
+
+		/**
+		 * Creates a new instance that wraps the specified {@link JsonParser}.
+		 *
+		 * @param parser the {@link JsonParser} to wrap.
+		 */
+		public TypeRenamingParser(@Nonnull JsonParser parser) {
+			super(parser);
+		}
+
+		/**
+		 * Renames the specified field name if it's a top-level {@code type}
+		 * field.
+		 *
+		 * @param name the field name.
+		 * @return The possibly renamed field name.
+		 */
+		@Nullable
+		protected String rename(@Nullable String name) {
+			if (!"type".equals(name)) {
+				return name;
 			}
-			read += readNow;
+			JsonStreamContext context = delegate.getParsingContext();
+			if (delegate.hasToken(JsonToken.START_OBJECT) || delegate.hasToken(JsonToken.START_ARRAY)) {
+				// The name belongs to the enclosing context
+				context = context.getParent();
+			}
+			return context != null && context.inObject() && context.getParent() != null &&
+				context.getParent().inRoot() ? "responseType" : name;
+		}
+
+		@Override
+		public String getCurrentName() throws IOException {
+			return rename(delegate.getCurrentName());
+		}
+
+		@Override
+		public String currentName() throws IOException {
+			return rename(delegate.currentName());
+		}
+
+		@Override
+		public String nextFieldName() throws IOException {
+			return rename(delegate.nextFieldName());
+		}
+
+		@Override
+		public boolean nextFieldName(SerializableString str) throws IOException {
+			return nextToken() == JsonToken.FIELD_NAME && str.getValue().equals(currentName());
+		}
+
+		@Override
+		public String getText() throws IOException {
+			return delegate.hasToken(JsonToken.FIELD_NAME) ? currentName() : delegate.getText();
+		}
+
+		@Override
+		public char[] getTextCharacters() throws IOException {
+			return delegate.hasToken(JsonToken.FIELD_NAME) ? currentName().toCharArray() : delegate.getTextCharacters();
+		}
+
+		@Override
+		public int getTextLength() throws IOException {
+			return delegate.hasToken(JsonToken.FIELD_NAME) ? currentName().length() : delegate.getTextLength();
+		}
+
+		@Override
+		public int getTextOffset() throws IOException {
+			return delegate.hasToken(JsonToken.FIELD_NAME) ? 0 : delegate.getTextOffset();
+		}
+
+		@Override
+		public String getValueAsString() throws IOException {
+			return delegate.hasToken(JsonToken.FIELD_NAME) ? currentName() : delegate.getValueAsString();
+		}
+
+		@Override
+		public String getValueAsString(String defaultValue) throws IOException {
+			return delegate.hasToken(JsonToken.FIELD_NAME) ? currentName() : delegate.getValueAsString(defaultValue);
 		}
-		return ImmutableCastMessage.create(CastMessage.parseFrom(buf));
 	}
 
 	/**
-	 * Determines if the message referenced by the specified {@link JsonNode} is
-	 * among the "standard responses" by looking at the {@code type} field
-	 * exclusively.
+	 * A {@link SharedSelector.ConnectionHandler} that processes incoming
+	 * messages from a non-blocking {@link SharedSelector.Connection}. The first
+	 * message is handed over to {@link Channel#connect()} as the authentication
+	 * response. The following messages and the loss of the connection are
+	 * handled by {@link Channel#dispatcher}, since processing them involves
+	 * parsing, completing futures, notifying listeners and closing, which
+	 * mustn't hold up the selector thread that is shared by many channels. If
+	 * {@link Channel#DISPATCH_EXECUTOR} is saturated, reading from the
+	 * connection is suspended until the messages can be handed over.
 	 *
-	 * @param parsedMessage the {@link JsonNode} referencing a parsed, received
-	 *            message.
-	 * @return {@code true} if the message is deemed not to be among the
-	 *         "standard responses", {@code false} if it is.
+	 * @author Nadahar
 	 */
-	protected static boolean isCustomMessage(@Nullable JsonNode parsedMessage) {
-		if (parsedMessage == null) {
-			return true;
-		}
-		if (parsedMessage.has("responseType")) {
-			String parsedType = parsedMessage.get("responseType").asText();
-			for (JsonSubTypes.Type type : STANDARD_RESPONSE_TYPES) {
-				if (type.name().equals(parsedType)) {
-					return false;
+	protected class SelectorHandler implements SharedSelector.ConnectionHandler {
+
+		/** The lock that guards the authentication state */
+		@Nonnull
+		protected final ReentrantLock authLock = new ReentrantLock();
+
+		/** The {@link Condition} signalled when the authentication state changes */
+		@Nonnull
+		protected final Condition authChanged = authLock.newCondition();
+
+		/** Whether the authentication response has been received */
+		@GuardedBy("authLock")
+		protected boolean authenticated;
+
+		/** The authentication response */
+		@Nullable
+		@GuardedBy("authLock")
+		protected ImmutableCastMessage authResponse;
+
+		/** The {@link IOException} that closed the connection, if any */
+		@Nullable
+		@GuardedBy("authLock")
+		protected IOException failure;
+
+		/** The {@link SharedSelector.Connection} this handler belongs to */
+		@Nullable
+		protected volatile SharedSelector.Connection connection;
+
+		/** The tasks waiting to be run by {@link #drainer} */
+		@Nonnull
+		protected final ConcurrentLinkedQueue<Runnable> pending = new ConcurrentLinkedQueue<>();
+
+		/** Whether {@link #drainer} is scheduled or running */
+		@Nonnull
+		protected final AtomicBoolean draining = new AtomicBoolean();
+
+		/** The {@link Runnable} that runs the {@link #pending} tasks in order */
+		@Nonnull
+		protected final Runnable drainer = new Runnable() {
+
+			@Override
+			public void run() {
+				do {
+					Runnable task;
+					while ((task = pending.poll()) != null) {
+						try {
+							task.run();
+						} catch (RuntimeException e) {
+							LOGGER.error(
+								CAST_API_MARKER,
+								"Unexpected error while handling message from {}: {}",
+								remoteName,
+								e.getMessage()
+							);
+							LOGGER.trace(CAST_API_MARKER, "", e);
+						}
+					}
+					draining.set(false);
+				} while (!pending.isEmpty() && draining.compareAndSet(false, true));
+			}
+		};
+
+		@Override
+		public void messageReceived(@Nonnull final ImmutableCastMessage message) {
+			authLock.lock();
+			try {
+				if (!authenticated) {
+					authenticated = true;
+					authResponse = message;
+					authChanged.signalAll();
+					return;
 				}
+			} finally {
+				authLock.unlock();
 			}
+			dispatch(new Runnable() {
+
+				@Override
+				public void run() {
+					try {
+						processMessage(message);
+					} catch (IOException e) {
+						LOGGER.warn(
+							CAST_API_MARKER,
+							"An error occurred while processing message from {}: {}",
+							remoteName,
+							e.getMessage()
+						);
+						LOGGER.trace(CAST_API_MARKER, "", e);
+					}
+				}
+			});
 		}
-		return true;
-	}
 
-	/**
-	 * Validates that the specified namespace conforms to some very basic
-	 * constraints.
-	 *
-	 * @param namespace the namespace to validate.
-	 * @throws IllegalArgumentException If the validation fails.
-	 */
-	public static void validateNamespace(@Nonnull String namespace) throws IllegalArgumentException {
-		requireNotBlank(namespace, "namespace");
-		if (namespace.length() > 128) {
-			throw new IllegalArgumentException("Invalid namespace length " + namespace.length());
-		} else if (!namespace.startsWith("urn:x-cast:")) {
-			throw new IllegalArgumentException("Namespace must begin with the prefix \"urn:x-cast:\"");
-		} else if (namespace.length() == 11) {
-			throw new IllegalArgumentException(
-				"Namespace must begin with the prefix \"urn:x-cast:\" and have non-empty suffix"
+		@Override
+		public void connectionLost(@Nonnull IOException cause) {
+			authLock.lock();
+			try {
+				failure = cause;
+				authChanged.signalAll();
+			} finally {
+				authLock.unlock();
+			}
+			LOGGER.error(
+				CAST_API_MARKER,
+				"Lost connection to {}: {}",
+				remoteName,
+				cause.getMessage()
 			);
+			LOGGER.trace(CAST_API_MARKER, "", cause);
+			dispatch(new Runnable() {
+
+				@Override
+				public void run() {
+					try {
+						close();
+					} catch (IOException e) {
+						LOGGER.debug(
+							CAST_API_MARKER,
+							"An error occurred while closing {} connection: {}",
+							remoteName,
+							e.getMessage()
+						);
+					}
+				}
+			});
 		}
-	}
 
-	/**
-	 * A {@link TimerTask} that will send {@code PING} messages to the cast
-	 * device upon execution.
-	 *
-	 * @author Nadahar
-	 */
-	protected class PingTask extends TimerTask {
+		/**
+		 * The {@link Runnable} that retries handing {@link #drainer} over to
+		 * {@link Channel#dispatcher} and resumes reading if it succeeds
+		 */
+		@Nonnull
+		protected final Runnable retrier = new Runnable() {
 
-		/** The {@link Ping} message */
-		protected final CastMessage message;
+			@Override
+			public void run() {
+				try {
+					dispatcher.execute(drainer);
+				} catch (RejectedExecutionException e) {
+					retryLater();
+					return;
+				}
+				SharedSelector.Connection current = connection;
+				if (current != null) {
+					current.resumeReading();
+				}
+			}
+		};
 
 		/**
-		 * Creates a new instance.
+		 * Queues the specified task and makes sure that the queued tasks are
+		 * run in order by {@link Channel#dispatcher}. If
+		 * {@link Channel#DISPATCH_EXECUTOR} is saturated, the tasks are kept
+		 * queued and reading from the connection is suspended until they can
+		 * be handed over, so that nothing is lost or reordered and the shared
+		 * selector thread never runs them.
 		 *
-		 * @throws AssertionError If the {@code JSON} mapper can't serialize the
-		 *             {@code PING} message.
+		 * @param task the task to run.
 		 */
-		public PingTask() {
-			String messageString;
+		protected void dispatch(@Nonnull Runnable task) {
+			pending.add(task);
+			if (!draining.compareAndSet(false, true)) {
+				return;
+			}
 			try {
-				messageString = jsonMapper.writeValueAsString(new Ping());
-			} catch (JsonProcessingException e) {
-				throw new AssertionError("Couldn't generate JSON for 'PING' message");
+				dispatcher.execute(drainer);
+			} catch (RejectedExecutionException e) {
+				LOGGER.debug(
+					CAST_API_MARKER,
+					"The message dispatcher is saturated, suspending reading from {} for {} ms",
+					remoteName,
+					DISPATCH_RETRY_DELAY
+				);
+				retryLater();
 			}
-			message = CastMessage.newBuilder()
-				.setProtocolVersion(CastMessage.ProtocolVersion.CASTV2_1_0)
-				.setSourceId(PLATFORM_SENDER_ID)
-				.setDestinationId(PLATFORM_RECEIVER_ID)
-				.setNamespace("urn:x-cast:com.google.cast.tp.heartbeat")
-				.setPayloadType(CastMessage.PayloadType.STRING)
-				.setPayloadUtf8(messageString)
-				.build();
 		}
 
-		@Override
-		public void run() {
-			if (LOGGER.isTraceEnabled(CAST_API_HEARTBEAT_MARKER)) {
-				LOGGER.trace(CAST_API_HEARTBEAT_MARKER, "Pinging {}", remoteName);
+		/**
+		 * Suspends reading from the connection and schedules {@link #retrier}.
+		 * If it can't be scheduled, the connection is closed, since its
+		 * messages could never be processed.
+		 */
+		protected void retryLater() {
+			SharedSelector.Connection current = connection;
+			if (current != null) {
+				current.suspendReading();
 			}
 			try {
-				write(message);
-			} catch (IOException e) {
+				TIMEOUT_TIMER.newTimeout(retrier, DISPATCH_RETRY_DELAY, TimeUnit.MILLISECONDS);
+			} catch (RejectedExecutionException e) {
 				LOGGER.warn(
 					CAST_API_MARKER,
-					"An error occurred while sending 'PING' to {}: {}",
+					"Unable to schedule the processing of messages from {}, closing the connection: {}",
 					remoteName,
 					e.getMessage()
 				);
-				LOGGER.trace(CAST_API_MARKER, "", e);
+				pending.clear();
+				draining.set(false);
+				if (current != null) {
+					current.close();
+				}
+			}
+		}
+
+		/**
+		 * Waits for the authentication response.
+		 *
+		 * @param timeout the timeout in milliseconds.
+		 * @return The authentication response.
+		 * @throws IOException If the connection is lost, the thread is
+		 *             interrupted or the timeout expires before the response is
+		 *             received.
+		 */
+		@Nonnull
+		public ImmutableCastMessage awaitAuthResponse(long timeout) throws IOException {
+			long deadline = System.currentTimeMillis() + timeout;
+			authLock.lock();
+			try {
+				while (authResponse == null) {
+					if (failure != null) {
+						throw failure;
+					}
+					long remaining = deadline - System.currentTimeMillis();
+					if (remaining <= 0L) {
+						throw new CastException("Timed out while waiting for authentication response from " + remoteName);
+					}
+					try {
+						authChanged.await(remaining, TimeUnit.MILLISECONDS);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new CastException("Interrupted while waiting for authentication response", e);
+					}
+				}
+				return authResponse;
+			} finally {
+				authLock.unlock();
 			}
 		}
 	}
 
 	/**
-	 * A {@link TimerTask} that will gradually increase or decrease the volume
-	 * level of the cast device until the target level is reached.
+	 * An immutable value with the time it was created.
+	 *
+	 * @param <T> the value type.
 	 *
 	 * @author Nadahar
 	 */
-	protected class GradualVolumeTask extends TimerTask {
+	@Immutable
+	protected static class Timestamped<T> {
 
-		/** The interval */
-		protected final double interval;
+		/** The value */
+		@Nonnull
+		protected final T value;
 
-		/** The target level */
-		protected final double target;
+		/** The {@link System#nanoTime()} value when this instance was created */
+		protected final long nanoTime;
 
 		/**
-		 * Creates a new instance using the specified parameters.
+		 * Creates a new instance timestamped with the current time.
 		 *
-		 * @param interval the partial volume level change to use for each step,
-		 *            positive to increase the volume level, negative to
-		 *            decrease it.
-		 * @param target the target volume level that will trigger a shutdown of
-		 *            the task when reached.
+		 * @param value the value.
 		 */
-		public GradualVolumeTask(double interval, double target) {
-			this.interval = interval;
-			this.target = target;
+		public Timestamped(@Nonnull T value) {
+			this.value = value;
+			this.nanoTime = System.nanoTime();
 		}
 
-		@Override
-		public void run() {
-			Volume currentVolume;
-			synchronized (cachedVolumeLock) {
-				currentVolume = cachedVolume;
-			}
-			if (currentVolume == null || currentVolume.getLevel() == null) {
-				shutdownTask();
-			} else {
-				double currentLevel = currentVolume.getLevel().doubleValue();
-				double newLevel = currentLevel + interval;
-				if (interval > 0d) {
-					if (newLevel > target) {
-						newLevel = target;
-						shutdownTask();
-					}
-				} else {
-					if (newLevel < target) {
-						newLevel = target;
-						shutdownTask();
-					}
-				}
-				Volume newVolume = new Volume(null, Double.valueOf(newLevel), null, null);
-				try {
-					doSetVolume(newVolume, false, DEFAULT_RESPONSE_TIMEOUT);
-				} catch (IOException e) {
-					LOGGER.warn(
-						CAST_API_MARKER,
-						"An error occurred while gradually adjusting the volume " +
-						"level of {}, stopping gradual adjustment: {}", remoteName,
-						e.getMessage()
-					);
-					LOGGER.trace(CAST_API_MARKER, "", e);
-					shutdownTask();
-				}
-			}
+		/**
+		 * @return The value.
+		 */
+		@Nonnull
+		public T getValue() {
+			return value;
 		}
 
 		/**
-		 * Shuts down this task.
+		 * @return The age of this instance in milliseconds.
 		 */
-		protected void shutdownTask() {
-			cancel();
-			synchronized (gradualVolumeLock) {
-				if (gradualVolumeTask == this) {
-					gradualVolumeTask = null;
-					if (gradualVolumeTimer != null) {
-						gradualVolumeTimer.cancel();
-						gradualVolumeTimer = null;
-					}
-				}
-			}
+		public long getAge() {
+			return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - nanoTime);
 		}
 	}
 
 	/**
-	 * A {@link Thread} implementation tailored to process incoming messages on
-	 * the socket.
+	 * The key that identifies identical idempotent queries.
 	 *
 	 * @author Nadahar
 	 */
-	protected class InputHandler extends Thread {
+	@Immutable
+	protected static class QueryKey {
 
-		/** The "running" state */
-		protected volatile boolean running;
+		/** The destination ID */
+		@Nullable
+		protected final String destinationId;
 
-		/** The {@link InputStream} to process */
-		@Nonnull
-		protected final InputStream is;
+		/** The namespace */
+		@Nullable
+		protected final String namespace;
 
-		/** The cached {@link Pong} message */
+		/** The {@link Request} class */
 		@Nonnull
-		protected final CastMessage pongMessage;
+		protected final Class<?> requestClass;
+
+		/** The {@link Request} parameters */
+		@Nullable
+		protected final String parameters;
 
 		/**
-		 * Creates a new instance bound to the specified {@link InputStream}.
+		 * Creates a new instance using the specified parameters.
 		 *
-		 * @param inputStream the {@link InputStream} to process.
+		 * @param destinationId the destination ID.
+		 * @param namespace the namespace.
+		 * @param requestClass the {@link Request} class.
+		 * @param parameters the {@link Request} parameters.
 		 */
-		public InputHandler(@Nonnull InputStream inputStream) {
-			super(remoteName + " input handler");
-			requireNotNull(inputStream, "inputStream");
-			this.is = inputStream;
+		public QueryKey(
+			@Nullable String destinationId,
+			@Nullable String namespace,
+			@Nonnull Class<?> requestClass,
+			@Nullable String parameters
+		) {
+			this.destinationId = destinationId;
+			this.namespace = namespace;
+			this.requestClass = requestClass;
+			this.parameters = parameters;
+		}
 
-			String messageString;
-			try {
-				messageString = jsonMapper.writeValueAsString(new Pong());
-			} catch (JsonProcessingException e) {
-				throw new AssertionError("Couldn't generate JSON for 'PONG' message");
-			}
-			pongMessage = CastMessage.newBuilder()
-				.setProtocolVersion(CastMessage.ProtocolVersion.CASTV2_1_0)
-				.setSourceId(PLATFORM_SENDER_ID)
-				.setDestinationId(PLATFORM_RECEIVER_ID)
-				.setNamespace("urn:x-cast:com.google.cast.tp.heartbeat")
-				.setPayloadType(CastMessage.PayloadType.STRING)
-				.setPayloadUtf8(messageString)
-				.build();
-			this.running = true;
+		@Override
+		public int hashCode() {
+			final int prime = 31;
+			int result = 1;
+			result = prime * result + ((destinationId == null) ? 0 : destinationId.hashCode());
+			result = prime * result + ((namespace == null) ? 0 : namespace.hashCode());
+			result = prime * result + requestClass.hashCode();
+			result = prime * result + ((parameters == null) ? 0 : parameters.hashCode());
+			return result;
 		}
 
 		@Override
-		public void run() {
-			String jsonMessage;
-			ImmutableCastMessage message = null;
-			try {
-				while (running) {
-					message = null;
-					try {
-						message = readMessage(is);
-					} catch (SocketTimeoutException e) {
-						if (running) {
-							LOGGER.debug(
-								CAST_API_MARKER,
-								"{} InputHandler: Received an unexpected SocketTimeoutException - attempting to resume: {}",
-								remoteName,
-								e.getMessage()
-							);
-						continue;
-						} else {
-							break;
-						}
-					}
-					if (message instanceof ImmutableStringCastMessage) {
-						jsonMessage = ((ImmutableStringCastMessage) message).getPayload();
-						if (isBlank(jsonMessage)) {
-							LOGGER.trace(
-								CAST_API_MARKER,
-								"{} InputHandler: Received an empty string message - ignoring",
-								remoteName
-							);
-							continue;
-						}
-						jsonMessage = jsonMessage.replaceFirst("\"type\"", "\"responseType\"");
-						if ("urn:x-cast:com.google.cast.tp.heartbeat".equals(message.getNamespace())) {
-							// Deal with PING/PONG directly
-							JsonNode parsedMessage = jsonMapper.readTree(jsonMessage);
-							JsonNode tmpNode = parsedMessage.get("responseType");
-							String responseType = tmpNode == null ? "" : tmpNode.asText("");
-							if ("PING".equals(responseType)) {
-								LOGGER.trace(
-									CAST_API_HEARTBEAT_MARKER,
-									"Received PING from {}, replying with PONG",
-									remoteName
-								);
-								write(pongMessage);
-							} else if ("PONG".equals(responseType)) {
-								LOGGER.trace(CAST_API_HEARTBEAT_MARKER, "Received PONG from {}", remoteName);
-							} else {
-								LOGGER.trace(
-									CAST_API_HEARTBEAT_MARKER,
-									"Received unexpected heartbeat message of type \"{}\" from {}",
-									responseType,
-									remoteName
-								);
-							}
-							continue;
-						}
-						LOGGER.trace(
-							CAST_API_MARKER,
-							"{} InputHandler: Received string message \"{}\"",
-							remoteName,
-							jsonMessage
-						);
-						processStringMessage((ImmutableStringCastMessage) message, jsonMessage);
-					} else if (message != null) {
-						LOGGER.trace(
-							CAST_API_MARKER,
-							"{} InputHandler: Received message with binary payload ({} bytes)",
-							remoteName,
-							((ImmutableBinaryCastMessage) message).getPayload() == null ?
-								"unknown number of" :
-								((ImmutableBinaryCastMessage) message).getPayload().size()
-						);
-						listeners.fire(new DefaultCastEvent<>(CastEventType.CUSTOM_MESSAGE, new CustomMessageEvent(
-							message.getSourceId(),
-							message.getDestinationId(),
-							message.getNamespace(),
-							((ImmutableBinaryCastMessage) message).getPayload()
-						)));
-					} else {
-						LOGGER.warn(
-							CAST_API_MARKER,
-							"{} InputHandler: Received a null message",
-							remoteName
-						);
-					}
-				}
-			} catch (IOException e) {
-				if (running) {
-					LOGGER.error(
-						CAST_API_MARKER,
-						"{} InputHandler exception, terminating handler: {}",
-						remoteName,
-						e.getMessage()
-					);
-					if (message != null && LOGGER.isDebugEnabled(CAST_API_MARKER)) {
-						StringBuilder sb = new StringBuilder();
-						sb.append("namespace: ").append(message.getNamespace());
-						sb.append(", protocol version: ").append(message.getProtocolVersion().getNumber());
-						if (message instanceof ImmutableStringCastMessage) {
-							sb.append(", string payload: ").append(((ImmutableStringCastMessage) message).getPayload());
-						} else {
-							sb.append(", binary payload: ").append(((ImmutableBinaryCastMessage) message).getPayload());
-						}
-						LOGGER.debug(CAST_API_MARKER, "Triggering (potentially partial) message: {}", sb.toString());
-					}
-					LOGGER.trace(CAST_API_MARKER, "", e);
-					running = false;
-				} else {
-					synchronized (socketLock) {
-						if (socket == null) {
-							// The socket has already been closed, and a "socket closed"
-							// exception has terminated the loop while waiting for new input
-							return;
-						}
-					}
-					LOGGER.trace(
-						CAST_API_MARKER,
-						"Exception while shutting down {} InputHandler: {}",
-						remoteName,
-						e.getMessage()
-					);
-				}
-				try {
-					close();
-				} catch (IOException ioe) {
-					LOGGER.debug(
-						CAST_API_MARKER,
-						"An error occurred while closing {} socket: {}",
-						remoteName,
-						e.getMessage()
-					);
-				}
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
 			}
+			if (!(obj instanceof QueryKey)) {
+				return false;
+			}
+			QueryKey other = (QueryKey) obj;
+			return
+				requestClass == other.requestClass &&
+				Objects.equals(destinationId, other.destinationId) &&
+				Objects.equals(namespace, other.namespace) &&
+				Objects.equals(parameters, other.parameters);
+		}
+
+		@Override
+		public String toString() {
+			return getClass().getSimpleName() + " [destinationId=" + destinationId + ", namespace=" + namespace +
+				", requestClass=" + requestClass.getSimpleName() + ", parameters=" + parameters + "]";
 		}
+	}
+
+	/**
+	 * An idempotent query that is in flight or whose {@link Response} may be
+	 * reused.
+	 *
+	 * @param <T> the response type.
+	 *
+	 * @author Nadahar
+	 */
+	protected static class SharedQuery<T extends Response> {
+
+		/** The shared {@link CompletableFuture} */
+		@Nonnull
+		protected final CompletableFuture<T> future = new CompletableFuture<>();
+
+		/** The {@link System#nanoTime()} value when the query completed */
+		protected volatile long completedTime;
 
 		/**
-		 * Processes a single incoming string-based message from the specified
-		 * parameters.
+		 * Evaluates whether this query can be used to answer a new identical
+		 * query.
 		 *
-		 * @param message the {@link ImmutableStringCastMessage} to process.
-		 * @param jsonMessage the adapted string payload to use.
+		 * @param reuseTime the number of milliseconds a {@link Response} can
+		 *            be reused.
+		 * @return {@code true} if this query is still in flight or has a
+		 *         {@link Response} that is recent enough, {@code false}
+		 *         otherwise.
 		 */
-		protected void processStringMessage(@Nonnull ImmutableStringCastMessage message, @Nonnull String jsonMessage) {
-			try {
-				JsonNode parsedMessage = jsonMapper.readTree(jsonMessage);
-				String responseType;
-				long requestId;
-				if (parsedMessage == null) {
-					responseType = "";
-					requestId = -1L;
-				} else {
-					JsonNode tmpNode = parsedMessage.get("responseType");
-					responseType = tmpNode == null ? "" : tmpNode.asText("");
-					tmpNode = parsedMessage.get("requestId");
-					requestId = tmpNode == null ? -1L : tmpNode.asLong(-1L);
-				}
-				ResultProcessor<? extends Response> resultProcessor;
-				if (requestId > 0L && (resultProcessor = acquireResultProcessor(requestId)) != null) {
-					resultProcessor.process(jsonMessage);
-				} else if (parsedMessage == null || isCustomMessage(parsedMessage)) {
-					listeners.fire(new DefaultCastEvent<>(
-						CastEventType.CUSTOM_MESSAGE,
-						new CustomMessageEvent(
-							message.getSourceId(),
-							message.getDestinationId(),
-							message.getNamespace(),
-							message.getPayload()
-						)
-					));
-				} else if ("CLOSE".equals(responseType)) {
-					if (PLATFORM_RECEIVER_ID.equals(message.getSourceId())) {
-						try {
-							close();
-						} catch (IOException e) {
-							LOGGER.debug(
-								CAST_API_MARKER,
-								"An error occurred while closing {} socket: {}",
-								remoteName,
-								e.getMessage()
-							);
-						}
-					} else {
-						String peerId = message.getSourceId();
-						if (!isBlank(peerId)) {
-							Session session;
-							Set<Session> closedNow = new HashSet<>();
-							synchronized (sessionsLock) {
-								for (Iterator<Session> iterator = sessions.iterator(); iterator.hasNext();) {
-									session = iterator.next();
-									if (peerId.equals(session.getDestinationId())) {
-										closedNow.add(session);
-										iterator.remove();
-									}
-								}
-							}
-							if (!closedNow.isEmpty()) {
-								cancelPendingClosed(peerId);
-								SessionClosedListener closedListener;
-								for (Session tmpSession : closedNow) {
-									closedListener = tmpSession.getSessionClosedListener();
-									if (closedListener != null) {
-										closedListener.closed(tmpSession);
-									}
-								}
-							} else {
-								if (!cancelPendingClosed(peerId)) {
-									// Didn't match any "known" session, pass it on to listeners
-									listeners.fire(new DefaultCastEvent<>(
-										CastEventType.CLOSE,
-										new CloseMessageEvent(
-											message.getSourceId(),
-											message.getDestinationId(),
-											message.getNamespace()
-										)
-									));
-								}
-							}
-						}
-					}
-				} else {
-					StandardResponse response;
-					if (!isBlank(responseType)) {
-						try {
-							response = jsonMapper.treeToValue(parsedMessage, StandardResponse.class);
-						} catch (JsonMappingException e) {
-							response = null;
-						}
-					} else {
-						response = null;
-					}
-
-					if (response instanceof StandardResponse && response.getEventType() != null) {
-						ReceiverStatus receiverStatus;
-						if (
-							response instanceof ReceiverStatusResponse &&
-							(receiverStatus = ((ReceiverStatusResponse) response).getStatus()) != null
-						) {
-							cacheVolume(receiverStatus);
-						}
-						listeners.fire(new DefaultCastEvent<>(response.getEventType(), response));
-					} else {
-						LOGGER.error(
-							CAST_API_MARKER,
-							"Received unhandled \"{}\" message from {}, this should not happen: {}",
-							responseType,
-							remoteName,
-							parsedMessage
-						);
-						listeners.fire(new DefaultCastEvent<>(CastEventType.UNKNOWN, parsedMessage));
-					}
-				}
-			} catch (JsonProcessingException e) {
-				LOGGER.warn(
-					CAST_API_MARKER,
-					"Error while processing JSON message from {}: {}",
-					remoteName,
-					e.getMessage()
-				);
-				LOGGER.trace(CAST_API_MARKER, "", e);
+		public boolean isUsable(long reuseTime) {
+			if (!future.isDone()) {
+				return true;
 			}
+			return
+				!future.isCompletedExceptionally() &&
+				System.nanoTime() - completedTime <= TimeUnit.MILLISECONDS.toNanos(reuseTime);
 		}
+	}
+
+	/**
+	 * A {@link CompletableFuture} created by
+	 * {@link Channel#completeAsync(CompletableFuture, Executor)}, which keeps
+	 * a reference to the internal {@link CompletableFuture} it's completed
+	 * from.
+	 *
+	 * @param <T> the result type.
+	 *
+	 * @author Nadahar
+	 */
+	protected static class HandOffFuture<T> extends CompletableFuture<T> {
+
+		/** The internal {@link CompletableFuture} */
+		@Nonnull
+		protected final CompletableFuture<T> source;
 
 		/**
-		 * Tells this {@link InputHandler} to stop processing and shut down.
+		 * Creates a new instance using the specified internal
+		 * {@link CompletableFuture}.
+		 *
+		 * @param source the internal {@link CompletableFuture}.
 		 */
-		public void stopProcessing() {
-			running = false;
+		public HandOffFuture(@Nonnull CompletableFuture<T> source) {
+			this.source = source;
+		}
+	}
+
+	/**
+	 * A {@link BiConsumer} that completes a {@link CompletableFuture}
+	 * exceptionally if the stage it's attached to fails.
+	 *
+	 * @author Nadahar
+	 */
+	protected static class FailureForwarder implements BiConsumer<Object, Throwable> {
+
+		/** The {@link CompletableFuture} to fail */
+		@Nonnull
+		protected final CompletableFuture<?> target;
+
+		/**
+		 * Creates a new instance.
+		 *
+		 * @param target the {@link CompletableFuture} to fail.
+		 */
+		public FailureForwarder(@Nonnull CompletableFuture<?> target) {
+			this.target = target;
+		}
+
+		@Override
+		public void accept(Object result, Throwable throwable) {
+			if (throwable != null) {
+				target.completeExceptionally(
+					throwable instanceof CompletionException && throwable.getCause() != null ?
+						throwable.getCause() :
+						throwable
+				);
+			}
 		}
 	}
 
@@ -2502,6 +5312,9 @@ public class Channel implements Closeable {
 	 */
 	protected class ResultProcessor<T extends Response> {
 
+		/** The request ID */
+		protected final long requestId;
+
 		/** The {@link Session} if one applies */
 		@Nullable
 		protected final Session session;
@@ -2512,23 +5325,26 @@ public class Channel implements Closeable {
 		/** The timeout in milliseconds */
 		protected final long requestTimeout;
 
-		/** Whether the associated {@link Session} has been closed */
-		@GuardedBy("this")
-		protected boolean closed;
-
-		/** The {@link ResultProcessorResult} */
-		@GuardedBy("this")
-		protected ResultProcessorResult<T> result;
+		/** The {@link CompletableFuture} to complete with the response */
+		@Nonnull
+		protected final CompletableFuture<T> future = new CompletableFuture<>();
 
 		/**
 		 * Creates a new instance using the specified parameters.
 		 *
+		 * @param requestId the request ID.
 		 * @param session the {@link Session} if one applies to the request.
 		 * @param responseClass the expected response class.
 		 * @param requestTimeout the timeout value in milliseconds.
 		 */
-		public ResultProcessor(@Nullable Session session, @Nonnull Class<T> responseClass, long requestTimeout) {
+		public ResultProcessor(
+			long requestId,
+			@Nullable Session session,
+			@Nonnull Class<T> responseClass,
+			long requestTimeout
+		) {
 			requireNotNull(responseClass, "responseClass");
+			this.requestId = requestId;
 			this.session = session;
 			this.responseClass = responseClass;
 			this.requestTimeout = requestTimeout < 1 ? DEFAULT_RESPONSE_TIMEOUT : requestTimeout;
@@ -2539,10 +5355,14 @@ public class Channel implements Closeable {
 		 * is closed.
 		 */
 		public void sessionClosed() {
-			synchronized (this) {
-				closed = true;
-				this.notifyAll();
-			}
+			future.completeExceptionally(new CastException("The session was closed by the cast device"));
+		}
+
+		/**
+		 * Called if the response isn't received in time.
+		 */
+		public void timedOut() {
+			future.completeExceptionally(new CastException("Waiting for response timed out", new TimeoutException()));
 		}
 
 		/**
@@ -2550,11 +5370,12 @@ public class Channel implements Closeable {
 		 * {@link ResultProcessor} by its request ID.
 		 *
 		 * @param jsonMSG the message content formatted as JSON.
+		 * @param sourceId the source ID of the message.
 		 * @throws JsonMappingException If the JSON mapping fails.
-		 * @throws JsonProcessingException If the JSON can't be processed.
+		 * @throws IOException If the JSON can't be processed.
 		 */
 		@SuppressWarnings("unchecked")
-		public void process(String jsonMSG) throws JsonMappingException, JsonProcessingException {
+		public void process(String jsonMSG, @Nullable String sourceId) throws IOException {
 			Class<?> deserializeTo;
 			if (StandardResponse.class.isAssignableFrom(responseClass)) {
 				deserializeTo = StandardResponse.class;
@@ -2562,52 +5383,53 @@ public class Channel implements Closeable {
 				deserializeTo = responseClass;
 			}
 			Object object;
-			try {
-				object = jsonMapper.readValue(jsonMSG, deserializeTo);
+			try (JsonParser parser = createResponseParser(jsonMSG)) {
+				object = JacksonHelper.readerFor(deserializeTo).readValue(parser);
 			} catch (IllegalArgumentException e) {
-				synchronized (this) {
-					this.result = new ResultProcessorResult<>(null, null, jsonMSG);
-					this.notify();
-					return;
-				}
+				future.completeExceptionally(new UnprocessedCastException(
+					"Failed to deserialize response to " + responseClass.getSimpleName(),
+					jsonMSG
+				));
+				return;
+			} catch (IOException e) {
+				future.completeExceptionally(e);
+				throw e;
 			}
-			synchronized (this) {
-				if (responseClass.isInstance(object)) {
-					this.result = new ResultProcessorResult<>((T) object, null, null);
-				} else {
-					this.result = new ResultProcessorResult<>(null, (StandardResponse) object, null);
-				}
-				this.notifyAll();
+			if (object instanceof MediaStatusResponse) {
+				updateMediaStatuses((MediaStatusResponse) object, sourceId);
+			}
+			if (responseClass.isInstance(object)) {
+				future.complete((T) object);
+			} else if (object instanceof ErrorResponse) {
+				future.completeExceptionally(new ErrorResponseCastException(
+					"Cast device returned an error: " + object,
+					(ErrorResponse) object
+				));
+			} else if (object instanceof LaunchErrorResponse) {
+				future.completeExceptionally(new LaunchErrorCastException(
+					"Application launch error: " + ((LaunchErrorResponse) object).getReason()
+				));
+			} else if (object instanceof StandardResponse) {
+				future.completeExceptionally(new UntypedCastException(
+					"Cast device returned " + object.getClass().getSimpleName() +
+					" instead of the expected " + responseClass.getSimpleName(),
+					(StandardResponse) object
+				));
+			} else {
+				future.completeExceptionally(new UnprocessedCastException(
+					"Failed to deserialize response to " + responseClass.getSimpleName(),
+					jsonMSG
+				));
 			}
 		}
 
 		/**
-		 * Returns the {@link ResultProcessorResult} when it is due. If the
-		 * response hasn't been received yet, this method will block until it is
-		 * or the timeout expires.
-		 *
-		 * @return The response.
-		 * @throws InterruptedException If the thread is interrupted while
-		 *             waiting for the response.
-		 * @throws TimeoutException If waiting for the response times out.
-		 * @throws CastException If the {@link Session} is closed while waiting
-		 *             for the response.
+		 * @return The {@link CompletableFuture} that is completed with the
+		 *         response.
 		 */
 		@Nonnull
-		public ResultProcessorResult<T> get() throws InterruptedException, TimeoutException, CastException {
-			synchronized (this) {
-				if (result != null) {
-					return result;
-				}
-				this.wait(requestTimeout);
-				if (closed) {
-					throw new CastException("The session was closed by the cast device");
-				}
-				if (result == null) {
-					throw new TimeoutException();
-				}
-				return result;
-			}
+		public CompletableFuture<T> getFuture() {
+			return future;
 		}
 
 		/**
@@ -2619,41 +5441,4 @@ public class Channel implements Closeable {
 			return session;
 		}
 	}
-
-	/**
-	 * A holder for the resulting {@link Response}.
-	 *
-	 * @param <T> the response type.
-	 */
-	protected class ResultProcessorResult<T extends Response> {
-
-		/** The {@link Response} as the expected type */
-		@Nullable
-		protected final T typedResult;
-
-		/** The {@link Response} as an unexpected type */
-		@Nullable
-		protected final StandardResponse untypedResult;
-
-		/** The response as JSON */
-		@Nullable
-		protected final String unprocessedResult;
-
-		/**
-		 * Creates a new instance using the specified parameters.
-		 *
-		 * @param typedResult the {@link Response} as the expected type.
-		 * @param untypedResult the {@link Response} as an unexpected type.
-		 * @param unprocessedResult the response as a JSON.
-		 */
-		public ResultProcessorResult(
-			@Nullable T typedResult,
-			@Nullable StandardResponse untypedResult,
-			@Nullable String unprocessedResult
-		) {
-			this.typedResult = typedResult;
-			this.untypedResult = untypedResult;
-			this.unprocessedResult = unprocessedResult;
-		}
-	}
 }
@@ -0,0 +1,268 @@
+/*
+ * Copyright (C) 2021 Digital Media Server developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.digitalmediaserver.cast;
+
+import static org.digitalmediaserver.cast.Util.requireNotNull;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+
+
+/**
+ * A lock-free map with primitive {@code long} keys, intended for a moderate
+ * number of short-lived entries like requests waiting for a response.
+ * <p>
+ * The map uses a fixed number of buckets, each holding an immutable chain of
+ * entries that is replaced using compare-and-set. Keys are never boxed, and
+ * neither reads nor writes ever block. Sequential keys are distributed evenly
+ * over the buckets, which makes this well suited for keys generated from a
+ * counter. {@code null} values aren't allowed.
+ *
+ * @param <V> the value type.
+ *
+ * @author Nadahar
+ */
+@ThreadSafe
+public class ConcurrentLongMap<V> {
+
+	/** The default number of buckets */
+	public static final int DEFAULT_BUCKETS = 256;
+
+	/** The buckets */
+	@Nonnull
+	protected final AtomicReferenceArray<Node<V>> buckets;
+
+	/** The mask used to find the bucket for a key */
+	protected final int mask;
+
+	/** The number of entries */
+	@Nonnull
+	protected final AtomicInteger size = new AtomicInteger();
+
+	/**
+	 * Creates a new instance with {@value #DEFAULT_BUCKETS} buckets.
+	 */
+	public ConcurrentLongMap() {
+		this(DEFAULT_BUCKETS);
+	}
+
+	/**
+	 * Creates a new instance with the specified number of buckets, rounded up
+	 * to the nearest power of two.
+	 *
+	 * @param buckets the number of buckets.
+	 * @throws IllegalArgumentException If {@code buckets} is less than 1 or
+	 *             greater than 2^30.
+	 */
+	public ConcurrentLongMap(int buckets) {
+		if (buckets < 1 || buckets > 1 << 30) {
+			throw new IllegalArgumentException("Invalid number of buckets: " + buckets);
+		}
+		int capacity = Integer.highestOneBit(buckets);
+		if (capacity < buckets) {
+			capacity <<= 1;
+		}
+		this.buckets = new AtomicReferenceArray<>(capacity);
+		this.mask = capacity - 1;
+	}
+
+	/**
+	 * Finds the bucket index for the specified key.
+	 *
+	 * @param key the key.
+	 * @return The bucket index.
+	 */
+	protected int indexOf(long key) {
+		return (int) (key ^ (key >>> 32)) & mask;
+	}
+
+	/**
+	 * Returns the value mapped to the specified key.
+	 *
+	 * @param key the key.
+	 * @return The value or {@code null} if no value is mapped to {@code key}.
+	 */
+	@Nullable
+	public V get(long key) {
+		for (Node<V> node = buckets.get(indexOf(key)); node != null; node = node.next) {
+			if (node.key == key) {
+				return node.value;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Maps the specified value to the specified key unless the key is already
+	 * mapped.
+	 *
+	 * @param key the key.
+	 * @param value the value.
+	 * @return The existing value if {@code key} was already mapped, or
+	 *         {@code null} if {@code value} was added.
+	 * @throws IllegalArgumentException If {@code value} is {@code null}.
+	 */
+	@Nullable
+	public V putIfAbsent(long key, @Nonnull V value) {
+		requireNotNull(value, "value");
+		int index = indexOf(key);
+		while (true) {
+			Node<V> head = buckets.get(index);
+			for (Node<V> node = head; node != null; node = node.next) {
+				if (node.key == key) {
+					return node.value;
+				}
+			}
+			if (buckets.compareAndSet(index, head, new Node<>(key, value, head))) {
+				size.incrementAndGet();
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * Removes the mapping for the specified key.
+	 *
+	 * @param key the key.
+	 * @return The removed value or {@code null} if {@code key} wasn't mapped.
+	 */
+	@Nullable
+	public V remove(long key) {
+		return remove(key, null);
+	}
+
+	/**
+	 * Removes the mapping for the specified key if it's mapped to the
+	 * specified value, or to any value if {@code expected} is {@code null}.
+	 *
+	 * @param key the key.
+	 * @param expected the value that must be mapped to {@code key} for the
+	 *            mapping to be removed, or {@code null} to remove any value.
+	 * @return The removed value or {@code null} if nothing was removed.
+	 */
+	@Nullable
+	public V remove(long key, @Nullable V expected) {
+		int index = indexOf(key);
+		while (true) {
+			Node<V> head = buckets.get(index);
+			Node<V> found = null;
+			for (Node<V> node = head; node != null; node = node.next) {
+				if (node.key == key) {
+					found = node;
+					break;
+				}
+			}
+			if (found == null || (expected != null && found.value != expected)) {
+				return null;
+			}
+
+			// Copy the nodes in front of the removed node, share the rest
+			Node<V> newHead = found.next;
+			for (Node<V> node = head; node != found; node = node.next) {
+				newHead = new Node<>(node.key, node.value, newHead);
+			}
+			if (buckets.compareAndSet(index, head, newHead)) {
+				size.decrementAndGet();
+				return found.value;
+			}
+		}
+	}
+
+	/**
+	 * @return The number of mappings.
+	 */
+	public int size() {
+		return size.get();
+	}
+
+	/**
+	 * @return {@code true} if there are no mappings, {@code false} otherwise.
+	 */
+	public boolean isEmpty() {
+		return size.get() == 0;
+	}
+
+	/**
+	 * @return A {@link List} with a weakly consistent snapshot of the values.
+	 */
+	@Nonnull
+	public List<V> values() {
+		List<V> result = new ArrayList<>(Math.max(size.get(), 4));
+		for (int i = 0; i < buckets.length(); i++) {
+			for (Node<V> node = buckets.get(i); node != null; node = node.next) {
+				result.add(node.value);
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("{");
+		boolean first = true;
+		for (int i = 0; i < buckets.length(); i++) {
+			for (Node<V> node = buckets.get(i); node != null; node = node.next) {
+				if (first) {
+					first = false;
+				} else {
+					sb.append(", ");
+				}
+				sb.append(node.key).append('=').append(node.value);
+			}
+		}
+		return sb.append('}').toString();
+	}
+
+	/**
+	 * An immutable bucket chain node.
+	 *
+	 * @param <V> the value type.
+	 *
+	 * @author Nadahar
+	 */
+	@Immutable
+	protected static class Node<V> {
+
+		/** The key */
+		protected final long key;
+
+		/** The value */
+		@Nonnull
+		protected final V value;
+
+		/** The next node in the chain */
+		@Nullable
+		protected final Node<V> next;
+
+		/**
+		 * Creates a new instance using the specified parameters.
+		 *
+		 * @param key the key.
+		 * @param value the value.
+		 * @param next the next node in the chain.
+		 */
+		protected Node(long key, @Nonnull V value, @Nullable Node<V> next) {
+			this.key = key;
+			this.value = value;
+			this.next = next;
+		}
+	}
+}
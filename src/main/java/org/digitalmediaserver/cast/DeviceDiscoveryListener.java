@@ -28,7 +28,10 @@ public interface DeviceDiscoveryListener {
 	void deviceDiscovered(CastDevice castDevice);
 
 	/**
-	 * Invoked when a cast device disappears.
+	 * Invoked when a cast device disappears. This is also invoked when a cast
+	 * device is replaced by a new {@link CastDevice} instance because its
+	 * address has changed, followed by {@link #deviceDiscovered} for the new
+	 * instance.
 	 *
 	 * @param castDevice the disappeared cast device.
 	 */
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2021 Digital Media Server developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.digitalmediaserver.cast;
+
+
+/**
+ * Interfaces for demand-driven publishing of items, with the same methods and
+ * semantics as {@code java.util.concurrent.Flow} and Reactive Streams. They
+ * are declared here because this library targets Java 8, where
+ * {@code java.util.concurrent.Flow} isn't available. Adapting them to either
+ * of the standard interfaces only requires forwarding each method.
+ *
+ * @author Nadahar
+ */
+public final class Flow {
+
+	/**
+	 * Not to be instantiated.
+	 */
+	private Flow() {
+	}
+
+	/**
+	 * A producer of items that are received by {@link Subscriber}s.
+	 *
+	 * @param <T> the published item type.
+	 */
+	public interface Publisher<T> {
+
+		/**
+		 * Adds the specified {@link Subscriber}. The {@link Subscriber} will
+		 * receive a {@link Subscription} through
+		 * {@link Subscriber#onSubscribe(Subscription)}, and no items until it
+		 * requests them.
+		 *
+		 * @param subscriber the {@link Subscriber}.
+		 * @throws NullPointerException If {@code subscriber} is {@code null}.
+		 */
+		void subscribe(Subscriber<? super T> subscriber);
+	}
+
+	/**
+	 * A receiver of items. The methods are invoked in order, never
+	 * concurrently, for each {@link Subscription}.
+	 *
+	 * @param <T> the received item type.
+	 */
+	public interface Subscriber<T> {
+
+		/**
+		 * Called before any other method for a new {@link Subscription}.
+		 *
+		 * @param subscription the new {@link Subscription}.
+		 */
+		void onSubscribe(Subscription subscription);
+
+		/**
+		 * Called with the next item, only if it has been requested.
+		 *
+		 * @param item the item.
+		 */
+		void onNext(T item);
+
+		/**
+		 * Called when the {@link Subscription} has failed. No other methods
+		 * are called after this.
+		 *
+		 * @param throwable the cause of the failure.
+		 */
+		void onError(Throwable throwable);
+
+		/**
+		 * Called when no more items will be published. No other methods are
+		 * called after this.
+		 */
+		void onComplete();
+	}
+
+	/**
+	 * The link between a {@link Publisher} and a {@link Subscriber}.
+	 */
+	public interface Subscription {
+
+		/**
+		 * Adds the specified number of items to the current unfulfilled
+		 * demand. If {@code n} isn't positive, the {@link Subscriber} will
+		 * receive an {@link IllegalArgumentException} through
+		 * {@link Subscriber#onError(Throwable)}.
+		 *
+		 * @param n the number of additional items to receive.
+		 */
+		void request(long n);
+
+		/**
+		 * Stops the delivery of items to the {@link Subscriber}, possibly
+		 * after a few items that are already underway.
+		 */
+		void cancel();
+	}
+}
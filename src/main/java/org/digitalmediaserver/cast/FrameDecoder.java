@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2021 Digital Media Server developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.digitalmediaserver.cast;
+
+import static org.digitalmediaserver.cast.Util.requireNotNull;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+import org.digitalmediaserver.cast.CastChannel.CastMessage;
+import com.google.protobuf.CodedInputStream;
+
+
+/**
+ * A decoder that reads length-prefixed {@link CastMessage} frames from a
+ * blocking {@link InputStream} using a single reusable buffer.
+ * <p>
+ * Data is read from the {@link InputStream} in as large chunks as are
+ * available, instead of reading the length prefix one byte at a time, which
+ * is expensive when every read goes through the TLS layer. Messages are
+ * parsed directly from the buffer, so no intermediate array is allocated per
+ * message. Frames larger than the maximum frame size are rejected before any
+ * allocation takes place, so a corrupted length prefix can't cause a huge
+ * allocation.
+ * <p>
+ * Since the decoder reads ahead, all reads from the {@link InputStream} must
+ * go through the same {@link FrameDecoder} instance.
+ *
+ * @author Nadahar
+ */
+@NotThreadSafe
+public class FrameDecoder {
+
+	/** The initial buffer size */
+	protected static final int INITIAL_BUFFER_SIZE = 8 * 1024;
+
+	/** The {@link InputStream} to read from */
+	@Nonnull
+	protected final InputStream inputStream;
+
+	/** The maximum frame size, excluding the length prefix */
+	protected final int maxFrameSize;
+
+	/**
+	 * The buffer, always in "read mode" with the undecoded data between the
+	 * position and the limit
+	 */
+	@Nonnull
+	protected ByteBuffer buffer;
+
+	/**
+	 * Creates a new instance that reads from the specified
+	 * {@link InputStream} using {@link SharedSelector#MAX_FRAME_SIZE} as the
+	 * maximum frame size.
+	 *
+	 * @param inputStream the {@link InputStream} to read from.
+	 * @throws IllegalArgumentException If {@code inputStream} is {@code null}.
+	 */
+	public FrameDecoder(@Nonnull InputStream inputStream) {
+		this(inputStream, SharedSelector.MAX_FRAME_SIZE);
+	}
+
+	/**
+	 * Creates a new instance using the specified parameters.
+	 *
+	 * @param inputStream the {@link InputStream} to read from.
+	 * @param maxFrameSize the maximum frame size in bytes, excluding the
+	 *            length prefix.
+	 * @throws IllegalArgumentException If {@code inputStream} is {@code null}
+	 *             or {@code maxFrameSize} is less than 1.
+	 */
+	public FrameDecoder(@Nonnull InputStream inputStream, int maxFrameSize) {
+		requireNotNull(inputStream, "inputStream");
+		if (maxFrameSize < 1) {
+			throw new IllegalArgumentException("maxFrameSize must be positive");
+		}
+		this.inputStream = inputStream;
+		this.maxFrameSize = maxFrameSize;
+		this.buffer = ByteBuffer.allocate(Math.min(INITIAL_BUFFER_SIZE, maxFrameSize + 4));
+		this.buffer.limit(0);
+	}
+
+	/**
+	 * @return The {@link InputStream} this decoder reads from.
+	 */
+	@Nonnull
+	public InputStream getInputStream() {
+		return inputStream;
+	}
+
+	/**
+	 * @return The maximum frame size in bytes, excluding the length prefix.
+	 */
+	public int getMaxFrameSize() {
+		return maxFrameSize;
+	}
+
+	/**
+	 * Reads the next {@link CastMessage} in a blocking fashion. This method
+	 * will not return until a message is either completely read, {@code EOF}
+	 * is reached or an {@link IOException} is thrown.
+	 *
+	 * @return The resulting {@link ImmutableCastMessage}.
+	 * @throws CastException If the frame size is invalid or if {@code EOF} is
+	 *             reached in the middle of a frame.
+	 * @throws EOFException If {@code EOF} is reached before a new frame
+	 *             starts.
+	 * @throws IOException If an error occurs during the operation.
+	 */
+	@Nonnull
+	public ImmutableCastMessage readMessage() throws IOException {
+		fill(4);
+		int size = buffer.getInt(buffer.position());
+		if (size < 0 || size > maxFrameSize) {
+			throw new CastException("Invalid message size " + size + " (maximum is " + maxFrameSize + ")");
+		}
+		fill(size + 4);
+		int offset = buffer.position() + 4;
+		buffer.position(offset + size);
+		return ImmutableCastMessage.create(CastMessage.parseFrom(
+			CodedInputStream.newInstance(buffer.array(), buffer.arrayOffset() + offset, size)
+		));
+	}
+
+	/**
+	 * Reads from the {@link InputStream} until the buffer holds at least the
+	 * specified number of undecoded bytes, compacting or growing the buffer
+	 * as needed.
+	 *
+	 * @param required the number of bytes required.
+	 * @throws CastException If {@code EOF} is reached in the middle of a
+	 *             frame.
+	 * @throws EOFException If {@code EOF} is reached before any data is read.
+	 * @throws IOException If an error occurs during the operation.
+	 */
+	protected void fill(int required) throws IOException {
+		if (buffer.remaining() >= required) {
+			return;
+		}
+		if (buffer.capacity() < required) {
+			ByteBuffer newBuffer = ByteBuffer.allocate(Math.min(Math.max(buffer.capacity() * 2, required), maxFrameSize + 4));
+			newBuffer.put(buffer);
+			buffer = newBuffer;
+		} else {
+			buffer.compact();
+		}
+
+		// The buffer is now in "write mode"
+		try {
+			while (buffer.position() < required) {
+				int read = inputStream.read(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+				if (read < 0) {
+					if (buffer.position() == 0) {
+						throw new EOFException("End of stream reached");
+					}
+					throw new CastException(
+						"Incomplete message, ended after reading " + buffer.position() + " of " + required + " bytes"
+					);
+				}
+				buffer.position(buffer.position() + read);
+			}
+		} finally {
+			buffer.flip();
+		}
+	}
+}
@@ -0,0 +1,285 @@
+/*
+ * Copyright (C) 2021 Digital Media Server developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.digitalmediaserver.cast;
+
+import static org.digitalmediaserver.cast.Util.requireNotNull;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import org.digitalmediaserver.cast.CastChannel.CastMessage;
+import com.google.protobuf.CodedOutputStream;
+
+
+/**
+ * An encoder that writes length-prefixed {@link CastMessage} frames to a
+ * blocking {@link OutputStream}.
+ * <p>
+ * Each frame is serialized, length prefix included, into a single buffer that
+ * is written with one call, so that a message doesn't end up split over
+ * several TLS records. Messages written concurrently from several threads are
+ * coalesced: The thread that gets to write drains every queued message into
+ * the same buffer and writes them all at once, while the other threads just
+ * wait for their messages to be written.
+ * <p>
+ * {@link FrameEncoder} can also act as the {@link OutboundQueue.MessageSink}
+ * of an {@link OutboundQueue}, in which case it writes each batch taken from
+ * the queue in as few calls as possible.
+ *
+ * @author Nadahar
+ */
+@ThreadSafe
+public class FrameEncoder implements OutboundQueue.MessageSink {
+
+	/** The size above which a batch of queued messages is written */
+	protected static final int MAX_BATCH_SIZE = 16 * 1024;
+
+	/** The {@link OutputStream} to write to */
+	@Nonnull
+	protected final OutputStream outputStream;
+
+	/** The messages waiting to be written */
+	@Nonnull
+	protected final Queue<PendingMessage> queue = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * The write lock, a {@link ReentrantLock} rather than a monitor so that
+	 * virtual threads aren't pinned while writing
+	 */
+	@Nonnull
+	protected final ReentrantLock writeLock = new ReentrantLock();
+
+	/** The reusable write buffer */
+	@Nonnull
+	@GuardedBy("writeLock")
+	protected byte[] buffer = new byte[1024];
+
+	/**
+	 * Creates a new instance that writes to the specified
+	 * {@link OutputStream}.
+	 *
+	 * @param outputStream the {@link OutputStream} to write to.
+	 * @throws IllegalArgumentException If {@code outputStream} is
+	 *             {@code null}.
+	 */
+	public FrameEncoder(@Nonnull OutputStream outputStream) {
+		requireNotNull(outputStream, "outputStream");
+		this.outputStream = outputStream;
+	}
+
+	/**
+	 * @return The {@link OutputStream} this encoder writes to.
+	 */
+	@Nonnull
+	public OutputStream getOutputStream() {
+		return outputStream;
+	}
+
+	/**
+	 * Writes the specified {@link CastMessage}, possibly together with
+	 * messages queued by other threads. This method blocks until the message
+	 * has been written.
+	 *
+	 * @param message the {@link CastMessage} to write.
+	 * @throws IOException If an error occurs while writing the message.
+	 */
+	public void write(@Nonnull CastMessage message) throws IOException {
+		requireNotNull(message, "message");
+		PendingMessage pending = new PendingMessage(message);
+		queue.add(pending);
+		writeLock.lock();
+		try {
+			while (!pending.done) {
+				writeBatch();
+			}
+		} finally {
+			writeLock.unlock();
+		}
+		if (pending.failure != null) {
+			// All messages in a failed batch share the exception
+			throw pending.failure;
+		}
+	}
+
+	/**
+	 * Writes the specified {@link CastMessage}s in order, possibly together
+	 * with messages queued by other threads. This method blocks until all the
+	 * messages have been written.
+	 *
+	 * @param messages the {@link CastMessage}s to write.
+	 * @throws IOException If an error occurs while writing the messages.
+	 */
+	@Override
+	public void write(@Nonnull List<CastMessage> messages) throws IOException {
+		requireNotNull(messages, "messages");
+		if (messages.isEmpty()) {
+			return;
+		}
+		PendingMessage[] pendings = new PendingMessage[messages.size()];
+		for (int i = 0; i < pendings.length; i++) {
+			CastMessage message = messages.get(i);
+			requireNotNull(message, "message");
+			pendings[i] = new PendingMessage(message);
+			queue.add(pendings[i]);
+		}
+		PendingMessage last = pendings[pendings.length - 1];
+		writeLock.lock();
+		try {
+			while (!last.done) {
+				writeBatch();
+			}
+		} finally {
+			writeLock.unlock();
+		}
+		for (PendingMessage pending : pendings) {
+			if (pending.failure != null) {
+				throw pending.failure;
+			}
+		}
+	}
+
+	/**
+	 * Drains queued messages into the buffer and writes them with a single
+	 * call.
+	 */
+	@GuardedBy("writeLock")
+	protected void writeBatch() {
+		int length = 0;
+		PendingMessage first = null;
+		PendingMessage last = null;
+		PendingMessage pending;
+		while (length < MAX_BATCH_SIZE && (pending = queue.poll()) != null) {
+			int size = pending.message.getSerializedSize();
+			ensureCapacity(length + size + 4);
+			length = encode(pending.message, size, buffer, length);
+			if (first == null) {
+				first = pending;
+			} else {
+				last.next = pending;
+			}
+			last = pending;
+		}
+		if (first == null) {
+			return;
+		}
+
+		IOException failure = null;
+		try {
+			outputStream.write(buffer, 0, length);
+			outputStream.flush();
+		} catch (IOException e) {
+			failure = e;
+		}
+		for (pending = first; pending != null; pending = pending.next) {
+			pending.failure = failure;
+			pending.done = true;
+		}
+	}
+
+	/**
+	 * Makes sure that the buffer can hold at least the specified number of
+	 * bytes.
+	 *
+	 * @param capacity the required capacity.
+	 */
+	@GuardedBy("writeLock")
+	protected void ensureCapacity(int capacity) {
+		if (buffer.length < capacity) {
+			byte[] newBuffer = new byte[Math.max(buffer.length * 2, capacity)];
+			System.arraycopy(buffer, 0, newBuffer, 0, buffer.length);
+			buffer = newBuffer;
+		}
+	}
+
+	/**
+	 * Encodes the specified {@link CastMessage} as a complete frame into a
+	 * new {@link ByteBuffer}.
+	 *
+	 * @param message the {@link CastMessage} to encode.
+	 * @return The new {@link ByteBuffer} ready for reading.
+	 */
+	@Nonnull
+	public static ByteBuffer encode(@Nonnull CastMessage message) {
+		int size = message.getSerializedSize();
+		byte[] frame = new byte[size + 4];
+		encode(message, size, frame, 0);
+		return ByteBuffer.wrap(frame);
+	}
+
+	/**
+	 * Encodes the specified {@link CastMessage} as a complete frame into the
+	 * specified array.
+	 *
+	 * @param message the {@link CastMessage} to encode.
+	 * @param size the serialized size of {@code message}.
+	 * @param target the array to encode into.
+	 * @param offset the offset in {@code target} to start at.
+	 * @return The offset in {@code target} following the frame.
+	 */
+	protected static int encode(@Nonnull CastMessage message, int size, @Nonnull byte[] target, int offset) {
+		target[offset] = (byte) (size >> 24);
+		target[offset + 1] = (byte) (size >> 16);
+		target[offset + 2] = (byte) (size >> 8);
+		target[offset + 3] = (byte) size;
+		try {
+			CodedOutputStream output = CodedOutputStream.newInstance(target, offset + 4, size);
+			message.writeTo(output);
+			output.checkNoSpaceLeft();
+		} catch (IOException e) {
+			throw new AssertionError("Serializing to a byte array should never throw an IOException", e);
+		}
+		return offset + 4 + size;
+	}
+
+	/**
+	 * A message waiting to be written.
+	 *
+	 * @author Nadahar
+	 */
+	protected static class PendingMessage {
+
+		/** The {@link CastMessage} to write */
+		@Nonnull
+		protected final CastMessage message;
+
+		/** The next {@link PendingMessage} in the same batch */
+		@Nullable
+		protected PendingMessage next;
+
+		/** Whether the write has been attempted */
+		protected volatile boolean done;
+
+		/** The {@link IOException} that occurred while writing, if any */
+		@Nullable
+		protected volatile IOException failure;
+
+		/**
+		 * Creates a new instance.
+		 *
+		 * @param message the {@link CastMessage} to write.
+		 */
+		protected PendingMessage(@Nonnull CastMessage message) {
+			this.message = message;
+		}
+	}
+}
@@ -0,0 +1,512 @@
+/*
+ * Copyright (C) 2021 Digital Media Server developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.digitalmediaserver.cast;
+
+import static org.digitalmediaserver.cast.Util.requireNotBlank;
+import static org.digitalmediaserver.cast.Util.requireNotNull;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * A timer that uses a hashed timing wheel to run a large number of short,
+ * approximate timeouts at constant cost per timeout.
+ * <p>
+ * Scheduling and cancelling a {@link Timeout} only appends it to a lock-free
+ * queue. A single daemon worker thread moves new timeouts into the wheel
+ * buckets, removes cancelled timeouts and runs the timeouts that have expired
+ * once every tick. The timeouts are thus accurate to within one tick, which is
+ * more than good enough for request timeouts.
+ * <p>
+ * The worker thread is started when the first {@link Timeout} is scheduled,
+ * and waits without ticking while there are no pending timeouts. Tasks are
+ * run on the worker thread, so they must be short and must never block.
+ *
+ * @author Nadahar
+ */
+@ThreadSafe
+public class HashedWheelTimer {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(HashedWheelTimer.class);
+
+	/** The default tick duration in milliseconds */
+	public static final long DEFAULT_TICK_DURATION = 10L;
+
+	/** The default number of buckets in the wheel */
+	public static final int DEFAULT_WHEEL_SIZE = 512;
+
+	/** The maximum number of new timeouts to move into the wheel per tick */
+	protected static final int MAX_TRANSFERS_PER_TICK = 100000;
+
+	/** The worker state where the worker thread hasn't been started */
+	protected static final int STATE_INIT = 0;
+
+	/** The worker state where the worker thread has been started */
+	protected static final int STATE_STARTED = 1;
+
+	/** The worker state where this timer has been shut down */
+	protected static final int STATE_SHUTDOWN = 2;
+
+	/** The name of this timer, used for the worker thread name */
+	@Nonnull
+	protected final String name;
+
+	/** The tick duration in nanoseconds */
+	protected final long tickNanos;
+
+	/** The wheel buckets, only accessed by the worker thread */
+	@Nonnull
+	protected final Bucket[] wheel;
+
+	/** The mask used to find the bucket for a tick */
+	protected final int mask;
+
+	/** The {@link System#nanoTime()} value all deadlines are relative to */
+	protected final long startTime = System.nanoTime();
+
+	/** The timeouts that have been scheduled but not yet placed in the wheel */
+	@Nonnull
+	protected final Queue<Timeout> newTimeouts = new ConcurrentLinkedQueue<>();
+
+	/** The timeouts that have been cancelled while in the wheel */
+	@Nonnull
+	protected final Queue<Timeout> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+
+	/** The number of timeouts that have neither expired nor been cancelled */
+	@Nonnull
+	protected final AtomicLong pending = new AtomicLong();
+
+	/** The worker state */
+	@Nonnull
+	protected final AtomicInteger state = new AtomicInteger(STATE_INIT);
+
+	/** The synchronization object the idle worker thread waits on */
+	@Nonnull
+	protected final Object idleLock = new Object();
+
+	/** The worker thread */
+	@Nonnull
+	protected final Thread workerThread;
+
+	/**
+	 * Creates a new instance with the default tick duration and wheel size.
+	 *
+	 * @param name the name to use for the worker thread.
+	 * @throws IllegalArgumentException If {@code name} is blank.
+	 */
+	public HashedWheelTimer(@Nonnull String name) {
+		this(name, DEFAULT_TICK_DURATION, TimeUnit.MILLISECONDS, DEFAULT_WHEEL_SIZE);
+	}
+
+	/**
+	 * Creates a new instance using the specified parameters.
+	 *
+	 * @param name the name to use for the worker thread.
+	 * @param tickDuration the duration of one tick.
+	 * @param unit the {@link TimeUnit} of {@code tickDuration}.
+	 * @param wheelSize the number of buckets in the wheel, rounded up to the
+	 *            nearest power of two.
+	 * @throws IllegalArgumentException If {@code name} is blank or
+	 *             {@code unit} is {@code null}, or if {@code tickDuration} or
+	 *             {@code wheelSize} is out of range.
+	 */
+	public HashedWheelTimer(@Nonnull String name, long tickDuration, @Nonnull TimeUnit unit, int wheelSize) {
+		requireNotBlank(name, "name");
+		requireNotNull(unit, "unit");
+		if (tickDuration < 1L) {
+			throw new IllegalArgumentException("tickDuration must be positive");
+		}
+		if (wheelSize < 1 || wheelSize > 1 << 30) {
+			throw new IllegalArgumentException("Invalid wheel size: " + wheelSize);
+		}
+		this.name = name;
+		this.tickNanos = Math.max(unit.toNanos(tickDuration), TimeUnit.MILLISECONDS.toNanos(1L));
+		int size = Integer.highestOneBit(wheelSize);
+		if (size < wheelSize) {
+			size <<= 1;
+		}
+		this.wheel = new Bucket[size];
+		for (int i = 0; i < size; i++) {
+			wheel[i] = new Bucket();
+		}
+		this.mask = size - 1;
+		this.workerThread = new Thread(new Worker(), name);
+		this.workerThread.setDaemon(true);
+	}
+
+	/**
+	 * @return The name of this timer.
+	 */
+	@Nonnull
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return The number of timeouts that have neither expired nor been
+	 *         cancelled.
+	 */
+	public long getPendingTimeouts() {
+		return pending.get();
+	}
+
+	/**
+	 * Schedules the specified task to run on the worker thread once the
+	 * specified delay has passed.
+	 *
+	 * @param task the task to run.
+	 * @param delay the delay.
+	 * @param unit the {@link TimeUnit} of {@code delay}.
+	 * @return The new {@link Timeout}.
+	 * @throws IllegalArgumentException If {@code task} or {@code unit} is
+	 *             {@code null}.
+	 * @throws RejectedExecutionException If this timer has been shut down.
+	 */
+	@Nonnull
+	public Timeout newTimeout(@Nonnull Runnable task, long delay, @Nonnull TimeUnit unit) {
+		requireNotNull(task, "task");
+		requireNotNull(unit, "unit");
+		if (state.get() == STATE_INIT && state.compareAndSet(STATE_INIT, STATE_STARTED)) {
+			workerThread.start();
+		} else if (state.get() == STATE_SHUTDOWN) {
+			throw new RejectedExecutionException(name + " has been shut down");
+		}
+
+		long deadline = System.nanoTime() - startTime + Math.max(unit.toNanos(delay), 0L);
+		if (deadline < 0L) {
+			// Overflow
+			deadline = Long.MAX_VALUE;
+		}
+		Timeout result = new Timeout(task, deadline);
+		boolean wakeUp = pending.incrementAndGet() == 1L;
+		newTimeouts.add(result);
+		if (wakeUp) {
+			synchronized (idleLock) {
+				idleLock.notifyAll();
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Shuts down this timer. Pending timeouts will never run.
+	 */
+	public void shutdown() {
+		if (state.getAndSet(STATE_SHUTDOWN) == STATE_STARTED) {
+			workerThread.interrupt();
+		}
+	}
+
+	/**
+	 * @return {@code true} if this timer has been shut down, {@code false}
+	 *         otherwise.
+	 */
+	public boolean isShutdown() {
+		return state.get() == STATE_SHUTDOWN;
+	}
+
+	/**
+	 * The worker that advances the wheel.
+	 *
+	 * @author Nadahar
+	 */
+	protected class Worker implements Runnable {
+
+		/** The current tick */
+		protected long tick;
+
+		@Override
+		public void run() {
+			try {
+				while (state.get() != STATE_SHUTDOWN) {
+					if (pending.get() == 0L) {
+						synchronized (idleLock) {
+							while (pending.get() == 0L && state.get() != STATE_SHUTDOWN) {
+								idleLock.wait();
+							}
+						}
+
+						// Nothing is in the wheel, so the ticks that passed while idle can be skipped
+						tick = (System.nanoTime() - startTime) / tickNanos;
+					}
+					long deadline = waitForNextTick();
+					if (deadline < 0L) {
+						break;
+					}
+					removeCancelled();
+					transferNewTimeouts();
+					wheel[(int) (tick & mask)].expire(deadline);
+					tick++;
+				}
+			} catch (InterruptedException e) {
+				// Shut down
+			}
+			LOGGER.trace(Channel.CAST_API_MARKER, "{} stopped", name);
+		}
+
+		/**
+		 * Sleeps until the end of the current tick.
+		 *
+		 * @return The deadline of the current tick relative to
+		 *         {@link #startTime}, or {@code -1} if this timer was shut
+		 *         down.
+		 * @throws InterruptedException If the thread was interrupted while
+		 *             sleeping.
+		 */
+		protected long waitForNextTick() throws InterruptedException {
+			long deadline = tickNanos * (tick + 1);
+			while (state.get() != STATE_SHUTDOWN) {
+				long remaining = deadline - (System.nanoTime() - startTime);
+				if (remaining <= 0L) {
+					return deadline;
+				}
+				TimeUnit.NANOSECONDS.sleep(remaining);
+			}
+			return -1L;
+		}
+
+		/**
+		 * Removes the cancelled timeouts from their buckets.
+		 */
+		protected void removeCancelled() {
+			Timeout timeout;
+			while ((timeout = cancelledTimeouts.poll()) != null) {
+				if (timeout.bucket != null) {
+					timeout.bucket.remove(timeout);
+				}
+			}
+		}
+
+		/**
+		 * Moves new timeouts into their buckets.
+		 */
+		protected void transferNewTimeouts() {
+			Timeout timeout;
+			for (int i = 0; i < MAX_TRANSFERS_PER_TICK && (timeout = newTimeouts.poll()) != null; i++) {
+				if (timeout.state.get() != Timeout.STATE_INIT) {
+					continue;
+				}
+				long expiryTick = timeout.deadline / tickNanos;
+				timeout.remainingRounds = (expiryTick - tick) / wheel.length;
+
+				// Timeouts that should already have expired are put in the current bucket
+				long targetTick = Math.max(expiryTick, tick);
+				wheel[(int) (targetTick & mask)].add(timeout);
+			}
+		}
+	}
+
+	/**
+	 * A timeout scheduled with a {@link HashedWheelTimer}.
+	 *
+	 * @author Nadahar
+	 */
+	public class Timeout {
+
+		/** The state where the {@link Timeout} is waiting to expire */
+		protected static final int STATE_INIT = 0;
+
+		/** The state where the {@link Timeout} has been cancelled */
+		protected static final int STATE_CANCELLED = 1;
+
+		/** The state where the {@link Timeout} has expired */
+		protected static final int STATE_EXPIRED = 2;
+
+		/** The task to run */
+		@Nonnull
+		protected final Runnable task;
+
+		/** The deadline in nanoseconds relative to {@link #startTime} */
+		protected final long deadline;
+
+		/** The state */
+		@Nonnull
+		protected final AtomicInteger state = new AtomicInteger(STATE_INIT);
+
+		/** The number of wheel rotations left before expiry */
+		protected long remainingRounds;
+
+		/** The {@link Bucket} this {@link Timeout} is in */
+		@Nullable
+		protected volatile Bucket bucket;
+
+		/** The previous {@link Timeout} in the {@link Bucket} */
+		@Nullable
+		protected Timeout prev;
+
+		/** The next {@link Timeout} in the {@link Bucket} */
+		@Nullable
+		protected Timeout next;
+
+		/**
+		 * Creates a new instance using the specified parameters.
+		 *
+		 * @param task the task to run.
+		 * @param deadline the deadline in nanoseconds relative to
+		 *            {@link #startTime}.
+		 */
+		protected Timeout(@Nonnull Runnable task, long deadline) {
+			this.task = task;
+			this.deadline = deadline;
+		}
+
+		/**
+		 * Cancels this {@link Timeout} so that the task won't run.
+		 *
+		 * @return {@code true} if this {@link Timeout} was cancelled,
+		 *         {@code false} if it had already expired or been cancelled.
+		 */
+		public boolean cancel() {
+			if (!state.compareAndSet(STATE_INIT, STATE_CANCELLED)) {
+				return false;
+			}
+			pending.decrementAndGet();
+			cancelledTimeouts.add(this);
+			return true;
+		}
+
+		/**
+		 * @return {@code true} if this {@link Timeout} has been cancelled,
+		 *         {@code false} otherwise.
+		 */
+		public boolean isCancelled() {
+			return state.get() == STATE_CANCELLED;
+		}
+
+		/**
+		 * @return {@code true} if this {@link Timeout} has expired,
+		 *         {@code false} otherwise.
+		 */
+		public boolean isExpired() {
+			return state.get() == STATE_EXPIRED;
+		}
+
+		/**
+		 * Marks this {@link Timeout} as expired and runs the task, unless it
+		 * has been cancelled.
+		 */
+		protected void expire() {
+			if (!state.compareAndSet(STATE_INIT, STATE_EXPIRED)) {
+				return;
+			}
+			pending.decrementAndGet();
+			try {
+				task.run();
+			} catch (Throwable t) {
+				LOGGER.warn(Channel.CAST_API_MARKER, "Timeout task in {} failed: {}", name, t.getMessage());
+				LOGGER.trace(Channel.CAST_API_MARKER, "", t);
+			}
+		}
+
+		@Override
+		public String toString() {
+			long remaining = deadline - (System.nanoTime() - startTime);
+			return getClass().getSimpleName() + " [remaining=" + TimeUnit.NANOSECONDS.toMillis(remaining) +
+				" ms, cancelled=" + isCancelled() + ", expired=" + isExpired() + "]";
+		}
+	}
+
+	/**
+	 * A wheel bucket holding a doubly linked list of {@link Timeout}s. Only
+	 * accessed by the worker thread.
+	 *
+	 * @author Nadahar
+	 */
+	protected static class Bucket {
+
+		/** The first {@link Timeout} */
+		@Nullable
+		protected Timeout head;
+
+		/** The last {@link Timeout} */
+		@Nullable
+		protected Timeout tail;
+
+		/**
+		 * Adds the specified {@link Timeout} to this {@link Bucket}.
+		 *
+		 * @param timeout the {@link Timeout} to add.
+		 */
+		protected void add(@Nonnull Timeout timeout) {
+			timeout.bucket = this;
+			if (head == null) {
+				head = tail = timeout;
+			} else {
+				tail.next = timeout;
+				timeout.prev = tail;
+				tail = timeout;
+			}
+		}
+
+		/**
+		 * Removes the specified {@link Timeout} from this {@link Bucket}.
+		 *
+		 * @param timeout the {@link Timeout} to remove.
+		 * @return The {@link Timeout} that followed {@code timeout}.
+		 */
+		@Nullable
+		protected Timeout remove(@Nonnull Timeout timeout) {
+			Timeout next = timeout.next;
+			if (timeout.prev != null) {
+				timeout.prev.next = next;
+			}
+			if (next != null) {
+				next.prev = timeout.prev;
+			}
+			if (timeout == head) {
+				head = next;
+			}
+			if (timeout == tail) {
+				tail = timeout.prev;
+			}
+			timeout.prev = null;
+			timeout.next = null;
+			timeout.bucket = null;
+			return next;
+		}
+
+		/**
+		 * Expires all {@link Timeout}s in this {@link Bucket} that are due,
+		 * and counts down the rounds of the rest.
+		 *
+		 * @param deadline the deadline of the current tick.
+		 */
+		protected void expire(long deadline) {
+			Timeout timeout = head;
+			while (timeout != null) {
+				if (timeout.isCancelled()) {
+					timeout = remove(timeout);
+				} else if (timeout.remainingRounds <= 0L && timeout.deadline <= deadline) {
+					Timeout next = remove(timeout);
+					timeout.expire();
+					timeout = next;
+				} else {
+					timeout.remainingRounds--;
+					timeout = timeout.next;
+				}
+			}
+		}
+	}
+}
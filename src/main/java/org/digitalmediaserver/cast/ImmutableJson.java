@@ -0,0 +1,291 @@
+/*
+ * Copyright (C) 2021 Digital Media Server developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.digitalmediaserver.cast;
+
+import static org.digitalmediaserver.cast.Util.requireNotNull;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeType;
+
+
+/**
+ * A read-only view of a {@code JSON} tree. The wrapped {@link JsonNode} is
+ * never exposed, so one instance can be shared by any number of threads and
+ * listeners without copying the tree. Use {@link #toJsonNode()} to get a
+ * mutable copy.
+ *
+ * @author Nadahar
+ */
+@Immutable
+public final class ImmutableJson {
+
+	/** The wrapped {@link JsonNode} which must never be modified */
+	@Nonnull
+	private final JsonNode node;
+
+	/**
+	 * Creates a new instance that wraps the specified {@link JsonNode}.
+	 *
+	 * @param node the {@link JsonNode} to wrap.
+	 */
+	private ImmutableJson(@Nonnull JsonNode node) {
+		this.node = node;
+	}
+
+	/**
+	 * Creates a new instance that takes ownership of the specified
+	 * {@link JsonNode}. The {@link JsonNode} must not be modified after this
+	 * call, use {@link #copyOf(JsonNode)} if it might be.
+	 *
+	 * @param node the {@link JsonNode} to wrap.
+	 * @return The new {@link ImmutableJson}.
+	 * @throws IllegalArgumentException If {@code node} is {@code null}.
+	 */
+	@Nonnull
+	public static ImmutableJson wrap(@Nonnull JsonNode node) {
+		requireNotNull(node, "node");
+		return new ImmutableJson(node);
+	}
+
+	/**
+	 * Creates a new instance from a copy of the specified {@link JsonNode}.
+	 *
+	 * @param node the {@link JsonNode} to copy.
+	 * @return The new {@link ImmutableJson}.
+	 * @throws IllegalArgumentException If {@code node} is {@code null}.
+	 */
+	@Nonnull
+	public static ImmutableJson copyOf(@Nonnull JsonNode node) {
+		requireNotNull(node, "node");
+		return new ImmutableJson(node.deepCopy());
+	}
+
+	/**
+	 * @return The {@link JsonNodeType} of this node.
+	 */
+	@Nonnull
+	public JsonNodeType getNodeType() {
+		return node.getNodeType();
+	}
+
+	/**
+	 * @return {@code true} if this is an object node, {@code false} otherwise.
+	 */
+	public boolean isObject() {
+		return node.isObject();
+	}
+
+	/**
+	 * @return {@code true} if this is an array node, {@code false} otherwise.
+	 */
+	public boolean isArray() {
+		return node.isArray();
+	}
+
+	/**
+	 * @return {@code true} if this is a value node, {@code false} otherwise.
+	 */
+	public boolean isValueNode() {
+		return node.isValueNode();
+	}
+
+	/**
+	 * @return {@code true} if this node represents a missing value,
+	 *         {@code false} otherwise.
+	 */
+	public boolean isMissingNode() {
+		return node.isMissingNode();
+	}
+
+	/**
+	 * @return {@code true} if this is a {@code JSON} {@code null},
+	 *         {@code false} otherwise.
+	 */
+	public boolean isNull() {
+		return node.isNull();
+	}
+
+	/**
+	 * @return The number of elements or fields of a container node, zero for
+	 *         other nodes.
+	 */
+	public int size() {
+		return node.size();
+	}
+
+	/**
+	 * Checks whether this object node has the specified field.
+	 *
+	 * @param fieldName the name of the field.
+	 * @return {@code true} if the field exists, {@code false} otherwise.
+	 */
+	public boolean has(@Nullable String fieldName) {
+		return fieldName != null && node.has(fieldName);
+	}
+
+	/**
+	 * Returns the value of the specified field of this object node.
+	 *
+	 * @param fieldName the name of the field.
+	 * @return The read-only field value or {@code null} if it doesn't exist.
+	 */
+	@Nullable
+	public ImmutableJson get(@Nullable String fieldName) {
+		JsonNode child = fieldName == null ? null : node.get(fieldName);
+		return child == null ? null : new ImmutableJson(child);
+	}
+
+	/**
+	 * Returns the specified element of this array node.
+	 *
+	 * @param index the element index.
+	 * @return The read-only element or {@code null} if it doesn't exist.
+	 */
+	@Nullable
+	public ImmutableJson get(int index) {
+		JsonNode child = node.get(index);
+		return child == null ? null : new ImmutableJson(child);
+	}
+
+	/**
+	 * Returns the value of the specified field of this object node, or a
+	 * missing node if it doesn't exist.
+	 *
+	 * @param fieldName the name of the field.
+	 * @return The read-only field value, never {@code null}.
+	 */
+	@Nonnull
+	public ImmutableJson path(@Nullable String fieldName) {
+		return new ImmutableJson(node.path(fieldName));
+	}
+
+	/**
+	 * @return The unmodifiable {@link List} of field names of this object
+	 *         node, or an empty {@link List} for other nodes.
+	 */
+	@Nonnull
+	public List<String> getFieldNames() {
+		if (!node.isObject() || node.size() == 0) {
+			return Collections.emptyList();
+		}
+		List<String> result = new ArrayList<>(node.size());
+		for (Iterator<String> iterator = node.fieldNames(); iterator.hasNext();) {
+			result.add(iterator.next());
+		}
+		return Collections.unmodifiableList(result);
+	}
+
+	/**
+	 * @return The value of this node as a {@link String}, or an empty
+	 *         {@link String} for container nodes.
+	 */
+	@Nonnull
+	public String asText() {
+		return node.asText();
+	}
+
+	/**
+	 * @return The text of a textual node, {@code null} for other nodes.
+	 */
+	@Nullable
+	public String textValue() {
+		return node.textValue();
+	}
+
+	/**
+	 * @return The value of this node as an {@code int}, or zero if it can't
+	 *         be converted.
+	 */
+	public int asInt() {
+		return node.asInt();
+	}
+
+	/**
+	 * @return The value of this node as a {@code long}, or zero if it can't
+	 *         be converted.
+	 */
+	public long asLong() {
+		return node.asLong();
+	}
+
+	/**
+	 * @return The value of this node as a {@code double}, or zero if it can't
+	 *         be converted.
+	 */
+	public double asDouble() {
+		return node.asDouble();
+	}
+
+	/**
+	 * @return The value of this node as a {@code boolean}, or {@code false}
+	 *         if it can't be converted.
+	 */
+	public boolean asBoolean() {
+		return node.asBoolean();
+	}
+
+	/**
+	 * @return A mutable deep copy of the wrapped {@link JsonNode}.
+	 */
+	@Nonnull
+	public JsonNode toJsonNode() {
+		return node.deepCopy();
+	}
+
+	/**
+	 * Deserializes this node into an instance of the specified class.
+	 *
+	 * @param <T> the type to deserialize into.
+	 * @param type the {@link Class} to deserialize into.
+	 * @return The new instance.
+	 * @throws JsonProcessingException If the conversion fails.
+	 */
+	@Nullable
+	public <T> T convertTo(@Nonnull Class<T> type) throws JsonProcessingException {
+		return JacksonHelper.readerFor(type).treeToValue(node, type);
+	}
+
+	@Override
+	public int hashCode() {
+		return node.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof ImmutableJson)) {
+			return false;
+		}
+		return node.equals(((ImmutableJson) obj).node);
+	}
+
+	/**
+	 * @return The {@code JSON} representation of this node.
+	 */
+	@Override
+	public String toString() {
+		return node.toString();
+	}
+}
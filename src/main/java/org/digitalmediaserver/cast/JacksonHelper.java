@@ -15,14 +15,56 @@
  */
 package org.digitalmediaserver.cast;
 
+import static org.digitalmediaserver.cast.Util.requireNotNull;
+import java.lang.reflect.Modifier;
+import javax.annotation.Nonnull;
+import com.fasterxml.jackson.annotation.JsonSubTypes;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 
 /**
  * Utility class for creating pre-configured instances of JSON mapper.
+ * <p>
+ * In addition to creating new mappers, this class holds a process-wide
+ * shared mapper with a cache of pre-resolved {@link ObjectReader}s and
+ * {@link ObjectWriter}s. {@link ObjectReader}s and {@link ObjectWriter}s are
+ * immutable and thread-safe, and since their root (de)serializers are
+ * resolved when they are created, using them avoids type resolution on every
+ * read and write. The shared mapper is only available within this package,
+ * since reconfiguring it would affect every {@link Channel}. The cached
+ * {@link ObjectReader}s and {@link ObjectWriter}s are attached to their
+ * {@link Class} using {@link ClassValue}, so this cache doesn't prevent the
+ * classes from being unloaded. The shared mapper's own caches are bounded
+ * and may still hold on to a class until it's evicted.
  */
 public class JacksonHelper {
 
+	/** The shared {@link ObjectMapper} */
+	@Nonnull
+	private static final ObjectMapper SHARED_MAPPER = createJSONMapper();
+
+	/** The cached {@link ObjectReader}s */
+	@Nonnull
+	private static final ClassValue<ObjectReader> READERS = new ClassValue<ObjectReader>() {
+
+		@Override
+		protected ObjectReader computeValue(Class<?> type) {
+			return SHARED_MAPPER.readerFor(type);
+		}
+	};
+
+	/** The cached {@link ObjectWriter}s */
+	@Nonnull
+	private static final ClassValue<ObjectWriter> WRITERS = new ClassValue<ObjectWriter>() {
+
+		@Override
+		protected ObjectWriter computeValue(Class<?> type) {
+			return SHARED_MAPPER.writerFor(type);
+		}
+	};
+
 	/**
 	 * Not to be instantiated.
 	 */
@@ -37,4 +79,72 @@ public class JacksonHelper {
 		jsonMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
 		return jsonMapper;
 	}
+
+	/**
+	 * Returns the process-wide shared {@link ObjectMapper}, configured like
+	 * the ones returned by {@link #createJSONMapper()}. The shared instance
+	 * must be treated as immutable, it must never be reconfigured. Code
+	 * outside this package should use {@link #readerFor(Class)},
+	 * {@link #writerFor(Class)} or a mapper from {@link #createJSONMapper()}.
+	 *
+	 * @return The shared {@link ObjectMapper}.
+	 */
+	@Nonnull
+	static ObjectMapper getSharedMapper() {
+		return SHARED_MAPPER;
+	}
+
+	/**
+	 * Returns a cached {@link ObjectReader} for the specified type from the
+	 * shared {@link ObjectMapper}, creating it if it doesn't exist.
+	 *
+	 * @param type the type to read.
+	 * @return The {@link ObjectReader}.
+	 * @throws IllegalArgumentException If {@code type} is {@code null}.
+	 */
+	@Nonnull
+	public static ObjectReader readerFor(@Nonnull Class<?> type) {
+		requireNotNull(type, "type");
+		return READERS.get(type);
+	}
+
+	/**
+	 * Returns a cached {@link ObjectWriter} for the specified type from the
+	 * shared {@link ObjectMapper}, creating it if it doesn't exist.
+	 *
+	 * @param type the type to write.
+	 * @return The {@link ObjectWriter}.
+	 * @throws IllegalArgumentException If {@code type} is {@code null}.
+	 */
+	@Nonnull
+	public static ObjectWriter writerFor(@Nonnull Class<?> type) {
+		requireNotNull(type, "type");
+		return WRITERS.get(type);
+	}
+
+	/**
+	 * Resolves and caches the {@link ObjectReader}s for {@link StandardResponse}
+	 * and all its registered subtypes, and the {@link ObjectWriter}s for all
+	 * {@link StandardMessage} and {@link StandardRequest} types. Calling this
+	 * at startup is optional, it moves the cost of the Jackson introspection
+	 * away from the first messages exchanged with a cast device.
+	 */
+	public static void warmUp() {
+		readerFor(StandardResponse.class);
+		for (JsonSubTypes.Type type : StandardResponse.class.getAnnotation(JsonSubTypes.class).value()) {
+			readerFor(type.value());
+		}
+		for (JsonSubTypes.Type type : StandardMessage.class.getAnnotation(JsonSubTypes.class).value()) {
+			writerFor(type.value());
+		}
+		for (Class<?> cls : StandardRequest.class.getDeclaredClasses()) {
+			if (
+				Request.class.isAssignableFrom(cls) &&
+				!Modifier.isAbstract(cls.getModifiers()) &&
+				Modifier.isPublic(cls.getModifiers())
+			) {
+				writerFor(cls);
+			}
+		}
+	}
 }
@@ -16,6 +16,7 @@
 package org.digitalmediaserver.cast;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import java.util.ArrayList;
@@ -83,6 +84,13 @@ public class MediaStatus {
 	@JsonInclude(JsonInclude.Include.NON_EMPTY)
 	protected final List<QueueItem> items;
 
+	/**
+	 * Whether {@code items} was included, which means that an empty
+	 * {@link List} is a cleared queue rather than one that wasn't sent
+	 */
+	@JsonIgnore
+	protected final boolean itemsIncluded;
+
 	/**
 	 * The seekable range of a live or event stream. It uses relative media time
 	 * in seconds. It will be undefined for VOD streams.
@@ -171,7 +179,8 @@ public class MediaStatus {
 	 * @param idleReason the reason the player went to {@link PlayerState#IDLE}
 	 *            if the current state is {@link PlayerState#IDLE}, otherwise
 	 *            {@code null}.
-	 * @param items the {@link List} of media {@link QueueItem}s.
+	 * @param items the {@link List} of media {@link QueueItem}s, or
+	 *            {@code null} if the items weren't included.
 	 * @param liveSeekableRange the seekable range of a live or event stream. It
 	 *            uses relative media time in seconds. It will be undefined for
 	 *            VOD streams.
@@ -232,6 +241,7 @@ public class MediaStatus {
 		}
 		this.extendedStatus = extendedStatus;
 		this.idleReason = idleReason;
+		this.itemsIncluded = items != null;
 		if (items == null || items.isEmpty()) {
 			this.items = Collections.emptyList();
 		} else {
@@ -308,6 +318,19 @@ public class MediaStatus {
 		return items;
 	}
 
+	/**
+	 * Cast devices leave out the {@link QueueItem}s from many status updates,
+	 * in which case {@link #getItems()} returns an empty {@link List} that
+	 * doesn't mean that the queue is empty.
+	 *
+	 * @return {@code true} if the {@link QueueItem}s were included in this
+	 *         status, {@code false} if they were left out.
+	 */
+	@JsonIgnore
+	public boolean isItemsIncluded() {
+		return itemsIncluded;
+	}
+
 	/**
 	 * @return The seekable range of a live or event stream. It uses relative
 	 *         media time in seconds. It will be undefined for VOD streams.
@@ -0,0 +1,436 @@
+/*
+ * Copyright (C) 2021 Digital Media Server developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.digitalmediaserver.cast;
+
+import static org.digitalmediaserver.cast.Util.requireNotNull;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+
+/**
+ * The result of merging a received {@link MediaStatus} into the previously
+ * known {@link MediaStatus} for the same media session.
+ * <p>
+ * Cast devices often send partial status updates where {@link Media},
+ * {@link QueueData} and the {@link QueueItem}s are left out because they
+ * haven't changed. {@link #merge(MediaStatus, MediaStatus)} fills in what's
+ * missing from the previous {@link MediaStatus}. Received sub-objects that are
+ * equal to the previous ones are replaced with the previous instances, so
+ * that listeners can tell unchanged {@link Media} and {@link QueueItem}s apart
+ * by identity. This doesn't save any allocation, the received objects have
+ * already been parsed, and the comparisons are deep. The {@link Field}s that
+ * differ from the previous {@link MediaStatus} are available from
+ * {@link #getChangedFields()}.
+ *
+ * @author Nadahar
+ */
+@Immutable
+public class MediaStatusUpdate {
+
+	/** The previous {@link MediaStatus}, if any */
+	@Nullable
+	protected final MediaStatus previous;
+
+	/** The merged {@link MediaStatus} */
+	@Nonnull
+	protected final MediaStatus mediaStatus;
+
+	/** The {@link Field}s that have changed */
+	@Nonnull
+	protected final Set<Field> changedFields;
+
+	/**
+	 * Creates a new instance using the specified parameters.
+	 *
+	 * @param previous the previous {@link MediaStatus}, if any.
+	 * @param mediaStatus the merged {@link MediaStatus}.
+	 * @param changedFields the {@link Field}s that have changed.
+	 * @throws IllegalArgumentException If {@code mediaStatus} or
+	 *             {@code changedFields} is {@code null}.
+	 */
+	public MediaStatusUpdate(
+		@Nullable MediaStatus previous,
+		@Nonnull MediaStatus mediaStatus,
+		@Nonnull Set<Field> changedFields
+	) {
+		requireNotNull(mediaStatus, "mediaStatus");
+		requireNotNull(changedFields, "changedFields");
+		this.previous = previous;
+		this.mediaStatus = mediaStatus;
+		this.changedFields = changedFields.isEmpty() ?
+			Collections.<Field>emptySet() :
+			Collections.unmodifiableSet(EnumSet.copyOf(changedFields));
+	}
+
+	/**
+	 * Merges the received {@link MediaStatus} into the previous
+	 * {@link MediaStatus}. If {@code previous} is {@code null} or belongs to
+	 * another media session, {@code received} is used as it is and all
+	 * {@link Field}s are considered changed.
+	 *
+	 * @param previous the previous {@link MediaStatus}, if any.
+	 * @param received the received {@link MediaStatus}.
+	 * @return The resulting {@link MediaStatusUpdate}.
+	 * @throws IllegalArgumentException If {@code received} is {@code null}.
+	 */
+	@Nonnull
+	public static MediaStatusUpdate merge(@Nullable MediaStatus previous, @Nonnull MediaStatus received) {
+		requireNotNull(received, "received");
+		if (previous == null || previous.getMediaSessionId() != received.getMediaSessionId()) {
+			return new MediaStatusUpdate(null, received, EnumSet.allOf(Field.class));
+		}
+
+		Media media = received.getMedia() == null ? previous.getMedia() : reuse(previous.getMedia(), received.getMedia());
+		QueueData queueData = received.getQueueData() == null ?
+			previous.getQueueData() :
+			reuse(previous.getQueueData(), received.getQueueData());
+		List<QueueItem> items = received.isItemsIncluded() ?
+			mergeItems(previous.getItems(), received.getItems()) :
+			previous.isItemsIncluded() ? previous.getItems() : null;
+
+		MediaStatus merged = new MediaStatus(
+			reuse(previous.getActiveTrackIds(), received.getActiveTrackIds()),
+			received.getCurrentItemId(),
+			received.getCurrentTime(),
+			reuse(previous.getCustomData(), received.getCustomData()),
+			reuse(previous.getExtendedStatus(), received.getExtendedStatus()),
+			received.getIdleReason(),
+			items,
+			reuse(previous.getLiveSeekableRange(), received.getLiveSeekableRange()),
+			received.getLoadingItemId(),
+			media,
+			received.getMediaSessionId(),
+			received.getPlaybackRate(),
+			received.getPlayerState(),
+			received.getPreloadedItemId(),
+			queueData,
+			received.getRepeatMode(),
+			received.getSupportedMediaCommands(),
+			reuse(previous.getVideoInfo(), received.getVideoInfo()),
+			reuse(previous.getVolume(), received.getVolume())
+		);
+		return new MediaStatusUpdate(previous, merged, findChanges(previous, merged));
+	}
+
+	/**
+	 * Returns {@code previous} if it's equal to {@code received}, otherwise
+	 * {@code received}.
+	 *
+	 * @param <T> the object type.
+	 * @param previous the previous instance.
+	 * @param received the received instance.
+	 * @return The instance to use.
+	 */
+	@Nullable
+	protected static <T> T reuse(@Nullable T previous, @Nullable T received) {
+		return previous != null && previous.equals(received) ? previous : received;
+	}
+
+	/**
+	 * Creates a {@link List} of the received {@link QueueItem}s where those
+	 * that are equal to a previous {@link QueueItem} with the same item ID are
+	 * replaced with the previous instance.
+	 *
+	 * @param previous the previous {@link QueueItem}s.
+	 * @param received the received {@link QueueItem}s.
+	 * @return The merged {@link List}.
+	 */
+	@Nonnull
+	protected static List<QueueItem> mergeItems(@Nonnull List<QueueItem> previous, @Nonnull List<QueueItem> received) {
+		if (previous.isEmpty() || received.isEmpty()) {
+			return received;
+		}
+		Map<Integer, QueueItem> previousItems = new HashMap<>();
+		for (QueueItem item : previous) {
+			if (item != null && item.getItemId() != null) {
+				previousItems.put(item.getItemId(), item);
+			}
+		}
+		List<QueueItem> result = new ArrayList<>(received.size());
+		for (QueueItem item : received) {
+			result.add(item == null || item.getItemId() == null ? item : reuse(previousItems.get(item.getItemId()), item));
+		}
+		return result;
+	}
+
+	/**
+	 * Compares two {@link MediaStatus}es field by field.
+	 *
+	 * @param previous the previous {@link MediaStatus}.
+	 * @param current the current {@link MediaStatus}.
+	 * @return The {@link Set} of {@link Field}s that differ.
+	 */
+	@Nonnull
+	protected static Set<Field> findChanges(@Nonnull MediaStatus previous, @Nonnull MediaStatus current) {
+		EnumSet<Field> result = EnumSet.noneOf(Field.class);
+		for (Field field : Field.values()) {
+			if (!Objects.equals(field.getValue(previous), field.getValue(current))) {
+				result.add(field);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @return The previous {@link MediaStatus} for the same media session, or
+	 *         {@code null} if there was none.
+	 */
+	@Nullable
+	public MediaStatus getPrevious() {
+		return previous;
+	}
+
+	/**
+	 * @return The merged {@link MediaStatus}.
+	 */
+	@Nonnull
+	public MediaStatus getMediaStatus() {
+		return mediaStatus;
+	}
+
+	/**
+	 * @return The media session ID.
+	 */
+	public int getMediaSessionId() {
+		return mediaStatus.getMediaSessionId();
+	}
+
+	/**
+	 * @return The unmodifiable {@link Set} of {@link Field}s that differ from
+	 *         the previous {@link MediaStatus}.
+	 */
+	@Nonnull
+	public Set<Field> getChangedFields() {
+		return changedFields;
+	}
+
+	/**
+	 * Checks whether the specified {@link Field} has changed.
+	 *
+	 * @param field the {@link Field} to check.
+	 * @return {@code true} if {@code field} differs from the previous
+	 *         {@link MediaStatus}, {@code false} otherwise.
+	 */
+	public boolean hasChanged(@Nullable Field field) {
+		return field != null && changedFields.contains(field);
+	}
+
+	/**
+	 * @return {@code true} if anything other than the playback position has
+	 *         changed, {@code false} otherwise.
+	 */
+	public boolean hasChanges() {
+		if (changedFields.isEmpty()) {
+			return false;
+		}
+		return changedFields.size() > 1 || !changedFields.contains(Field.CURRENT_TIME);
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + " [mediaSessionId=" + mediaStatus.getMediaSessionId() +
+			", changedFields=" + changedFields + "]";
+	}
+
+	/**
+	 * The fields of a {@link MediaStatus}.
+	 *
+	 * @author Nadahar
+	 */
+	public enum Field {
+
+		/** {@link MediaStatus#getActiveTrackIds()} */
+		ACTIVE_TRACK_IDS {
+
+			@Override
+			protected Object getValue(MediaStatus mediaStatus) {
+				return mediaStatus.getActiveTrackIds();
+			}
+		},
+
+		/** {@link MediaStatus#getCurrentItemId()} */
+		CURRENT_ITEM_ID {
+
+			@Override
+			protected Object getValue(MediaStatus mediaStatus) {
+				return mediaStatus.getCurrentItemId();
+			}
+		},
+
+		/** {@link MediaStatus#getCurrentTime()} */
+		CURRENT_TIME {
+
+			@Override
+			protected Object getValue(MediaStatus mediaStatus) {
+				return Double.valueOf(mediaStatus.getCurrentTime());
+			}
+		},
+
+		/** {@link MediaStatus#getCustomData()} */
+		CUSTOM_DATA {
+
+			@Override
+			protected Object getValue(MediaStatus mediaStatus) {
+				return mediaStatus.getCustomData();
+			}
+		},
+
+		/** {@link MediaStatus#getExtendedStatus()} */
+		EXTENDED_STATUS {
+
+			@Override
+			protected Object getValue(MediaStatus mediaStatus) {
+				return mediaStatus.getExtendedStatus();
+			}
+		},
+
+		/** {@link MediaStatus#getIdleReason()} */
+		IDLE_REASON {
+
+			@Override
+			protected Object getValue(MediaStatus mediaStatus) {
+				return mediaStatus.getIdleReason();
+			}
+		},
+
+		/** {@link MediaStatus#getItems()} */
+		ITEMS {
+
+			@Override
+			protected Object getValue(MediaStatus mediaStatus) {
+				return mediaStatus.getItems();
+			}
+		},
+
+		/** {@link MediaStatus#getLiveSeekableRange()} */
+		LIVE_SEEKABLE_RANGE {
+
+			@Override
+			protected Object getValue(MediaStatus mediaStatus) {
+				return mediaStatus.getLiveSeekableRange();
+			}
+		},
+
+		/** {@link MediaStatus#getLoadingItemId()} */
+		LOADING_ITEM_ID {
+
+			@Override
+			protected Object getValue(MediaStatus mediaStatus) {
+				return mediaStatus.getLoadingItemId();
+			}
+		},
+
+		/** {@link MediaStatus#getMedia()} */
+		MEDIA {
+
+			@Override
+			protected Object getValue(MediaStatus mediaStatus) {
+				return mediaStatus.getMedia();
+			}
+		},
+
+		/** {@link MediaStatus#getPlaybackRate()} */
+		PLAYBACK_RATE {
+
+			@Override
+			protected Object getValue(MediaStatus mediaStatus) {
+				return Float.valueOf(mediaStatus.getPlaybackRate());
+			}
+		},
+
+		/** {@link MediaStatus#getPlayerState()} */
+		PLAYER_STATE {
+
+			@Override
+			protected Object getValue(MediaStatus mediaStatus) {
+				return mediaStatus.getPlayerState();
+			}
+		},
+
+		/** {@link MediaStatus#getPreloadedItemId()} */
+		PRELOADED_ITEM_ID {
+
+			@Override
+			protected Object getValue(MediaStatus mediaStatus) {
+				return mediaStatus.getPreloadedItemId();
+			}
+		},
+
+		/** {@link MediaStatus#getQueueData()} */
+		QUEUE_DATA {
+
+			@Override
+			protected Object getValue(MediaStatus mediaStatus) {
+				return mediaStatus.getQueueData();
+			}
+		},
+
+		/** {@link MediaStatus#getRepeatMode()} */
+		REPEAT_MODE {
+
+			@Override
+			protected Object getValue(MediaStatus mediaStatus) {
+				return mediaStatus.getRepeatMode();
+			}
+		},
+
+		/** {@link MediaStatus#getSupportedMediaCommands()} */
+		SUPPORTED_MEDIA_COMMANDS {
+
+			@Override
+			protected Object getValue(MediaStatus mediaStatus) {
+				return Integer.valueOf(mediaStatus.getSupportedMediaCommands());
+			}
+		},
+
+		/** {@link MediaStatus#getVideoInfo()} */
+		VIDEO_INFO {
+
+			@Override
+			protected Object getValue(MediaStatus mediaStatus) {
+				return mediaStatus.getVideoInfo();
+			}
+		},
+
+		/** {@link MediaStatus#getVolume()} */
+		VOLUME {
+
+			@Override
+			protected Object getValue(MediaStatus mediaStatus) {
+				return mediaStatus.getVolume();
+			}
+		};
+
+		/**
+		 * Returns the value of this {@link Field} from the specified
+		 * {@link MediaStatus}.
+		 *
+		 * @param mediaStatus the {@link MediaStatus}.
+		 * @return The value.
+		 */
+		@Nullable
+		protected abstract Object getValue(@Nonnull MediaStatus mediaStatus);
+	}
+}
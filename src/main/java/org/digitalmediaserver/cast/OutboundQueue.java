@@ -0,0 +1,422 @@
+/*
+ * Copyright (C) 2021 Digital Media Server developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.digitalmediaserver.cast;
+
+import static org.digitalmediaserver.cast.Util.requireNotBlank;
+import static org.digitalmediaserver.cast.Util.requireNotNull;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import org.digitalmediaserver.cast.CastChannel.CastMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * A bounded queue of outgoing {@link CastMessage}s with two priority lanes,
+ * drained by a writer task running on an {@link Executor}.
+ * <p>
+ * Messages are enqueued without blocking, and the returned
+ * {@link CompletableFuture} completes when the message has been written. The
+ * writer task always empties the {@link Priority#CONTROL} lane before taking
+ * anything from the {@link Priority#NORMAL} lane, so that heartbeats aren't
+ * held up by large media commands. Messages only keep their relative order
+ * within a lane, so anything whose order matters, like virtual connection
+ * messages, must use the {@link Priority#NORMAL} lane. Each lane holds a
+ * limited number of messages, and messages that don't fit are rejected
+ * immediately instead of blocking the caller.
+ *
+ * @author Nadahar
+ */
+@ThreadSafe
+public class OutboundQueue {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(OutboundQueue.class);
+
+	/** The default maximum number of messages per lane */
+	public static final int DEFAULT_CAPACITY = 256;
+
+	/** The maximum number of messages to hand to the {@link MessageSink} at once */
+	protected static final int MAX_BATCH = 32;
+
+	/**
+	 * The maximum number of batches a writer task writes before it yields its
+	 * thread to the writer tasks of other queues
+	 */
+	protected static final int MAX_BATCHES_PER_RUN = 4;
+
+	/** The name used for the remote party in logging */
+	@Nonnull
+	protected final String remoteName;
+
+	/** The {@link Executor} that runs the writer task */
+	@Nonnull
+	protected final Executor executor;
+
+	/** The {@link MessageSink} that does the actual writing */
+	@Nonnull
+	protected final MessageSink sink;
+
+	/** The maximum number of messages per lane */
+	protected final int capacity;
+
+	/** The synchronization object */
+	@Nonnull
+	protected final Object lock = new Object();
+
+	/** The {@link Priority#CONTROL} lane */
+	@Nonnull
+	@GuardedBy("lock")
+	protected final ArrayDeque<QueuedMessage> controlLane = new ArrayDeque<>();
+
+	/** The {@link Priority#NORMAL} lane */
+	@Nonnull
+	@GuardedBy("lock")
+	protected final ArrayDeque<QueuedMessage> normalLane = new ArrayDeque<>();
+
+	/** Whether the writer task is scheduled or running */
+	@GuardedBy("lock")
+	protected boolean writerActive;
+
+	/**
+	 * Creates a new instance with {@link #DEFAULT_CAPACITY} capacity.
+	 *
+	 * @param remoteName the name to use for the remote party in logging.
+	 * @param executor the {@link Executor} to run the writer task on.
+	 * @param sink the {@link MessageSink} that writes the messages.
+	 * @throws IllegalArgumentException If {@code remoteName} is blank or
+	 *             {@code executor} or {@code sink} is {@code null}.
+	 */
+	public OutboundQueue(@Nonnull String remoteName, @Nonnull Executor executor, @Nonnull MessageSink sink) {
+		this(remoteName, executor, sink, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a new instance using the specified parameters.
+	 *
+	 * @param remoteName the name to use for the remote party in logging.
+	 * @param executor the {@link Executor} to run the writer task on.
+	 * @param sink the {@link MessageSink} that writes the messages.
+	 * @param capacity the maximum number of messages in each lane.
+	 * @throws IllegalArgumentException If {@code remoteName} is blank,
+	 *             {@code executor} or {@code sink} is {@code null} or
+	 *             {@code capacity} is less than 1.
+	 */
+	public OutboundQueue(
+		@Nonnull String remoteName,
+		@Nonnull Executor executor,
+		@Nonnull MessageSink sink,
+		int capacity
+	) {
+		requireNotBlank(remoteName, "remoteName");
+		requireNotNull(executor, "executor");
+		requireNotNull(sink, "sink");
+		if (capacity < 1) {
+			throw new IllegalArgumentException("capacity must be positive");
+		}
+		this.remoteName = remoteName;
+		this.executor = executor;
+		this.sink = sink;
+		this.capacity = capacity;
+	}
+
+	/**
+	 * @return The maximum number of messages in each lane.
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * @return The total number of messages waiting to be written.
+	 */
+	public int size() {
+		synchronized (lock) {
+			return controlLane.size() + normalLane.size();
+		}
+	}
+
+	/**
+	 * Returns the number of messages waiting to be written in the specified
+	 * lane.
+	 *
+	 * @param priority the {@link Priority} of the lane.
+	 * @return The number of messages.
+	 */
+	public int size(@Nonnull Priority priority) {
+		synchronized (lock) {
+			return priority == Priority.CONTROL ? controlLane.size() : normalLane.size();
+		}
+	}
+
+	/**
+	 * Enqueues the specified {@link CastMessage} for writing. This method
+	 * never blocks.
+	 *
+	 * @param message the {@link CastMessage} to write.
+	 * @param priority the {@link Priority} of the message.
+	 * @return A {@link CompletableFuture} that completes when the message has
+	 *         been written, or completes exceptionally with an
+	 *         {@link IOException} if the writing fails or with a
+	 *         {@link CastException} if the lane is full.
+	 */
+	@Nonnull
+	public CompletableFuture<Void> enqueue(@Nonnull CastMessage message, @Nonnull Priority priority) {
+		requireNotNull(message, "message");
+		requireNotNull(priority, "priority");
+		QueuedMessage queued = new QueuedMessage(message);
+		boolean schedule;
+		synchronized (lock) {
+			ArrayDeque<QueuedMessage> lane = priority == Priority.CONTROL ? controlLane : normalLane;
+			if (lane.size() >= capacity) {
+				return Util.failedFuture(new CastException(
+					"The outbound " + priority.name().toLowerCase() + " queue to " + remoteName + " is full"
+				));
+			}
+			lane.add(queued);
+			schedule = !writerActive;
+			writerActive = true;
+		}
+		if (schedule) {
+			startWriter();
+		}
+		return queued.future;
+	}
+
+	/**
+	 * Enqueues the specified {@link CastMessage}s for writing as one unit, so
+	 * that they're taken from the lane together and written back-to-back, as
+	 * long as there are no more than {@value #MAX_BATCH} of them. This method
+	 * never blocks.
+	 *
+	 * @param messages the {@link CastMessage}s to write.
+	 * @param priority the {@link Priority} of the messages.
+	 * @return A {@link CompletableFuture} that completes when all the messages
+	 *         have been written, or completes exceptionally with an
+	 *         {@link IOException} if the writing fails or with a
+	 *         {@link CastException} if the lane doesn't have room for all the
+	 *         messages.
+	 */
+	@Nonnull
+	public CompletableFuture<Void> enqueueAll(@Nonnull List<CastMessage> messages, @Nonnull Priority priority) {
+		requireNotNull(messages, "messages");
+		requireNotNull(priority, "priority");
+		if (messages.isEmpty()) {
+			return CompletableFuture.completedFuture(null);
+		}
+		CompletableFuture<?>[] futures = new CompletableFuture<?>[messages.size()];
+		List<QueuedMessage> queued = new ArrayList<>(messages.size());
+		for (CastMessage message : messages) {
+			requireNotNull(message, "message");
+			QueuedMessage entry = new QueuedMessage(message);
+			futures[queued.size()] = entry.future;
+			queued.add(entry);
+		}
+		boolean schedule;
+		synchronized (lock) {
+			ArrayDeque<QueuedMessage> lane = priority == Priority.CONTROL ? controlLane : normalLane;
+			if (lane.size() + queued.size() > capacity) {
+				return Util.failedFuture(new CastException(
+					"The outbound " + priority.name().toLowerCase() + " queue to " + remoteName +
+					" doesn't have room for " + queued.size() + " messages"
+				));
+			}
+			lane.addAll(queued);
+			schedule = !writerActive;
+			writerActive = true;
+		}
+		if (schedule) {
+			startWriter();
+		}
+		return CompletableFuture.allOf(futures);
+	}
+
+	/**
+	 * Submits a new writer task to the {@link Executor}, failing all queued
+	 * messages if the task is rejected.
+	 */
+	protected void startWriter() {
+		try {
+			executor.execute(new Writer());
+		} catch (RejectedExecutionException e) {
+			synchronized (lock) {
+				writerActive = false;
+			}
+			clear(new CastException("Failed to start the writer for " + remoteName + ": " + e.getMessage(), e));
+		}
+	}
+
+	/**
+	 * Removes all queued messages, completing them exceptionally with the
+	 * specified {@link IOException}.
+	 *
+	 * @param cause the {@link IOException} to complete the messages with.
+	 */
+	public void clear(@Nonnull IOException cause) {
+		List<QueuedMessage> removed;
+		synchronized (lock) {
+			if (controlLane.isEmpty() && normalLane.isEmpty()) {
+				return;
+			}
+			removed = new ArrayList<>(controlLane);
+			removed.addAll(normalLane);
+			controlLane.clear();
+			normalLane.clear();
+		}
+		for (QueuedMessage queued : removed) {
+			queued.future.completeExceptionally(cause);
+		}
+	}
+
+	/**
+	 * Takes the next batch of messages, control messages first.
+	 *
+	 * @return The batch or {@code null} if both lanes are empty, in which
+	 *         case the writer is marked as inactive.
+	 */
+	@Nullable
+	protected List<QueuedMessage> takeBatch() {
+		synchronized (lock) {
+			if (controlLane.isEmpty() && normalLane.isEmpty()) {
+				writerActive = false;
+				return null;
+			}
+			List<QueuedMessage> result = new ArrayList<>(Math.min(controlLane.size() + normalLane.size(), MAX_BATCH));
+			while (result.size() < MAX_BATCH && !controlLane.isEmpty()) {
+				result.add(controlLane.poll());
+			}
+			while (result.size() < MAX_BATCH && !normalLane.isEmpty()) {
+				result.add(normalLane.poll());
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * The priority lanes.
+	 */
+	public enum Priority {
+
+		/** Heartbeat and authentication messages, which may overtake {@link #NORMAL} messages */
+		CONTROL,
+
+		/** All other messages */
+		NORMAL
+	}
+
+	/**
+	 * The interface for writing messages taken from an {@link OutboundQueue}.
+	 */
+	public interface MessageSink {
+
+		/**
+		 * Writes the specified {@link CastMessage}s in order.
+		 *
+		 * @param messages the {@link CastMessage}s to write.
+		 * @throws IOException If an error occurs during the operation.
+		 */
+		void write(@Nonnull List<CastMessage> messages) throws IOException;
+	}
+
+	/**
+	 * The writer task that drains the lanes. It resubmits itself after
+	 * {@value #MAX_BATCHES_PER_RUN} batches, so that a busy queue can't
+	 * occupy a thread of a shared, bounded {@link Executor} indefinitely.
+	 *
+	 * @author Nadahar
+	 */
+	protected class Writer implements Runnable {
+
+		@Override
+		public void run() {
+			List<QueuedMessage> batch;
+			for (int i = 0; (batch = takeBatch()) != null; i++) {
+				List<CastMessage> messages = new ArrayList<>(batch.size());
+				for (QueuedMessage queued : batch) {
+					messages.add(queued.message);
+				}
+				IOException failure = null;
+				try {
+					sink.write(messages);
+				} catch (IOException e) {
+					failure = e;
+				} catch (RuntimeException e) {
+					failure = new CastException("Unexpected error while writing to " + remoteName + ": " + e.getMessage(), e);
+				}
+				if (failure != null) {
+					LOGGER.debug(
+						Channel.CAST_API_MARKER,
+						"Failed to write {} message(s) to {}: {}",
+						batch.size(),
+						remoteName,
+						failure.getMessage()
+					);
+				}
+				for (QueuedMessage queued : batch) {
+					if (failure == null) {
+						queued.future.complete(null);
+					} else {
+						queued.future.completeExceptionally(failure);
+					}
+				}
+				if (i + 1 >= MAX_BATCHES_PER_RUN) {
+					synchronized (lock) {
+						if (controlLane.isEmpty() && normalLane.isEmpty()) {
+							writerActive = false;
+							return;
+						}
+					}
+					// Yield to the writers of other queues
+					startWriter();
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * A queued message and its {@link CompletableFuture}.
+	 *
+	 * @author Nadahar
+	 */
+	protected static class QueuedMessage {
+
+		/** The {@link CastMessage} to write */
+		@Nonnull
+		protected final CastMessage message;
+
+		/** The {@link CompletableFuture} to complete when written */
+		@Nonnull
+		protected final CompletableFuture<Void> future = new CompletableFuture<>();
+
+		/**
+		 * Creates a new instance.
+		 *
+		 * @param message the {@link CastMessage} to write.
+		 */
+		protected QueuedMessage(@Nonnull CastMessage message) {
+			this.message = message;
+		}
+	}
+}
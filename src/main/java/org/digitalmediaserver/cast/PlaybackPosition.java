@@ -0,0 +1,207 @@
+/*
+ * Copyright (C) 2021 Digital Media Server developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.digitalmediaserver.cast;
+
+import static org.digitalmediaserver.cast.Util.requireNotNull;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import org.digitalmediaserver.cast.MediaStatus.PlayerState;
+
+
+/**
+ * A model of the playback position of a media session, built from the last
+ * received {@link MediaStatus}.
+ * <p>
+ * {@link MediaStatus#getCurrentTime()} is only a snapshot of the position at
+ * the time the status was sent. This class remembers when the snapshot was
+ * received, together with the playback rate and the player state, so that
+ * the current position can be estimated locally without asking the cast
+ * device.
+ *
+ * @author Nadahar
+ */
+@Immutable
+public class PlaybackPosition {
+
+	/** The media session ID */
+	protected final int mediaSessionId;
+
+	/** The position in seconds when the status was received */
+	protected final double currentTime;
+
+	/** The playback rate */
+	protected final float playbackRate;
+
+	/** The {@link PlayerState} */
+	@Nullable
+	protected final PlayerState playerState;
+
+	/** The duration of the media in seconds, if known */
+	@Nullable
+	protected final Double duration;
+
+	/** The {@link System#nanoTime()} value when the status was received */
+	protected final long receivedTime;
+
+	/**
+	 * Creates a new instance using the specified parameters.
+	 *
+	 * @param mediaSessionId the media session ID.
+	 * @param currentTime the position in seconds when the status was
+	 *            received.
+	 * @param playbackRate the playback rate.
+	 * @param playerState the {@link PlayerState}.
+	 * @param duration the duration of the media in seconds, if known.
+	 * @param receivedTime the {@link System#nanoTime()} value when the status
+	 *            was received.
+	 */
+	public PlaybackPosition(
+		int mediaSessionId,
+		double currentTime,
+		float playbackRate,
+		@Nullable PlayerState playerState,
+		@Nullable Double duration,
+		long receivedTime
+	) {
+		this.mediaSessionId = mediaSessionId;
+		this.currentTime = currentTime;
+		this.playbackRate = playbackRate;
+		this.playerState = playerState;
+		this.duration = duration;
+		this.receivedTime = receivedTime;
+	}
+
+	/**
+	 * Creates a new instance from the specified {@link MediaStatus}, received
+	 * now. Since the cast device doesn't always include the {@link Media} in
+	 * status updates, the duration is taken from {@code previous} if the
+	 * {@link MediaStatus} doesn't have it.
+	 *
+	 * @param mediaStatus the received {@link MediaStatus}.
+	 * @param previous the previous {@link PlaybackPosition} for the same
+	 *            media session, if any.
+	 * @return The new {@link PlaybackPosition}.
+	 * @throws IllegalArgumentException If {@code mediaStatus} is {@code null}.
+	 */
+	@Nonnull
+	public static PlaybackPosition create(@Nonnull MediaStatus mediaStatus, @Nullable PlaybackPosition previous) {
+		requireNotNull(mediaStatus, "mediaStatus");
+		Media media = mediaStatus.getMedia();
+		Double duration = media == null ? null : media.getDuration();
+		if (duration == null && previous != null && previous.mediaSessionId == mediaStatus.getMediaSessionId()) {
+			duration = previous.duration;
+		}
+		return new PlaybackPosition(
+			mediaStatus.getMediaSessionId(),
+			mediaStatus.getCurrentTime(),
+			mediaStatus.getPlaybackRate(),
+			mediaStatus.getPlayerState(),
+			duration,
+			System.nanoTime()
+		);
+	}
+
+	/**
+	 * @return The media session ID.
+	 */
+	public int getMediaSessionId() {
+		return mediaSessionId;
+	}
+
+	/**
+	 * @return The position in seconds when the status was received.
+	 */
+	public double getCurrentTime() {
+		return currentTime;
+	}
+
+	/**
+	 * @return The playback rate.
+	 */
+	public float getPlaybackRate() {
+		return playbackRate;
+	}
+
+	/**
+	 * @return The {@link PlayerState} when the status was received.
+	 */
+	@Nullable
+	public PlayerState getPlayerState() {
+		return playerState;
+	}
+
+	/**
+	 * @return The duration of the media in seconds, or {@code null} if
+	 *         unknown.
+	 */
+	@Nullable
+	public Double getDuration() {
+		return duration;
+	}
+
+	/**
+	 * @return The number of milliseconds since the status was received.
+	 */
+	public long getAge() {
+		return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - receivedTime);
+	}
+
+	/**
+	 * @return {@code true} if the player was playing when the status was
+	 *         received, {@code false} otherwise.
+	 */
+	public boolean isPlaying() {
+		return playerState == PlayerState.PLAYING;
+	}
+
+	/**
+	 * Estimates the current playback position from the received position,
+	 * the time that has passed since and the playback rate. No estimation is
+	 * done unless the player was playing, and the result never exceeds the
+	 * duration if it's known.
+	 *
+	 * @return The estimated position in seconds.
+	 */
+	public double estimatedPosition() {
+		if (playerState != PlayerState.PLAYING) {
+			return currentTime;
+		}
+		double result = currentTime + (System.nanoTime() - receivedTime) / 1000000000d * playbackRate;
+		if (duration != null && duration.doubleValue() > 0d && result > duration.doubleValue()) {
+			return duration.doubleValue();
+		}
+		return Math.max(result, 0d);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append(getClass().getSimpleName()).append(" [");
+		builder.append("mediaSessionId=").append(mediaSessionId)
+			.append(", currentTime=").append(currentTime)
+			.append(", playbackRate=").append(playbackRate);
+		if (playerState != null) {
+			builder.append(", playerState=").append(playerState);
+		}
+		if (duration != null) {
+			builder.append(", duration=").append(duration);
+		}
+		builder.append(", age=").append(getAge()).append(" ms]");
+		return builder.toString();
+	}
+}
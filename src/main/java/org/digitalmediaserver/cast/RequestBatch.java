@@ -0,0 +1,254 @@
+/*
+ * Copyright (C) 2021 Digital Media Server developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.digitalmediaserver.cast;
+
+import static org.digitalmediaserver.cast.Util.requireNotBlank;
+import static org.digitalmediaserver.cast.Util.requireNotNull;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+
+/**
+ * A builder that collects several {@link Request}s and sends them
+ * back-to-back, without waiting for each response before sending the next
+ * {@link Request}.
+ * <p>
+ * The {@link Request}s are written together, each with its own request ID,
+ * and the responses are collected into a single {@link List}. A sequence of
+ * dependent commands thus only costs about one round trip instead of one
+ * round trip per command. The cast device still processes the
+ * {@link Request}s in order, but since no response is awaited in between, a
+ * {@link Request} can't use information from the response to a previous
+ * {@link Request} in the same batch.
+ * <p>
+ * Create instances using {@link Session#newRequestBatch()} or
+ * {@link CastDevice#newRequestBatch(String, String)}. A
+ * {@link RequestBatch} can be sent more than once.
+ *
+ * @author Nadahar
+ */
+@NotThreadSafe
+public class RequestBatch {
+
+	/** The {@link Channel} to send with */
+	@Nonnull
+	protected final Channel channel;
+
+	/** The {@link Session} to send with, if any */
+	@Nullable
+	protected final Session session;
+
+	/** The source ID */
+	@Nonnull
+	protected final String sourceId;
+
+	/** The destination ID */
+	@Nonnull
+	protected final String destinationId;
+
+	/** The {@link Entry}s to send */
+	@Nonnull
+	protected final List<Entry> entries = new ArrayList<>();
+
+	/**
+	 * Creates a new instance for the specified {@link Session}.
+	 *
+	 * @param session the {@link Session} to send with.
+	 * @throws IllegalArgumentException If {@code session} is {@code null}.
+	 */
+	public RequestBatch(@Nonnull Session session) {
+		requireNotNull(session, "session");
+		this.channel = session.channel;
+		this.session = session;
+		this.sourceId = session.getSourceId();
+		this.destinationId = session.getDestinationId();
+	}
+
+	/**
+	 * Creates a new instance for {@link Request}s that aren't associated
+	 * with a {@link Session}.
+	 *
+	 * @param channel the {@link Channel} to send with.
+	 * @param sourceId the source ID to use.
+	 * @param destinationId the destination ID to use.
+	 * @throws IllegalArgumentException If {@code channel} is {@code null} or
+	 *             {@code sourceId} or {@code destinationId} is blank.
+	 */
+	public RequestBatch(@Nonnull Channel channel, @Nonnull String sourceId, @Nonnull String destinationId) {
+		requireNotNull(channel, "channel");
+		requireNotBlank(sourceId, "sourceId");
+		requireNotBlank(destinationId, "destinationId");
+		this.channel = channel;
+		this.session = null;
+		this.sourceId = sourceId;
+		this.destinationId = destinationId;
+	}
+
+	/**
+	 * Adds a {@link Request} to this batch, using
+	 * {@value Channel#DEFAULT_RESPONSE_TIMEOUT} as the response timeout.
+	 *
+	 * @param namespace the namespace to use.
+	 * @param request the {@link Request} to add.
+	 * @param responseClass the response class to expect, or {@code null} if
+	 *            no response is expected.
+	 * @return This {@link RequestBatch}.
+	 * @throws IllegalArgumentException If {@code namespace} is invalid (see
+	 *             {@link Channel#validateNamespace(String)} for constraints)
+	 *             or {@code request} is {@code null}.
+	 */
+	@Nonnull
+	public RequestBatch add(
+		@Nonnull String namespace,
+		@Nonnull Request request,
+		@Nullable Class<? extends Response> responseClass
+	) {
+		return add(namespace, request, responseClass, Channel.DEFAULT_RESPONSE_TIMEOUT);
+	}
+
+	/**
+	 * Adds a {@link Request} to this batch.
+	 *
+	 * @param namespace the namespace to use.
+	 * @param request the {@link Request} to add.
+	 * @param responseClass the response class to expect, or {@code null} if
+	 *            no response is expected.
+	 * @param responseTimeout the response timeout in milliseconds. If zero or
+	 *            negative, {@value Channel#DEFAULT_RESPONSE_TIMEOUT} will be
+	 *            used.
+	 * @return This {@link RequestBatch}.
+	 * @throws IllegalArgumentException If {@code namespace} is invalid (see
+	 *             {@link Channel#validateNamespace(String)} for constraints)
+	 *             or {@code request} is {@code null}.
+	 */
+	@Nonnull
+	public RequestBatch add(
+		@Nonnull String namespace,
+		@Nonnull Request request,
+		@Nullable Class<? extends Response> responseClass,
+		long responseTimeout
+	) {
+		Channel.validateNamespace(namespace);
+		requireNotNull(request, "request");
+		entries.add(new Entry(namespace, request, responseClass, responseTimeout));
+		return this;
+	}
+
+	/**
+	 * @return The number of {@link Request}s in this batch.
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * @return {@code true} if this batch has no {@link Request}s,
+	 *         {@code false} otherwise.
+	 */
+	public boolean isEmpty() {
+		return entries.isEmpty();
+	}
+
+	/**
+	 * Sends all the {@link Request}s in this batch without blocking.
+	 *
+	 * @return The {@link CompletableFuture} that will be completed with the
+	 *         {@link Response}s in the order the {@link Request}s were added,
+	 *         with {@code null} for {@link Request}s that don't expect a
+	 *         response. If any {@link Request} fails, the
+	 *         {@link CompletableFuture} is completed exceptionally with that
+	 *         failure.
+	 */
+	@Nonnull
+	public CompletableFuture<List<Response>> sendAsync() {
+		if (entries.isEmpty()) {
+			return CompletableFuture.completedFuture(Collections.<Response>emptyList());
+		}
+		return channel.sendBatchAsync(session, sourceId, destinationId, new ArrayList<>(entries));
+	}
+
+	/**
+	 * Sends all the {@link Request}s in this batch and blocks until all the
+	 * responses have been received.
+	 *
+	 * @return The {@link Response}s in the order the {@link Request}s were
+	 *         added, with {@code null} for {@link Request}s that don't expect
+	 *         a response.
+	 * @throws IOException If any of the {@link Request}s fails or times out.
+	 */
+	@Nonnull
+	public List<Response> send() throws IOException {
+		List<Response> result = Channel.waitFor(sendAsync());
+		return result == null ? Collections.<Response>emptyList() : result;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + " [sourceId=" + sourceId + ", destinationId=" + destinationId +
+			", size=" + entries.size() + "]";
+	}
+
+	/**
+	 * A {@link Request} with its namespace and response parameters.
+	 *
+	 * @author Nadahar
+	 */
+	@Immutable
+	protected static class Entry {
+
+		/** The namespace */
+		@Nonnull
+		protected final String namespace;
+
+		/** The {@link Request} */
+		@Nonnull
+		protected final Request request;
+
+		/** The expected response class, if any */
+		@Nullable
+		protected final Class<? extends Response> responseClass;
+
+		/** The response timeout in milliseconds */
+		protected final long responseTimeout;
+
+		/**
+		 * Creates a new instance using the specified parameters.
+		 *
+		 * @param namespace the namespace.
+		 * @param request the {@link Request}.
+		 * @param responseClass the expected response class, if any.
+		 * @param responseTimeout the response timeout in milliseconds.
+		 */
+		protected Entry(
+			@Nonnull String namespace,
+			@Nonnull Request request,
+			@Nullable Class<? extends Response> responseClass,
+			long responseTimeout
+		) {
+			this.namespace = namespace;
+			this.request = request;
+			this.responseClass = responseClass;
+			this.responseTimeout = responseTimeout;
+		}
+	}
+}
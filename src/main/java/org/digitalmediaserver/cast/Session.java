@@ -18,6 +18,7 @@ package org.digitalmediaserver.cast;
 import java.io.IOException;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.GuardedBy;
@@ -960,6 +961,277 @@ public class Session {
 		return channel.sendGenericRequest(this, namespace, request, responseClass);
 	}
 
+	/**
+	 * Asks the remote application to execute the specified {@link Load}
+	 * request without blocking.
+	 * <p>
+	 * This can only succeed if the remote application supports the
+	 * "{@code urn:x-cast:com.google.cast.media}" namespace.
+	 *
+	 * @param loadRequest the {@link Load} request to send.
+	 * @param responseTimeout the response timeout in milliseconds. If zero or
+	 *            negative, {@value Channel#DEFAULT_RESPONSE_TIMEOUT} will be
+	 *            used.
+	 * @return The {@link CompletableFuture} that will be completed with the
+	 *         resulting {@link MediaStatus}.
+	 * @throws IllegalArgumentException If {@code loadRequest} is {@code null}.
+	 */
+	@Nonnull
+	public CompletableFuture<MediaStatus> loadAsync(@Nonnull Load loadRequest, long responseTimeout) {
+		return channel.loadAsync(this, loadRequest, responseTimeout);
+	}
+
+	/**
+	 * Asks the remote application to load the resulting {@link Media} created
+	 * from the specified {@link MediaBuilder} using the specified parameters
+	 * without blocking.
+	 * <p>
+	 * This can only succeed if the remote application supports the
+	 * "{@code urn:x-cast:com.google.cast.media}" namespace.
+	 *
+	 * @param mediaBuilder the {@link MediaBuilder} to use to create the
+	 *            {@link Media} to load.
+	 * @param autoplay {@code true} to ask the remote application to start
+	 *            playback as soon as the {@link Media} has been loaded,
+	 *            {@code false} to ask it to transition to a paused state after
+	 *            loading.
+	 * @param currentTime the position in seconds where playback are to be
+	 *            started in the loaded {@link Media}.
+	 * @param responseTimeout the response timeout in milliseconds. If zero or
+	 *            negative, {@value Channel#DEFAULT_RESPONSE_TIMEOUT} will be
+	 *            used.
+	 * @return The {@link CompletableFuture} that will be completed with the
+	 *         resulting {@link MediaStatus}.
+	 * @throws IllegalArgumentException If {@code mediaBuilder} is {@code null}.
+	 */
+	@Nonnull
+	public CompletableFuture<MediaStatus> loadAsync(
+		@Nonnull MediaBuilder mediaBuilder,
+		@Nullable Boolean autoplay,
+		@Nullable Double currentTime,
+		long responseTimeout
+	) {
+		Util.requireNotNull(mediaBuilder, "mediaBuilder");
+		return channel.loadAsync(
+			this,
+			new Load(null, autoplay, null, null, currentTime, null, null, mediaBuilder.build(), null, null),
+			responseTimeout
+		);
+	}
+
+	/**
+	 * Asks the remote application to start playing the media referenced by the
+	 * specified media session ID without blocking.
+	 * <p>
+	 * This can only succeed if the remote application supports the
+	 * "{@code urn:x-cast:com.google.cast.media}" namespace.
+	 *
+	 * @param mediaSessionId the media session ID for which the play request
+	 *            applies.
+	 * @param responseTimeout the response timeout in milliseconds. If zero or
+	 *            negative, {@value Channel#DEFAULT_RESPONSE_TIMEOUT} will be
+	 *            used.
+	 * @return The {@link CompletableFuture} that will be completed with the
+	 *         resulting {@link MediaStatus}.
+	 */
+	@Nonnull
+	public CompletableFuture<MediaStatus> playAsync(int mediaSessionId, long responseTimeout) {
+		return channel.playAsync(this, mediaSessionId, responseTimeout);
+	}
+
+	/**
+	 * Asks the remote application to pause playback of the media referenced by
+	 * the specified media session ID without blocking.
+	 * <p>
+	 * This can only succeed if the remote application supports the
+	 * "{@code urn:x-cast:com.google.cast.media}" namespace.
+	 *
+	 * @param mediaSessionId the media session ID for which the pause request
+	 *            applies.
+	 * @param responseTimeout the response timeout in milliseconds. If zero or
+	 *            negative, {@value Channel#DEFAULT_RESPONSE_TIMEOUT} will be
+	 *            used.
+	 * @return The {@link CompletableFuture} that will be completed with the
+	 *         resulting {@link MediaStatus}.
+	 */
+	@Nonnull
+	public CompletableFuture<MediaStatus> pauseAsync(int mediaSessionId, long responseTimeout) {
+		return channel.pauseAsync(this, mediaSessionId, responseTimeout);
+	}
+
+	/**
+	 * Asks the remote application to move the playback position of the media
+	 * referenced by the specified media session ID to the specified position
+	 * without blocking.
+	 * <p>
+	 * This can only succeed if the remote application supports the
+	 * "{@code urn:x-cast:com.google.cast.media}" namespace.
+	 *
+	 * @param mediaSessionId the media session ID for which the seek request
+	 *            applies.
+	 * @param currentTime the new playback position in seconds.
+	 * @param resumeState the desired media player state after the seek is
+	 *            complete. If {@code null}, it will retain the state it had
+	 *            before seeking.
+	 * @param responseTimeout the response timeout in milliseconds. If zero or
+	 *            negative, {@value Channel#DEFAULT_RESPONSE_TIMEOUT} will be
+	 *            used.
+	 * @return The {@link CompletableFuture} that will be completed with the
+	 *         resulting {@link MediaStatus}.
+	 */
+	@Nonnull
+	public CompletableFuture<MediaStatus> seekAsync(
+		int mediaSessionId,
+		double currentTime,
+		@Nullable ResumeState resumeState,
+		long responseTimeout
+	) {
+		return channel.seekAsync(this, mediaSessionId, currentTime, resumeState, responseTimeout);
+	}
+
+	/**
+	 * Asks the remote application to stop playback and unload the media
+	 * referenced by the specified media session ID without blocking.
+	 * <p>
+	 * This can only succeed if the remote application supports the
+	 * "{@code urn:x-cast:com.google.cast.media}" namespace.
+	 *
+	 * @param mediaSessionId the media session ID for which the stop request
+	 *            applies.
+	 * @param responseTimeout the response timeout in milliseconds. If zero or
+	 *            negative, {@value Channel#DEFAULT_RESPONSE_TIMEOUT} will be
+	 *            used.
+	 * @return The {@link CompletableFuture} that will be completed with the
+	 *         resulting {@link MediaStatus}.
+	 */
+	@Nonnull
+	public CompletableFuture<MediaStatus> stopAsync(int mediaSessionId, long responseTimeout) {
+		return channel.stopMediaAsync(this, mediaSessionId, responseTimeout);
+	}
+
+	/**
+	 * Asks the remote application to change the volume level or mute state of
+	 * the stream of the specified media session without blocking.
+	 * <p>
+	 * This can only succeed if the remote application supports the
+	 * "{@code urn:x-cast:com.google.cast.media}" namespace.
+	 *
+	 * @param mediaSessionId the media session ID for which the
+	 *            {@link MediaVolume} request applies.
+	 * @param volume the {@link MediaVolume} to set.
+	 * @param responseTimeout the response timeout in milliseconds. If zero or
+	 *            negative, {@value Channel#DEFAULT_RESPONSE_TIMEOUT} will be
+	 *            used.
+	 * @return The {@link CompletableFuture} that will be completed with the
+	 *         resulting {@link MediaStatus}.
+	 * @throws IllegalArgumentException If {@code volume} is {@code null}.
+	 */
+	@Nonnull
+	public CompletableFuture<MediaStatus> setVolumeAsync(
+		int mediaSessionId,
+		@Nonnull MediaVolume volume,
+		long responseTimeout
+	) {
+		return channel.setMediaVolumeAsync(this, mediaSessionId, volume, responseTimeout);
+	}
+
+	/**
+	 * Requests an updated {@link MediaStatus} from the remote application
+	 * without blocking.
+	 * <p>
+	 * This can only succeed if the remote application supports the
+	 * "{@code urn:x-cast:com.google.cast.media}" namespace.
+	 *
+	 * @param responseTimeout the response timeout in milliseconds. If zero or
+	 *            negative, {@value Channel#DEFAULT_RESPONSE_TIMEOUT} will be
+	 *            used.
+	 * @return The {@link CompletableFuture} that will be completed with the
+	 *         resulting {@link MediaStatus}.
+	 */
+	@Nonnull
+	public CompletableFuture<MediaStatus> getMediaStatusAsync(long responseTimeout) {
+		return channel.getMediaStatusAsync(this, responseTimeout);
+	}
+
+	/**
+	 * Sends the specified {@link Request} with the specified namespace using
+	 * this {@link Session} without blocking.
+	 *
+	 * @param <T> the class of the {@link Response} object.
+	 * @param namespace the namespace to use.
+	 * @param request the {@link Request} to send.
+	 * @param responseClass the response class to expect, or {@code null} to
+	 *            complete as soon as the {@link Request} has been sent.
+	 * @param responseTimeout the response timeout in milliseconds. If zero or
+	 *            negative, {@value Channel#DEFAULT_RESPONSE_TIMEOUT} will be
+	 *            used.
+	 * @return The {@link CompletableFuture} that will be completed with the
+	 *         {@link Response}.
+	 */
+	@Nonnull
+	public <T extends Response> CompletableFuture<T> sendGenericRequestAsync(
+		String namespace,
+		Request request,
+		@Nullable Class<T> responseClass,
+		long responseTimeout
+	) {
+		return channel.sendGenericRequestAsync(this, namespace, request, responseClass, responseTimeout);
+	}
+
+	/**
+	 * Returns the {@link PlaybackPosition} for the specified media session,
+	 * built from the last {@link MediaStatus} received for it. No request is
+	 * sent to the cast device, use {@link PlaybackPosition#estimatedPosition()}
+	 * to get the estimated current position.
+	 *
+	 * @param mediaSessionId the media session ID.
+	 * @return The {@link PlaybackPosition} or {@code null} if no
+	 *         {@link MediaStatus} has been received for the media session.
+	 */
+	@Nullable
+	public PlaybackPosition getPlaybackPosition(int mediaSessionId) {
+		return channel.getPlaybackPosition(mediaSessionId);
+	}
+
+	/**
+	 * Returns the merged {@link MediaStatus} for the specified media session,
+	 * where anything left out of partial status updates is filled in from
+	 * earlier updates. No request is sent to the cast device.
+	 *
+	 * @param mediaSessionId the media session ID.
+	 * @return The merged {@link MediaStatus} or {@code null} if no
+	 *         {@link MediaStatus} has been received for the media session.
+	 */
+	@Nullable
+	public MediaStatus getMergedMediaStatus(int mediaSessionId) {
+		return channel.getMergedMediaStatus(mediaSessionId);
+	}
+
+	/**
+	 * Returns the {@link MediaStatusUpdate} from when the last
+	 * {@link MediaStatus} for the specified media session was received,
+	 * which tells what changed. No request is sent to the cast device.
+	 *
+	 * @param mediaSessionId the media session ID.
+	 * @return The {@link MediaStatusUpdate} or {@code null} if no
+	 *         {@link MediaStatus} has been received for the media session.
+	 */
+	@Nullable
+	public MediaStatusUpdate getMediaStatusUpdate(int mediaSessionId) {
+		return channel.getMediaStatusUpdate(mediaSessionId);
+	}
+
+	/**
+	 * Creates a new {@link RequestBatch} that sends its {@link Request}s
+	 * back-to-back using this {@link Session}.
+	 *
+	 * @return The new {@link RequestBatch}.
+	 */
+	@Nonnull
+	public RequestBatch newRequestBatch() {
+		return new RequestBatch(this);
+	}
+
 	@Override
 	public String toString() {
 		StringBuilder builder = new StringBuilder();
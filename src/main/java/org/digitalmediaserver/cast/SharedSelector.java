@@ -0,0 +1,1247 @@
+/*
+ * Copyright (C) 2021 Digital Media Server developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.digitalmediaserver.cast;
+
+import static org.digitalmediaserver.cast.Util.requireNotBlank;
+import static org.digitalmediaserver.cast.Util.requireNotNull;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.UnresolvedAddressException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLEngineResult.HandshakeStatus;
+import javax.net.ssl.SSLException;
+import org.digitalmediaserver.cast.CastChannel.CastMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import com.google.protobuf.CodedInputStream;
+
+
+/**
+ * A non-blocking transport that multiplexes any number of TLS connections to
+ * cast devices on a small, fixed pool of {@link Selector} threads.
+ * <p>
+ * Each {@link Connection} is bound to one of the selector threads for its
+ * lifetime, and all network I/O, TLS processing and message framing for that
+ * {@link Connection} happens on that thread. Incoming messages are delivered
+ * to the {@link ConnectionHandler} on the selector thread, so handlers must
+ * never block.
+ * <p>
+ * A {@link Channel} uses a {@link SharedSelector} instead of a blocking socket
+ * and its own input thread if one has been set using
+ * {@link Channel#setSharedSelector(SharedSelector)}.
+ *
+ * @author Nadahar
+ */
+public class SharedSelector {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(SharedSelector.class);
+
+	/** The maximum size of a single cast message frame, excluding the length header */
+	public static final int MAX_FRAME_SIZE = 64 * 1024;
+
+	/** The default connect and TLS handshake timeout in milliseconds */
+	public static final long DEFAULT_CONNECT_TIMEOUT = 30 * 1000;
+
+	/** The static default instance synchronization object */
+	@Nonnull
+	protected static final Object DEFAULT_LOCK = new Object();
+
+	/** The static default instance */
+	@Nullable
+	@GuardedBy("DEFAULT_LOCK")
+	protected static SharedSelector defaultInstance;
+
+	/** The empty buffer used when wrapping handshake data */
+	@Nonnull
+	protected static final ByteBuffer EMPTY_BUFFER = ByteBuffer.allocate(0);
+
+	/** The selector loops */
+	@Nonnull
+	protected final SelectorLoop[] loops;
+
+	/** The counter used to distribute connections between the loops */
+	@Nonnull
+	protected final AtomicInteger nextLoop = new AtomicInteger();
+
+	/** The name of this instance, used for the thread names */
+	@Nonnull
+	protected final String name;
+
+	/** Whether this instance has been shut down */
+	protected volatile boolean shutdown;
+
+	/**
+	 * Creates and starts a new instance with the specified number of selector
+	 * threads.
+	 *
+	 * @param name the name to use for the selector threads.
+	 * @param threads the number of selector threads. One thread can easily
+	 *            handle hundreds of cast devices.
+	 * @throws IllegalArgumentException If {@code name} is blank or
+	 *             {@code threads} is less than 1.
+	 * @throws IOException If a {@link Selector} can't be opened.
+	 */
+	public SharedSelector(@Nonnull String name, int threads) throws IOException {
+		requireNotBlank(name, "name");
+		if (threads < 1) {
+			throw new IllegalArgumentException("threads must be at least 1");
+		}
+		this.name = name;
+		this.loops = new SelectorLoop[threads];
+		try {
+			for (int i = 0; i < threads; i++) {
+				loops[i] = new SelectorLoop(threads == 1 ? name : name + " #" + (i + 1));
+			}
+		} catch (IOException e) {
+			for (SelectorLoop loop : loops) {
+				if (loop != null) {
+					loop.shutdown();
+				}
+			}
+			throw e;
+		}
+		for (SelectorLoop loop : loops) {
+			loop.start();
+		}
+	}
+
+	/**
+	 * Returns the shared default instance, creating it on first use. The
+	 * default instance uses a single selector thread.
+	 *
+	 * @return The default {@link SharedSelector}.
+	 * @throws IOException If the default instance doesn't exist and can't be
+	 *             created.
+	 */
+	@Nonnull
+	public static SharedSelector getDefault() throws IOException {
+		synchronized (DEFAULT_LOCK) {
+			if (defaultInstance == null || defaultInstance.isShutdown()) {
+				defaultInstance = new SharedSelector("Cast API selector", 1);
+			}
+			return defaultInstance;
+		}
+	}
+
+	/**
+	 * @return The number of selector threads used by this instance.
+	 */
+	public int getThreadCount() {
+		return loops.length;
+	}
+
+	/**
+	 * @return {@code true} if this instance has been shut down, {@code false}
+	 *         otherwise.
+	 */
+	public boolean isShutdown() {
+		return shutdown;
+	}
+
+	/**
+	 * Shuts down this instance by closing all its {@link Connection}s and
+	 * stopping its selector threads.
+	 */
+	public void shutdown() {
+		shutdown = true;
+		for (SelectorLoop loop : loops) {
+			loop.shutdown();
+		}
+	}
+
+	/**
+	 * Opens a non-blocking connection to the specified address and performs
+	 * the TLS handshake. This method blocks until the handshake is complete,
+	 * has failed or the timeout is reached.
+	 *
+	 * @param address the address to connect to.
+	 * @param sslContext the {@link SSLContext} to use.
+	 * @param handler the {@link ConnectionHandler} to notify.
+	 * @param remoteName the name used for the remote party in logging.
+	 * @param timeout the connect and handshake timeout in milliseconds. If
+	 *            zero or negative, {@value #DEFAULT_CONNECT_TIMEOUT} will be
+	 *            used.
+	 * @return The new, connected {@link Connection}.
+	 * @throws IOException If the connection or handshake fails.
+	 */
+	@Nonnull
+	public Connection connect(
+		@Nonnull InetSocketAddress address,
+		@Nonnull SSLContext sslContext,
+		@Nonnull ConnectionHandler handler,
+		@Nonnull String remoteName,
+		long timeout
+	) throws IOException {
+		requireNotNull(address, "address");
+		requireNotNull(sslContext, "sslContext");
+		requireNotNull(handler, "handler");
+		if (shutdown) {
+			throw new SocketException(name + " has been shut down");
+		}
+		SelectorLoop loop = loops[(nextLoop.getAndIncrement() & Integer.MAX_VALUE) % loops.length];
+		SSLEngine engine = sslContext.createSSLEngine(address.getHostString(), address.getPort());
+		engine.setUseClientMode(true);
+		SocketChannel socketChannel = SocketChannel.open();
+		final Connection connection;
+		try {
+			socketChannel.configureBlocking(false);
+			boolean connected;
+			try {
+				connected = socketChannel.connect(address);
+			} catch (UnresolvedAddressException e) {
+				throw new UnknownHostException(address.getHostString());
+			}
+			connection = new Connection(loop, socketChannel, engine, handler, remoteName, connected);
+		} catch (IOException e) {
+			socketChannel.close();
+			throw e;
+		}
+		loop.execute(new Runnable() {
+
+			@Override
+			public void run() {
+				connection.register();
+			}
+		});
+		connection.awaitHandshake(timeout < 1 ? DEFAULT_CONNECT_TIMEOUT : timeout);
+		return connection;
+	}
+
+	/**
+	 * The handler interface for {@link Connection} events. All methods are
+	 * called on the selector thread and must never block.
+	 *
+	 * @author Nadahar
+	 */
+	public interface ConnectionHandler {
+
+		/**
+		 * Called when a complete message has been received.
+		 *
+		 * @param message the received {@link ImmutableCastMessage}.
+		 */
+		void messageReceived(@Nonnull ImmutableCastMessage message);
+
+		/**
+		 * Called when an established {@link Connection} is closed by the
+		 * remote party or because of an error. It is not called when the
+		 * {@link Connection} is closed locally using
+		 * {@link Connection#close()}.
+		 *
+		 * @param cause the {@link IOException} that caused the
+		 *            {@link Connection} to close.
+		 */
+		void connectionLost(@Nonnull IOException cause);
+	}
+
+	/**
+	 * A {@link Thread} running a {@link Selector} loop.
+	 *
+	 * @author Nadahar
+	 */
+	protected static class SelectorLoop extends Thread {
+
+		/** The {@link Selector} */
+		@Nonnull
+		protected final Selector selector;
+
+		/** The tasks to execute on this thread */
+		@Nonnull
+		protected final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+		/** The "running" state */
+		protected volatile boolean running = true;
+
+		/**
+		 * Creates a new instance with the specified name.
+		 *
+		 * @param name the thread name.
+		 * @throws IOException If the {@link Selector} can't be opened.
+		 */
+		public SelectorLoop(@Nonnull String name) throws IOException {
+			super(name);
+			setDaemon(true);
+			selector = Selector.open();
+		}
+
+		/**
+		 * Queues the specified task for execution on this thread.
+		 *
+		 * @param task the task to execute.
+		 */
+		public void execute(@Nonnull Runnable task) {
+			tasks.add(task);
+			selector.wakeup();
+		}
+
+		/**
+		 * @return {@code true} if the calling thread is this thread,
+		 *         {@code false} otherwise.
+		 */
+		public boolean inLoop() {
+			return Thread.currentThread() == this;
+		}
+
+		@Override
+		public void run() {
+			try {
+				while (running) {
+					selector.select();
+					Runnable task;
+					while ((task = tasks.poll()) != null) {
+						try {
+							task.run();
+						} catch (RuntimeException e) {
+							LOGGER.error(Channel.CAST_API_MARKER, "Unexpected error in {}: {}", getName(), e.getMessage());
+							LOGGER.trace(Channel.CAST_API_MARKER, "", e);
+						}
+					}
+					Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+					while (iterator.hasNext()) {
+						SelectionKey key = iterator.next();
+						iterator.remove();
+						Connection connection = (Connection) key.attachment();
+						try {
+							connection.process(key.readyOps());
+						} catch (CancelledKeyException e) {
+							// The connection was closed while processing
+						}
+					}
+				}
+			} catch (IOException | ClosedSelectorException e) {
+				if (running) {
+					LOGGER.error(Channel.CAST_API_MARKER, "{} terminated unexpectedly: {}", getName(), e.getMessage());
+					LOGGER.trace(Channel.CAST_API_MARKER, "", e);
+				}
+			} finally {
+				running = false;
+				for (SelectionKey key : selector.keys()) {
+					if (key.attachment() instanceof Connection) {
+						((Connection) key.attachment()).fail(new SocketException("Selector shut down"));
+					}
+				}
+				try {
+					selector.close();
+				} catch (IOException e) {
+					LOGGER.trace(Channel.CAST_API_MARKER, "Error closing selector: {}", e.getMessage());
+				}
+			}
+		}
+
+		/**
+		 * Tells this {@link SelectorLoop} to close all connections and stop.
+		 */
+		public void shutdown() {
+			running = false;
+			selector.wakeup();
+		}
+	}
+
+	/**
+	 * A single non-blocking TLS connection to a cast device. Writes can be
+	 * made from any thread, everything else happens on the selector thread the
+	 * {@link Connection} is bound to.
+	 *
+	 * @author Nadahar
+	 */
+	public static class Connection {
+
+		/** The state before the TCP connection is established */
+		protected static final int CONNECTING = 0;
+
+		/** The state during the TLS handshake */
+		protected static final int HANDSHAKING = 1;
+
+		/** The state when the connection is ready for use */
+		protected static final int OPEN = 2;
+
+		/** The state when the connection is closed */
+		protected static final int CLOSED = 3;
+
+		/** The {@link SelectorLoop} this {@link Connection} belongs to */
+		@Nonnull
+		protected final SelectorLoop loop;
+
+		/** The {@link SocketChannel} */
+		@Nonnull
+		protected final SocketChannel socketChannel;
+
+		/** The {@link SSLEngine} */
+		@Nonnull
+		protected final SSLEngine engine;
+
+		/** The {@link ConnectionHandler} */
+		@Nonnull
+		protected final ConnectionHandler handler;
+
+		/** The name used for the remote party in logging */
+		@Nonnull
+		protected final String remoteName;
+
+		/** Signals the completion of the TLS handshake, successful or not */
+		@Nonnull
+		protected final CountDownLatch handshakeLatch = new CountDownLatch(1);
+
+		/** Whether a flush has been scheduled on the selector thread */
+		@Nonnull
+		protected final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+		/** The outbound synchronization object */
+		@Nonnull
+		protected final Object outboundLock = new Object();
+
+		/** The outgoing plaintext control frames, written before {@link #outbound} */
+		@Nonnull
+		@GuardedBy("outboundLock")
+		protected final ArrayDeque<OutboundFrame> controlOutbound = new ArrayDeque<>();
+
+		/** The outgoing plaintext frames */
+		@Nonnull
+		@GuardedBy("outboundLock")
+		protected final ArrayDeque<OutboundFrame> outbound = new ArrayDeque<>();
+
+		/**
+		 * The frames that have been encrypted but not yet completely written
+		 * to the socket, only to be accessed on the selector thread
+		 */
+		@Nonnull
+		protected final ArrayList<OutboundFrame> unflushed = new ArrayList<>();
+
+		/** The current state */
+		protected volatile int state;
+
+		/** The {@link IOException} that caused this {@link Connection} to fail */
+		@Nullable
+		protected volatile IOException failure;
+
+		/** The {@link SelectionKey}, only to be accessed on the selector thread */
+		@Nullable
+		protected SelectionKey key;
+
+		/**
+		 * Whether reading has been suspended by the {@link ConnectionHandler},
+		 * only to be accessed on the selector thread
+		 */
+		protected boolean readSuspended;
+
+		/** Encrypted incoming data, only to be accessed on the selector thread */
+		@Nonnull
+		protected ByteBuffer netIn;
+
+		/** Decrypted incoming data, only to be accessed on the selector thread */
+		@Nonnull
+		protected ByteBuffer appIn;
+
+		/** Encrypted outgoing data, only to be accessed on the selector thread */
+		@Nonnull
+		protected ByteBuffer netOut;
+
+		/**
+		 * Creates a new instance using the specified parameters.
+		 *
+		 * @param loop the {@link SelectorLoop} to bind to.
+		 * @param socketChannel the non-blocking {@link SocketChannel}.
+		 * @param engine the client mode {@link SSLEngine}.
+		 * @param handler the {@link ConnectionHandler} to notify.
+		 * @param remoteName the name used for the remote party in logging.
+		 * @param connected whether {@code socketChannel} is already
+		 *            connected.
+		 */
+		protected Connection(
+			@Nonnull SelectorLoop loop,
+			@Nonnull SocketChannel socketChannel,
+			@Nonnull SSLEngine engine,
+			@Nonnull ConnectionHandler handler,
+			@Nonnull String remoteName,
+			boolean connected
+		) {
+			this.loop = loop;
+			this.socketChannel = socketChannel;
+			this.engine = engine;
+			this.handler = handler;
+			this.remoteName = remoteName;
+			this.state = connected ? HANDSHAKING : CONNECTING;
+			int packetSize = engine.getSession().getPacketBufferSize();
+			this.netIn = ByteBuffer.allocate(packetSize);
+			this.netOut = ByteBuffer.allocate(packetSize);
+			this.appIn = ByteBuffer.allocate(Math.max(engine.getSession().getApplicationBufferSize(), 8192));
+		}
+
+		/**
+		 * @return {@code true} if this {@link Connection} is open,
+		 *         {@code false} otherwise.
+		 */
+		public boolean isOpen() {
+			return state != CLOSED;
+		}
+
+		/**
+		 * Queues the specified {@link CastMessage} for writing. This method
+		 * never blocks.
+		 *
+		 * @param message the {@link CastMessage} to write.
+		 * @throws IOException If this {@link Connection} is closed.
+		 */
+		public void write(@Nonnull CastMessage message) throws IOException {
+			write(FrameEncoder.encode(message));
+		}
+
+		/**
+		 * Queues the specified frame for writing. The {@link ByteBuffer} must
+		 * not be modified after being passed to this method. This method never
+		 * blocks.
+		 *
+		 * @param frame the complete frame, including the length header.
+		 * @throws IOException If this {@link Connection} is closed.
+		 */
+		public void write(@Nonnull ByteBuffer frame) throws IOException {
+			if (state == CLOSED) {
+				throw closedException();
+			}
+			enqueue(Collections.singletonList(new OutboundFrame(frame)), false);
+		}
+
+		/**
+		 * Queues the specified {@link CastMessage}s for writing back-to-back.
+		 * Control messages are written before any queued ordinary messages,
+		 * but never in the middle of a frame, while the messages within each
+		 * of the two lanes keep their order. This method never blocks.
+		 *
+		 * @param messages the {@link CastMessage}s to write.
+		 * @param control {@code true} to use the control lane, {@code false}
+		 *            to use the ordinary lane.
+		 * @return The {@link CompletableFuture} that completes when all the
+		 *         messages have been written to the socket, or completes
+		 *         exceptionally if this {@link Connection} is or becomes closed
+		 *         before that.
+		 */
+		@Nonnull
+		public CompletableFuture<Void> write(@Nonnull List<CastMessage> messages, boolean control) {
+			if (messages.isEmpty()) {
+				return CompletableFuture.completedFuture(null);
+			}
+			if (state == CLOSED) {
+				return Util.failedFuture(closedException());
+			}
+			List<OutboundFrame> frames = new ArrayList<>(messages.size());
+			for (CastMessage message : messages) {
+				frames.add(new OutboundFrame(FrameEncoder.encode(message)));
+			}
+			enqueue(frames, control);
+
+			// The frames of a lane are completed in order
+			return frames.get(frames.size() - 1).future;
+		}
+
+		/**
+		 * @return The {@link IOException} to use for operations attempted
+		 *         after this {@link Connection} is closed.
+		 */
+		@Nonnull
+		protected IOException closedException() {
+			IOException cause = failure;
+			return cause == null ? new SocketException("Connection is closed") : new SocketException(
+				"Connection is closed: " + cause.getMessage()
+			);
+		}
+
+		/**
+		 * Adds the specified {@link OutboundFrame}s to the specified lane and
+		 * schedules a flush.
+		 *
+		 * @param frames the {@link OutboundFrame}s to queue.
+		 * @param control {@code true} to use the control lane, {@code false}
+		 *            to use the ordinary lane.
+		 */
+		protected void enqueue(@Nonnull List<OutboundFrame> frames, boolean control) {
+			synchronized (outboundLock) {
+				(control ? controlOutbound : outbound).addAll(frames);
+			}
+			if (state == CLOSED) {
+				// Closed concurrently, the frames might have been added after the queues were failed
+				failOutbound(closedException());
+				return;
+			}
+			if (flushScheduled.compareAndSet(false, true)) {
+				loop.execute(new Runnable() {
+
+					@Override
+					public void run() {
+						flushScheduled.set(false);
+						if (state == OPEN) {
+							process(0);
+						}
+					}
+				});
+			}
+		}
+
+		/**
+		 * Stops reading from the socket until {@link #resumeReading()} is
+		 * called, so that a {@link ConnectionHandler} that can't keep up
+		 * pushes back on the remote party through TCP flow control instead of
+		 * buffering. When called from
+		 * {@link ConnectionHandler#messageReceived}, no further messages are
+		 * delivered until reading is resumed. Writing isn't affected.
+		 */
+		public void suspendReading() {
+			if (loop.inLoop()) {
+				readSuspended = true;
+			} else {
+				loop.execute(new Runnable() {
+
+					@Override
+					public void run() {
+						readSuspended = true;
+					}
+				});
+			}
+		}
+
+		/**
+		 * Resumes reading after {@link #suspendReading()}, first delivering
+		 * any messages that were already received.
+		 */
+		public void resumeReading() {
+			loop.execute(new Runnable() {
+
+				@Override
+				public void run() {
+					if (!readSuspended) {
+						return;
+					}
+					readSuspended = false;
+					if (state != OPEN) {
+						return;
+					}
+					try {
+						decodeFrames();
+					} catch (IOException e) {
+						fail(e);
+						return;
+					} catch (RuntimeException e) {
+						fail(new SSLException("Unexpected error: " + e.getMessage(), e));
+						return;
+					}
+					process(0);
+				}
+			});
+		}
+
+		/**
+		 * Closes this {@link Connection}, attempting to send a TLS
+		 * {@code close_notify} first. The {@link ConnectionHandler} isn't
+		 * notified.
+		 */
+		public void close() {
+			if (state == CLOSED) {
+				return;
+			}
+			state = CLOSED;
+			handshakeLatch.countDown();
+			if (loop.inLoop()) {
+				doClose();
+			} else {
+				loop.execute(new Runnable() {
+
+					@Override
+					public void run() {
+						doClose();
+					}
+				});
+			}
+		}
+
+		/**
+		 * Registers this {@link Connection} with the {@link Selector}. Must
+		 * be called on the selector thread.
+		 */
+		protected void register() {
+			if (state == CLOSED) {
+				doClose();
+				return;
+			}
+			try {
+				key = socketChannel.register(
+					loop.selector,
+					state == CONNECTING ? SelectionKey.OP_CONNECT : SelectionKey.OP_READ,
+					this
+				);
+			} catch (IOException e) {
+				fail(e);
+				return;
+			}
+			if (state == HANDSHAKING) {
+				process(0);
+			}
+		}
+
+		/**
+		 * Waits for the TLS handshake to complete.
+		 *
+		 * @param timeout the timeout in milliseconds.
+		 * @throws IOException If the handshake fails, times out or the thread
+		 *             is interrupted.
+		 */
+		protected void awaitHandshake(long timeout) throws IOException {
+			boolean completed;
+			try {
+				completed = handshakeLatch.await(timeout, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				close();
+				Thread.currentThread().interrupt();
+				throw new CastException("Interrupted while connecting to " + remoteName, e);
+			}
+			if (!completed) {
+				close();
+				throw new SocketTimeoutException("Timed out while connecting to " + remoteName);
+			}
+			if (state != OPEN) {
+				IOException cause = failure;
+				if (cause != null) {
+					throw cause;
+				}
+				throw new SocketException("Connection to " + remoteName + " was closed during handshake");
+			}
+		}
+
+		/**
+		 * Does all the processing that is currently possible. Must be called on
+		 * the selector thread.
+		 *
+		 * @param readyOps the ready operations reported by the
+		 *            {@link Selector}.
+		 */
+		protected void process(int readyOps) {
+			if (state == CLOSED) {
+				return;
+			}
+			try {
+				if (state == CONNECTING) {
+					if ((readyOps & SelectionKey.OP_CONNECT) == 0 || !socketChannel.finishConnect()) {
+						return;
+					}
+					state = HANDSHAKING;
+					engine.beginHandshake();
+				}
+				boolean progress = true;
+				while (progress && state != CLOSED) {
+					progress = false;
+					int read = readSuspended ? 0 : socketChannel.read(netIn);
+					if (read < 0) {
+						throw new EOFException("Connection closed by " + remoteName);
+					}
+					if (read > 0) {
+						progress = true;
+					}
+					if (state == HANDSHAKING) {
+						progress |= handshake();
+					}
+					if (state == OPEN) {
+						progress |= unwrapAll();
+						progress |= wrapOutbound();
+					}
+				}
+				if (state != CLOSED && key != null) {
+					int interestOps = netOut.position() > 0 ? SelectionKey.OP_WRITE : 0;
+					if (!readSuspended) {
+						interestOps |= SelectionKey.OP_READ;
+					}
+					key.interestOps(interestOps);
+				}
+			} catch (IOException e) {
+				fail(e);
+			} catch (RuntimeException e) {
+				fail(new SSLException("Unexpected error: " + e.getMessage(), e));
+			}
+		}
+
+		/**
+		 * Drives the TLS handshake as far as currently possible.
+		 *
+		 * @return {@code true} if any progress was made, {@code false}
+		 *         otherwise.
+		 * @throws IOException If an error occurs during the operation.
+		 */
+		protected boolean handshake() throws IOException {
+			boolean progress = false;
+			while (true) {
+				HandshakeStatus status = engine.getHandshakeStatus();
+				if (status == HandshakeStatus.NEED_TASK) {
+					runDelegatedTasks();
+					progress = true;
+				} else if (status == HandshakeStatus.NEED_WRAP) {
+					if (!flushNet()) {
+						return progress;
+					}
+					SSLEngineResult result = wrap(EMPTY_BUFFER);
+					flushNet();
+					progress = true;
+					if (result.getHandshakeStatus() == HandshakeStatus.FINISHED) {
+						handshakeFinished();
+						return true;
+					}
+				} else if (
+					status == HandshakeStatus.NOT_HANDSHAKING ||
+					status == HandshakeStatus.FINISHED
+				) {
+					handshakeFinished();
+					return true;
+				} else {
+					// NEED_UNWRAP or NEED_UNWRAP_AGAIN
+					SSLEngineResult result = unwrap();
+					if (result == null) {
+						return progress;
+					}
+					progress = true;
+					if (result.getHandshakeStatus() == HandshakeStatus.FINISHED) {
+						handshakeFinished();
+						return true;
+					}
+				}
+			}
+		}
+
+		/**
+		 * Marks the handshake as finished.
+		 */
+		protected void handshakeFinished() {
+			state = OPEN;
+			LOGGER.trace(Channel.CAST_API_MARKER, "TLS handshake with {} completed", remoteName);
+			handshakeLatch.countDown();
+		}
+
+		/**
+		 * Runs the {@link SSLEngine}'s delegated tasks on the current thread.
+		 */
+		protected void runDelegatedTasks() {
+			Runnable task;
+			while ((task = engine.getDelegatedTask()) != null) {
+				task.run();
+			}
+		}
+
+		/**
+		 * Unwraps and decodes all complete incoming data.
+		 *
+		 * @return {@code true} if any progress was made, {@code false}
+		 *         otherwise.
+		 * @throws IOException If an error occurs during the operation.
+		 */
+		protected boolean unwrapAll() throws IOException {
+			boolean progress = false;
+			SSLEngineResult result;
+			while (state == OPEN && !readSuspended && (result = unwrap()) != null) {
+				progress = true;
+				if (result.getHandshakeStatus() == HandshakeStatus.NEED_TASK) {
+					runDelegatedTasks();
+				}
+				if (engine.getHandshakeStatus() == HandshakeStatus.NEED_WRAP) {
+					wrap(EMPTY_BUFFER);
+				}
+				decodeFrames();
+			}
+			return progress;
+		}
+
+		/**
+		 * Unwraps one TLS record from {@code netIn} into {@code appIn},
+		 * growing the buffers if required.
+		 *
+		 * @return The {@link SSLEngineResult} or {@code null} if more data is
+		 *         needed.
+		 * @throws IOException If an error occurs during the operation.
+		 */
+		@Nullable
+		protected SSLEngineResult unwrap() throws IOException {
+			if (netIn.position() == 0) {
+				return null;
+			}
+			netIn.flip();
+			SSLEngineResult result;
+			try {
+				result = engine.unwrap(netIn, appIn);
+			} finally {
+				netIn.compact();
+			}
+			switch (result.getStatus()) {
+				case BUFFER_OVERFLOW:
+					appIn = grow(appIn, engine.getSession().getApplicationBufferSize());
+					return result;
+				case BUFFER_UNDERFLOW:
+					if (netIn.remaining() == 0) {
+						netIn = grow(netIn, engine.getSession().getPacketBufferSize());
+					}
+					return null;
+				case CLOSED:
+					throw new EOFException("TLS session closed by " + remoteName);
+				default:
+					return result;
+			}
+		}
+
+		/**
+		 * Wraps as much of the specified source as possible into
+		 * {@code netOut}, growing the buffer if required.
+		 *
+		 * @param source the plaintext source.
+		 * @return The {@link SSLEngineResult}.
+		 * @throws EOFException If the TLS session is closed.
+		 * @throws IOException If an error occurs during the operation.
+		 */
+		@Nonnull
+		protected SSLEngineResult wrap(@Nonnull ByteBuffer source) throws IOException {
+			return wrap(new ByteBuffer[] {source});
+		}
+
+		/**
+		 * Wraps as much of the specified sources as possible into
+		 * {@code netOut}, growing the buffer if required. Data from several
+		 * sources is gathered into the same TLS record.
+		 *
+		 * @param sources the plaintext sources.
+		 * @return The {@link SSLEngineResult}.
+		 * @throws EOFException If the TLS session is closed.
+		 * @throws IOException If an error occurs during the operation.
+		 */
+		@Nonnull
+		protected SSLEngineResult wrap(@Nonnull ByteBuffer[] sources) throws IOException {
+			while (true) {
+				SSLEngineResult result = engine.wrap(sources, netOut);
+				switch (result.getStatus()) {
+					case BUFFER_OVERFLOW:
+						if (netOut.position() > 0 && !flushNet()) {
+							return result;
+						}
+						if (netOut.position() == 0) {
+							netOut = grow(netOut, engine.getSession().getPacketBufferSize());
+						}
+						break;
+					case CLOSED:
+						throw new EOFException("TLS session to " + remoteName + " is closed");
+					default:
+						if (result.getHandshakeStatus() == HandshakeStatus.NEED_TASK) {
+							runDelegatedTasks();
+						}
+						return result;
+				}
+			}
+		}
+
+		/**
+		 * Encrypts and writes as many queued frames as the socket will
+		 * currently accept. All the frames queued at the time are gathered
+		 * into as few TLS records as possible, and the encrypted data is
+		 * written to the socket in as few writes as possible.
+		 *
+		 * @return {@code true} if any progress was made, {@code false}
+		 *         otherwise.
+		 * @throws IOException If an error occurs during the operation.
+		 */
+		protected boolean wrapOutbound() throws IOException {
+			boolean progress = false;
+			while (true) {
+				ByteBuffer[] frames;
+				synchronized (outboundLock) {
+					if (controlOutbound.isEmpty() && outbound.isEmpty()) {
+						break;
+					}
+					frames = orderedFrames();
+				}
+				SSLEngineResult result = wrap(frames);
+				synchronized (outboundLock) {
+					pollWritten(controlOutbound);
+					pollWritten(outbound);
+				}
+				if (result.bytesConsumed() > 0) {
+					progress = true;
+				} else {
+					// The socket won't currently accept more
+					break;
+				}
+			}
+			if (flushNet() && !unflushed.isEmpty()) {
+				for (OutboundFrame frame : unflushed) {
+					frame.future.complete(null);
+				}
+				unflushed.clear();
+			}
+			return progress;
+		}
+
+		/**
+		 * Returns the queued frames in the order they are to be written: a
+		 * partially written frame first, since a frame can't be interrupted,
+		 * then the control frames and finally the ordinary frames.
+		 *
+		 * @return The ordered frames.
+		 */
+		@Nonnull
+		@GuardedBy("outboundLock")
+		protected ByteBuffer[] orderedFrames() {
+			ByteBuffer[] result = new ByteBuffer[controlOutbound.size() + outbound.size()];
+			int i = 0;
+			OutboundFrame partial = outbound.peek();
+			if (partial != null && partial.frame.position() > partial.start) {
+				result[i++] = partial.frame;
+			} else {
+				partial = null;
+			}
+			for (OutboundFrame frame : controlOutbound) {
+				result[i++] = frame.frame;
+			}
+			for (OutboundFrame frame : outbound) {
+				if (frame != partial) {
+					result[i++] = frame.frame;
+				}
+			}
+			return result;
+		}
+
+		/**
+		 * Moves the completely encrypted frames at the head of the specified
+		 * lane to {@link #unflushed}.
+		 *
+		 * @param lane the lane.
+		 */
+		@GuardedBy("outboundLock")
+		protected void pollWritten(@Nonnull ArrayDeque<OutboundFrame> lane) {
+			OutboundFrame frame;
+			while ((frame = lane.peek()) != null && !frame.frame.hasRemaining()) {
+				unflushed.add(lane.poll());
+			}
+		}
+
+		/**
+		 * Removes all queued frames, completing them exceptionally with the
+		 * specified {@link IOException}.
+		 *
+		 * @param cause the {@link IOException} to complete the frames with.
+		 */
+		protected void failOutbound(@Nonnull IOException cause) {
+			List<OutboundFrame> removed;
+			synchronized (outboundLock) {
+				if (controlOutbound.isEmpty() && outbound.isEmpty()) {
+					return;
+				}
+				removed = new ArrayList<>(controlOutbound);
+				removed.addAll(outbound);
+				controlOutbound.clear();
+				outbound.clear();
+			}
+			for (OutboundFrame frame : removed) {
+				frame.future.completeExceptionally(cause);
+			}
+		}
+
+		/**
+		 * Completes all unwritten frames exceptionally with the specified
+		 * {@link IOException}. Must be called on the selector thread.
+		 *
+		 * @param cause the {@link IOException} to complete the frames with.
+		 */
+		protected void failPending(@Nonnull IOException cause) {
+			for (OutboundFrame frame : unflushed) {
+				frame.future.completeExceptionally(cause);
+			}
+			unflushed.clear();
+			failOutbound(cause);
+		}
+
+		/**
+		 * Writes as much of {@code netOut} to the socket as it will accept.
+		 *
+		 * @return {@code true} if {@code netOut} is now empty, {@code false}
+		 *         otherwise.
+		 * @throws IOException If an error occurs during the operation.
+		 */
+		protected boolean flushNet() throws IOException {
+			if (netOut.position() == 0) {
+				return true;
+			}
+			netOut.flip();
+			try {
+				socketChannel.write(netOut);
+			} finally {
+				netOut.compact();
+			}
+			return netOut.position() == 0;
+		}
+
+		/**
+		 * Decodes and delivers all complete frames in {@code appIn}.
+		 *
+		 * @throws IOException If an invalid frame is encountered.
+		 */
+		protected void decodeFrames() throws IOException {
+			appIn.flip();
+			try {
+				while (appIn.remaining() >= 4 && state == OPEN && !readSuspended) {
+					int size = appIn.getInt(appIn.position());
+					if (size < 0 || size > MAX_FRAME_SIZE) {
+						throw new CastException("Invalid message size " + size + " received from " + remoteName);
+					}
+					if (appIn.remaining() < size + 4) {
+						break;
+					}
+					CastMessage message = CastMessage.parseFrom(CodedInputStream.newInstance(
+						appIn.array(),
+						appIn.arrayOffset() + appIn.position() + 4,
+						size
+					));
+					appIn.position(appIn.position() + size + 4);
+					try {
+						handler.messageReceived(ImmutableCastMessage.create(message));
+					} catch (RuntimeException e) {
+						LOGGER.error(
+							Channel.CAST_API_MARKER,
+							"Unexpected error while processing message from {}: {}",
+							remoteName,
+							e.getMessage()
+						);
+						LOGGER.trace(Channel.CAST_API_MARKER, "", e);
+					}
+				}
+			} finally {
+				appIn.compact();
+			}
+		}
+
+		/**
+		 * Closes this {@link Connection} because of an error, notifying the
+		 * {@link ConnectionHandler} if the {@link Connection} was established.
+		 *
+		 * @param cause the {@link IOException} that caused the failure.
+		 */
+		protected void fail(@Nonnull IOException cause) {
+			int previous = state;
+			if (previous == CLOSED) {
+				return;
+			}
+			failure = cause;
+			state = CLOSED;
+			handshakeLatch.countDown();
+			if (key != null) {
+				key.cancel();
+			}
+			try {
+				socketChannel.close();
+			} catch (IOException e) {
+				LOGGER.trace(Channel.CAST_API_MARKER, "Error closing channel to {}: {}", remoteName, e.getMessage());
+			}
+			failPending(cause);
+			if (previous == OPEN) {
+				handler.connectionLost(cause);
+			}
+		}
+
+		/**
+		 * Sends a TLS {@code close_notify} if possible and closes the
+		 * {@link SocketChannel}. Must be called on the selector thread.
+		 */
+		protected void doClose() {
+			try {
+				engine.closeOutbound();
+				if (socketChannel.isConnected()) {
+					wrap(EMPTY_BUFFER);
+					flushNet();
+				}
+			} catch (IOException | RuntimeException e) {
+				LOGGER.trace(Channel.CAST_API_MARKER, "Error sending close_notify to {}: {}", remoteName, e.getMessage());
+			}
+			if (key != null) {
+				key.cancel();
+			}
+			try {
+				socketChannel.close();
+			} catch (IOException e) {
+				LOGGER.trace(Channel.CAST_API_MARKER, "Error closing channel to {}: {}", remoteName, e.getMessage());
+			}
+			failPending(new SocketException("Connection to " + remoteName + " was closed"));
+		}
+
+		/**
+		 * Creates a new, larger {@link ByteBuffer} in write mode with the
+		 * content of the specified {@link ByteBuffer}.
+		 *
+		 * @param buffer the {@link ByteBuffer} in write mode.
+		 * @param minimumFree the minimum free space in the new buffer.
+		 * @return The new {@link ByteBuffer}.
+		 */
+		@Nonnull
+		protected static ByteBuffer grow(@Nonnull ByteBuffer buffer, int minimumFree) {
+			ByteBuffer result = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + minimumFree));
+			buffer.flip();
+			result.put(buffer);
+			return result;
+		}
+	}
+
+	/**
+	 * A queued outgoing frame and its {@link CompletableFuture}.
+	 *
+	 * @author Nadahar
+	 */
+	protected static class OutboundFrame {
+
+		/** The complete frame, including the length header */
+		@Nonnull
+		protected final ByteBuffer frame;
+
+		/** The position of {@link #frame} before anything was written */
+		protected final int start;
+
+		/** The {@link CompletableFuture} to complete when written */
+		@Nonnull
+		protected final CompletableFuture<Void> future = new CompletableFuture<>();
+
+		/**
+		 * Creates a new instance.
+		 *
+		 * @param frame the complete frame, including the length header.
+		 */
+		protected OutboundFrame(@Nonnull ByteBuffer frame) {
+			this.frame = frame;
+			this.start = frame.position();
+		}
+	}
+}
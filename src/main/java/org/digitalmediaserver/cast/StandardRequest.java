@@ -62,7 +62,7 @@ public abstract class StandardRequest extends StandardMessage implements Request
 		 *
 		 * @param appId the application ID(s) to use.
 		 */
-		public GetAppAvailability(String... appId) {
+		public GetAppAvailability(@JsonProperty("appId") String... appId) {
 			this.appId = appId;
 		}
 
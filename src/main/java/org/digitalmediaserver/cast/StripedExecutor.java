@@ -0,0 +1,479 @@
+/*
+ * Copyright (C) 2021 Digital Media Server developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.digitalmediaserver.cast;
+
+import static org.digitalmediaserver.cast.Util.requireNotBlank;
+import static org.digitalmediaserver.cast.Util.requireNotNull;
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * A bounded executor that runs tasks on a limited number of threads, where
+ * the tasks are divided into {@link Stripe}s. The tasks of a {@link Stripe}
+ * are executed one at a time in the order they were submitted, while
+ * different {@link Stripe}s are executed in parallel.
+ * <p>
+ * Every {@link CastDevice} uses its own {@link Stripe} of
+ * {@link CastDevice#EVENT_EXECUTOR} to notify its listeners, so that the
+ * events from a cast device are delivered in order, and an event storm from
+ * one device can't create an unbounded number of threads.
+ *
+ * @author Nadahar
+ */
+@ThreadSafe
+public class StripedExecutor {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(StripedExecutor.class);
+
+	/**
+	 * The maximum number of tasks a {@link Stripe} runs before it yields its
+	 * thread to other {@link Stripe}s
+	 */
+	protected static final int MAX_BATCH = 32;
+
+	/** The name used for threads and in logging */
+	@Nonnull
+	protected final String name;
+
+	/** The {@link ThreadPoolExecutor} that runs the {@link Stripe}s */
+	@Nonnull
+	protected final ThreadPoolExecutor pool;
+
+	/** The maximum number of queued tasks for all {@link Stripe}s combined */
+	protected volatile int queueCapacity;
+
+	/** The {@link RejectionPolicy} */
+	@Nonnull
+	protected volatile RejectionPolicy rejectionPolicy;
+
+	/** The number of queued tasks */
+	@Nonnull
+	protected final AtomicInteger queueDepth = new AtomicInteger();
+
+	/** The highest number of queued tasks seen */
+	@Nonnull
+	protected final AtomicInteger largestQueueDepth = new AtomicInteger();
+
+	/** The number of tasks that have been rejected or discarded */
+	@Nonnull
+	protected final AtomicLong rejectedCount = new AtomicLong();
+
+	/** The number of tasks that have been run */
+	@Nonnull
+	protected final AtomicLong completedCount = new AtomicLong();
+
+	/**
+	 * Creates a new instance using the specified parameters.
+	 *
+	 * @param name the name used for threads and in logging.
+	 * @param maxThreads the maximum number of threads.
+	 * @param queueCapacity the maximum number of queued tasks for all
+	 *            {@link Stripe}s combined.
+	 * @param rejectionPolicy the {@link RejectionPolicy} to use when the
+	 *            queue is full.
+	 * @throws IllegalArgumentException If {@code name} is blank,
+	 *             {@code maxThreads} or {@code queueCapacity} is less than
+	 *             one or {@code rejectionPolicy} is {@code null}.
+	 */
+	public StripedExecutor(
+		@Nonnull String name,
+		int maxThreads,
+		int queueCapacity,
+		@Nonnull RejectionPolicy rejectionPolicy
+	) {
+		requireNotBlank(name, "name");
+		requireNotNull(rejectionPolicy, "rejectionPolicy");
+		if (maxThreads < 1) {
+			throw new IllegalArgumentException("maxThreads must be positive");
+		}
+		if (queueCapacity < 1) {
+			throw new IllegalArgumentException("queueCapacity must be positive");
+		}
+		this.name = name;
+		this.queueCapacity = queueCapacity;
+		this.rejectionPolicy = rejectionPolicy;
+		this.pool = new ThreadPoolExecutor(
+			maxThreads,
+			maxThreads,
+			60L,
+			TimeUnit.SECONDS,
+			new LinkedBlockingQueue<Runnable>(), // Holds at most one entry per Stripe
+			VirtualThreads.newThreadFactory(name, true)
+		);
+		this.pool.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * Creates a new {@link Stripe} whose tasks are executed in order, one at
+	 * a time.
+	 *
+	 * @param stripeName the name of the {@link Stripe} used in logging.
+	 * @return The new {@link Stripe}.
+	 */
+	@Nonnull
+	public Stripe newStripe(@Nonnull String stripeName) {
+		return new Stripe(stripeName);
+	}
+
+	/**
+	 * @return The maximum number of threads.
+	 */
+	public int getMaxThreads() {
+		return pool.getMaximumPoolSize();
+	}
+
+	/**
+	 * Sets the maximum number of threads.
+	 *
+	 * @param maxThreads the maximum number of threads.
+	 * @throws IllegalArgumentException If {@code maxThreads} is less than
+	 *             one.
+	 */
+	public void setMaxThreads(int maxThreads) {
+		if (maxThreads < 1) {
+			throw new IllegalArgumentException("maxThreads must be positive");
+		}
+		synchronized (pool) {
+			if (maxThreads > pool.getMaximumPoolSize()) {
+				pool.setMaximumPoolSize(maxThreads);
+				pool.setCorePoolSize(maxThreads);
+			} else {
+				pool.setCorePoolSize(maxThreads);
+				pool.setMaximumPoolSize(maxThreads);
+			}
+		}
+	}
+
+	/**
+	 * @return The maximum number of queued tasks for all {@link Stripe}s
+	 *         combined.
+	 */
+	public int getQueueCapacity() {
+		return queueCapacity;
+	}
+
+	/**
+	 * Sets the maximum number of queued tasks for all {@link Stripe}s
+	 * combined. Tasks that are already queued aren't affected.
+	 *
+	 * @param queueCapacity the queue capacity.
+	 * @throws IllegalArgumentException If {@code queueCapacity} is less than
+	 *             one.
+	 */
+	public void setQueueCapacity(int queueCapacity) {
+		if (queueCapacity < 1) {
+			throw new IllegalArgumentException("queueCapacity must be positive");
+		}
+		this.queueCapacity = queueCapacity;
+	}
+
+	/**
+	 * @return The {@link RejectionPolicy}.
+	 */
+	@Nonnull
+	public RejectionPolicy getRejectionPolicy() {
+		return rejectionPolicy;
+	}
+
+	/**
+	 * Sets the {@link RejectionPolicy} to use when the queue is full.
+	 *
+	 * @param rejectionPolicy the {@link RejectionPolicy}.
+	 * @throws IllegalArgumentException If {@code rejectionPolicy} is
+	 *             {@code null}.
+	 */
+	public void setRejectionPolicy(@Nonnull RejectionPolicy rejectionPolicy) {
+		requireNotNull(rejectionPolicy, "rejectionPolicy");
+		this.rejectionPolicy = rejectionPolicy;
+	}
+
+	/**
+	 * @return The number of tasks that are currently queued.
+	 */
+	public int getQueueDepth() {
+		return queueDepth.get();
+	}
+
+	/**
+	 * @return The highest number of tasks that have been queued at the same
+	 *         time.
+	 */
+	public int getLargestQueueDepth() {
+		return largestQueueDepth.get();
+	}
+
+	/**
+	 * @return The number of threads that are currently running tasks.
+	 */
+	public int getActiveThreads() {
+		return pool.getActiveCount();
+	}
+
+	/**
+	 * @return The number of tasks that have been rejected or discarded
+	 *         because the queue was full.
+	 */
+	public long getRejectedCount() {
+		return rejectedCount.get();
+	}
+
+	/**
+	 * @return The number of tasks that have been run.
+	 */
+	public long getCompletedCount() {
+		return completedCount.get();
+	}
+
+	/**
+	 * @return {@code true} if the queue is full so that new tasks are
+	 *         subject to the {@link RejectionPolicy}, {@code false} otherwise.
+	 */
+	public boolean isSaturated() {
+		return queueDepth.get() >= queueCapacity;
+	}
+
+	/**
+	 * Reserves room for one task in the queue.
+	 *
+	 * @return {@code true} if room was reserved, {@code false} if the queue is
+	 *         full.
+	 */
+	protected boolean reserve() {
+		int depth = queueDepth.incrementAndGet();
+		if (depth > queueCapacity) {
+			queueDepth.decrementAndGet();
+			return false;
+		}
+		int largest;
+		while (depth > (largest = largestQueueDepth.get())) {
+			if (largestQueueDepth.compareAndSet(largest, depth)) {
+				break;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + " [name=" + name + ", maxThreads=" + pool.getMaximumPoolSize() +
+			", queueCapacity=" + queueCapacity + ", rejectionPolicy=" + rejectionPolicy +
+			", queueDepth=" + queueDepth.get() + ", activeThreads=" + pool.getActiveCount() +
+			", rejectedCount=" + rejectedCount.get() + "]";
+	}
+
+	/**
+	 * The policies for handling new tasks when the queue is full.
+	 */
+	public enum RejectionPolicy {
+
+		/** Throw a {@link RejectedExecutionException} */
+		ABORT,
+
+		/** Silently discard the new task */
+		DISCARD,
+
+		/**
+		 * Discard the oldest queued task of the same {@link Stripe}, or throw
+		 * a {@link RejectedExecutionException} if the {@link Stripe} has no
+		 * queued tasks
+		 */
+		DISCARD_OLDEST
+	}
+
+	/**
+	 * An {@link Executor} that runs its tasks in order, one at a time, using
+	 * the threads of the {@link StripedExecutor} that created it.
+	 *
+	 * @author Nadahar
+	 */
+	@ThreadSafe
+	public class Stripe implements Executor {
+
+		/** The name used in logging */
+		@Nonnull
+		protected final String stripeName;
+
+		/** The synchronization object */
+		@Nonnull
+		protected final Object lock = new Object();
+
+		/** The queued tasks */
+		@Nonnull
+		@GuardedBy("lock")
+		protected final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+
+		/** Whether {@link #drainer} has been submitted for execution */
+		@GuardedBy("lock")
+		protected boolean scheduled;
+
+		/** The {@link Runnable} that runs the queued tasks */
+		@Nonnull
+		protected final Runnable drainer = new Runnable() {
+
+			@Override
+			public void run() {
+				drain();
+			}
+		};
+
+		/**
+		 * Creates a new instance with the specified name.
+		 *
+		 * @param stripeName the name used in logging.
+		 */
+		protected Stripe(@Nonnull String stripeName) {
+			this.stripeName = stripeName;
+		}
+
+		@Override
+		public void execute(Runnable command) {
+			requireNotNull(command, "command");
+			synchronized (lock) {
+				if (!reserve()) {
+					rejectedCount.incrementAndGet();
+					switch (rejectionPolicy) {
+						case DISCARD:
+							LOGGER.debug(
+								Channel.CAST_API_MARKER,
+								"{} is full, discarding task for {}",
+								name,
+								stripeName
+							);
+							return;
+						case DISCARD_OLDEST:
+							if (tasks.poll() != null) {
+								LOGGER.debug(
+									Channel.CAST_API_MARKER,
+									"{} is full, discarding the oldest task for {}",
+									name,
+									stripeName
+								);
+								tasks.add(command);
+								return;
+							}
+							throw new RejectedExecutionException(name + " is full");
+						case ABORT:
+						default:
+							throw new RejectedExecutionException(name + " is full");
+					}
+				}
+				tasks.add(command);
+				if (scheduled) {
+					return;
+				}
+				scheduled = true;
+			}
+			submit();
+		}
+
+		/**
+		 * @return The number of queued tasks for this {@link Stripe}.
+		 */
+		public int size() {
+			synchronized (lock) {
+				return tasks.size();
+			}
+		}
+
+		/**
+		 * Submits {@link #drainer} to the thread pool.
+		 */
+		protected void submit() {
+			try {
+				pool.execute(drainer);
+			} catch (RejectedExecutionException e) {
+				synchronized (lock) {
+					queueDepth.addAndGet(-tasks.size());
+					tasks.clear();
+					scheduled = false;
+				}
+				throw e;
+			}
+		}
+
+		/**
+		 * Runs queued tasks until the queue is empty or {@link #MAX_BATCH}
+		 * tasks have been run, in which case {@link #drainer} is resubmitted
+		 * to give other {@link Stripe}s a chance to run.
+		 */
+		protected void drain() {
+			Runnable task;
+			for (int i = 0; i < MAX_BATCH; i++) {
+				synchronized (lock) {
+					task = tasks.poll();
+					if (task == null) {
+						scheduled = false;
+						return;
+					}
+				}
+				queueDepth.decrementAndGet();
+				try {
+					task.run();
+				} catch (RuntimeException e) {
+					LOGGER.error(
+						Channel.CAST_API_MARKER,
+						"An unexpected error occurred while running a task for {}: {}",
+						stripeName,
+						e.getMessage()
+					);
+					LOGGER.trace(Channel.CAST_API_MARKER, "", e);
+				} catch (Error e) {
+					// Keep the stripe alive before letting the error propagate to the pool
+					completedCount.incrementAndGet();
+					resume();
+					throw e;
+				}
+				completedCount.incrementAndGet();
+			}
+			resume();
+		}
+
+		/**
+		 * Resubmits {@link #drainer} if there are queued tasks, or marks this
+		 * {@link Stripe} as idle otherwise.
+		 */
+		protected void resume() {
+			synchronized (lock) {
+				if (tasks.isEmpty()) {
+					scheduled = false;
+					return;
+				}
+			}
+			try {
+				submit();
+			} catch (RejectedExecutionException e) {
+				LOGGER.debug(Channel.CAST_API_MARKER, "{} discarded the remaining tasks for {}", name, stripeName);
+			}
+		}
+
+		@Override
+		public String toString() {
+			return getClass().getSimpleName() + " [name=" + stripeName + ", size=" + size() + "]";
+		}
+	}
+}
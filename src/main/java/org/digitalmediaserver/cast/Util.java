@@ -18,6 +18,7 @@ package org.digitalmediaserver.cast;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.concurrent.CompletableFuture;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
@@ -149,4 +150,19 @@ final class Util {
 			throw new IllegalArgumentException(charSequenceName + " cannot be null or blank");
 		}
 	}
+
+	/**
+	 * Creates a {@link CompletableFuture} that is already completed
+	 * exceptionally with the specified {@link Throwable}.
+	 *
+	 * @param <T> the result type.
+	 * @param throwable the {@link Throwable}.
+	 * @return The new {@link CompletableFuture}.
+	 */
+	@Nonnull
+	public static <T> CompletableFuture<T> failedFuture(@Nonnull Throwable throwable) {
+		CompletableFuture<T> result = new CompletableFuture<>();
+		result.completeExceptionally(throwable);
+		return result;
+	}
 }
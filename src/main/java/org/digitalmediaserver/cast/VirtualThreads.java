@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) 2021 Digital Media Server developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.digitalmediaserver.cast;
+
+import static org.digitalmediaserver.cast.Util.requireNotNull;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Creates the threads used by this library, which are virtual threads if
+ * virtual thread mode is enabled and the JVM supports virtual threads, and
+ * platform threads otherwise.
+ * <p>
+ * Virtual thread mode is opt-in. It can be enabled with
+ * {@link #setEnabled(boolean)} or by setting the system property
+ * {@value #ENABLED_PROPERTY} to {@code true}. It applies to the input
+ * handlers, the listener notification threads and the worker and writer
+ * threads created after it's enabled. The virtual thread API is accessed
+ * using reflection, so that the library still runs on JVMs without it.
+ *
+ * @author Nadahar
+ */
+public final class VirtualThreads {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(VirtualThreads.class);
+
+	/** The system property that enables virtual thread mode */
+	public static final String ENABLED_PROPERTY = "org.digitalmediaserver.cast.virtualThreads";
+
+	/** The {@code Thread.ofVirtual()} {@link Method} or {@code null} */
+	@Nullable
+	private static final Method OF_VIRTUAL;
+
+	/** The {@code Thread.Builder.name(String)} {@link Method} or {@code null} */
+	@Nullable
+	private static final Method BUILDER_NAME;
+
+	/** The {@code Thread.Builder.unstarted(Runnable)} {@link Method} or {@code null} */
+	@Nullable
+	private static final Method BUILDER_UNSTARTED;
+
+	/** Whether virtual thread mode is enabled */
+	private static volatile boolean enabled = Boolean.getBoolean(ENABLED_PROPERTY);
+
+	static {
+		Method ofVirtual = null;
+		Method builderName = null;
+		Method builderUnstarted = null;
+		try {
+			ofVirtual = Thread.class.getMethod("ofVirtual");
+			Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+			builderName = builderClass.getMethod("name", String.class);
+			builderUnstarted = builderClass.getMethod("unstarted", Runnable.class);
+			// Preview versions throw UnsupportedOperationException unless enabled
+			ofVirtual.invoke(null);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			ofVirtual = null;
+			builderName = null;
+			builderUnstarted = null;
+		}
+		OF_VIRTUAL = ofVirtual;
+		BUILDER_NAME = builderName;
+		BUILDER_UNSTARTED = builderUnstarted;
+	}
+
+	/**
+	 * Not to be instantiated.
+	 */
+	private VirtualThreads() {
+	}
+
+	/**
+	 * @return {@code true} if the JVM supports virtual threads, {@code false}
+	 *         otherwise.
+	 */
+	public static boolean isSupported() {
+		return OF_VIRTUAL != null;
+	}
+
+	/**
+	 * @return {@code true} if virtual thread mode is enabled, {@code false}
+	 *         otherwise.
+	 */
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Enables or disables virtual thread mode. It has no effect if the JVM
+	 * doesn't support virtual threads, and only applies to threads created
+	 * after the call.
+	 *
+	 * @param enabled {@code true} to use virtual threads when supported,
+	 *            {@code false} to use platform threads.
+	 */
+	public static void setEnabled(boolean enabled) {
+		VirtualThreads.enabled = enabled;
+	}
+
+	/**
+	 * @return {@code true} if new threads will be virtual threads,
+	 *         {@code false} otherwise.
+	 */
+	public static boolean isActive() {
+		return enabled && OF_VIRTUAL != null;
+	}
+
+	/**
+	 * Creates a new, unstarted thread. Platform threads inherit the daemon
+	 * status of the current thread, while virtual threads are always daemon
+	 * threads.
+	 *
+	 * @param name the name of the new thread.
+	 * @param task the {@link Runnable} to run.
+	 * @return The new {@link Thread}.
+	 */
+	@Nonnull
+	public static Thread newThread(@Nonnull String name, @Nonnull Runnable task) {
+		requireNotNull(task, "task");
+		if (isActive()) {
+			Thread result = newVirtualThread(name, task);
+			if (result != null) {
+				return result;
+			}
+		}
+		return new Thread(task, name);
+	}
+
+	/**
+	 * Creates a new {@link ThreadFactory} that creates numbered threads
+	 * using {@link #newThread(String, Runnable)}.
+	 *
+	 * @param namePrefix the thread name prefix, which is followed by
+	 *            {@code " #"} and the thread number.
+	 * @param daemon whether platform threads should be daemon threads.
+	 * @return The new {@link ThreadFactory}.
+	 */
+	@Nonnull
+	public static ThreadFactory newThreadFactory(@Nonnull final String namePrefix, final boolean daemon) {
+		return new ThreadFactory() {
+
+			private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = VirtualThreads.newThread(namePrefix + " #" + threadNumber.getAndIncrement(), r);
+				if (daemon && !thread.isDaemon()) {
+					thread.setDaemon(true);
+				}
+				return thread;
+			}
+		};
+	}
+
+	/**
+	 * Creates a new, unstarted virtual thread.
+	 *
+	 * @param name the name of the new thread.
+	 * @param task the {@link Runnable} to run.
+	 * @return The new virtual {@link Thread} or {@code null} if it couldn't
+	 *         be created.
+	 */
+	@Nullable
+	private static Thread newVirtualThread(@Nonnull String name, @Nonnull Runnable task) {
+		if (OF_VIRTUAL == null || BUILDER_NAME == null || BUILDER_UNSTARTED == null) {
+			return null;
+		}
+		try {
+			Object builder = BUILDER_NAME.invoke(OF_VIRTUAL.invoke(null), name);
+			return (Thread) BUILDER_UNSTARTED.invoke(builder, task);
+		} catch (IllegalAccessException | InvocationTargetException | RuntimeException e) {
+			LOGGER.warn(
+				Channel.CAST_API_MARKER,
+				"Failed to create virtual thread \"{}\", using a platform thread instead: {}",
+				name,
+				e.getMessage()
+			);
+			LOGGER.trace(Channel.CAST_API_MARKER, "", e);
+			return null;
+		}
+	}
+}
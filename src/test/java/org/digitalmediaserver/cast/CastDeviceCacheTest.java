@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2021 Digital Media Server developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.digitalmediaserver.cast;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CastDeviceCacheTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testSaveAndLoad() throws Exception {
+		Path file = folder.getRoot().toPath().resolve("cache").resolve("devices.json");
+		CastDeviceCache cache = new CastDeviceCache(file);
+		assertTrue(cache.load(true).isEmpty());
+
+		CastDevice device = new CastDevice(
+			"Chromecast-123",
+			"127.0.0.1",
+			8010,
+			"http://127.0.0.1:8008",
+			"_googlecast._tcp.local.",
+			"123",
+			EnumSet.of(CastDeviceCapability.VIDEO_OUT, CastDeviceCapability.AUDIO_OUT),
+			"Living Room",
+			"Chromecast",
+			5,
+			"/setup/icon.png",
+			true
+		);
+		cache.save(Arrays.asList(device));
+		assertTrue(Files.isRegularFile(file));
+
+		List<CastDevice> loaded = cache.load(false);
+		assertEquals(1, loaded.size());
+		CastDevice copy = loaded.get(0);
+		assertEquals(device.getDNSName(), copy.getDNSName());
+		assertEquals(device.getSocketAddress(), copy.getSocketAddress());
+		assertEquals(device.getUniqueId(), copy.getUniqueId());
+		assertEquals(device.getCapabilities(), copy.getCapabilities());
+		assertEquals(device.getFriendlyName(), copy.getFriendlyName());
+		assertEquals(device.getModelName(), copy.getModelName());
+		assertEquals(device.getProtocolVersion(), copy.getProtocolVersion());
+		assertEquals(device.getIconPath(), copy.getIconPath());
+		assertFalse(copy.isAutoReconnect());
+
+		Thread.sleep(5L);
+		assertTrue(new CastDeviceCache(file, 1L).load(true).isEmpty());
+	}
+
+	@Test
+	public void testSaveUnseen() throws Exception {
+		Path file = folder.getRoot().toPath().resolve("devices.json");
+		CastDevice device = new CastDevice("Chromecast-1", "127.0.0.1", 8009, null, null, "1", null, null, null, 5, null, true);
+		CastDevice unknown = new CastDevice("Chromecast-2", "127.0.0.2", 8009, null, null, "2", null, null, null, 5, null, true);
+		new CastDeviceCache(file).save(Arrays.asList(device));
+		long lastSeen = readEntries(file).get(0).lastSeen;
+
+		// Unseen devices keep the time they were last seen, unknown ones are dropped
+		CastDeviceCache cache = new CastDeviceCache(file);
+		assertEquals(1, cache.load(true).size());
+		Thread.sleep(5L);
+		cache.save(null, Arrays.asList(device, unknown));
+		List<CastDeviceCache.Entry> entries = readEntries(file);
+		assertEquals(1, entries.size());
+		assertEquals("Chromecast-1", entries.get(0).dnsName);
+		assertEquals(lastSeen, entries.get(0).lastSeen);
+
+		// Seen devices are stored as seen now
+		cache.save(Arrays.asList(device), null);
+		assertTrue(readEntries(file).get(0).lastSeen > lastSeen);
+	}
+
+	private static List<CastDeviceCache.Entry> readEntries(Path file) throws Exception {
+		return JacksonHelper.getSharedMapper().readValue(file.toFile(), CastDeviceCache.ENTRY_LIST_TYPE);
+	}
+
+	@Test
+	public void testProbe() throws Exception {
+		int port;
+		try (ServerSocket serverSocket = new ServerSocket(0)) {
+			port = serverSocket.getLocalPort();
+			CastDevice device = new CastDevice("Probe", "127.0.0.1", port, null, null, null, null, null, null, 1, null, false);
+			assertTrue(CastDeviceCache.probe(device, 1000));
+		}
+		CastDevice device = new CastDevice("Probe", "127.0.0.1", port, null, null, null, null, null, null, 1, null, false);
+		assertFalse(CastDeviceCache.probe(device, 1000));
+	}
+}
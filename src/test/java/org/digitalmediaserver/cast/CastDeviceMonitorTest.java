@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2021 Digital Media Server developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.digitalmediaserver.cast;
+
+import org.digitalmediaserver.cast.CastDeviceMonitor.DeviceRoute;
+import org.junit.Test;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class CastDeviceMonitorTest {
+
+	@Test
+	public void testRouteFailover() throws Exception {
+		CastDeviceMonitor monitor = new CastDeviceMonitor();
+		InetAddress interfaceA = InetAddress.getByName("10.0.1.2");
+		InetAddress interfaceB = InetAddress.getByName("10.0.2.2");
+		InetSocketAddress addressA = new InetSocketAddress(InetAddress.getByName("10.0.1.50"), 8009);
+		InetSocketAddress addressB = new InetSocketAddress(InetAddress.getByName("10.0.2.50"), 8009);
+		CastDevice device = new CastDevice(
+			"Chromecast-abc", "10.0.1.50", 8009, null, null, "abc", null, "Hall", null, 5, null, true
+		);
+		List<CastDevice> removed = new ArrayList<>();
+		List<CastDevice> added = new ArrayList<>();
+		synchronized (monitor.lock) {
+			monitor.registry.add(device);
+			monitor.addRoute("abc", new DeviceRoute(interfaceA, addressA, "Chromecast-abc"));
+			monitor.addRoute("abc", new DeviceRoute(interfaceB, addressB, "Chromecast-abc"));
+			monitor.addRoute("abc", new DeviceRoute(interfaceB, addressB, "Chromecast-abc"));
+		}
+		assertEquals(2, monitor.getRoutes(device).size());
+		assertEquals(addressA, monitor.getPreferredRoute(device).getSocketAddress());
+
+		// Losing an unused route keeps the device
+		synchronized (monitor.lock) {
+			monitor.dropRoutes("abc", interfaceB, null, removed, added);
+		}
+		assertTrue(removed.isEmpty());
+		assertTrue(added.isEmpty());
+		synchronized (monitor.lock) {
+			monitor.addRoute("abc", new DeviceRoute(interfaceB, addressB, "Chromecast-abc"));
+			monitor.dropRoutes("abc", interfaceA, null, removed, added);
+		}
+
+		// Losing the route in use moves the device to the next route
+		assertEquals(1, removed.size());
+		assertSame(device, removed.get(0));
+		assertEquals(1, added.size());
+		CastDevice moved = added.get(0);
+		assertEquals(addressB, moved.getSocketAddress());
+		assertEquals("abc", moved.getUniqueId());
+		assertEquals("Hall", moved.getFriendlyName());
+		assertSame(moved, monitor.getByUniqueId("abc"));
+		assertEquals(1, monitor.getCastDevices().size());
+
+		// Losing the last route removes the device
+		removed.clear();
+		added.clear();
+		synchronized (monitor.lock) {
+			monitor.dropRoutes("abc", interfaceB, "Chromecast-abc", removed, added);
+		}
+		assertSame(moved, removed.get(0));
+		assertTrue(added.isEmpty());
+		assertNull(monitor.getByUniqueId("abc"));
+		assertTrue(monitor.getRoutes(moved).isEmpty());
+	}
+
+	@Test
+	public void testAddressTakenOver() throws Exception {
+		CastDeviceMonitor monitor = new CastDeviceMonitor();
+		InetAddress interfaceA = InetAddress.getByName("10.0.1.2");
+		InetAddress interfaceB = InetAddress.getByName("10.0.2.2");
+		InetSocketAddress addressA = new InetSocketAddress(InetAddress.getByName("10.0.1.50"), 8009);
+		InetSocketAddress addressB = new InetSocketAddress(InetAddress.getByName("10.0.2.50"), 8009);
+		CastDevice device = new CastDevice(
+			"Chromecast-abc", "10.0.1.50", 8009, null, null, "abc", null, "Hall", null, 5, null, true
+		);
+		CastDevice other = new CastDevice(
+			"Chromecast-def", "10.0.1.60", 8009, null, null, "def", null, "Kitchen", null, 5, null, true
+		);
+		List<CastDevice> removed = new ArrayList<>();
+		List<CastDevice> added = new ArrayList<>();
+		synchronized (monitor.lock) {
+			monitor.registry.add(device);
+			monitor.registry.add(other);
+			monitor.addRoute("abc", new DeviceRoute(interfaceA, addressA, "Chromecast-abc"));
+			monitor.addRoute("abc", new DeviceRoute(interfaceB, addressA, "Chromecast-abc"));
+			monitor.addRoute("abc", new DeviceRoute(interfaceB, addressB, "Chromecast-abc"));
+
+			// The address is gone on all interfaces, the device moves to the remaining one
+			monitor.dropRoutesTo("abc", addressA, removed, added);
+		}
+		assertSame(device, removed.get(0));
+		assertEquals(addressB, added.get(0).getSocketAddress());
+		assertEquals(1, monitor.getRoutes(added.get(0)).size());
+
+		// A device without known routes is removed
+		removed.clear();
+		added.clear();
+		synchronized (monitor.lock) {
+			monitor.dropRoutesTo("def", other.getSocketAddress(), removed, added);
+		}
+		assertSame(other, removed.get(0));
+		assertTrue(added.isEmpty());
+		assertNull(monitor.getByUniqueId("def"));
+		assertTrue(monitor.getRoutes(other).isEmpty());
+	}
+
+	@Test
+	public void testNewAddressAnnounced() throws Exception {
+		CastDeviceMonitor monitor = new CastDeviceMonitor();
+		InetAddress interfaceA = InetAddress.getByName("10.0.1.2");
+		InetSocketAddress oldAddress = new InetSocketAddress(InetAddress.getByName("10.0.1.50"), 8009);
+		InetSocketAddress newAddress = new InetSocketAddress(InetAddress.getByName("10.0.1.51"), 8009);
+		CastDevice device = new CastDevice(
+			"Chromecast-abc", "10.0.1.50", 8009, null, null, "abc", null, "Hall", null, 5, null, true
+		);
+		List<CastDevice> removed = new ArrayList<>();
+		List<CastDevice> added = new ArrayList<>();
+		synchronized (monitor.lock) {
+			monitor.registry.add(device);
+			assertFalse(monitor.replaceRoute("abc", new DeviceRoute(interfaceA, oldAddress, "Chromecast-abc")));
+			assertFalse(monitor.replaceRoute("abc", new DeviceRoute(interfaceA, oldAddress, "Chromecast-abc")));
+			assertTrue(monitor.replaceRoute("abc", new DeviceRoute(interfaceA, newAddress, "Chromecast-abc")));
+			monitor.reconcileRoutes("abc", removed, added);
+		}
+
+		// The old instance is removed and a new one is added at the new address
+		assertSame(device, removed.get(0));
+		assertEquals(1, added.size());
+		assertEquals(newAddress, added.get(0).getSocketAddress());
+		assertSame(added.get(0), monitor.getByUniqueId("abc"));
+		assertEquals(1, monitor.getRoutes(added.get(0)).size());
+		assertEquals(newAddress, monitor.getPreferredRoute(added.get(0)).getSocketAddress());
+	}
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2021 Digital Media Server developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.digitalmediaserver.cast;
+
+import org.digitalmediaserver.cast.CastDeviceRegistry.Snapshot;
+import org.junit.Test;
+import java.net.InetSocketAddress;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class CastDeviceRegistryTest {
+
+	private static CastDevice device(String dnsName, int port, String uniqueId) {
+		return new CastDevice(dnsName, "localhost", port, null, null, uniqueId, null, dnsName, null, 1, null, true);
+	}
+
+	@Test
+	public void testIndexesAndSnapshots() {
+		CastDeviceRegistry registry = new CastDeviceRegistry();
+		CastDevice first = device("First", 8009, "id1");
+		CastDevice second = device("Second", 8010, "id2");
+		CastDevice secondAlias = device("Second-alias", 8011, "id2");
+		Snapshot empty = registry.getSnapshot();
+		assertTrue(empty.isEmpty());
+
+		assertTrue(registry.add(first));
+		assertTrue(registry.add(second));
+		assertTrue(registry.add(secondAlias));
+		assertFalse(registry.add(device("Duplicate", 8009, "id3")));
+
+		Snapshot snapshot = registry.getSnapshot();
+		assertEquals(3L, snapshot.getVersion());
+		assertEquals(3, snapshot.size());
+		assertSame(first, registry.getByUniqueId("id1"));
+		assertSame(second, registry.getByUniqueId("id2"));
+		assertEquals(2, snapshot.getAllByUniqueId("id2").size());
+		assertSame(secondAlias, registry.getByAddress(new InetSocketAddress("localhost", 8011)));
+		assertNull(registry.getByAddress(new InetSocketAddress("localhost", 8012)));
+		assertNull(registry.getByUniqueId(null));
+
+		assertTrue(registry.remove(second));
+		assertFalse(registry.remove(second));
+		assertSame(secondAlias, registry.getByUniqueId("id2"));
+		assertEquals(3, snapshot.size());
+		assertSame(second, snapshot.getByUniqueId("id2"));
+		assertEquals(4L, registry.getSnapshot().getVersion());
+
+		assertEquals(2, registry.clear().size());
+		assertTrue(registry.getCastDevices().isEmpty());
+		assertTrue(empty.isEmpty());
+	}
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2021 Digital Media Server developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.digitalmediaserver.cast;
+
+import org.digitalmediaserver.cast.CastEvent.CastEventListener;
+import org.digitalmediaserver.cast.CastEvent.CastEventType;
+import org.digitalmediaserver.cast.CastEvent.DefaultCastEvent;
+import org.digitalmediaserver.cast.CastEvent.SimpleCastEventListenerList;
+import org.digitalmediaserver.cast.CastEvent.UnknownCastEvent;
+import org.junit.Test;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class CastEventListenerListTest {
+
+	private static class RecordingListener implements CastEventListener {
+
+		private final String name;
+		private final List<String> log;
+
+		RecordingListener(String name, List<String> log) {
+			this.name = name;
+			this.log = log;
+		}
+
+		@Override
+		public void onEvent(CastEvent<?> event) {
+			log.add(name + ":" + event.getEventType());
+		}
+	}
+
+	@Test
+	public void testFilterIndex() {
+		List<String> log = new ArrayList<>();
+		SimpleCastEventListenerList listeners = new SimpleCastEventListenerList("test");
+		RecordingListener a = new RecordingListener("a", log);
+		RecordingListener b = new RecordingListener("b", log);
+		assertTrue(listeners.add(a, CastEventType.MEDIA_STATUS));
+		assertTrue(listeners.add(b));
+
+		listeners.fire(new DefaultCastEvent<>(CastEventType.RECEIVER_STATUS, null));
+		listeners.fire(new DefaultCastEvent<>(CastEventType.MEDIA_STATUS, null));
+		assertEquals("[b:RECEIVER_STATUS, a:MEDIA_STATUS, b:MEDIA_STATUS]", log.toString());
+
+		log.clear();
+		assertTrue(listeners.add(a, CastEventType.RECEIVER_STATUS));
+		assertFalse(listeners.add(a, CastEventType.RECEIVER_STATUS));
+		listeners.fire(new DefaultCastEvent<>(CastEventType.RECEIVER_STATUS, null));
+		listeners.fire(new DefaultCastEvent<>(CastEventType.CLOSE, null));
+		assertEquals("[a:RECEIVER_STATUS, b:RECEIVER_STATUS, b:CLOSE]", log.toString());
+
+		log.clear();
+		assertTrue(listeners.add(a));
+		assertTrue(listeners.remove(b));
+		listeners.fire(new DefaultCastEvent<>(CastEventType.CLOSE, null));
+		assertEquals("[a:CLOSE]", log.toString());
+
+		log.clear();
+		listeners.clear();
+		listeners.fire(new DefaultCastEvent<>(CastEventType.CLOSE, null));
+		assertTrue(log.isEmpty());
+	}
+
+	@Test
+	public void testSharedUnknownData() throws Exception {
+		final List<CastEvent<?>> events = new ArrayList<>();
+		SimpleCastEventListenerList listeners = new SimpleCastEventListenerList("test");
+		for (int i = 0; i < 2; i++) {
+			listeners.add(new CastEventListener() {
+
+				@Override
+				public void onEvent(CastEvent<?> event) {
+					events.add(event);
+				}
+			});
+		}
+		JsonNode tree = JacksonHelper.getSharedMapper().readTree("{\"type\":\"CUSTOM\",\"values\":[1,2]}");
+		listeners.fire(new UnknownCastEvent(ImmutableJson.wrap(tree)));
+		assertEquals(2, events.size());
+		assertSame(events.get(0), events.get(1));
+		ImmutableJson data = events.get(0).getData(ImmutableJson.class);
+		assertSame(data, events.get(1).getData(ImmutableJson.class));
+		assertEquals("CUSTOM", data.get("type").asText());
+		assertEquals(2, data.path("values").size());
+		assertEquals(Arrays.asList("type", "values"), data.getFieldNames());
+
+		// The declared data type is still JsonNode, and each call returns a private copy
+		assertEquals(JsonNode.class, CastEventType.UNKNOWN.getDataClass());
+		ObjectNode copy = (ObjectNode) events.get(0).getData();
+		copy.put("type", "CHANGED");
+		assertEquals("CUSTOM", data.get("type").asText());
+		assertEquals("CUSTOM", events.get(1).getData(JsonNode.class).get("type").asText());
+		assertNotSame(copy, events.get(1).getData());
+
+		// A mutable tree fired in a DefaultCastEvent is copied once for all listeners
+		events.clear();
+		ObjectNode mutable = (ObjectNode) JacksonHelper.getSharedMapper().readTree("{\"type\":\"OTHER\"}");
+		listeners.fire(new DefaultCastEvent<>(CastEventType.UNKNOWN, mutable));
+		mutable.put("type", "CHANGED");
+		assertEquals(2, events.size());
+		assertTrue(events.get(0) instanceof UnknownCastEvent);
+		assertEquals("OTHER", events.get(1).getData(JsonNode.class).get("type").asText());
+	}
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2021 Digital Media Server developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.digitalmediaserver.cast;
+
+import org.digitalmediaserver.cast.CastEvent.CastEventType;
+import org.digitalmediaserver.cast.CastEvent.DefaultCastEvent;
+import org.digitalmediaserver.cast.CastEventPublisher.OverflowStrategy;
+import org.digitalmediaserver.cast.StripedExecutor.RejectionPolicy;
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CastEventPublisherTest {
+
+	private static CastEvent<?> event(CastEventType type, Object data) {
+		return new DefaultCastEvent<>(type, data);
+	}
+
+	@Test
+	public void testDemandAndOverflow() throws Exception {
+		StripedExecutor executor = new StripedExecutor("Test publisher", 2, 100, RejectionPolicy.ABORT);
+		CastEventPublisher publisher = new CastEventPublisher("Test", 3, OverflowStrategy.DROP_OLDEST, executor);
+		TestSubscriber dropping = new TestSubscriber(2);
+		TestSubscriber conflating = new TestSubscriber(0);
+		TestSubscriber failing = new TestSubscriber(0);
+		publisher.subscribe(dropping);
+		publisher.subscribe(conflating, 2, OverflowStrategy.CONFLATE);
+		publisher.subscribe(failing, 2, OverflowStrategy.ERROR);
+		assertEquals(3, publisher.getSubscriberCount());
+
+		assertTrue(dropping.awaitSubscribed());
+		// The first two are delivered immediately as they are requested
+		publisher.onEvent(event(CastEventType.CONNECTED, Boolean.TRUE));
+		publisher.onEvent(event(CastEventType.CONNECTED, Boolean.FALSE));
+		dropping.awaitItems(2);
+		publisher.onEvent(event(CastEventType.CLOSE, "a"));
+		publisher.onEvent(event(CastEventType.CONNECTED, Boolean.TRUE));
+		publisher.onEvent(event(CastEventType.CLOSE, "b"));
+		Thread.sleep(20L);
+		assertEquals(2, dropping.items.size());
+
+		assertTrue(failing.awaitError());
+		assertTrue(failing.error instanceof CastException);
+		assertEquals(2, publisher.getSubscriberCount());
+
+		publisher.onEvent(event(CastEventType.CLOSE, "c"));
+		dropping.subscription.request(Long.MAX_VALUE);
+		dropping.awaitItems(5);
+		assertEquals("[true, false, true, b, c]", dropping.data().toString());
+
+		conflating.subscription.request(10L);
+		conflating.awaitItems(2);
+		Thread.sleep(20L);
+		assertEquals("[true, c]", conflating.data().toString());
+
+		conflating.subscription.request(0L);
+		assertTrue(conflating.awaitError());
+		assertTrue(conflating.error instanceof IllegalArgumentException);
+
+		dropping.subscription.cancel();
+		assertFalse(publisher.hasSubscribers());
+		publisher.onEvent(event(CastEventType.CLOSE, "d"));
+		Thread.sleep(20L);
+		assertEquals(5, dropping.items.size());
+	}
+
+	@Test
+	public void testClose() throws Exception {
+		StripedExecutor executor = new StripedExecutor("Test publisher", 1, 100, RejectionPolicy.ABORT);
+		CastEventPublisher publisher = new CastEventPublisher("Test", 10, OverflowStrategy.ERROR, executor);
+		TestSubscriber subscriber = new TestSubscriber(0);
+		publisher.subscribe(subscriber);
+		publisher.onEvent(event(CastEventType.CLOSE, "a"));
+		publisher.close();
+		Thread.sleep(20L);
+		assertEquals("Completed before the buffer was drained", 1L, subscriber.completed.getCount());
+		subscriber.subscription.request(1L);
+		assertTrue(subscriber.completed.await(5, TimeUnit.SECONDS));
+		assertEquals("[a]", subscriber.data().toString());
+		assertFalse(publisher.hasSubscribers());
+	}
+
+	private static class TestSubscriber implements Flow.Subscriber<CastEvent<?>> {
+
+		private final long initialRequest;
+		private final CountDownLatch subscribed = new CountDownLatch(1);
+		private final CountDownLatch failed = new CountDownLatch(1);
+		private final CountDownLatch completed = new CountDownLatch(1);
+		private final List<CastEvent<?>> items = Collections.synchronizedList(new ArrayList<CastEvent<?>>());
+		private volatile Flow.Subscription subscription;
+		private volatile Throwable error;
+
+		public TestSubscriber(long initialRequest) {
+			this.initialRequest = initialRequest;
+		}
+
+		@Override
+		public void onSubscribe(Flow.Subscription subscription) {
+			this.subscription = subscription;
+			subscribed.countDown();
+			if (initialRequest > 0) {
+				subscription.request(initialRequest);
+			}
+		}
+
+		@Override
+		public void onNext(CastEvent<?> item) {
+			items.add(item);
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			error = throwable;
+			failed.countDown();
+		}
+
+		@Override
+		public void onComplete() {
+			completed.countDown();
+		}
+
+		public boolean awaitSubscribed() throws InterruptedException {
+			return subscribed.await(5, TimeUnit.SECONDS);
+		}
+
+		public boolean awaitError() throws InterruptedException {
+			return failed.await(5, TimeUnit.SECONDS);
+		}
+
+		public void awaitItems(int count) throws InterruptedException {
+			long deadline = System.currentTimeMillis() + 5000L;
+			while (items.size() < count && System.currentTimeMillis() < deadline) {
+				Thread.sleep(5L);
+			}
+			assertEquals(count, items.size());
+		}
+
+		public List<Object> data() {
+			List<Object> result = new ArrayList<>();
+			synchronized (items) {
+				for (CastEvent<?> item : items) {
+					result.add(item.getData());
+				}
+			}
+			return result;
+		}
+	}
+}
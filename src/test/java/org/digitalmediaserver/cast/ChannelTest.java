@@ -17,15 +17,25 @@ package org.digitalmediaserver.cast;
 
 import static org.junit.Assert.*;
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import org.digitalmediaserver.cast.CastChannel.CastMessage;
 import org.digitalmediaserver.cast.CastChannel.CastMessage.PayloadType;
 import org.digitalmediaserver.cast.CastChannel.CastMessage.ProtocolVersion;
@@ -33,6 +43,7 @@ import org.digitalmediaserver.cast.CastEvent.CastEventListener;
 import org.digitalmediaserver.cast.CastEvent.CastEventListenerList;
 import org.digitalmediaserver.cast.CastEvent.CastEventType;
 import org.digitalmediaserver.cast.CastEvent.SimpleCastEventListenerList;
+import org.digitalmediaserver.cast.Channel.DeadlineSink;
 import org.digitalmediaserver.cast.Channel.InputHandler;
 import org.digitalmediaserver.cast.ImmutableCastMessage.ImmutableStringCastMessage;
 import org.digitalmediaserver.cast.Media.StreamType;
@@ -40,12 +51,15 @@ import org.digitalmediaserver.cast.MediaStatus.IdleReason;
 import org.digitalmediaserver.cast.MediaStatus.PlayerState;
 import org.digitalmediaserver.cast.MediaStatus.RepeatMode;
 import org.digitalmediaserver.cast.Metadata.MetadataType;
+import org.digitalmediaserver.cast.StandardRequest.GetStatus;
 import org.digitalmediaserver.cast.StandardResponse.MediaStatusResponse;
 import org.digitalmediaserver.cast.StandardResponse.ReceiverStatusResponse;
 import org.digitalmediaserver.cast.VideoInformation.HdrType;
 import org.digitalmediaserver.cast.Volume.VolumeControlType;
 import org.junit.Test;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 public class ChannelTest {
@@ -767,6 +781,548 @@ public class ChannelTest {
 		mock.close();
 	}
 
+	@Test
+	public void messageHeaderTest() throws Exception {
+		JsonFactory factory = new ObjectMapper().getFactory();
+		Channel.MessageHeader header = Channel.MessageHeader.scan(
+			factory,
+			"{\"status\":[{\"type\":\"nested\",\"requestId\":5}],\"type\":\"MEDIA_STATUS\",\"requestId\":12}"
+		);
+		assertEquals("MEDIA_STATUS", header.getResponseType());
+		assertEquals(12L, header.getRequestId());
+		header = Channel.MessageHeader.scan(factory, "{\"responseType\":\"PONG\"}");
+		assertEquals("PONG", header.getResponseType());
+		assertEquals(-1L, header.getRequestId());
+		header = Channel.MessageHeader.scan(factory, "[1, 2]");
+		assertEquals("", header.getResponseType());
+		assertEquals(-1L, header.getRequestId());
+	}
+
+	@Test
+	public void unrenamedTypeMessageTest() throws Exception {
+		CastEventListenerList listeners = new SimpleCastEventListenerList("Mocked device");
+		final List<CastEvent<?>> events = new ArrayList<>();
+		listeners.add(new CastEventListener() {
+
+			@Override
+			public void onEvent(CastEvent<?> event) {
+				events.add(event);
+			}
+		});
+		Channel channel = new Channel("localhost", "test", listeners);
+		CastMessage message = CastMessage.newBuilder()
+			.setProtocolVersion(ProtocolVersion.CASTV2_1_0)
+			.setSourceId("receiver-0")
+			.setDestinationId("sender-0")
+			.setNamespace("namespace")
+			.setPayloadType(PayloadType.STRING)
+			.setPayloadUtf8(FixtureHelper.fixtureAsString("/mediaStatus-with-videoinfo.json"))
+			.build();
+		channel.processMessage(ImmutableCastMessage.create(message));
+		assertEquals(1, events.size());
+		assertEquals(CastEventType.MEDIA_STATUS, events.get(0).getEventType());
+		MediaStatusResponse response = events.get(0).getData(MediaStatusResponse.class);
+		assertEquals(1, response.getStatuses().size());
+		assertNotNull(response.getStatuses().get(0).getMedia());
+	}
+
+	@Test
+	public void positionUpdateTaskTest() throws Exception {
+		Channel channel = new Channel("localhost", "test", new SimpleCastEventListenerList("Mocked device"));
+		channel.setPositionUpdateInterval(1000L);
+		synchronized (channel.positionUpdateLock) {
+			assertNull(channel.positionUpdateTask);
+		}
+		channel.startPositionUpdates();
+		synchronized (channel.positionUpdateLock) {
+			assertNotNull(channel.positionUpdateTask);
+		}
+		channel.setPositionUpdateInterval(0L);
+		synchronized (channel.positionUpdateLock) {
+			assertNull(channel.positionUpdateTask);
+		}
+		channel.setPositionUpdateInterval(500L);
+		ScheduledFuture<?> task;
+		synchronized (channel.positionUpdateLock) {
+			task = channel.positionUpdateTask;
+			assertNotNull(task);
+		}
+		channel.stopPositionUpdates();
+		synchronized (channel.positionUpdateLock) {
+			assertNull(channel.positionUpdateTask);
+		}
+		assertTrue(task.isCancelled());
+	}
+
+	private static MediaStatus mediaStatus(int mediaSessionId, PlayerState playerState) {
+		return new MediaStatus(
+			null, null, 1d, null, null, null, null, null, null, null, mediaSessionId,
+			1f, playerState, null, null, null, 15, null, new MediaVolume(1d, false)
+		);
+	}
+
+	private static ReceiverStatus receiverStatus(String... transportIds) {
+		List<Application> applications = new ArrayList<>();
+		for (String transportId : transportIds) {
+			applications.add(new Application("CC1AD845", null, null, null, null, null, null, null, transportId, null));
+		}
+		return new ReceiverStatus(null, applications, false, false);
+	}
+
+	@Test
+	public void mediaSessionEvictionTest() throws Exception {
+		Channel channel = new Channel("localhost", "test", new SimpleCastEventListenerList("Mocked device"));
+		channel.updateMediaStatuses(new MediaStatusResponse(0L, mediaStatus(1, PlayerState.PLAYING)), "transport-1");
+		channel.updateMediaStatuses(new MediaStatusResponse(0L, mediaStatus(7, PlayerState.PLAYING)), "transport-2");
+		assertNotNull(channel.getPlaybackPosition(1));
+		assertNotNull(channel.getPlaybackPosition(7));
+
+		// A new media session replaces the old one from the same application
+		channel.updateMediaStatuses(new MediaStatusResponse(0L, mediaStatus(2, PlayerState.BUFFERING)), "transport-1");
+		assertNull(channel.getPlaybackPosition(1));
+		assertNull(channel.getMediaStatusUpdate(1));
+		assertNotNull(channel.getPlaybackPosition(2));
+		assertNotNull(channel.getMergedMediaStatus(2));
+		assertNotNull(channel.getPlaybackPosition(7));
+
+		// An idle media session has ended
+		channel.updateMediaStatuses(new MediaStatusResponse(0L, mediaStatus(2, PlayerState.IDLE)), "transport-1");
+		assertNull(channel.getPlaybackPosition(2));
+		assertNull(channel.getMergedMediaStatus(2));
+
+		// The application has stopped
+		channel.updateReceiverStatus(receiverStatus("transport-1"));
+		assertNull(channel.getPlaybackPosition(7));
+		assertNull(channel.getMediaStatusUpdate(7));
+	}
+
+	@Test
+	public void completeAsyncTest() throws Exception {
+		StripedExecutor executor = new StripedExecutor("Test", 1, 10, StripedExecutor.RejectionPolicy.ABORT);
+		CompletableFuture<String> source = new CompletableFuture<>();
+		CompletableFuture<String> result = Channel.completeAsync(source, executor.newStripe("test"));
+		final Thread completer = Thread.currentThread();
+		CompletableFuture<Boolean> otherThread = result.thenApply(new Function<String, Boolean>() {
+
+			@Override
+			public Boolean apply(String value) {
+				return Boolean.valueOf(Thread.currentThread() != completer);
+			}
+		});
+		source.complete("done");
+		// Waiting for result could make this thread run its dependents
+		assertEquals(Boolean.TRUE, otherThread.get(5L, TimeUnit.SECONDS));
+		assertEquals("done", result.get(5L, TimeUnit.SECONDS));
+
+		// A rejected hand-off completes on the completing thread
+		source = new CompletableFuture<>();
+		result = Channel.completeAsync(source, new Executor() {
+
+			@Override
+			public void execute(Runnable command) {
+				throw new RejectedExecutionException("Saturated");
+			}
+		});
+		source.complete("inline");
+		assertTrue(result.isDone());
+		assertEquals("inline", result.get());
+
+		// waitFor() doesn't depend on the hand-off
+		source = new CompletableFuture<>();
+		result = Channel.completeAsync(source, new Executor() {
+
+			@Override
+			public void execute(Runnable command) {
+			}
+		});
+		source.complete("direct");
+		assertEquals("direct", Channel.waitFor(result));
+		assertFalse(result.isDone());
+
+		source = new CompletableFuture<>();
+		result = Channel.completeAsync(source, executor.newStripe("test"));
+		result.cancel(false);
+		assertTrue(source.isCancelled());
+	}
+
+	@Test
+	public void liveMissedHeartbeatsTest() throws Exception {
+		MockedChromeCast mock = new MockedChromeCast();
+		CastDevice cc = new CastDevice(
+			"Mock",
+			"localhost",
+			null,
+			null,
+			"unique",
+			EnumSet.of(CastDeviceCapability.AUDIO_OUT, CastDeviceCapability.VIDEO_OUT),
+			"Mocked ChromeCast",
+			"Mock",
+			1,
+			null,
+			true
+		);
+		final List<Object> connectedEvents = new CopyOnWriteArrayList<>();
+		cc.addEventListener(new CastEventListener() {
+
+			@Override
+			public void onEvent(CastEvent<?> event) {
+				connectedEvents.add(event.getData());
+			}
+		}, CastEventType.CONNECTED);
+		try {
+			assertTrue(cc.connect());
+			Channel channel = cc.channel();
+			assertEquals(Channel.DEFAULT_MAX_MISSED_HEARTBEATS, channel.getMaxMissedHeartbeats());
+
+			// A PONG resets the count
+			channel.new PingTask().run();
+			for (int i = 0; i < 100 && channel.unansweredPings.get() > 0; i++) {
+				Thread.sleep(20L);
+			}
+			assertEquals(0, channel.unansweredPings.get());
+
+			// Too many unanswered PINGs closes the channel
+			channel.unansweredPings.set(Channel.DEFAULT_MAX_MISSED_HEARTBEATS);
+			channel.new PingTask().run();
+			for (int i = 0; i < 100 && cc.isConnected(); i++) {
+				Thread.sleep(20L);
+			}
+			assertFalse(cc.isConnected());
+			for (int i = 0; i < 100 && connectedEvents.size() < 2; i++) {
+				Thread.sleep(20L);
+			}
+			assertEquals(Arrays.<Object>asList(Boolean.TRUE, Boolean.FALSE), connectedEvents);
+		} finally {
+			mock.close();
+		}
+	}
+
+	@Test
+	public void liveSharedSelectorTest() throws Exception {
+		MockedChromeCast mock = new MockedChromeCast();
+		SharedSelector selector = new SharedSelector("Test selector", 1);
+		CastDevice cc = new CastDevice(
+			"Mock",
+			"localhost",
+			null,
+			null,
+			"unique",
+			EnumSet.of(CastDeviceCapability.AUDIO_OUT, CastDeviceCapability.VIDEO_OUT),
+			"Mocked ChromeCast",
+			"Mock",
+			1,
+			null,
+			true
+		);
+		cc.setSharedSelector(selector);
+		try {
+			assertTrue(cc.connect());
+			assertTrue(cc.isConnected());
+			ReceiverStatus status = cc.getReceiverStatus();
+			assertNotNull(status);
+			assertEquals(1.0, status.getVolume().getLevel(), 0.001);
+			cc.disconnect();
+			assertFalse(cc.isConnected());
+		} finally {
+			selector.shutdown();
+			mock.close();
+		}
+	}
+
+	@Test
+	public void liveSuspendedReadingTest() throws Exception {
+		MockedChromeCast mock = new MockedChromeCast();
+		SharedSelector selector = new SharedSelector("Test selector", 1);
+		CastDevice cc = new CastDevice(
+			"Mock",
+			"localhost",
+			null,
+			null,
+			"unique",
+			EnumSet.of(CastDeviceCapability.AUDIO_OUT, CastDeviceCapability.VIDEO_OUT),
+			"Mocked ChromeCast",
+			"Mock",
+			1,
+			null,
+			true
+		);
+		cc.setSharedSelector(selector);
+		try {
+			assertTrue(cc.connect());
+			SharedSelector.Connection connection;
+			cc.channel.socketLock.lock();
+			try {
+				connection = cc.channel.connection;
+			} finally {
+				cc.channel.socketLock.unlock();
+			}
+			assertNotNull(connection);
+			connection.suspendReading();
+			CompletableFuture<ReceiverStatus> future = cc.getReceiverStatusAsync(0L);
+			Thread.sleep(300L);
+			assertFalse(future.isDone());
+
+			// The response is delivered once reading is resumed
+			connection.resumeReading();
+			assertNotNull(future.get(15, TimeUnit.SECONDS));
+			cc.disconnect();
+		} finally {
+			selector.shutdown();
+			mock.close();
+		}
+	}
+
+	@Test
+	public void liveAsyncTest() throws Exception {
+		MockedChromeCast mock = new MockedChromeCast();
+		CastDevice cc = new CastDevice(
+			"Mock",
+			"localhost",
+			null,
+			null,
+			"unique",
+			EnumSet.of(CastDeviceCapability.AUDIO_OUT, CastDeviceCapability.VIDEO_OUT),
+			"Mocked ChromeCast",
+			"Mock",
+			1,
+			null,
+			true
+		);
+		try {
+			cc.connect();
+			CompletableFuture<ReceiverStatus> first = cc.getReceiverStatusAsync(0L);
+			CompletableFuture<ReceiverStatus> second = cc.getReceiverStatusAsync(0L);
+			ReceiverStatus status = first.get(15, TimeUnit.SECONDS);
+			assertNotNull(status);
+			assertEquals(1.0, status.getVolume().getLevel(), 0.001);
+			assertNotNull(second.get(15, TimeUnit.SECONDS));
+			cc.disconnect();
+		} finally {
+			mock.close();
+		}
+	}
+
+	@Test
+	public void liveSharedQueryTest() throws Exception {
+		MockedChromeCast mock = new MockedChromeCast();
+		CastDevice cc = new CastDevice(
+			"Mock",
+			"localhost",
+			null,
+			null,
+			"unique",
+			EnumSet.of(CastDeviceCapability.AUDIO_OUT, CastDeviceCapability.VIDEO_OUT),
+			"Mocked ChromeCast",
+			"Mock",
+			1,
+			null,
+			true
+		);
+		try {
+			cc.setQueryReuseTime(60000L);
+			cc.connect();
+			CompletableFuture<ReceiverStatus> first = cc.getReceiverStatusAsync(0L);
+			CompletableFuture<ReceiverStatus> second = cc.getReceiverStatusAsync(0L);
+			assertNotSame(first, second);
+			assertNotNull(first.get(15, TimeUnit.SECONDS));
+			assertNotNull(second.get(15, TimeUnit.SECONDS));
+			assertNotNull(cc.getReceiverStatus());
+			assertEquals(1, mock.getStatusCount.get());
+
+			cc.setQueryReuseTime(0L);
+			assertNotNull(cc.getReceiverStatus());
+			assertEquals(2, mock.getStatusCount.get());
+			cc.disconnect();
+		} finally {
+			mock.close();
+		}
+	}
+
+	@Test
+	public void liveReceiverStatusMirrorTest() throws Exception {
+		MockedChromeCast mock = new MockedChromeCast();
+		CastDevice cc = new CastDevice(
+			"Mock",
+			"localhost",
+			null,
+			null,
+			"unique",
+			EnumSet.of(CastDeviceCapability.AUDIO_OUT, CastDeviceCapability.VIDEO_OUT),
+			"Mocked ChromeCast",
+			"Mock",
+			1,
+			null,
+			true
+		);
+		try {
+			cc.connect();
+			assertNull(cc.getMirroredReceiverStatus());
+			ReceiverStatus status = cc.getRecentReceiverStatus(60000L);
+			assertNotNull(status);
+			assertEquals(1, mock.getStatusCount.get());
+			assertSame(status, cc.getMirroredReceiverStatus());
+			assertSame(status, cc.getRecentReceiverStatus(60000L));
+			assertFalse(cc.isApplicationRunning("NoSuchApp", 60000L));
+			assertEquals(1, mock.getStatusCount.get());
+
+			cc.disconnect();
+			assertNull(cc.getMirroredReceiverStatus());
+		} finally {
+			mock.close();
+		}
+	}
+
+	@Test
+	public void liveApplicationAvailabilityTest() throws Exception {
+		MockedChromeCast mock = new MockedChromeCast();
+		mock.availableApplications.add("CC1AD845");
+		CastDevice cc = new CastDevice(
+			"Mock",
+			"localhost",
+			null,
+			null,
+			"unique",
+			EnumSet.of(CastDeviceCapability.AUDIO_OUT, CastDeviceCapability.VIDEO_OUT),
+			"Mocked ChromeCast",
+			"Mock",
+			1,
+			null,
+			true
+		);
+		try {
+			cc.connect();
+			// Not cached by default
+			assertEquals(0L, cc.getAvailabilityTtl());
+			cc.getApplicationAvailability(Arrays.asList("CC1AD845", "NoSuchApp"));
+			assertTrue(cc.channel.availabilityCache.isEmpty());
+			assertEquals(1, mock.getAppAvailabilityCount.get());
+
+			cc.setAvailabilityTtl(60000L);
+			Map<String, Boolean> availability = cc.getApplicationAvailability(Arrays.asList("CC1AD845", "NoSuchApp"));
+			assertEquals(2, availability.size());
+			assertEquals(Boolean.TRUE, availability.get("CC1AD845"));
+			assertEquals(Boolean.FALSE, availability.get("NoSuchApp"));
+			assertEquals(2, mock.getAppAvailabilityCount.get());
+			availability = cc.getApplicationAvailability(Arrays.asList("NoSuchApp", "CC1AD845"));
+			assertEquals(Boolean.TRUE, availability.get("CC1AD845"));
+			assertEquals(2, mock.getAppAvailabilityCount.get());
+
+			// The single application query is never cached
+			assertTrue(cc.isApplicationAvailable("CC1AD845"));
+			assertFalse(cc.isApplicationAvailable("NoSuchApp"));
+			assertEquals(4, mock.getAppAvailabilityCount.get());
+
+			// Disconnecting clears the cache
+			assertEquals(2, cc.channel.availabilityCache.size());
+			cc.disconnect();
+			assertTrue(cc.channel.availabilityCache.isEmpty());
+		} finally {
+			mock.close();
+		}
+	}
+
+	@Test
+	public void liveRequestBatchTest() throws Exception {
+		MockedChromeCast mock = new MockedChromeCast();
+		CastDevice cc = new CastDevice(
+			"Mock",
+			"localhost",
+			null,
+			null,
+			"unique",
+			EnumSet.of(CastDeviceCapability.AUDIO_OUT, CastDeviceCapability.VIDEO_OUT),
+			"Mocked ChromeCast",
+			"Mock",
+			1,
+			null,
+			true
+		);
+		try {
+			cc.connect();
+			RequestBatch batch = cc.newRequestBatch(Channel.PLATFORM_SENDER_ID, Channel.PLATFORM_RECEIVER_ID)
+				.add("urn:x-cast:com.google.cast.receiver", new GetStatus(), ReceiverStatusResponse.class)
+				.add("urn:x-cast:com.google.cast.receiver", new GetStatus(), null)
+				.add("urn:x-cast:com.google.cast.receiver", new GetStatus(), ReceiverStatusResponse.class);
+			assertEquals(3, batch.size());
+			List<Response> responses = batch.sendAsync().get(15, TimeUnit.SECONDS);
+			assertEquals(3, responses.size());
+			assertTrue(responses.get(0) instanceof ReceiverStatusResponse);
+			assertNull(responses.get(1));
+			assertTrue(responses.get(2) instanceof ReceiverStatusResponse);
+			assertNotEquals(
+				((ReceiverStatusResponse) responses.get(0)).getRequestId(),
+				((ReceiverStatusResponse) responses.get(2)).getRequestId()
+			);
+			cc.disconnect();
+		} finally {
+			mock.close();
+		}
+	}
+
+	@Test
+	public void unknownMessageTest() throws Exception {
+		CastEventListenerList listeners = new SimpleCastEventListenerList("Mocked device");
+		final List<CastEvent<?>> events = new ArrayList<>();
+		listeners.add(new CastEventListener() {
+
+			@Override
+			public void onEvent(CastEvent<?> event) {
+				events.add(event);
+			}
+		});
+		Channel channel = new Channel("localhost", "test", listeners);
+		CastMessage message = CastMessage.newBuilder()
+			.setProtocolVersion(ProtocolVersion.CASTV2_1_0)
+			.setSourceId("receiver-0")
+			.setDestinationId("sender-0")
+			.setNamespace("namespace")
+			.setPayloadType(PayloadType.STRING)
+			.setPayloadUtf8("{\"type\":\"PING\",\"extra\":{\"type\":\"nested\"}}")
+			.build();
+		InputHandler handler = channel.new InputHandler(new ByteArrayInputStream(new byte[0]));
+		handler.processStringMessage((ImmutableStringCastMessage) ImmutableCastMessage.create(message), message.getPayloadUtf8());
+		assertEquals(1, events.size());
+		CastEvent<?> event = events.get(0);
+		assertEquals(CastEventType.UNKNOWN, event.getEventType());
+
+		// Only the top-level "type" is renamed
+		JsonNode data = event.getData(JsonNode.class);
+		assertEquals("PING", data.get("responseType").asText());
+		assertNull(data.get("type"));
+		assertEquals("nested", data.get("extra").get("type").asText());
+	}
+
+	@Test
+	public void writeDeadlineTest() throws Exception {
+		try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+			final Socket plainSocket = new Socket(InetAddress.getLoopbackAddress(), server.getLocalPort());
+			try (Socket peer = server.accept()) {
+				// The peer never reads, so the writes block once the buffers are full
+				DeadlineSink sink = new DeadlineSink(new OutboundQueue.MessageSink() {
+
+					@Override
+					public void write(List<CastMessage> messages) throws IOException {
+						byte[] chunk = new byte[64 * 1024];
+						while (true) {
+							plainSocket.getOutputStream().write(chunk);
+						}
+					}
+				}, plainSocket, "stalled", 200L);
+				long start = System.nanoTime();
+				try {
+					sink.write(new ArrayList<CastMessage>());
+					fail("The write should have failed");
+				} catch (IOException e) {
+					// Expected
+				}
+				assertTrue(plainSocket.isClosed());
+				assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) < 10);
+			} finally {
+				plainSocket.close();
+			}
+		}
+	}
+
 	private static class CustomMessage {
 
 		@JsonProperty
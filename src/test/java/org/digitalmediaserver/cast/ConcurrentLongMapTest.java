@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2021 Digital Media Server developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.digitalmediaserver.cast;
+
+import org.junit.Test;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ConcurrentLongMapTest {
+
+	@Test
+	public void testBasicOperations() {
+		ConcurrentLongMap<String> map = new ConcurrentLongMap<>(4);
+		assertTrue(map.isEmpty());
+		for (long i = 0; i < 20; i++) {
+			assertNull(map.putIfAbsent(i, "v" + i));
+		}
+		assertEquals(20, map.size());
+		assertEquals("v5", map.putIfAbsent(5L, "other"));
+		assertEquals("v5", map.get(5L));
+		String value = map.get(5L);
+		assertNull(map.remove(5L, "other"));
+		assertEquals("v5", map.remove(5L, value));
+		assertNull(map.get(5L));
+		assertEquals("v9", map.remove(9L));
+		assertNull(map.remove(9L));
+		assertEquals(18, map.size());
+		assertEquals(18, map.values().size());
+		for (long i = 0; i < 20; i++) {
+			if (i != 5L && i != 9L) {
+				assertEquals("v" + i, map.get(i));
+			}
+		}
+	}
+
+	@Test
+	public void testConcurrentAccess() throws InterruptedException {
+		final ConcurrentLongMap<Long> map = new ConcurrentLongMap<>(8);
+		final int threadCount = 4;
+		final int perThread = 5000;
+		final CountDownLatch start = new CountDownLatch(1);
+		final AtomicInteger removed = new AtomicInteger();
+		Thread[] threads = new Thread[threadCount];
+		for (int t = 0; t < threadCount; t++) {
+			final long offset = t * (long) perThread;
+			threads[t] = new Thread(new Runnable() {
+
+				@Override
+				public void run() {
+					try {
+						start.await();
+					} catch (InterruptedException e) {
+						return;
+					}
+					for (long i = offset; i < offset + perThread; i++) {
+						Long value = Long.valueOf(i);
+						map.putIfAbsent(i, value);
+						if ((i & 1L) == 0L && map.remove(i, value) == value) {
+							removed.incrementAndGet();
+						}
+					}
+				}
+			});
+			threads[t].start();
+		}
+		start.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(threadCount * perThread / 2, removed.get());
+		assertEquals(threadCount * perThread / 2, map.size());
+		for (long i = 1; i < threadCount * perThread; i += 2) {
+			assertEquals(i, map.get(i).longValue());
+		}
+	}
+}
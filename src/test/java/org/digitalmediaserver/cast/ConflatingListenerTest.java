@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2021 Digital Media Server developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.digitalmediaserver.cast;
+
+import org.digitalmediaserver.cast.CastEvent.CastEventListener;
+import org.digitalmediaserver.cast.CastEvent.CastEventType;
+import org.digitalmediaserver.cast.CastEvent.ThreadedCastEventListenerList.ConflatingInvoker;
+import org.digitalmediaserver.cast.CastEvent.DefaultCastEvent;
+import org.digitalmediaserver.cast.CastEvent.ThreadedCastEventListenerList;
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ConflatingListenerTest {
+
+	@Test
+	public void testConflation() {
+		final List<Runnable> tasks = new ArrayList<>();
+		ThreadedCastEventListenerList listeners = new ThreadedCastEventListenerList(new Executor() {
+
+			@Override
+			public void execute(Runnable command) {
+				tasks.add(command);
+			}
+		}, "test");
+		final List<CastEvent<?>> conflated = new ArrayList<>();
+		final List<CastEvent<?>> regular = new ArrayList<>();
+		CastEventListener conflating = new CastEventListener() {
+
+			@Override
+			public void onEvent(CastEvent<?> event) {
+				conflated.add(event);
+			}
+		};
+		assertTrue(listeners.addConflating(conflating));
+		assertFalse(listeners.addConflating(conflating));
+		assertTrue(listeners.isConflating(conflating));
+		listeners.add(new CastEventListener() {
+
+			@Override
+			public void onEvent(CastEvent<?> event) {
+				regular.add(event);
+			}
+		});
+
+		listeners.fire(new DefaultCastEvent<>(CastEventType.MEDIA_STATUS, "m1"));
+		listeners.fire(new DefaultCastEvent<>(CastEventType.CONNECTED, Boolean.TRUE));
+		listeners.fire(new DefaultCastEvent<>(CastEventType.MEDIA_STATUS, "m2"));
+		listeners.fire(new DefaultCastEvent<>(CastEventType.RECEIVER_STATUS, "r1"));
+		listeners.fire(new DefaultCastEvent<>(CastEventType.MEDIA_STATUS, "m3"));
+		listeners.fire(new DefaultCastEvent<>(CastEventType.RECEIVER_STATUS, "r2"));
+
+		// One task for the conflating listener, one per event for the other
+		assertEquals(7, tasks.size());
+		for (Runnable task : tasks) {
+			task.run();
+		}
+		tasks.clear();
+		assertEquals(6, regular.size());
+
+		// Events are never conflated across a non-conflated event
+		assertEquals(4, conflated.size());
+		assertEquals("m1", conflated.get(0).getData());
+		assertEquals(CastEventType.CONNECTED, conflated.get(1).getEventType());
+		assertEquals("m3", conflated.get(2).getData());
+		assertEquals("r2", conflated.get(3).getData());
+
+		// Delivery resumes once the previous burst has been delivered
+		listeners.fire(new DefaultCastEvent<>(CastEventType.MEDIA_STATUS, "m4"));
+		assertEquals(2, tasks.size());
+		tasks.get(0).run();
+		assertEquals("m4", conflated.get(4).getData());
+
+		assertTrue(listeners.remove(conflating));
+		assertFalse(listeners.isConflating(conflating));
+	}
+
+	@Test
+	public void testBatching() {
+		final List<Runnable> tasks = new ArrayList<>();
+		ThreadedCastEventListenerList listeners = new ThreadedCastEventListenerList(new Executor() {
+
+			@Override
+			public void execute(Runnable command) {
+				tasks.add(command);
+			}
+		}, "test");
+		final List<CastEvent<?>> delivered = new ArrayList<>();
+		listeners.addConflating(new CastEventListener() {
+
+			@Override
+			public void onEvent(CastEvent<?> event) {
+				delivered.add(event);
+			}
+		});
+		int count = ConflatingInvoker.MAX_BATCH + 8;
+		for (int i = 0; i < count; i++) {
+			listeners.fire(new DefaultCastEvent<>(CastEventType.CONNECTED, Boolean.TRUE));
+		}
+		assertEquals(1, tasks.size());
+
+		// A full batch yields the thread and resubmits the invoker
+		tasks.remove(0).run();
+		assertEquals(ConflatingInvoker.MAX_BATCH, delivered.size());
+		assertEquals(1, tasks.size());
+
+		tasks.remove(0).run();
+		assertEquals(count, delivered.size());
+		assertTrue(tasks.isEmpty());
+	}
+}
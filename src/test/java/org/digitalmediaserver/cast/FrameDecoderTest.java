@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2021 Digital Media Server developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.digitalmediaserver.cast;
+
+import org.digitalmediaserver.cast.CastChannel.CastMessage;
+import org.digitalmediaserver.cast.CastChannel.CastMessage.PayloadType;
+import org.digitalmediaserver.cast.CastChannel.CastMessage.ProtocolVersion;
+import org.digitalmediaserver.cast.ImmutableCastMessage.ImmutableStringCastMessage;
+import org.junit.Test;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class FrameDecoderTest {
+
+	private static byte[] frames(String... payloads) throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		for (String payload : payloads) {
+			CastMessage message = CastMessage.newBuilder()
+				.setProtocolVersion(ProtocolVersion.CASTV2_1_0)
+				.setSourceId("receiver-0")
+				.setDestinationId("sender-0")
+				.setNamespace("urn:x-cast:test")
+				.setPayloadType(PayloadType.STRING)
+				.setPayloadUtf8(payload)
+				.build();
+			Util.writeB32Int(message.getSerializedSize(), bos);
+			message.writeTo(bos);
+		}
+		return bos.toByteArray();
+	}
+
+	@Test
+	public void testDecode() throws IOException {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 2000; i++) {
+			sb.append("0123456789");
+		}
+		String large = sb.toString();
+		byte[] data = frames("first", large, "third");
+
+		// Deliver the data in small chunks to exercise partial reads
+		InputStream is = new FilterInputStream(new ByteArrayInputStream(data)) {
+
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				return super.read(b, off, Math.min(len, 7));
+			}
+		};
+		FrameDecoder decoder = new FrameDecoder(is);
+		assertEquals("first", ((ImmutableStringCastMessage) decoder.readMessage()).getPayload());
+		assertEquals(large, ((ImmutableStringCastMessage) decoder.readMessage()).getPayload());
+		assertEquals("third", ((ImmutableStringCastMessage) decoder.readMessage()).getPayload());
+		try {
+			decoder.readMessage();
+			fail("Expected EOFException");
+		} catch (EOFException e) {
+			// Expected
+		}
+	}
+
+	@Test
+	public void testMaxFrameSize() throws IOException {
+		FrameDecoder decoder = new FrameDecoder(new ByteArrayInputStream(new byte[] {0x7f, 0, 0, 0, 1, 2, 3}));
+		try {
+			decoder.readMessage();
+			fail("Expected CastException");
+		} catch (CastException e) {
+			// Expected
+		}
+
+		decoder = new FrameDecoder(new ByteArrayInputStream(frames("Too large for the limit")), 10);
+		try {
+			decoder.readMessage();
+			fail("Expected CastException");
+		} catch (CastException e) {
+			// Expected
+		}
+	}
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2021 Digital Media Server developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.digitalmediaserver.cast;
+
+import org.digitalmediaserver.cast.CastChannel.CastMessage;
+import org.digitalmediaserver.cast.CastChannel.CastMessage.PayloadType;
+import org.digitalmediaserver.cast.CastChannel.CastMessage.ProtocolVersion;
+import org.digitalmediaserver.cast.ImmutableCastMessage.ImmutableStringCastMessage;
+import org.junit.Test;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FrameEncoderTest {
+
+	private static CastMessage message(String payload) {
+		return CastMessage.newBuilder()
+			.setProtocolVersion(ProtocolVersion.CASTV2_1_0)
+			.setSourceId("sender-0")
+			.setDestinationId("receiver-0")
+			.setNamespace("urn:x-cast:test")
+			.setPayloadType(PayloadType.STRING)
+			.setPayloadUtf8(payload)
+			.build();
+	}
+
+	@Test
+	public void testEncode() throws Exception {
+		final AtomicInteger writes = new AtomicInteger();
+		final ByteArrayOutputStream bos = new ByteArrayOutputStream() {
+
+			@Override
+			public synchronized void write(byte[] b, int off, int len) {
+				writes.incrementAndGet();
+				super.write(b, off, len);
+			}
+
+			@Override
+			public synchronized void write(int b) {
+				writes.incrementAndGet();
+				super.write(b);
+			}
+		};
+		final FrameEncoder encoder = new FrameEncoder(bos);
+		encoder.write(message("single"));
+		assertEquals(1, writes.get());
+
+		int threadCount = 4;
+		final int perThread = 100;
+		Thread[] threads = new Thread[threadCount];
+		for (int t = 0; t < threadCount; t++) {
+			final int id = t;
+			threads[t] = new Thread(new Runnable() {
+
+				@Override
+				public void run() {
+					for (int i = 0; i < perThread; i++) {
+						try {
+							encoder.write(message(id + ":" + i));
+						} catch (IOException e) {
+							throw new AssertionError(e);
+						}
+					}
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertTrue(writes.get() <= 1 + threadCount * perThread);
+
+		FrameDecoder decoder = new FrameDecoder(new ByteArrayInputStream(bos.toByteArray()));
+		assertEquals("single", ((ImmutableStringCastMessage) decoder.readMessage()).getPayload());
+		Set<String> payloads = new HashSet<>();
+		for (int i = 0; i < threadCount * perThread; i++) {
+			payloads.add(((ImmutableStringCastMessage) decoder.readMessage()).getPayload());
+		}
+		assertEquals(threadCount * perThread, payloads.size());
+	}
+}
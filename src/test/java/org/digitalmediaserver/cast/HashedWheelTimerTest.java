@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2021 Digital Media Server developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.digitalmediaserver.cast;
+
+import org.digitalmediaserver.cast.HashedWheelTimer.Timeout;
+import org.junit.Test;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class HashedWheelTimerTest {
+
+	@Test
+	public void testExpireAndCancel() throws InterruptedException {
+		HashedWheelTimer timer = new HashedWheelTimer("Test timer", 5L, TimeUnit.MILLISECONDS, 8);
+		try {
+			final CountDownLatch latch = new CountDownLatch(100);
+			final AtomicInteger cancelledRuns = new AtomicInteger();
+			Runnable counter = new Runnable() {
+
+				@Override
+				public void run() {
+					latch.countDown();
+				}
+			};
+			Runnable cancelled = new Runnable() {
+
+				@Override
+				public void run() {
+					cancelledRuns.incrementAndGet();
+				}
+			};
+			Timeout[] toCancel = new Timeout[100];
+			for (int i = 0; i < 100; i++) {
+				// Delays spanning several rotations of the wheel
+				timer.newTimeout(counter, i * 2L, TimeUnit.MILLISECONDS);
+				toCancel[i] = timer.newTimeout(cancelled, 100L + i, TimeUnit.MILLISECONDS);
+			}
+			for (Timeout timeout : toCancel) {
+				assertTrue(timeout.cancel());
+				assertFalse(timeout.cancel());
+			}
+			assertTrue(latch.await(5L, TimeUnit.SECONDS));
+			Thread.sleep(300L);
+			assertEquals(0, cancelledRuns.get());
+			assertEquals(0L, timer.getPendingTimeouts());
+		} finally {
+			timer.shutdown();
+		}
+		try {
+			timer.newTimeout(new Runnable() {
+
+				@Override
+				public void run() {
+				}
+			}, 1L, TimeUnit.SECONDS);
+			fail("Expected RejectedExecutionException");
+		} catch (RejectedExecutionException e) {
+			// Expected
+		}
+	}
+}
@@ -25,6 +25,7 @@ import org.junit.rules.ExpectedException;
 
 import java.io.IOException;
 import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CyclicBarrier;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeoutException;
@@ -33,6 +34,7 @@ import java.util.concurrent.atomic.AtomicReference;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class InterruptionTest {
 
@@ -155,6 +157,39 @@ public class InterruptionTest {
 		cast.channel().send(null, "urn:x-cast:test", new Custom(), "sender-0", "receiver-0", Custom.class, 100L);
 	}
 
+	@Test
+	public void testAsyncTimeOut() throws InterruptedException {
+		chromeCastStub.customHandler = new MockedChromeCast.CustomHandler() {
+
+			@Override
+			public Response handle(JsonNode json) {
+				try {
+					Thread.sleep(10 * 1000);
+				} catch (InterruptedException e) {
+					e.printStackTrace();
+				}
+				return new Custom();
+			}
+		};
+		CompletableFuture<Custom> future = cast.channel.sendAsync(
+			null,
+			"urn:x-cast:test",
+			new Custom(),
+			"sender-0",
+			"receiver-0",
+			Custom.class,
+			100L
+		);
+		try {
+			future.get();
+			fail("Expected a timeout");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof CastException);
+			assertTrue(e.getCause().getCause() instanceof TimeoutException);
+			assertEquals("Waiting for response timed out", e.getCause().getMessage());
+		}
+	}
+
 	@After
 	public void destroy() throws IOException {
 		cast.disconnect();
@@ -0,0 +1,41 @@
+/*
+ * Copyright (C) 2021 Digital Media Server developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.digitalmediaserver.cast;
+
+import org.digitalmediaserver.cast.StandardResponse.PongResponse;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class JacksonHelperTest {
+
+	@Test
+	public void testCachedReadersAndWriters() throws Exception {
+		JacksonHelper.warmUp();
+		assertSame(JacksonHelper.readerFor(StandardResponse.class), JacksonHelper.readerFor(StandardResponse.class));
+		assertSame(
+			JacksonHelper.writerFor(StandardRequest.GetStatus.class),
+			JacksonHelper.writerFor(StandardRequest.GetStatus.class)
+		);
+		assertSame(JacksonHelper.getSharedMapper(), JacksonHelper.getSharedMapper());
+
+		String json = JacksonHelper.writerFor(StandardMessage.Ping.class).writeValueAsString(new StandardMessage.Ping());
+		assertEquals("{\"type\":\"PING\"}", json);
+		Object response = JacksonHelper.readerFor(StandardResponse.class).readValue("{\"responseType\":\"PONG\"}");
+		assertTrue(response instanceof PongResponse);
+	}
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2021 Digital Media Server developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.digitalmediaserver.cast;
+
+import org.digitalmediaserver.cast.Media.StreamType;
+import org.digitalmediaserver.cast.MediaStatus.PlayerState;
+import org.digitalmediaserver.cast.MediaStatusUpdate.Field;
+import org.junit.Test;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class MediaStatusUpdateTest {
+
+	private static MediaStatus status(int sessionId, double currentTime, PlayerState state, Media media, List<QueueItem> items) {
+		return new MediaStatus(
+			null, null, currentTime, null, null, null, items, null, null, media, sessionId,
+			1f, state, null, null, null, 15, null, new MediaVolume(1d, false)
+		);
+	}
+
+	private static QueueItem item(int itemId, String url) {
+		return new QueueItem(
+			null, Boolean.TRUE, null, Integer.valueOf(itemId),
+			Media.builder(url, "video/mp4", StreamType.BUFFERED).build(), null, null, null
+		);
+	}
+
+	@Test
+	public void testMerge() {
+		Media media = Media.builder("http://host/a.mp4", "video/mp4", StreamType.BUFFERED).duration(Double.valueOf(60d)).build();
+		List<QueueItem> items = Arrays.asList(item(1, "http://host/a.mp4"), item(2, "http://host/b.mp4"));
+		MediaStatus first = status(7, 1d, PlayerState.PLAYING, media, items);
+
+		MediaStatusUpdate update = MediaStatusUpdate.merge(null, first);
+		assertNull(update.getPrevious());
+		assertSame(first, update.getMediaStatus());
+		assertEquals(Field.values().length, update.getChangedFields().size());
+
+		// A partial update without media and items
+		update = MediaStatusUpdate.merge(first, status(7, 2d, PlayerState.PLAYING, null, null));
+		MediaStatus merged = update.getMediaStatus();
+		assertSame(media, merged.getMedia());
+		assertSame(items.get(0), merged.getItems().get(0));
+		assertEquals(2d, merged.getCurrentTime(), 0d);
+		assertTrue(update.hasChanged(Field.CURRENT_TIME));
+		assertFalse(update.hasChanged(Field.MEDIA));
+		assertFalse(update.hasChanges());
+
+		// A full update with equal media and one changed item
+		Media equalMedia = Media.builder("http://host/a.mp4", "video/mp4", StreamType.BUFFERED).duration(Double.valueOf(60d)).build();
+		QueueItem changed = item(2, "http://host/c.mp4");
+		update = MediaStatusUpdate.merge(merged, status(7, 2d, PlayerState.PAUSED, equalMedia, Arrays.asList(item(1, "http://host/a.mp4"), changed)));
+		assertSame(media, update.getMediaStatus().getMedia());
+		assertSame(items.get(0), update.getMediaStatus().getItems().get(0));
+		assertSame(changed, update.getMediaStatus().getItems().get(1));
+		assertEquals(2, update.getChangedFields().size());
+		assertTrue(update.hasChanged(Field.PLAYER_STATE));
+		assertTrue(update.hasChanged(Field.ITEMS));
+		assertTrue(update.hasChanges());
+
+		// An empty item list clears the queue, a missing one doesn't
+		MediaStatus queued = update.getMediaStatus();
+		update = MediaStatusUpdate.merge(queued, status(7, 3d, PlayerState.PAUSED, null, null));
+		assertTrue(update.getMediaStatus().isItemsIncluded());
+		assertEquals(2, update.getMediaStatus().getItems().size());
+		assertFalse(update.hasChanged(Field.ITEMS));
+		update = MediaStatusUpdate.merge(queued, status(7, 3d, PlayerState.IDLE, null, Collections.<QueueItem>emptyList()));
+		assertTrue(update.getMediaStatus().isItemsIncluded());
+		assertTrue(update.getMediaStatus().getItems().isEmpty());
+		assertTrue(update.hasChanged(Field.ITEMS));
+		assertFalse(status(7, 3d, PlayerState.IDLE, null, null).isItemsIncluded());
+
+		// Another media session replaces everything
+		MediaStatus other = status(8, 0d, PlayerState.BUFFERING, null, null);
+		update = MediaStatusUpdate.merge(update.getMediaStatus(), other);
+		assertSame(other, update.getMediaStatus());
+		assertNull(update.getMediaStatus().getMedia());
+	}
+}
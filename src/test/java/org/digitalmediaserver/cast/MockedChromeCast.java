@@ -38,8 +38,13 @@ import java.security.KeyStore;
 import java.security.SecureRandom;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class MockedChromeCast {
 
@@ -49,6 +54,9 @@ public class MockedChromeCast {
 	public final ClientThread clientThread;
 	public List<Application> runningApplications = new ArrayList<>();
 	public CustomHandler customHandler;
+	public final AtomicInteger getStatusCount = new AtomicInteger();
+	public final AtomicInteger getAppAvailabilityCount = new AtomicInteger();
+	public Set<String> availableApplications = new HashSet<>();
 
 	public interface CustomHandler {
 		Response handle(JsonNode json);
@@ -72,11 +80,11 @@ public class MockedChromeCast {
 	public class ClientThread extends Thread {
 
 		public volatile boolean stop;
+		public volatile Socket clientSocket;
 		public final ObjectMapper jsonMapper = JacksonHelper.createJSONMapper();
 
 		@Override
 		public void run() {
-			Socket clientSocket = null;
 			try {
 				clientSocket = socket.accept();
 				while (!stop) {
@@ -160,7 +168,16 @@ public class MockedChromeCast {
 			if (message instanceof StandardMessage.Ping) {
 				return new StandardResponse.PongResponse();
 			} else if (message instanceof StandardRequest.GetStatus) {
+				getStatusCount.incrementAndGet();
 				return new StandardResponse.ReceiverStatusResponse(((StandardRequest.GetStatus) message).getRequestId(), status());
+			} else if (message instanceof StandardRequest.GetAppAvailability) {
+				getAppAvailabilityCount.incrementAndGet();
+				StandardRequest.GetAppAvailability request = (StandardRequest.GetAppAvailability) message;
+				Map<String, String> availability = new HashMap<>();
+				for (String appId : request.getAppId()) {
+					availability.put(appId, availableApplications.contains(appId) ? "APP_AVAILABLE" : "APP_UNAVAILABLE");
+				}
+				return new StandardResponse.AppAvailabilityResponse(request.getRequestId(), availability);
 			} else if (message instanceof StandardRequest.Launch) {
 				StandardRequest.Launch launch = (StandardRequest.Launch) message;
 				String transportId = UUID.randomUUID().toString();
@@ -241,5 +258,9 @@ public class MockedChromeCast {
 	public void close() throws IOException {
 		clientThread.stop = true;
 		this.socket.close();
+		Socket clientSocket = clientThread.clientSocket;
+		if (clientSocket != null) {
+			clientSocket.close();
+		}
 	}
 }
@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2021 Digital Media Server developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.digitalmediaserver.cast;
+
+import org.digitalmediaserver.cast.CastChannel.CastMessage;
+import org.digitalmediaserver.cast.CastChannel.CastMessage.PayloadType;
+import org.digitalmediaserver.cast.CastChannel.CastMessage.ProtocolVersion;
+import org.digitalmediaserver.cast.OutboundQueue.Priority;
+import org.junit.Test;
+import java.io.IOException;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class OutboundQueueTest {
+
+	private static CastMessage message(String payload) {
+		return CastMessage.newBuilder()
+			.setProtocolVersion(ProtocolVersion.CASTV2_1_0)
+			.setSourceId("sender-0")
+			.setDestinationId("receiver-0")
+			.setNamespace("urn:x-cast:test")
+			.setPayloadType(PayloadType.STRING)
+			.setPayloadUtf8(payload)
+			.build();
+	}
+
+	@Test
+	public void testPriorityAndCapacity() throws Exception {
+		final List<Runnable> tasks = new ArrayList<>();
+		final List<String> written = new ArrayList<>();
+		OutboundQueue queue = new OutboundQueue("test", new Executor() {
+
+			@Override
+			public void execute(Runnable command) {
+				tasks.add(command);
+			}
+		}, new OutboundQueue.MessageSink() {
+
+			@Override
+			public void write(List<CastMessage> messages) throws IOException {
+				for (CastMessage message : messages) {
+					written.add(message.getPayloadUtf8());
+				}
+			}
+		}, 2);
+
+		CompletableFuture<Void> n1 = queue.enqueue(message("n1"), Priority.NORMAL);
+		CompletableFuture<Void> n2 = queue.enqueue(message("n2"), Priority.NORMAL);
+		CompletableFuture<Void> n3 = queue.enqueue(message("n3"), Priority.NORMAL);
+		CompletableFuture<Void> c1 = queue.enqueue(message("c1"), Priority.CONTROL);
+		assertEquals(1, tasks.size());
+		assertEquals(3, queue.size());
+		assertEquals(1, queue.size(Priority.CONTROL));
+		assertTrue(n3.isCompletedExceptionally());
+		try {
+			n3.get();
+			fail("Full queue didn't fail");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof CastException);
+		}
+		assertFalse(n1.isDone());
+
+		tasks.remove(0).run();
+		assertEquals(0, queue.size());
+		assertTrue(n1.isDone() && n2.isDone() && c1.isDone());
+		assertFalse(n1.isCompletedExceptionally());
+		assertEquals(3, written.size());
+		assertEquals("c1", written.get(0));
+		assertEquals("n1", written.get(1));
+		assertEquals("n2", written.get(2));
+
+		// A new writer task is scheduled once the previous one has finished
+		CompletableFuture<Void> n4 = queue.enqueue(message("n4"), Priority.NORMAL);
+		assertEquals(1, tasks.size());
+		queue.clear(new SocketException("Closed"));
+		assertTrue(n4.isCompletedExceptionally());
+		tasks.remove(0).run();
+		assertEquals(3, written.size());
+	}
+
+	@Test
+	public void testWriterYields() throws Exception {
+		final List<Runnable> tasks = new ArrayList<>();
+		final List<String> written = new ArrayList<>();
+		int total = (OutboundQueue.MAX_BATCHES_PER_RUN + 1) * OutboundQueue.MAX_BATCH;
+		OutboundQueue queue = new OutboundQueue("test", new Executor() {
+
+			@Override
+			public void execute(Runnable command) {
+				tasks.add(command);
+			}
+		}, new OutboundQueue.MessageSink() {
+
+			@Override
+			public void write(List<CastMessage> messages) throws IOException {
+				for (CastMessage message : messages) {
+					written.add(message.getPayloadUtf8());
+				}
+			}
+		}, total);
+
+		for (int i = 0; i < total; i++) {
+			queue.enqueue(message("n" + i), Priority.NORMAL);
+		}
+		assertEquals(1, tasks.size());
+		tasks.remove(0).run();
+		assertEquals(OutboundQueue.MAX_BATCHES_PER_RUN * OutboundQueue.MAX_BATCH, written.size());
+		assertEquals(1, tasks.size());
+		tasks.remove(0).run();
+		assertEquals(total, written.size());
+		assertEquals("n" + (total - 1), written.get(total - 1));
+		assertTrue(tasks.isEmpty());
+
+		queue.enqueue(message("last"), Priority.NORMAL);
+		assertEquals(1, tasks.size());
+	}
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2021 Digital Media Server developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.digitalmediaserver.cast;
+
+import org.digitalmediaserver.cast.MediaStatus.PlayerState;
+import org.junit.Test;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PlaybackPositionTest {
+
+	@Test
+	public void testEstimatedPosition() {
+		long twoSecondsAgo = System.nanoTime() - TimeUnit.SECONDS.toNanos(2);
+		PlaybackPosition playing = new PlaybackPosition(1, 10d, 1f, PlayerState.PLAYING, null, twoSecondsAgo);
+		assertTrue(playing.isPlaying());
+		assertEquals(12d, playing.estimatedPosition(), 0.5);
+		assertTrue(playing.getAge() >= 2000L);
+
+		PlaybackPosition fast = new PlaybackPosition(1, 10d, 2f, PlayerState.PLAYING, null, twoSecondsAgo);
+		assertEquals(14d, fast.estimatedPosition(), 0.5);
+
+		PlaybackPosition paused = new PlaybackPosition(1, 10d, 1f, PlayerState.PAUSED, null, twoSecondsAgo);
+		assertFalse(paused.isPlaying());
+		assertEquals(10d, paused.estimatedPosition(), 0.0);
+
+		PlaybackPosition ending = new PlaybackPosition(1, 10d, 1f, PlayerState.PLAYING, Double.valueOf(11d), twoSecondsAgo);
+		assertEquals(11d, ending.estimatedPosition(), 0.0);
+	}
+}
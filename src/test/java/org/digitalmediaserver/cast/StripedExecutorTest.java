@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2021 Digital Media Server developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.digitalmediaserver.cast;
+
+import org.digitalmediaserver.cast.StripedExecutor.RejectionPolicy;
+import org.digitalmediaserver.cast.StripedExecutor.Stripe;
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class StripedExecutorTest {
+
+	@Test
+	public void testOrderingAndRejection() throws Exception {
+		StripedExecutor executor = new StripedExecutor("Test executor", 2, 4, RejectionPolicy.ABORT);
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final List<Integer> order = Collections.synchronizedList(new ArrayList<Integer>());
+		Stripe stripe = executor.newStripe("stripe");
+		stripe.execute(new Runnable() {
+
+			@Override
+			public void run() {
+				started.countDown();
+				try {
+					release.await(5, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		for (int i = 0; i < 3; i++) {
+			final int value = i;
+			stripe.execute(new Runnable() {
+
+				@Override
+				public void run() {
+					order.add(Integer.valueOf(value));
+				}
+			});
+		}
+		assertEquals(3, executor.getQueueDepth());
+
+		Stripe other = executor.newStripe("other");
+		final CountDownLatch otherDone = new CountDownLatch(1);
+		other.execute(new Runnable() {
+
+			@Override
+			public void run() {
+				otherDone.countDown();
+			}
+		});
+		assertTrue("Stripes aren't run in parallel", otherDone.await(5, TimeUnit.SECONDS));
+
+		while (executor.getQueueDepth() > 3) {
+			// Wait for the other stripe's task to be dequeued
+			Thread.sleep(5L);
+		}
+		stripe.execute(new Runnable() {
+
+			@Override
+			public void run() {
+				order.add(Integer.valueOf(3));
+			}
+		});
+		assertTrue(executor.isSaturated());
+		try {
+			stripe.execute(new Runnable() {
+
+				@Override
+				public void run() {
+					order.add(Integer.valueOf(-1));
+				}
+			});
+			fail("Full executor didn't reject");
+		} catch (RejectedExecutionException e) {
+			// Expected
+		}
+		assertEquals(1L, executor.getRejectedCount());
+
+		executor.setRejectionPolicy(RejectionPolicy.DISCARD_OLDEST);
+		stripe.execute(new Runnable() {
+
+			@Override
+			public void run() {
+				order.add(Integer.valueOf(4));
+			}
+		});
+		assertEquals(2L, executor.getRejectedCount());
+
+		release.countDown();
+		long deadline = System.currentTimeMillis() + 5000L;
+		while (executor.getQueueDepth() > 0 || order.size() < 4) {
+			if (System.currentTimeMillis() > deadline) {
+				fail("Tasks weren't run");
+			}
+			Thread.sleep(5L);
+		}
+		Thread.sleep(20L);
+		assertEquals("[1, 2, 3, 4]", order.toString());
+		assertEquals(4, executor.getLargestQueueDepth());
+	}
+
+	@Test
+	public void testErrorDoesNotStallStripe() throws Exception {
+		StripedExecutor executor = new StripedExecutor("Test executor", 1, 10, RejectionPolicy.ABORT);
+		Stripe stripe = executor.newStripe("stripe");
+		final CountDownLatch done = new CountDownLatch(1);
+		stripe.execute(new Runnable() {
+
+			@Override
+			public void run() {
+				throw new AssertionError("Expected test error");
+			}
+		});
+		stripe.execute(new Runnable() {
+
+			@Override
+			public void run() {
+				done.countDown();
+			}
+		});
+		assertTrue("Stripe stopped after an Error", done.await(5, TimeUnit.SECONDS));
+		final CountDownLatch later = new CountDownLatch(1);
+		stripe.execute(new Runnable() {
+
+			@Override
+			public void run() {
+				later.countDown();
+			}
+		});
+		assertTrue(later.await(5, TimeUnit.SECONDS));
+	}
+}
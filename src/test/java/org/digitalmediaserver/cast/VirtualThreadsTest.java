@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2021 Digital Media Server developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.digitalmediaserver.cast;
+
+import org.junit.Test;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class VirtualThreadsTest {
+
+	@Test
+	public void testThreadCreation() throws Exception {
+		boolean enabled = VirtualThreads.isEnabled();
+		VirtualThreads.setEnabled(true);
+		try {
+			assertEquals(VirtualThreads.isSupported(), VirtualThreads.isActive());
+			final CountDownLatch latch = new CountDownLatch(1);
+			ThreadFactory factory = VirtualThreads.newThreadFactory("Test thread", true);
+			Thread thread = factory.newThread(new Runnable() {
+
+				@Override
+				public void run() {
+					latch.countDown();
+				}
+			});
+			assertEquals("Test thread #1", thread.getName());
+			assertTrue(thread.isDaemon());
+			thread.start();
+			assertTrue(latch.await(5, TimeUnit.SECONDS));
+		} finally {
+			VirtualThreads.setEnabled(enabled);
+		}
+	}
+}